@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("org.lwjgl.plugin") version "0.0.35"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.horrorcore"
@@ -18,6 +19,7 @@ dependencies {
     implementation("org.lwjgl", "lwjgl")
     implementation("org.lwjgl", "lwjgl-glfw")
     implementation("org.lwjgl", "lwjgl-opengl")
+    implementation("org.lwjgl", "lwjgl-stb")
     implementation("org.joml:joml:1.10.8")
 
 
@@ -25,6 +27,7 @@ dependencies {
         runtimeOnly("org.lwjgl", "lwjgl", classifier = native)
         runtimeOnly("org.lwjgl", "lwjgl-glfw", classifier = native)
         runtimeOnly("org.lwjgl", "lwjgl-opengl", classifier = native)
+        runtimeOnly("org.lwjgl", "lwjgl-stb", classifier = native)
     }
 
 
@@ -36,6 +39,40 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Whole-engine benchmarks that open a window live in src/benchmark/java, outside the library jar.
+// Each has a task, e.g. ./gradlew denseMeshBenchmark --args="512 16 300"
+sourceSets {
+    create("benchmark") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+configurations["benchmarkImplementation"].extendsFrom(configurations.implementation.get())
+configurations["benchmarkRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
+listOf("DenseMeshBenchmark", "HeadlessRenderBenchmark", "StartupBenchmark").forEach { benchmark ->
+    tasks.register<JavaExec>(benchmark.replaceFirstChar { it.lowercase() }) {
+        group = "benchmark"
+        description = "Runs $benchmark, pass its arguments with --args"
+        classpath = sourceSets["benchmark"].runtimeClasspath
+        mainClass.set("com.horrorcore.engine.benchmark.$benchmark")
+    }
+}
+
+// Microbenchmarks live in src/jmh/java, run with ./gradlew jmh
+// Narrow the run with -PjmhIncludes=<regex>, results are written to build/results/jmh
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
+}
+
 java {
     toolchain {
         languageVersion.set(JavaLanguageVersion.of(17))
@@ -0,0 +1,137 @@
+package com.horrorcore.engine.benchmark;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.graphics.BasicShader;
+import com.horrorcore.engine.core.graphics.Camera;
+import com.horrorcore.engine.core.graphics.CameraUniformBuffer;
+import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.graphics.MeshGenerator;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL33.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Measures vertex throughput of the MeshRenderer path on a dense sphere.
+ * Runs the same scene once with BasicShader deriving its matrices per vertex and once with
+ * the matrices cached on the CPU, and prints GPU time per frame and vertices per second.
+ *
+ * Usage: DenseMeshBenchmark [segments] [objects] [frames]
+ */
+public class DenseMeshBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int WARMUP_FRAMES = 30;
+
+    public static void main(String[] args) {
+        int segments = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int objectCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+
+        GLFWErrorCallback.createPrint(System.err).set();
+        if (!glfwInit()) {
+            throw new IllegalStateException("Unable to initialize GLFW");
+        }
+
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+        glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
+
+        long window = glfwCreateWindow(WIDTH, HEIGHT, "Dense Mesh Benchmark", NULL, NULL);
+        if (window == NULL) {
+            throw new RuntimeException("Failed to create GLFW window");
+        }
+        glfwMakeContextCurrent(window);
+        glfwSwapInterval(0);
+        GL.createCapabilities();
+
+        try {
+            glViewport(0, 0, WIDTH, HEIGHT);
+            glEnable(GL_DEPTH_TEST);
+
+            Mesh mesh = MeshGenerator.createSphere(segments, segments);
+            CameraUniformBuffer cameraBuffer = new CameraUniformBuffer();
+            Camera camera = new Camera(new Vector3f(0.0f, 4.0f, 6.0f));
+            Matrix4f projection = new Matrix4f()
+                    .perspective((float) Math.toRadians(45.0f), (float) WIDTH / HEIGHT, 0.1f, 100.0f);
+            cameraBuffer.update(camera.getViewMatrix(), projection, camera.getPosition(), 0.0f);
+
+            System.out.println("Dense mesh: " + mesh.getVertexCount() + " vertices, "
+                    + mesh.getIndexCount() / 3 + " triangles, " + objectCount + " objects, " + frames + " frames");
+
+            double perVertexMs = run(mesh, cameraBuffer, false, objectCount, frames);
+            double precomputedMs = run(mesh, cameraBuffer, true, objectCount, frames);
+
+            long verticesPerFrame = (long) mesh.getVertexCount() * objectCount;
+            report("per-vertex matrices ", perVertexMs, verticesPerFrame);
+            report("precomputed matrices", precomputedMs, verticesPerFrame);
+
+            mesh.cleanup();
+            cameraBuffer.cleanup();
+        } finally {
+            glfwDestroyWindow(window);
+            glfwTerminate();
+            GLFWErrorCallback callback = glfwSetErrorCallback(null);
+            if (callback != null) {
+                callback.free();
+            }
+        }
+    }
+
+    // Returns the average GPU time per frame in milliseconds
+    private static double run(Mesh mesh, CameraUniformBuffer cameraBuffer, boolean precomputed,
+                              int objectCount, int frames) {
+        BasicShader shader = new BasicShader(precomputed);
+
+        // Lay the objects out on a square grid, all sharing one mesh and one program
+        List<MeshRenderer> renderers = new ArrayList<>();
+        int side = (int) Math.ceil(Math.sqrt(objectCount));
+        for (int i = 0; i < objectCount; i++) {
+            GameObject object = new GameObject("Sphere" + i);
+            object.getTransform().setPosition((i % side) - side / 2.0f, 0.0f, (i / side) - side / 2.0f);
+            MeshRenderer renderer = new MeshRenderer(mesh, shader);
+            renderer.setColor(0.2f, 0.5f, 0.8f);
+            object.addComponent(renderer);
+            renderers.add(renderer);
+        }
+
+        int query = glGenQueries();
+        long totalNanos = 0;
+        for (int frame = 0; frame < WARMUP_FRAMES + frames; frame++) {
+            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+            glBeginQuery(GL_TIME_ELAPSED, query);
+            for (MeshRenderer renderer : renderers) {
+                renderer.render(cameraBuffer);
+            }
+            glEndQuery(GL_TIME_ELAPSED);
+
+            // Blocking readback is fine here, we only care about the measured value
+            long elapsed = glGetQueryObjecti64(query, GL_QUERY_RESULT);
+            if (frame >= WARMUP_FRAMES) {
+                totalNanos += elapsed;
+            }
+        }
+
+        glDeleteQueries(query);
+        shader.cleanup();
+        return totalNanos / 1_000_000.0 / frames;
+    }
+
+    private static void report(String label, double frameMs, long verticesPerFrame) {
+        double verticesPerSecond = verticesPerFrame / (frameMs / 1000.0);
+        System.out.printf("%s: %.3f ms/frame GPU, %.1f M vertices/s%n",
+                label, frameMs, verticesPerSecond / 1_000_000.0);
+    }
+}
@@ -0,0 +1,178 @@
+package com.horrorcore.engine.benchmark;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.RunMode;
+import com.horrorcore.engine.core.Scene;
+import com.horrorcore.engine.core.Transform;
+import com.horrorcore.engine.core.Window;
+import com.horrorcore.engine.core.assets.AssetHandle;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.graphics.BasicShader;
+import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.graphics.RenderStats;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import com.horrorcore.engine.core.profiling.RollingHistogram;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Renders a scripted synthetic scene through the full editor path (Window.update, panels,
+ * Scene.render) in a headless window and reports frame times, draw calls and state changes
+ * as JSON. Needs no display or GPU: without a display server it runs on GLFW's null platform,
+ * e.g. with Mesa's llvmpipe through OSMesa (or -Dphantasm.headless.context=egl).
+ *
+ * The script moves the dynamic objects every frame, orbits the camera and changes the
+ * selection every SELECTION_INTERVAL frames, so cached panels get redrawn now and then.
+ * A quarter of the objects are static and go through the static batcher. Every object has its
+ * own material instance, as imported models do, all of them sharing one program.
+ *
+ * Usage: HeadlessRenderBenchmark [objects] [frames] [output.json]
+ */
+public class HeadlessRenderBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int WARMUP_FRAMES = 60;
+    private static final int SELECTION_INTERVAL = 30;
+
+    private static final Vector3f position = new Vector3f();  // Scratch for the animation script
+
+    public static void main(String[] args) throws IOException {
+        int objectCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        Path output = args.length > 2 ? Paths.get(args[2]) : null;
+
+        Window window = new Window("Headless Render Benchmark", WIDTH, HEIGHT, true);
+        try {
+            window.init();
+            window.setRunMode(RunMode.CONTINUOUS);
+
+            Scene scene = window.getScene();
+            AssetHandle<Mesh> cube = window.getAssets().cube();
+            List<GameObject> dynamicObjects = populate(scene, cube, objectCount);
+            scene.buildStaticBatches();
+
+            RollingHistogram frameMillis = new RollingHistogram(frames);
+            double totalMillis = 0;
+            long totalDrawCalls = 0;
+            long totalStateChanges = 0;
+            long totalProgramBinds = 0;
+            long totalOcclusionCulled = 0;
+            int maxDrawCalls = 0;
+            int maxStateChanges = 0;
+
+            for (int frame = 0; frame < WARMUP_FRAMES + frames; frame++) {
+                animate(window, scene, dynamicObjects, frame);
+
+                long start = System.nanoTime();
+                window.update();
+                float millis = (System.nanoTime() - start) / 1_000_000.0f;
+
+                if (frame < WARMUP_FRAMES) continue;
+                frameMillis.add(millis);
+                totalMillis += millis;
+                totalDrawCalls += RenderStats.getDrawCalls();
+                totalStateChanges += RenderStats.getStateChanges();
+                totalProgramBinds += RenderStats.getProgramBinds();
+                totalOcclusionCulled += RenderStats.getOcclusionCulled();
+                maxDrawCalls = Math.max(maxDrawCalls, RenderStats.getDrawCalls());
+                maxStateChanges = Math.max(maxStateChanges, RenderStats.getStateChanges());
+            }
+
+            StringBuilder json = new StringBuilder(2048);
+            json.append("{\n");
+            json.append("  \"renderer\": \"").append(escape(glGetString(GL_RENDERER))).append("\",\n");
+            json.append("  \"width\": ").append(WIDTH).append(",\n");
+            json.append("  \"height\": ").append(HEIGHT).append(",\n");
+            json.append("  \"objects\": ").append(objectCount).append(",\n");
+            json.append("  \"frames\": ").append(frames).append(",\n");
+            json.append("  \"frameMillis\": {");
+            json.append(String.format(Locale.ROOT, "\"mean\": %.4f, \"p50\": %.4f, \"p90\": %.4f, \"p99\": %.4f, \"max\": %.4f",
+                    totalMillis / frames, frameMillis.percentile(0.5f), frameMillis.percentile(0.9f),
+                    frameMillis.percentile(0.99f), frameMillis.percentile(1.0f)));
+            json.append("},\n");
+            json.append(String.format(Locale.ROOT, "  \"drawCalls\": {\"mean\": %.2f, \"max\": %d},\n",
+                    (double) totalDrawCalls / frames, maxDrawCalls));
+            json.append(String.format(Locale.ROOT, "  \"stateChanges\": {\"mean\": %.2f, \"max\": %d},\n",
+                    (double) totalStateChanges / frames, maxStateChanges));
+            json.append(String.format(Locale.ROOT, "  \"programBinds\": {\"mean\": %.2f},\n",
+                    (double) totalProgramBinds / frames));
+            json.append(String.format(Locale.ROOT, "  \"occlusionCulled\": {\"mean\": %.2f},\n",
+                    (double) totalOcclusionCulled / frames));
+
+            // Per-scope medians over the profiler's window, GPU times where timestamps resolved
+            json.append("  \"scopes\": {");
+            boolean first = true;
+            for (ProfileScope scope : Profiler.getScopes()) {
+                if (scope.getCpuMillis().getCount() == 0) continue;
+                json.append(first ? "\n" : ",\n");
+                first = false;
+                json.append("    \"").append(escape(scope.getName())).append("\": ");
+                json.append(String.format(Locale.ROOT, "{\"cpuP50\": %.4f, \"gpuP50\": %.4f}",
+                        scope.getCpuMillis().percentile(0.5f), scope.getGpuMillis().percentile(0.5f)));
+            }
+            json.append("\n  }\n}\n");
+
+            if (output != null) {
+                Files.writeString(output, json);
+            }
+            System.out.print(json);
+
+            cube.release();
+        } finally {
+            window.cleanup();
+        }
+    }
+
+    // Lays the objects out on a square grid, every fourth one static; returns the dynamic ones
+    private static List<GameObject> populate(Scene scene, AssetHandle<Mesh> mesh, int objectCount) {
+        List<GameObject> dynamicObjects = new ArrayList<>();
+        int side = (int) Math.ceil(Math.sqrt(objectCount));
+        float spacing = 1.5f;
+        for (int i = 0; i < objectCount; i++) {
+            GameObject object = new GameObject("Cube" + i);
+            object.getTransform().setPosition(((i % side) - side / 2.0f) * spacing, 0.5f,
+                    ((i / side) - side / 2.0f) * spacing);
+            object.getTransform().setScale(0.5f);
+            MeshRenderer renderer = new MeshRenderer(mesh.retain(), new BasicShader(true));
+            renderer.setColor(0.2f, 0.5f, 0.8f);
+            object.addComponent(renderer);
+
+            if (i % 4 == 0) {
+                object.setStatic(true);
+            } else {
+                dynamicObjects.add(object);
+            }
+            scene.addGameObject(object);
+        }
+        return dynamicObjects;
+    }
+
+    private static void animate(Window window, Scene scene, List<GameObject> dynamicObjects, int frame) {
+        float time = frame / 60.0f;
+        for (int i = 0; i < dynamicObjects.size(); i++) {
+            Transform transform = dynamicObjects.get(i).getTransform();
+            transform.getPosition(position);
+            transform.setPosition(position.x, 0.5f + 0.25f * (float) Math.sin(time * 2.0f + i * 0.1f), position.z);
+        }
+
+        window.getCamera().rotate(0.002f, 0.0f);
+
+        if (frame % SELECTION_INTERVAL == 0 && !dynamicObjects.isEmpty()) {
+            scene.selectObject(dynamicObjects.get((frame / SELECTION_INTERVAL) % dynamicObjects.size()));
+        }
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,101 @@
+package com.horrorcore.engine.benchmark;
+
+import com.horrorcore.engine.core.Window;
+import com.horrorcore.engine.core.graphics.ShaderCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import static org.lwjgl.opengl.GL11.*;
+
+/**
+ * Measures editor startup, from the start of Window.init to the end of the first presented
+ * frame, and reports each run as JSON along with how many programs came from the shader cache.
+ * Runs happen one after another in the same JVM, each with a fresh window and context, so
+ * the first run shows the cost of class loading and JIT warmup on top of GL setup.
+ *
+ * With --cold the shader cache is cleared before the first run, so that run compiles every
+ * program and the following ones load binaries. --headless renders offscreen as in
+ * HeadlessRenderBenchmark.
+ *
+ * Usage: StartupBenchmark [runs] [output.json] [--cold] [--headless]
+ */
+public class StartupBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+
+    public static void main(String[] args) throws IOException {
+        int runs = 5;
+        Path output = null;
+        boolean cold = false;
+        boolean headless = false;
+        int positional = 0;
+        for (String arg : args) {
+            if (arg.equals("--cold")) {
+                cold = true;
+            } else if (arg.equals("--headless")) {
+                headless = true;
+            } else if (positional++ == 0) {
+                runs = Integer.parseInt(arg);
+            } else {
+                output = Paths.get(arg);
+            }
+        }
+
+        if (cold) {
+            ShaderCache.clear();
+        }
+
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\n");
+        json.append("  \"shaderCache\": \"").append(ShaderCache.getDirectory() != null
+                ? escape(ShaderCache.getDirectory().toString()) : "off").append("\",\n");
+        json.append("  \"cold\": ").append(cold).append(",\n");
+        json.append("  \"runs\": [");
+
+        String renderer = null;
+        for (int run = 0; run < runs; run++) {
+            long hitsBefore = ShaderCache.getHits();
+            long missesBefore = ShaderCache.getMisses();
+            double linkMillisBefore = ShaderCache.getLinkMillis();
+
+            Window window = new Window("Startup Benchmark", WIDTH, HEIGHT, headless);
+            try {
+                long start = System.nanoTime();
+                window.init();
+                long initialized = System.nanoTime();
+                window.update();  // Renders and presents (or finishes, when headless) the first frame
+                long presented = System.nanoTime();
+
+                if (renderer == null) {
+                    renderer = glGetString(GL_RENDERER);
+                }
+                json.append(run == 0 ? "\n" : ",\n");
+                json.append(String.format(Locale.ROOT,
+                        "    {\"initMillis\": %.3f, \"firstFrameMillis\": %.3f, \"totalMillis\": %.3f, "
+                                + "\"shaderLinkMillis\": %.3f, \"cachedPrograms\": %d, \"compiledPrograms\": %d}",
+                        (initialized - start) / 1_000_000.0, (presented - initialized) / 1_000_000.0,
+                        (presented - start) / 1_000_000.0, ShaderCache.getLinkMillis() - linkMillisBefore,
+                        ShaderCache.getHits() - hitsBefore, ShaderCache.getMisses() - missesBefore));
+            } finally {
+                window.cleanup();
+            }
+        }
+
+        json.append("\n  ],\n");
+        json.append("  \"renderer\": \"").append(escape(renderer != null ? renderer : "")).append("\"\n");
+        json.append("}\n");
+
+        if (output != null) {
+            Files.writeString(output, json);
+        }
+        System.out.print(json);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,90 @@
+package com.horrorcore.engine.core;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GameObject.update over hierarchies of different shapes, and component lookup.
+ * Objects are arranged in chains of the given depth under the roots, so depth 1 is a flat
+ * (wide) scene and larger depths exercise deep recursion with the same object count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GameObjectBenchmark {
+    // Stand-in for gameplay components, cheap but not removable by the JIT
+    public static class CountingComponent extends Component {
+        public float elapsed;
+
+        @Override
+        public void update(float deltaTime) {
+            elapsed += deltaTime;
+        }
+    }
+
+    public static class LookupTarget extends Component {
+    }
+
+    // Each benchmark gets a state with only the parameters it uses, so JMH doesn't cross them
+    @State(Scope.Thread)
+    public static class Hierarchy {
+        @Param({"100", "1000", "10000"})
+        public int objectCount;
+
+        @Param({"1", "8", "64"})
+        public int depth;
+
+        final List<GameObject> roots = new ArrayList<>();
+
+        @Setup
+        public void setup() {
+            roots.clear();
+            GameObject parent = null;
+            for (int i = 0; i < objectCount; i++) {
+                GameObject object = new GameObject("Object" + i);
+                object.addComponent(new CountingComponent());
+
+                if (i % depth == 0) {
+                    roots.add(object);
+                } else {
+                    parent.addChild(object);
+                }
+                parent = object;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        @Param({"1", "4", "16"})
+        public int componentCount;
+
+        GameObject lookupObject;
+
+        @Setup
+        public void setup() {
+            // The component we look up is added last, the worst case for the linear search
+            lookupObject = new GameObject("Lookup");
+            for (int i = 1; i < componentCount; i++) {
+                lookupObject.addComponent(new CountingComponent());
+            }
+            lookupObject.addComponent(new LookupTarget());
+        }
+    }
+
+    @Benchmark
+    public void updateHierarchy(Hierarchy hierarchy) {
+        List<GameObject> roots = hierarchy.roots;
+        for (int i = 0; i < roots.size(); i++) {
+            roots.get(i).update(0.016f);
+        }
+    }
+
+    @Benchmark
+    public void getComponent(Lookup lookup, Blackhole blackhole) {
+        blackhole.consume(lookup.lookupObject.getComponent(LookupTarget.class));
+    }
+}
@@ -0,0 +1,21 @@
+package com.horrorcore.engine.core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scene grid vertex generation for different grid sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class SceneGridBenchmark {
+    @Param({"20", "100", "500"})
+    public int gridSize;
+
+    @Benchmark
+    public float[] generateGrid() {
+        return Scene.generateGridVertices(gridSize, 1.0f);
+    }
+}
@@ -0,0 +1,37 @@
+package com.horrorcore.engine.core;
+
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Transform.getModelMatrix when the cached matrix is valid and when it has to be rebuilt
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class TransformBenchmark {
+    private Transform transform;
+    private float angle;
+
+    @Setup
+    public void setup() {
+        transform = new Transform();
+        transform.setPosition(1.0f, 2.0f, 3.0f);
+        transform.setRotation(0.3f, 0.6f, 0.9f);
+        transform.setScale(1.5f);
+    }
+
+    @Benchmark
+    public Matrix4f cachedModelMatrix() {
+        return transform.getModelMatrix();
+    }
+
+    @Benchmark
+    public Matrix4f dirtyModelMatrix() {
+        angle += 0.01f;
+        transform.setRotation(angle, 0.6f, 0.9f);
+        return transform.getModelMatrix();
+    }
+}
@@ -0,0 +1,33 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camera.getViewMatrix while the camera is still and while it orbits every call
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CameraBenchmark {
+    private Camera camera;
+
+    @Setup
+    public void setup() {
+        camera = new Camera(new Vector3f(5.0f, 5.0f, 5.0f));
+    }
+
+    @Benchmark
+    public Matrix4f viewMatrix() {
+        return camera.getViewMatrix();
+    }
+
+    @Benchmark
+    public Matrix4f rotateAndViewMatrix() {
+        camera.rotate(0.001f, 0.0f);
+        return camera.getViewMatrix();
+    }
+}
@@ -0,0 +1,59 @@
+package com.horrorcore.engine.core.input;
+
+import com.horrorcore.engine.core.graphics.Camera;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking ray construction and ray tests against a scene of candidate points
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class MousePickerBenchmark {
+    private static final float VIEWPORT_WIDTH = 1280.0f;
+    private static final float VIEWPORT_HEIGHT = 720.0f;
+
+    @Param({"100", "1000", "10000"})
+    public int pointCount;
+
+    private MousePicker picker;
+    private Vector3f[] points;
+    private float mouseX;
+
+    @Setup
+    public void setup() {
+        Camera camera = new Camera(new Vector3f(5.0f, 5.0f, 5.0f));
+        Matrix4f projection = new Matrix4f().perspective((float) Math.toRadians(45.0), VIEWPORT_WIDTH / VIEWPORT_HEIGHT, 0.1f, 100.0f);
+        picker = new MousePicker(camera, projection);
+        picker.update(VIEWPORT_WIDTH / 2, VIEWPORT_HEIGHT / 2, 0, 0, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+
+        Random random = new Random(42);
+        points = new Vector3f[pointCount];
+        for (int i = 0; i < pointCount; i++) {
+            points[i] = new Vector3f(random.nextFloat() * 20 - 10, random.nextFloat() * 4, random.nextFloat() * 20 - 10);
+        }
+    }
+
+    @Benchmark
+    public Vector3f update() {
+        mouseX = (mouseX + 7.0f) % VIEWPORT_WIDTH;
+        picker.update(mouseX, VIEWPORT_HEIGHT / 2, 0, 0, VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        return picker.getCurrentRay();
+    }
+
+    @Benchmark
+    public int isPointNearRay() {
+        int hits = 0;
+        for (Vector3f point : points) {
+            if (picker.isPointNearRay(point, 1.0f)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
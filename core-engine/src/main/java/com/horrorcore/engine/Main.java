@@ -1,9 +1,8 @@
 package com.horrorcore.engine;
 
+import com.horrorcore.engine.core.RunMode;
 import com.horrorcore.engine.core.Window;
 
-import static org.lwjgl.opengl.GL11.*;
-
 public class Main {
     public static void main(String[] args) {
         Window window = new Window("Phantasm Engine Editor", 1280, 720);
@@ -11,13 +10,11 @@ public class Main {
         try {
             window.init();
 
-            // Main game loop
-            while (!window.shouldClose()) {
-                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-                // Clear with a dark gray color
-                glClearColor(0.2f, 0.2f, 0.2f, 1.0f);
+            // The editor only redraws when something changed
+            window.setRunMode(RunMode.ON_DEMAND);
 
+            // Main loop, clearing and presenting happens in Window.update
+            while (!window.shouldClose()) {
                 window.update();
             }
         } finally {
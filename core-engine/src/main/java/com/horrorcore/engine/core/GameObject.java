@@ -1,5 +1,7 @@
 package com.horrorcore.engine.core;
 
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -8,6 +10,7 @@ public class GameObject {
     private final String id;           // Unique identifier
     private String name;               // Display name
     private boolean isActive;          // Active state
+    private boolean isStatic;          // Never moves at runtime, batched if its mesh keeps source data
     private Transform transform;       // Transform component
     private GameObject parent;         // Parent object in hierarchy
     private List<GameObject> children; // Child objects
@@ -20,6 +23,7 @@ public class GameObject {
         this.transform = new Transform();
         this.children = new ArrayList<>();
         this.components = new ArrayList<>();
+        EngineMetrics.gameObjectCreated();
     }
 
     public void initialize() {
@@ -74,6 +78,7 @@ public class GameObject {
     public <T extends Component> T addComponent(T component) {
         component.setGameObject(this);
         components.add(component);
+        EngineMetrics.componentsAdded(1);
         if (isActive) {
             component.initialize();
         }
@@ -91,6 +96,7 @@ public class GameObject {
 
     public void removeComponent(Component component) {
         if (components.remove(component)) {
+            EngineMetrics.componentsRemoved(1);
             component.cleanup();
             component.setGameObject(null);
         }
@@ -117,6 +123,7 @@ public class GameObject {
         for (Component component : components) {
             component.cleanup();
         }
+        EngineMetrics.componentsRemoved(components.size());
         components.clear();
 
         // Cleanup all children
@@ -124,6 +131,7 @@ public class GameObject {
             child.cleanup();
         }
         children.clear();
+        EngineMetrics.gameObjectDestroyed();
     }
 
     // Getters and setters
@@ -132,7 +140,12 @@ public class GameObject {
     public void setName(String name) { this.name = name; }
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { this.isActive = active; }
+    public boolean isStatic() { return isStatic; }
+    public void setStatic(boolean isStatic) { this.isStatic = isStatic; }
     public Transform getTransform() { return transform; }
     public GameObject getParent() { return parent; }
     public List<GameObject> getChildren() { return new ArrayList<>(children); }
+    // Index access to the children, walks the hierarchy without copying the list
+    public int getChildCount() { return children.size(); }
+    public GameObject getChild(int index) { return children.get(index); }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.horrorcore.engine.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs work on the main thread, where the GL context is current. Any thread can submit; the
+ * window drains the queue at the start of each frame, within a time budget so a burst of
+ * uploads is spread over several frames instead of stalling one. Submitting wakes the main
+ * loop, so queued work also runs while the editor idles in on-demand mode.
+ */
+public class MainThreadExecutor implements Executor {
+    private static final long DEFAULT_BUDGET_NANOS = 4_000_000L;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Runnable wake;
+    private long budgetNanos = DEFAULT_BUDGET_NANOS;
+
+    /**
+     * @param wake Called after every submit to make the main loop run a frame
+     */
+    public MainThreadExecutor(Runnable wake) {
+        this.wake = wake;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        wake.run();
+    }
+
+    /**
+     * Runs queued tasks until the queue is empty or the budget is used up; at least one task
+     * runs per call so progress never stalls. Main thread only.
+     * @return True if tasks are left for the next frame
+     */
+    public boolean runPending() {
+        long deadline = System.nanoTime() + budgetNanos;
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+            if (System.nanoTime() >= deadline) break;
+        }
+        return !tasks.isEmpty();
+    }
+
+    public boolean hasPending() {
+        return !tasks.isEmpty();
+    }
+
+    public float getBudgetMillis() {
+        return budgetNanos / 1_000_000.0f;
+    }
+
+    /**
+     * @param millis Main thread time spent on queued work per frame
+     */
+    public void setBudgetMillis(float millis) {
+        this.budgetNanos = (long) (millis * 1_000_000.0);
+    }
+}
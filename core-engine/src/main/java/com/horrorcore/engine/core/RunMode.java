@@ -0,0 +1,17 @@
+package com.horrorcore.engine.core;
+
+/**
+ * How the main loop decides when to draw a frame
+ */
+public enum RunMode {
+    /**
+     * Render and swap every iteration at the vsync rate, like a running game
+     */
+    CONTINUOUS,
+
+    /**
+     * Sleep until input arrives or a redraw is requested, for editing without burning
+     * CPU and GPU time. Rendering still runs continuously during camera navigation and play mode.
+     */
+    ON_DEMAND
+}
@@ -1,29 +1,69 @@
 package com.horrorcore.engine.core;
 
+import com.horrorcore.engine.core.assets.AssetManager;
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
 import com.horrorcore.engine.core.graphics.Camera;
+import com.horrorcore.engine.core.graphics.CameraUniformBuffer;
 import com.horrorcore.engine.core.components.MeshRenderer;
-import com.horrorcore.engine.core.graphics.Mesh;
-import com.horrorcore.engine.core.graphics.MeshGenerator;
+import com.horrorcore.engine.core.graphics.OcclusionCuller;
+import com.horrorcore.engine.core.graphics.OcclusionMode;
+import com.horrorcore.engine.core.graphics.OcclusionTest;
+import com.horrorcore.engine.core.graphics.RenderListBuilder;
+import com.horrorcore.engine.core.graphics.RenderStats;
+import com.horrorcore.engine.core.graphics.ShaderCache;
+import com.horrorcore.engine.core.graphics.SoftwareOcclusionCuller;
+import com.horrorcore.engine.core.graphics.StaticBatcher;
 import com.horrorcore.engine.core.input.MousePicker;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import com.horrorcore.engine.core.metrics.SceneLoadEvent;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import java.nio.FloatBuffer;
 import org.lwjgl.system.MemoryStack;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import static org.lwjgl.opengl.GL30.*;
 
 public class Scene {
+    private static final ProfileScope UPDATE_SCOPE = Profiler.scope("Scene.update", false);
+    private static final ProfileScope RENDER_SCOPE = Profiler.scope("Scene.render", true);
+
     private int gridVAO;
     private int gridVBO;
     private int gridShader;
+    private int gridColorLocation;
     private Matrix4f projectionMatrix;
     private Matrix4f viewMatrix;
 
+    // Camera data shared with every shader program, written once per rendered view
+    private final CameraUniformBuffer cameraBuffer;
+    private final long startTime;
+
+    // Merged geometry for objects flagged static
+    private final StaticBatcher staticBatcher;
+
+    // Draw packets for everything else, built on worker threads
+    private final RenderListBuilder renderLists;
+
+    // Skip objects hidden behind others, with GPU queries from earlier frames or a CPU depth buffer
+    private final OcclusionCuller occlusionCuller;
+    private final SoftwareOcclusionCuller softwareOcclusion;
+    private OcclusionMode occlusionMode;
+
+    // Meshes and shaders shared between objects
+    private final AssetManager assets;
+    private final boolean ownsAssets;
+
     // List to track all GameObjects in the scene
     private final List<GameObject> gameObjects;
     private GameObject selectedObject;  // Track the currently selected object
+    private int version;                // Incremented when objects or the selection change
     private MousePicker mousePicker;    // Mouse picking system for selection
     private final Camera camera;
 
@@ -32,12 +72,39 @@ public class Scene {
     private static final float GRID_SPACING = 1.0f;
     private static final Vector3f GRID_COLOR = new Vector3f(0.5f, 0.5f, 0.5f);
 
+    /**
+     * Creates a scene with its own asset manager, cleaned up with the scene
+     */
     public Scene(Camera camera) {
+        this(camera, new AssetManager(), true);
+    }
+
+    /**
+     * @param assets Shared with other scenes, the caller cleans it up after them
+     */
+    public Scene(Camera camera, AssetManager assets) {
+        this(camera, assets, false);
+    }
+
+    private Scene(Camera camera, AssetManager assets, boolean ownsAssets) {
+        this.assets = assets;
+        this.ownsAssets = ownsAssets;
+
+        SceneLoadEvent loadEvent = new SceneLoadEvent();
+        loadEvent.begin();
+
         projectionMatrix = new Matrix4f();
         viewMatrix = new Matrix4f();
         gameObjects = new ArrayList<>();
         mousePicker = new MousePicker(null, projectionMatrix);
         this.camera = camera;
+        cameraBuffer = new CameraUniformBuffer();
+        startTime = System.nanoTime();
+        staticBatcher = new StaticBatcher();
+        renderLists = new RenderListBuilder();
+        occlusionCuller = new OcclusionCuller();
+        softwareOcclusion = new SoftwareOcclusionCuller();
+        setOcclusionMode(occlusionModeProperty());
         createGrid();
         initializeShader();
 
@@ -48,34 +115,49 @@ public class Scene {
         cube.getTransform().setPosition(0, 0.5f, 0); // Place slightly above the grid
 
         // Create and add the mesh renderer
-        Mesh cubeMesh = MeshGenerator.createCube();
-        MeshRenderer renderer = new MeshRenderer(cubeMesh);
+        MeshRenderer renderer = new MeshRenderer(assets.cube());
         renderer.setColor(0.2f, 0.5f, 0.8f); // Set a nice blue color
         cube.addComponent(renderer);
 
         // Add the cube to the scene
         addGameObject(cube);
+
+        loadEvent.source = "default";
+        loadEvent.objectCount = gameObjects.size();
+        loadEvent.commit();
     }
 
     public void addGameObject(GameObject gameObject) {
         gameObjects.add(gameObject);
         gameObject.initialize();
+        version++;
     }
 
     public void removeGameObject(GameObject gameObject) {
         gameObjects.remove(gameObject);
         gameObject.cleanup();
+        version++;
     }
 
     public void update(float deltaTime) {
+        UPDATE_SCOPE.begin();
         for (GameObject gameObject : gameObjects) {
             gameObject.update(deltaTime);
         }
+        UPDATE_SCOPE.end();
+    }
+
+    /**
+     * Builds static batches right away instead of on the first rendered frame.
+     * Call after loading a scene; later edits to static objects are picked up incrementally.
+     */
+    public void buildStaticBatches() {
+        staticBatcher.update(gameObjects);
     }
 
     private void createGrid() {
         // Create lines for a simple grid on the XZ plane
-        float[] gridVertices = generateGridVertices();
+        float[] gridVertices = generateGridVertices(GRID_SIZE, GRID_SPACING);
 
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer vertexBuffer = stack.mallocFloat(gridVertices.length);
@@ -87,6 +169,7 @@ public class Scene {
             glBindVertexArray(gridVAO);
             glBindBuffer(GL_ARRAY_BUFFER, gridVBO);
             glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, (long) gridVertices.length * Float.BYTES);
 
             // Position attribute
             glVertexAttribPointer(0, 3, GL_FLOAT, false, 3 * Float.BYTES, 0);
@@ -94,17 +177,21 @@ public class Scene {
         }
     }
 
-    private float[] generateGridVertices() {
+    /**
+     * Line vertices (x, y, z pairs) of a grid on the XZ plane, gridSize lines to each side of the origin.
+     * Package-visible so it can be benchmarked without a GL context.
+     */
+    static float[] generateGridVertices(int gridSize, float spacing) {
         // Calculate number of lines and vertices needed
-        int numLines = (GRID_SIZE * 2 + 1) * 2; // Lines in both X and Z directions
+        int numLines = (gridSize * 2 + 1) * 2; // Lines in both X and Z directions
         float[] vertices = new float[numLines * 6]; // 2 points per line, 3 coordinates per point
 
         int idx = 0;
-        float halfSize = GRID_SIZE * GRID_SPACING;
+        float halfSize = gridSize * spacing;
 
         // Create X-axis parallel lines
-        for (int i = -GRID_SIZE; i <= GRID_SIZE; i++) {
-            float pos = i * GRID_SPACING;
+        for (int i = -gridSize; i <= gridSize; i++) {
+            float pos = i * spacing;
             vertices[idx++] = -halfSize;  // x
             vertices[idx++] = 0.0f;       // y
             vertices[idx++] = pos;        // z
@@ -114,8 +201,8 @@ public class Scene {
         }
 
         // Create Z-axis parallel lines
-        for (int i = -GRID_SIZE; i <= GRID_SIZE; i++) {
-            float pos = i * GRID_SPACING;
+        for (int i = -gridSize; i <= gridSize; i++) {
+            float pos = i * spacing;
             vertices[idx++] = pos;        // x
             vertices[idx++] = 0.0f;       // y
             vertices[idx++] = -halfSize;  // z
@@ -128,22 +215,12 @@ public class Scene {
     }
 
     private void initializeShader() {
-        // Create and compile vertex shader
-        int vertexShader = glCreateShader(GL_VERTEX_SHADER);
-        glShaderSource(vertexShader, """
-            #version 330 core
+        gridShader = ShaderCache.link("Scene grid", "#version 330 core\n" + CameraUniformBuffer.GLSL_BLOCK + """
             layout (location = 0) in vec3 aPos;
-            uniform mat4 projection;
-            uniform mat4 view;
             void main() {
-                gl_Position = projection * view * vec4(aPos, 1.0);
+                gl_Position = viewProjection * vec4(aPos, 1.0);
             }
-        """);
-        glCompileShader(vertexShader);
-
-        // Create and compile fragment shader
-        int fragmentShader = glCreateShader(GL_FRAGMENT_SHADER);
-        glShaderSource(fragmentShader, """
+        """, """
             #version 330 core
             uniform vec3 gridColor;
             out vec4 FragColor;
@@ -151,56 +228,53 @@ public class Scene {
                 FragColor = vec4(gridColor, 1.0);
             }
         """);
-        glCompileShader(fragmentShader);
 
-        // Create shader program
-        gridShader = glCreateProgram();
-        glAttachShader(gridShader, vertexShader);
-        glAttachShader(gridShader, fragmentShader);
-        glLinkProgram(gridShader);
-
-        // Clean up shader objects
-        glDeleteShader(vertexShader);
-        glDeleteShader(fragmentShader);
+        // Camera matrices come from the shared uniform buffer, only the color is per-program
+        CameraUniformBuffer.bindBlock(gridShader);
+        gridColorLocation = glGetUniformLocation(gridShader, "gridColor");
     }
 
     public void render(Camera camera) {
-        // Get view matrix from camera
-        Matrix4f viewMatrix = camera.getViewMatrix();
+        RENDER_SCOPE.begin();
+
+        // Upload this view's camera data once, every program reads it from the uniform buffer
+        viewMatrix.set(camera.getViewMatrix());
+        float time = (System.nanoTime() - startTime) / 1_000_000_000.0f;
+        cameraBuffer.update(viewMatrix, projectionMatrix, camera.getPosition(), time);
 
         // First render the grid
         glUseProgram(gridShader);
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            int projLoc = glGetUniformLocation(gridShader, "projection");
-            int viewLoc = glGetUniformLocation(gridShader, "view");
-            int colorLoc = glGetUniformLocation(gridShader, "gridColor");
-
-            FloatBuffer matBuffer = stack.mallocFloat(16);
-
-            projectionMatrix.get(matBuffer);
-            glUniformMatrix4fv(projLoc, false, matBuffer);
-
-            viewMatrix.get(matBuffer);
-            glUniformMatrix4fv(viewLoc, false, matBuffer);
-
-            glUniform3f(colorLoc, GRID_COLOR.x, GRID_COLOR.y, GRID_COLOR.z);
-        }
+        RenderStats.countProgramBind();
+        glUniform3f(gridColorLocation, GRID_COLOR.x, GRID_COLOR.y, GRID_COLOR.z);
 
         // Draw the grid
         glBindVertexArray(gridVAO);
         glDrawArrays(GL_LINES, 0, (GRID_SIZE * 2 + 1) * 4);
+        RenderStats.countVertexArrayBind();
+        RenderStats.countDraw(0);
         glBindVertexArray(0);
 
-        // Now render all objects in the scene
-        for (GameObject gameObject : gameObjects) {
-            MeshRenderer renderer = gameObject.getComponent(MeshRenderer.class);
-            if (renderer != null) {
-                // Pass the current view and projection matrices to the renderer
-                renderer.setMatrices(viewMatrix, projectionMatrix);
-                renderer.render();
+        // Static objects are drawn from merged buffers, rebuilt only for groups that changed
+        staticBatcher.update(gameObjects);
+        staticBatcher.render(cameraBuffer);
+
+        // Now render all remaining objects: culled and packed in parallel, submitted here
+        occlusionCuller.beginFrame();
+        OcclusionTest occlusion = switch (occlusionMode) {
+            case OFF -> null;
+            case HARDWARE -> occlusionCuller;
+            case SOFTWARE -> {
+                softwareOcclusion.rasterize(gameObjects, cameraBuffer);
+                yield softwareOcclusion;
             }
-        }
+        };
+        renderLists.build(gameObjects, cameraBuffer, occlusion);
+        renderLists.submit();
+
+        // Test this frame's boxes against the finished depth buffer, read back next frame
+        occlusionCuller.issueQueries(renderLists, cameraBuffer);
+
+        RENDER_SCOPE.end();
     }
 
 
@@ -220,8 +294,10 @@ public class Scene {
         mousePicker.update(viewportMouseX, viewportMouseY, 0, 0, viewportWidth, viewportHeight);
 
         // Debug output
-        System.out.println("Mouse click at viewport coordinates: " + viewportMouseX + ", " + viewportMouseY);
-        System.out.println("Ray direction: " + mousePicker.getCurrentRay());
+        Log.debug(LogCategory.SCENE, "Mouse click at viewport coordinates: {}, {}")
+                .arg(viewportMouseX).arg(viewportMouseY).log();
+        Vector3f ray = mousePicker.getCurrentRay();
+        Log.debug(LogCategory.SCENE, "Ray direction: ({}, {}, {})").arg(ray.x).arg(ray.y).arg(ray.z).log();
 
         // Try to select an object
         GameObject nearestObject = null;
@@ -231,7 +307,8 @@ public class Scene {
             Vector3f objPosition = obj.getTransform().getPosition();
             if (mousePicker.isPointNearRay(objPosition, 1.0f)) { // Increased selection radius for easier picking
                 float distance = objPosition.distance(camera.getPosition());
-                System.out.println("Object " + obj.getName() + " is near ray at distance " + distance);
+                Log.debug(LogCategory.SCENE, "Object {} is near ray at distance {}")
+                        .arg(obj.getName()).arg(distance).log();
                 if (distance < nearestDistance) {
                     nearestDistance = distance;
                     nearestObject = obj;
@@ -241,10 +318,10 @@ public class Scene {
 
         // Update selection
         if (nearestObject != null) {
-            System.out.println("Selected object: " + nearestObject.getName());
+            Log.info(LogCategory.SCENE, "Selected object: {}").arg(nearestObject.getName()).log();
             selectObject(nearestObject);
         } else {
-            System.out.println("No object selected");
+            Log.info(LogCategory.SCENE, "No object selected").log();
             clearSelection();
         }
     }
@@ -260,6 +337,7 @@ public class Scene {
 
         // Set new selection
         selectedObject = object;
+        version++;
 
         // Highlight selected object
         MeshRenderer renderer = selectedObject.getComponent(MeshRenderer.class);
@@ -276,23 +354,93 @@ public class Scene {
             }
         }
         selectedObject = null;
+        version++;
     }
 
     public GameObject getSelectedObject() {
         return selectedObject;
     }
 
+    /**
+     * Changes whenever objects are added or removed or the selection changes,
+     * lets UI that mirrors the scene skip redraws while nothing happened
+     */
+    public int getVersion() {
+        return version;
+    }
+
     public void cleanup() {
         // Clean up all game objects
         for (GameObject gameObject : gameObjects) {
             gameObject.cleanup();
         }
         gameObjects.clear();
+        staticBatcher.cleanup();
+        renderLists.cleanup();
+        occlusionCuller.cleanup();
 
         // Clean up grid resources
         glDeleteVertexArrays(gridVAO);
         glDeleteBuffers(gridVBO);
         glDeleteProgram(gridShader);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, (long) (GRID_SIZE * 2 + 1) * 4 * 3 * Float.BYTES);
+        EngineMetrics.resourceDestroyed(GlResourceType.PROGRAM, 0);
+        cameraBuffer.cleanup();
+
+        if (ownsAssets) {
+            assets.cleanup();
+        }
+    }
+
+    /**
+     * True while the last frame left work that only further frames finish: occlusion results
+     * still to be read or LOD cross-fades in progress. An on-demand main loop keeps drawing
+     * until this turns false.
+     */
+    public boolean needsRedraw() {
+        return occlusionCuller.hasPendingResults() || renderLists.getFadingCount() > 0;
+    }
+
+    public AssetManager getAssets() {
+        return assets;
+    }
+
+    public RenderListBuilder getRenderLists() {
+        return renderLists;
+    }
+
+    public OcclusionCuller getOcclusionCuller() {
+        return occlusionCuller;
+    }
+
+    public SoftwareOcclusionCuller getSoftwareOcclusion() {
+        return softwareOcclusion;
+    }
+
+    public OcclusionMode getOcclusionMode() {
+        return occlusionMode;
+    }
+
+    /**
+     * Selects how hidden objects are culled, initially from the phantasm.occlusion system
+     * property (off, hardware or software) and HARDWARE without it
+     */
+    public void setOcclusionMode(OcclusionMode mode) {
+        this.occlusionMode = mode;
+        // Queries only run in hardware mode; the culler still releases the lists' candidates
+        occlusionCuller.setEnabled(mode == OcclusionMode.HARDWARE);
+    }
+
+    // A mistyped phantasm.occlusion shouldn't keep the editor from starting
+    private static OcclusionMode occlusionModeProperty() {
+        String value = System.getProperty("phantasm.occlusion", OcclusionMode.HARDWARE.name());
+        try {
+            return OcclusionMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            Log.warn(LogCategory.SCENE, "Unknown phantasm.occlusion mode '{}', using hardware occlusion culling")
+                    .arg(value).log();
+            return OcclusionMode.HARDWARE;
+        }
     }
 
     public void setAspectRatio(float ratio) {
@@ -1,5 +1,6 @@
 package com.horrorcore.engine.core;
 
+import org.joml.Matrix3f;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
@@ -10,9 +11,11 @@ public class Transform {
     private Quaternionf rotation;
     private Vector3f scale;
 
-    // Cached transform matrix
+    // Cached transform matrices
     private Matrix4f modelMatrix;
-    private boolean isDirty;  // Flag to indicate if matrix needs updating
+    private Matrix3f normalMatrix;    // Inverse transpose of the model's upper 3x3
+    private boolean isDirty;          // Flag to indicate if matrices need updating
+    private int version;              // Incremented on every change so renderers can cache derived data
 
     public Transform() {
         // Initialize with default values
@@ -20,6 +23,7 @@ public class Transform {
         rotation = new Quaternionf().identity(); // No rotation
         scale = new Vector3f(1.0f);             // Unit scale
         modelMatrix = new Matrix4f();
+        normalMatrix = new Matrix3f();
         isDirty = true;
     }
 
@@ -30,35 +34,57 @@ public class Transform {
                     .translate(position)
                     .rotate(rotation)
                     .scale(scale);
+            modelMatrix.normal(normalMatrix);
             isDirty = false;
         }
         return modelMatrix;
     }
 
+    // Normal matrix for lighting, recomputed together with the model matrix
+    public Matrix3f getNormalMatrix() {
+        getModelMatrix();
+        return normalMatrix;
+    }
+
+    // Changes whenever position, rotation or scale change
+    public int getVersion() {
+        return version;
+    }
+
+    private void markDirty() {
+        isDirty = true;
+        version++;
+    }
+
     // Position methods
     public void setPosition(float x, float y, float z) {
         position.set(x, y, z);
-        isDirty = true;
+        markDirty();
     }
 
     public void setPosition(Vector3f position) {
         this.position.set(position);
-        isDirty = true;
+        markDirty();
     }
 
     public Vector3f getPosition() {
         return new Vector3f(position);
     }
 
+    // Copies the position into dest instead of allocating
+    public Vector3f getPosition(Vector3f dest) {
+        return dest.set(position);
+    }
+
     // Rotation methods
     public void setRotation(float x, float y, float z) {
         rotation.rotationXYZ(x, y, z);
-        isDirty = true;
+        markDirty();
     }
 
     public void setRotation(Quaternionf rotation) {
         this.rotation.set(rotation);
-        isDirty = true;
+        markDirty();
     }
 
     public Quaternionf getRotation() {
@@ -68,12 +94,12 @@ public class Transform {
     // Scale methods
     public void setScale(float x, float y, float z) {
         scale.set(x, y, z);
-        isDirty = true;
+        markDirty();
     }
 
     public void setScale(float uniform) {
         scale.set(uniform);
-        isDirty = true;
+        markDirty();
     }
 
     public Vector3f getScale() {
@@ -83,21 +109,21 @@ public class Transform {
     // Relative transformation methods
     public void translate(float x, float y, float z) {
         position.add(x, y, z);
-        isDirty = true;
+        markDirty();
     }
 
     public void translate(Vector3f translation) {
         position.add(translation);
-        isDirty = true;
+        markDirty();
     }
 
     public void rotate(float angleRadians, Vector3f axis) {
         rotation.rotateAxis(angleRadians, axis);
-        isDirty = true;
+        markDirty();
     }
 
     public void scale(float factor) {
         scale.mul(factor);
-        isDirty = true;
+        markDirty();
     }
 }
\ No newline at end of file
@@ -1,6 +1,18 @@
 package com.horrorcore.engine.core;
 
+import com.horrorcore.engine.core.assets.AssetManager;
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.FrameEvent;
+import com.horrorcore.engine.core.metrics.FramePhaseEvent;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import com.horrorcore.engine.core.graphics.BasicShader;
 import com.horrorcore.engine.core.graphics.Camera;
+import com.horrorcore.engine.core.graphics.RenderStats;
+import com.horrorcore.engine.core.graphics.RenderTarget;
+import com.horrorcore.engine.core.graphics.ShaderPrecompiler;
 import com.horrorcore.engine.core.graphics.ViewportManager;
 import org.joml.Vector3f;
 import org.joml.Vector4f;
@@ -10,8 +22,11 @@ import org.lwjgl.glfw.GLFWVidMode;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.system.MemoryStack;
 
+import java.io.IOException;
 import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import static org.lwjgl.glfw.Callbacks.glfwFreeCallbacks;
 import static org.lwjgl.glfw.GLFW.*;
@@ -20,29 +35,72 @@ import static org.lwjgl.system.MemoryStack.stackPush;
 import static org.lwjgl.system.MemoryUtil.NULL;
 
 public class Window {
+    private static final double IDLE_WAIT_SECONDS = 0.25;  // Upper bound on sleeping in on-demand mode
+    private static final long FPS_SAMPLE_NANOS = 1_000_000_000L;
+    private static final float MAX_UPDATE_STEP = 0.1f;  // Seconds, caps the step after idling
+    private static final ProfileScope SWAP_SCOPE = Profiler.scope("Window.swapBuffers", false);
+
     private long windowHandle;
     private int width;
     private int height;
     private String title;
     private boolean resized;
+    private final boolean headless;
+    private RenderTarget screenTarget;  // Stands in for the default framebuffer when headless
     private ViewportManager viewportManager;
     private GLFWFramebufferSizeCallback framebufferSizeCallback;
     private Scene scene;
+    private AssetManager assets;
     private Camera camera;
     private double lastMouseX, lastMouseY;
     private boolean firstMouse = true;
     private boolean mouseInSceneView = false;
 
+    // Frame pacing
+    private RunMode runMode = RunMode.CONTINUOUS;
+    private boolean playMode;
+    private volatile boolean redrawRequested = true;
+    private int seenSceneVersion = -1;
+    private final MainThreadExecutor mainThreadExecutor = new MainThreadExecutor(this::requestRedraw);
+
+    // Frame rate statistics
+    private long lastFrameNanos;
+    private float lastFrameMillis;
+    private long fpsSampleStart;
+    private int fpsSampleFrames;
+    private float framesPerSecond;
+
     public Window(String title, int width, int height) {
+        this(title, width, height, false);
+    }
+
+    /**
+     * @param headless Never show the window and render into an offscreen framebuffer instead.
+     *                 Without a display server the context comes from GLFW's null platform,
+     *                 so this also runs on build machines with only Mesa's software renderer.
+     */
+    public Window(String title, int width, int height, boolean headless) {
         this.title = title;
         this.width = width;
         this.height = height;
         this.resized = false;
+        this.headless = headless;
     }
 
     public void init() {
         // Set up error callback
-        GLFWErrorCallback.createPrint(System.err).set();
+        GLFWErrorCallback.create((error, description) ->
+                Log.error(LogCategory.CORE, "GLFW error 0x{}: {}")
+                        .arg(Integer.toHexString(error)).arg(GLFWErrorCallback.getDescription(description)).log()
+        ).set();
+
+        boolean nullPlatform = headless && !hasDisplay() && glfwPlatformSupported(GLFW_PLATFORM_NULL);
+        if (nullPlatform) {
+            glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
+        }
+
+        // Live counters for JMX clients
+        EngineMetrics.register();
 
         // Initialize GLFW
         if (!glfwInit()) {
@@ -57,6 +115,12 @@ public class Window {
         glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
         glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
         glfwWindowHint(GLFW_OPENGL_FORWARD_COMPAT, GL_TRUE);
+        if (nullPlatform) {
+            // OSMesa by default, -Dphantasm.headless.context=egl for surfaceless EGL
+            boolean egl = "egl".equalsIgnoreCase(System.getProperty("phantasm.headless.context"));
+            glfwWindowHint(GLFW_CONTEXT_CREATION_API, egl ? GLFW_EGL_CONTEXT_API : GLFW_OSMESA_CONTEXT_API);
+            Log.info(LogCategory.CORE, "No display, creating a headless {} context").arg(egl ? "EGL" : "OSMesa").log();
+        }
 
         // Create window
         windowHandle = glfwCreateWindow(width, height, title, NULL, NULL);
@@ -75,37 +139,55 @@ public class Window {
         };
         glfwSetFramebufferSizeCallback(windowHandle, framebufferSizeCallback);
 
-        // Center window on screen
-        try (MemoryStack stack = stackPush()) {
-            IntBuffer pWidth = stack.mallocInt(1);
-            IntBuffer pHeight = stack.mallocInt(1);
-            glfwGetWindowSize(windowHandle, pWidth, pHeight);
-
-            GLFWVidMode vidmode = glfwGetVideoMode(glfwGetPrimaryMonitor());
-            if (vidmode != null) {
-                glfwSetWindowPos(
-                        windowHandle,
-                        (vidmode.width() - pWidth.get(0)) / 2,
-                        (vidmode.height() - pHeight.get(0)) / 2
-                );
+        // The window was exposed or damaged, the last frame has to be presented again
+        glfwSetWindowRefreshCallback(windowHandle, window -> requestRedraw());
+
+        // Center window on screen (a headless window may have no monitor)
+        if (!headless) {
+            try (MemoryStack stack = stackPush()) {
+                IntBuffer pWidth = stack.mallocInt(1);
+                IntBuffer pHeight = stack.mallocInt(1);
+                glfwGetWindowSize(windowHandle, pWidth, pHeight);
+
+                GLFWVidMode vidmode = glfwGetVideoMode(glfwGetPrimaryMonitor());
+                if (vidmode != null) {
+                    glfwSetWindowPos(
+                            windowHandle,
+                            (vidmode.width() - pWidth.get(0)) / 2,
+                            (vidmode.height() - pHeight.get(0)) / 2
+                    );
+                }
             }
         }
 
         // Make OpenGL context current
         glfwMakeContextCurrent(windowHandle);
 
-        // Enable v-sync
-        glfwSwapInterval(1);
+        // Enable v-sync, headless runs measure raw frame time
+        glfwSwapInterval(headless ? 0 : 1);
 
         // Make window visible
-        glfwShowWindow(windowHandle);
+        if (!headless) {
+            glfwShowWindow(windowHandle);
+        }
 
         // Initialize OpenGL
         GL.createCapabilities();
 
+        // Shader variants link on a second context sharing this one, start with the common ones
+        ShaderPrecompiler.start(windowHandle);
+        BasicShader.precompileVariants(0L, BasicShader.FOG, BasicShader.UNLIT);
+
+        if (headless) {
+            screenTarget = new RenderTarget(true);
+            screenTarget.ensureSize(width, height);
+            RenderTarget.setScreen(screenTarget);
+        }
+
         // Initialize scene and camera
         camera = new Camera(new Vector3f(5.0f, 5.0f, 5.0f));
-        scene = new Scene(camera);
+        assets = new AssetManager();
+        scene = new Scene(camera, assets);
         scene.setAspectRatio((float)width / height);
 
         // Initialize viewport manager with scene and camera
@@ -115,9 +197,6 @@ public class Window {
 
         // Set up mouse callbacks
         setupMouseCallbacks();
-
-        // Set clear color
-        glClearColor(0.1f, 0.1f, 0.1f, 1.0f);
     }
 
     private void setupMouseCallbacks() {
@@ -146,8 +225,26 @@ public class Window {
             camera.rotate(xOffset, yOffset);
         });
 
+        // F3 toggles the profiler overlay, F4 writes a Chrome trace of the last frames
+        glfwSetKeyCallback(windowHandle, (window, key, scancode, action, mods) -> {
+            if (action != GLFW_PRESS) return;
+            if (key == GLFW_KEY_F3) {
+                viewportManager.toggleProfilerOverlay();
+                requestRedraw();
+            } else if (key == GLFW_KEY_F4) {
+                Path tracePath = Paths.get("phantasm-trace-" + System.currentTimeMillis() + ".json");
+                try {
+                    Profiler.exportChromeTrace(tracePath);
+                } catch (IOException e) {
+                    Log.error(LogCategory.CORE, "Failed to write profiler trace {}: {}")
+                            .arg(tracePath).arg(e.getMessage()).log();
+                }
+            }
+        });
+
         // Mouse button callback
         glfwSetMouseButtonCallback(windowHandle, (window, button, action, mods) -> {
+            requestRedraw();
             if (button == GLFW_MOUSE_BUTTON_RIGHT) {
                 if (action == GLFW_PRESS && isMouseInSceneViewport()) {
                     mouseInSceneView = true;
@@ -195,18 +292,120 @@ public class Window {
         }
     }
 
+    /**
+     * Runs one iteration of the main loop. In on-demand mode this blocks until input arrives
+     * or a redraw is requested, and only renders when something may have changed.
+     */
     public void update() {
+        if (isRenderingContinuously() || redrawRequested || resized) {
+            glfwPollEvents();
+        } else {
+            glfwWaitEventsTimeout(IDLE_WAIT_SECONDS);
+        }
+
         if (resized) {
+            if (screenTarget != null) {
+                screenTarget.ensureSize(width, height);
+            }
             viewportManager.updateViewports(width, height);
             scene.setAspectRatio((float)width / height);
             resized = false;
+            redrawRequested = true;
+        }
+
+        // Structural scene changes (objects, selection) have to show up in the panels
+        if (scene.getVersion() != seenSceneVersion) {
+            seenSceneVersion = scene.getVersion();
+            redrawRequested = true;
         }
 
         processInput();
-        render();
 
-        glfwSwapBuffers(windowHandle);
-        glfwPollEvents();
+        if (isRenderingContinuously() || redrawRequested) {
+            redrawRequested = false;
+            FrameEvent frameEvent = new FrameEvent();
+            frameEvent.begin();
+            Profiler.beginFrame();
+            RenderStats.beginFrame();
+
+            // Uploads and other work handed over by worker threads
+            if (mainThreadExecutor.runPending()) {
+                redrawRequested = true;
+            }
+
+            long now = System.nanoTime();
+            float deltaTime = lastFrameNanos == 0 ? 0.0f : (now - lastFrameNanos) / 1_000_000_000.0f;
+            FramePhaseEvent phase = FramePhaseEvent.start(FramePhaseEvent.UPDATE);
+            scene.update(Math.min(deltaTime, MAX_UPDATE_STEP));
+            phase.commit();
+
+            phase = FramePhaseEvent.start(FramePhaseEvent.RENDER);
+            render();
+            phase.commit();
+            // Nothing else asks for the frames that read occlusion results or finish LOD fades
+            if (scene.needsRedraw()) {
+                redrawRequested = true;
+            }
+
+            phase = FramePhaseEvent.start(FramePhaseEvent.PRESENT);
+            SWAP_SCOPE.begin();
+            if (headless) {
+                glFinish();  // Nothing to present, but the frame should include the GPU's work
+            } else {
+                glfwSwapBuffers(windowHandle);
+            }
+            SWAP_SCOPE.end();
+            phase.commit();
+
+            Profiler.endFrame();
+            recordFrame();
+
+            long allocated = EngineMetrics.endFrame(RenderStats.getDrawCalls(), RenderStats.getTriangles(),
+                    RenderStats.getStateChanges());
+            if (frameEvent.shouldCommit()) {
+                frameEvent.frameNumber = EngineMetrics.getFrameCount();
+                frameEvent.drawCalls = RenderStats.getDrawCalls();
+                frameEvent.triangles = RenderStats.getTriangles();
+                frameEvent.stateChanges = RenderStats.getStateChanges();
+                frameEvent.occlusionCulled = RenderStats.getOcclusionCulled();
+                frameEvent.allocatedBytes = allocated;
+                frameEvent.commit();
+            }
+        }
+    }
+
+    /**
+     * True while frames are drawn every iteration: continuous mode, camera navigation
+     * or play mode
+     */
+    public boolean isRenderingContinuously() {
+        return runMode == RunMode.CONTINUOUS || mouseInSceneView || playMode;
+    }
+
+    /**
+     * Asks for a new frame in on-demand mode. Safe to call from any thread.
+     */
+    public void requestRedraw() {
+        redrawRequested = true;
+        glfwPostEmptyEvent();  // Wake the main loop if it's waiting for events
+    }
+
+    private void recordFrame() {
+        long now = System.nanoTime();
+        if (lastFrameNanos != 0) {
+            lastFrameMillis = (now - lastFrameNanos) / 1_000_000.0f;
+        }
+        lastFrameNanos = now;
+
+        if (fpsSampleStart == 0) {
+            fpsSampleStart = now;
+        }
+        fpsSampleFrames++;
+        if (now - fpsSampleStart >= FPS_SAMPLE_NANOS) {
+            framesPerSecond = fpsSampleFrames * 1_000_000_000.0f / (now - fpsSampleStart);
+            fpsSampleStart = now;
+            fpsSampleFrames = 0;
+        }
     }
 
     private void processInput() {
@@ -229,17 +428,34 @@ public class Window {
     }
 
     private void render() {
-        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        // Clearing is up to the frame graph passes
         viewportManager.renderViewports();
     }
 
+    // Whether GLFW's native platform can open a window here
+    private static boolean hasDisplay() {
+        String os = System.getProperty("os.name", "").toLowerCase();
+        if (!os.contains("linux") && !os.contains("bsd")) {
+            return true;
+        }
+        return System.getenv("DISPLAY") != null || System.getenv("WAYLAND_DISPLAY") != null;
+    }
+
     public boolean shouldClose() {
         return glfwWindowShouldClose(windowHandle);
     }
 
     public void cleanup() {
         viewportManager.cleanup();
+        Profiler.cleanup();
         scene.cleanup();
+        assets.cleanup();  // Reports assets still referenced as leaks
+        ShaderPrecompiler.stop();
+        BasicShader.cleanupVariants();
+        if (screenTarget != null) {
+            screenTarget.cleanup();
+            screenTarget = null;
+        }
 
         if (framebufferSizeCallback != null) {
             framebufferSizeCallback.free();
@@ -255,10 +471,34 @@ public class Window {
         }
     }
 
+    public void setRunMode(RunMode runMode) {
+        this.runMode = runMode;
+        requestRedraw();
+    }
+
+    /**
+     * Play mode renders continuously even when the editor runs on demand
+     */
+    public void setPlayMode(boolean playMode) {
+        this.playMode = playMode;
+        requestRedraw();
+    }
+
     // Getters
+    public RunMode getRunMode() { return runMode; }
+    public boolean isPlayMode() { return playMode; }
+    /** Frames actually rendered per second, averaged over the last second of rendering */
+    public float getFramesPerSecond() { return framesPerSecond; }
+    /** Time between the last two rendered frames, including any idle time between them */
+    public float getLastFrameMillis() { return lastFrameMillis; }
+    public boolean isHeadless() { return headless; }
     public long getWindowHandle() { return windowHandle; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
     public Scene getScene() { return scene; }
+    public AssetManager getAssets() { return assets; }
     public Camera getCamera() { return camera; }
+    public ViewportManager getViewportManager() { return viewportManager; }
+    /** Runs tasks from other threads on this window's GL thread, e.g. for ModelImporter */
+    public MainThreadExecutor getMainThreadExecutor() { return mainThreadExecutor; }
 }
\ No newline at end of file
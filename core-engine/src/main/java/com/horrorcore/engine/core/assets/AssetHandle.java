@@ -0,0 +1,66 @@
+package com.horrorcore.engine.core.assets;
+
+/**
+ * One reference to an asset owned by an {@link AssetManager}. The asset stays loaded while
+ * any handle to it is unreleased; release each handle exactly once when done with it.
+ * GL thread only, like the manager.
+ */
+public final class AssetHandle<T> {
+    private final AssetManager manager;
+    final AssetManager.Entry entry;
+    final Throwable acquiredAt;  // Where the handle was created, only when tracking leaks
+    private boolean released;
+
+    AssetHandle(AssetManager manager, AssetManager.Entry entry, Throwable acquiredAt) {
+        this.manager = manager;
+        this.entry = entry;
+        this.acquiredAt = acquiredAt;
+    }
+
+    /**
+     * @throws IllegalStateException if the handle was released
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (released) {
+            throw new IllegalStateException("Asset " + entry.key + " used after release");
+        }
+        return (T) entry.asset;
+    }
+
+    /**
+     * Another, independent reference to the same asset
+     */
+    public AssetHandle<T> retain() {
+        if (released) {
+            throw new IllegalStateException("Asset " + entry.key + " retained after release");
+        }
+        return manager.retain(entry);
+    }
+
+    /**
+     * Drops this reference. Releasing twice is an error, as it would drop someone else's.
+     */
+    public void release() {
+        if (released) {
+            throw new IllegalStateException("Asset " + entry.key + " released twice");
+        }
+        released = true;
+        manager.release(this);
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    public String getKey() {
+        return entry.key;
+    }
+
+    /**
+     * The manager the asset belongs to, for acquiring related assets from the same one
+     */
+    public AssetManager getManager() {
+        return manager;
+    }
+}
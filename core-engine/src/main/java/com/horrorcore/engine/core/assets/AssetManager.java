@@ -0,0 +1,272 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.BasicShader;
+import com.horrorcore.engine.core.graphics.LodGroup;
+import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.graphics.MeshGenerator;
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Loads each GPU asset once per key and shares it through reference-counted handles.
+ * An asset whose last handle is released stays loaded, so acquiring it again costs nothing;
+ * once the GPU memory of all assets exceeds the budget, unreferenced assets are destroyed
+ * least recently released first. Assets still referenced are never evicted, even over budget.
+ * <p>
+ * {@link #cleanup} reports every asset that still has handles as a leak. With
+ * -Dphantasm.assets.trackLeaks=true the report includes where each leaked handle was
+ * acquired. The budget defaults to 512 MB, or phantasm.assets.budgetMb.
+ * <p>
+ * Keys are free-form; the helpers here use "mesh:" and "shader:" prefixes. GL thread only.
+ */
+public class AssetManager {
+    private static final long DEFAULT_BUDGET_BYTES = 512L * 1024 * 1024;
+
+    static final class Entry {
+        final String key;
+        final Object asset;
+        final long gpuBytes;
+        final Consumer<Object> destroyer;
+        final Set<AssetHandle<?>> handles;  // Outstanding handles, only when tracking leaks
+        int references;
+
+        Entry(String key, Object asset, long gpuBytes, Consumer<Object> destroyer, boolean trackHandles) {
+            this.key = key;
+            this.asset = asset;
+            this.gpuBytes = gpuBytes;
+            this.destroyer = destroyer;
+            this.handles = trackHandles ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    // Unreferenced entries in the order their last handle was released, eviction starts at the head
+    private final LinkedHashMap<String, Entry> unreferenced = new LinkedHashMap<>();
+    private final boolean trackLeaks = Boolean.getBoolean("phantasm.assets.trackLeaks");
+    private long budgetBytes = Long.getLong("phantasm.assets.budgetMb", DEFAULT_BUDGET_BYTES >> 20) << 20;
+    private long gpuBytes;
+    private long loads;
+    private long hits;
+    private long evictions;
+    private boolean overBudgetReported;
+
+    /**
+     * Returns a handle to the asset under the key, loading it first if it isn't loaded
+     * @param type      Class the asset must have, guards against two kinds of asset sharing a key
+     * @param loader    Creates the asset, called at most once until the asset is evicted
+     * @param gpuBytes  GPU memory the asset holds, counted against the budget
+     * @param destroyer Frees the asset once it's evicted or the manager cleaned up
+     * @throws IllegalArgumentException if the key holds an asset of another type
+     */
+    public <T> AssetHandle<T> acquire(String key, Class<T> type, Supplier<? extends T> loader,
+                                      ToLongFunction<? super T> gpuBytes, Consumer<? super T> destroyer) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (!type.isInstance(entry.asset)) {
+                throw new IllegalArgumentException("Asset " + key + " is a " + entry.asset.getClass().getSimpleName()
+                        + ", not a " + type.getSimpleName());
+            }
+            hits++;
+            return retain(entry);
+        }
+
+        T asset = loader.get();
+        @SuppressWarnings("unchecked")
+        Consumer<Object> untypedDestroyer = object -> destroyer.accept((T) object);
+        entry = new Entry(key, asset, gpuBytes.applyAsLong(asset), untypedDestroyer, trackLeaks);
+        entries.put(key, entry);
+        this.gpuBytes += entry.gpuBytes;
+        loads++;
+        Log.debug(LogCategory.ASSETS, "Loaded asset {}, {} KB").arg(key).arg(entry.gpuBytes >> 10).log();
+
+        AssetHandle<T> handle = retain(entry);
+        evict();
+        return handle;
+    }
+
+    /**
+     * Handle to a mesh under the key, creating it with the loader if needed
+     */
+    public AssetHandle<Mesh> mesh(String key, Supplier<Mesh> loader) {
+        return acquire("mesh:" + key, Mesh.class, loader, Mesh::getGpuBytes, Mesh::cleanup);
+    }
+
+    /**
+     * Handle to a LOD group under the key, creating it with the loader if needed
+     */
+    public AssetHandle<LodGroup> lodGroup(String key, Supplier<LodGroup> loader) {
+        return acquire("lod:" + key, LodGroup.class, loader, LodGroup::getGpuBytes, LodGroup::cleanup);
+    }
+
+    /**
+     * The shared unit cube
+     */
+    public AssetHandle<Mesh> cube() {
+        return mesh("cube", MeshGenerator::createCube);
+    }
+
+    public AssetHandle<Mesh> sphere(int segments, int rings) {
+        return mesh("sphere/" + segments + "x" + rings, () -> MeshGenerator.createSphere(segments, rings));
+    }
+
+    /**
+     * A BasicShader with the given keywords, shared by everything that asks for them
+     */
+    public AssetHandle<BasicShader> shader(long keywords) {
+        // Programs are owned by the shader variants, an instance holds no GPU memory of its own
+        return acquire("shader:BasicShader/" + Long.toHexString(keywords), BasicShader.class,
+                () -> new BasicShader(keywords), shader -> 0L, BasicShader::cleanup);
+    }
+
+    <T> AssetHandle<T> retain(Entry entry) {
+        if (entry.references++ == 0) {
+            unreferenced.remove(entry.key);
+        }
+        AssetHandle<T> handle = new AssetHandle<>(this, entry, trackLeaks ? new Throwable("Acquired here") : null);
+        if (entry.handles != null) {
+            entry.handles.add(handle);
+        }
+        return handle;
+    }
+
+    void release(AssetHandle<?> handle) {
+        Entry entry = handle.entry;
+        if (entries.get(entry.key) != entry) return;  // Manager was cleaned up
+        if (entry.handles != null) {
+            entry.handles.remove(handle);
+        }
+        if (--entry.references == 0) {
+            unreferenced.put(entry.key, entry);
+            evict();
+        }
+    }
+
+    // Destroys unreferenced assets, oldest first, until the total fits the budget
+    private void evict() {
+        Iterator<Entry> candidates = unreferenced.values().iterator();
+        while (gpuBytes > budgetBytes && candidates.hasNext()) {
+            Entry entry = candidates.next();
+            candidates.remove();
+            destroy(entry);
+            evictions++;
+            Log.debug(LogCategory.ASSETS, "Evicted asset {}, {} KB").arg(entry.key).arg(entry.gpuBytes >> 10).log();
+        }
+
+        if (gpuBytes > budgetBytes) {
+            if (!overBudgetReported) {
+                overBudgetReported = true;
+                Log.warn(LogCategory.ASSETS, "Referenced assets use {} MB, over the {} MB budget")
+                        .arg(gpuBytes >> 20).arg(budgetBytes >> 20).log();
+            }
+        } else {
+            overBudgetReported = false;
+        }
+    }
+
+    private void destroy(Entry entry) {
+        entries.remove(entry.key);
+        gpuBytes -= entry.gpuBytes;
+        entry.destroyer.accept(entry.asset);
+    }
+
+    /**
+     * Destroys every unreferenced asset regardless of the budget
+     */
+    public void trim() {
+        for (Entry entry : unreferenced.values()) {
+            destroy(entry);
+            evictions++;
+        }
+        unreferenced.clear();
+    }
+
+    /**
+     * Assets that still have handles, with their reference counts
+     */
+    public Map<String, Integer> getReferencedAssets() {
+        Map<String, Integer> referenced = new LinkedHashMap<>();
+        for (Entry entry : entries.values()) {
+            if (entry.references > 0) {
+                referenced.put(entry.key, entry.references);
+            }
+        }
+        return referenced;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Sets the GPU memory unreferenced assets may keep loaded, evicting right away if over it
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        evict();
+    }
+
+    /**
+     * GPU memory of every loaded asset, referenced or not
+     */
+    public long getGpuBytes() { return gpuBytes; }
+    public int getAssetCount() { return entries.size(); }
+    public long getLoadCount() { return loads; }
+    /** Acquires served by an already loaded asset */
+    public long getHitCount() { return hits; }
+    public long getEvictionCount() { return evictions; }
+
+    /**
+     * Reports assets that still have handles as leaks, then destroys every asset
+     */
+    public void cleanup() {
+        List<Entry> leaked = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.references > 0) {
+                leaked.add(entry);
+            }
+        }
+        if (!leaked.isEmpty()) {
+            long leakedBytes = 0;
+            for (Entry entry : leaked) {
+                leakedBytes += entry.gpuBytes;
+            }
+            Log.warn(LogCategory.ASSETS, "{} assets still referenced at shutdown, {} KB")
+                    .arg(leaked.size()).arg(leakedBytes >> 10).log();
+            for (Entry entry : leaked) {
+                Log.warn(LogCategory.ASSETS, "  {}: {} handles, {} KB")
+                        .arg(entry.key).arg(entry.references).arg(entry.gpuBytes >> 10).log();
+                if (entry.handles != null) {
+                    for (AssetHandle<?> handle : entry.handles) {
+                        Log.warn(LogCategory.ASSETS, "{}").arg(stackTrace(handle.acquiredAt)).log();
+                    }
+                }
+            }
+        }
+
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            destroy(entry);
+        }
+        unreferenced.clear();
+    }
+
+    private static String stackTrace(Throwable throwable) {
+        StringWriter trace = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(trace));
+        return trace.toString();
+    }
+}
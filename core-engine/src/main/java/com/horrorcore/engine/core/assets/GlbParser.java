@@ -0,0 +1,384 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.MeshData;
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary glTF 2.0 (.glb) parser. Vertex and index data are read straight out of the file's
+ * binary chunk: tightly packed accessors are copied into arrays with one bulk get from a
+ * little-endian view of the mapped buffer, strided ones element by element.
+ * <p>
+ * Every node of the default scene that has a mesh becomes one part, with the node's world
+ * transform baked into its vertices since transforms have no parents. A part merges all
+ * triangle primitives of its mesh; other primitive modes, sparse accessors and buffers
+ * outside the file aren't supported.
+ */
+final class GlbParser {
+    private static final int MAGIC = 0x46546C67;       // "glTF"
+    private static final int CHUNK_JSON = 0x4E4F534A;  // "JSON"
+    private static final int CHUNK_BIN = 0x004E4942;   // "BIN\0"
+
+    // Accessor component types
+    private static final int UNSIGNED_BYTE = 5121;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int UNSIGNED_INT = 5125;
+    private static final int FLOAT = 5126;
+
+    private static final int MODE_TRIANGLES = 4;
+
+    private final String name;
+    private final Map<String, Object> root;
+    private final ByteBuffer bin;
+    private final List<String> partNames = new ArrayList<>();
+    private final List<MeshData> parts = new ArrayList<>();
+
+    private GlbParser(String name, Map<String, Object> root, ByteBuffer bin) {
+        this.name = name;
+        this.root = root;
+        this.bin = bin;
+    }
+
+    /**
+     * @param data File contents from position 0 to the limit
+     * @throws IllegalArgumentException if the file isn't a supported glTF binary
+     */
+    @SuppressWarnings("unchecked")
+    static ModelData parse(String name, ByteBuffer data) {
+        data = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (data.limit() < 20 || data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException(name + " is not a binary glTF file");
+        }
+        if (data.getInt(4) != 2) {
+            throw new IllegalArgumentException(name + " uses glTF version " + data.getInt(4) + ", only 2 is supported");
+        }
+        int length = Math.min(data.getInt(8), data.limit());
+
+        String json = null;
+        ByteBuffer bin = null;
+        int offset = 12;
+        while (offset + 8 <= length) {
+            int chunkLength = data.getInt(offset);
+            int chunkType = data.getInt(offset + 4);
+            if (chunkLength < 0 || offset + 8 + chunkLength > length) {
+                throw new IllegalArgumentException(name + " has a truncated chunk at offset " + offset);
+            }
+            if (chunkType == CHUNK_JSON) {
+                byte[] bytes = new byte[chunkLength];
+                data.get(offset + 8, bytes);
+                json = new String(bytes, StandardCharsets.UTF_8);
+            } else if (chunkType == CHUNK_BIN && bin == null) {
+                bin = data.slice(offset + 8, chunkLength).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            offset += 8 + chunkLength;
+        }
+        if (json == null) {
+            throw new IllegalArgumentException(name + " has no JSON chunk");
+        }
+
+        GlbParser parser = new GlbParser(name, (Map<String, Object>) JsonReader.parse(json), bin);
+        parser.readScene();
+        return new ModelData(name, parser.partNames, parser.parts);
+    }
+
+    private void readScene() {
+        List<Object> scenes = list(root, "scenes");
+        if (scenes.isEmpty()) {
+            // No scene graph, take the meshes as they are
+            List<Object> meshes = list(root, "meshes");
+            for (int i = 0; i < meshes.size(); i++) {
+                readMesh(i, null, new Matrix4f());
+            }
+            return;
+        }
+
+        Map<String, Object> scene = element("scenes", integer(root, "scene", 0), "scene");
+        for (Object node : list(scene, "nodes")) {
+            readNode(((Number) node).intValue(), new Matrix4f(), 0);
+        }
+    }
+
+    private void readNode(int index, Matrix4f parent, int depth) {
+        if (depth > 256) {
+            throw new IllegalArgumentException(name + " has a node cycle");
+        }
+        Map<String, Object> node = element("nodes", index, "node");
+
+        Matrix4f world = new Matrix4f(parent).mul(localTransform(node));
+        if (node.containsKey("mesh")) {
+            readMesh(integer(node, "mesh", 0), (String) node.get("name"), world);
+        }
+        for (Object child : list(node, "children")) {
+            readNode(((Number) child).intValue(), world, depth + 1);
+        }
+    }
+
+    private static Matrix4f localTransform(Map<String, Object> node) {
+        Matrix4f local = new Matrix4f();
+        if (node.containsKey("matrix")) {
+            return local.set(floats(node, "matrix"));  // Column-major, as JOML expects
+        }
+        if (node.containsKey("translation")) {
+            float[] t = floats(node, "translation");
+            local.translate(t[0], t[1], t[2]);
+        }
+        if (node.containsKey("rotation")) {
+            float[] r = floats(node, "rotation");
+            local.rotate(new Quaternionf(r[0], r[1], r[2], r[3]));
+        }
+        if (node.containsKey("scale")) {
+            float[] s = floats(node, "scale");
+            local.scale(s[0], s[1], s[2]);
+        }
+        return local;
+    }
+
+    private void readMesh(int index, String nodeName, Matrix4f world) {
+        Map<String, Object> mesh = element("meshes", index, "mesh");
+        boolean identity = (world.properties() & Matrix4f.PROPERTY_IDENTITY) != 0;
+        Matrix3f normalMatrix = world.normal(new Matrix3f());
+        boolean mirrored = world.determinant3x3() < 0;
+
+        List<float[]> positionSets = new ArrayList<>();
+        List<float[]> normalSets = new ArrayList<>();
+        List<int[]> indexSets = new ArrayList<>();
+        int vertexCount = 0;
+        int indexCount = 0;
+        for (Object primitiveObject : list(mesh, "primitives")) {
+            Map<String, Object> primitive = map(primitiveObject);
+            int mode = integer(primitive, "mode", MODE_TRIANGLES);
+            if (mode != MODE_TRIANGLES) {
+                Log.warn(LogCategory.ASSETS, "{}: skipping primitive with mode {}, only triangles are imported")
+                        .arg(name).arg(mode).log();
+                continue;
+            }
+            Map<String, Object> attributes = map(primitive.get("attributes"));
+            if (!attributes.containsKey("POSITION")) continue;
+
+            int positionAccessor = ((Number) attributes.get("POSITION")).intValue();
+            float[] positions = readFloats(positionAccessor, 3);
+            int primitiveVertices = positions.length / 3;
+            int[] indices;
+            if (primitive.containsKey("indices")) {
+                indices = readIndices(integer(primitive, "indices", 0));
+            } else {
+                indices = new int[primitiveVertices];
+                for (int i = 0; i < indices.length; i++) {
+                    indices[i] = i;
+                }
+            }
+            float[] normals;
+            if (attributes.containsKey("NORMAL")) {
+                int normalAccessor = ((Number) attributes.get("NORMAL")).intValue();
+                normals = readFloats(normalAccessor, 3);
+                if (normals.length != positions.length) {
+                    throw new IllegalArgumentException(name + ": accessor " + normalAccessor + " has " + normals.length / 3
+                            + " normals for the " + primitiveVertices + " positions of accessor " + positionAccessor);
+                }
+            } else {
+                normals = MeshData.computeNormals(positions, indices);
+            }
+
+            if (!identity) {
+                Vector3f v = new Vector3f();
+                for (int i = 0; i < positions.length; i += 3) {
+                    world.transformPosition(v.set(positions[i], positions[i + 1], positions[i + 2]));
+                    positions[i] = v.x;
+                    positions[i + 1] = v.y;
+                    positions[i + 2] = v.z;
+                    normalMatrix.transform(v.set(normals[i], normals[i + 1], normals[i + 2])).normalize();
+                    normals[i] = v.x;
+                    normals[i + 1] = v.y;
+                    normals[i + 2] = v.z;
+                }
+            }
+            if (mirrored) {
+                // A negative scale turns the triangles inside out
+                for (int i = 0; i + 2 < indices.length; i += 3) {
+                    int swap = indices[i + 1];
+                    indices[i + 1] = indices[i + 2];
+                    indices[i + 2] = swap;
+                }
+            }
+
+            positionSets.add(positions);
+            normalSets.add(normals);
+            indexSets.add(indices);
+            vertexCount += primitiveVertices;
+            indexCount += indices.length;
+        }
+        if (positionSets.isEmpty()) return;
+
+        // Merge the primitives into one mesh
+        float[] positions = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        int[] indices = new int[indexCount];
+        int vertexBase = 0;
+        int indexBase = 0;
+        for (int p = 0; p < positionSets.size(); p++) {
+            float[] primitivePositions = positionSets.get(p);
+            System.arraycopy(primitivePositions, 0, positions, vertexBase * 3, primitivePositions.length);
+            System.arraycopy(normalSets.get(p), 0, normals, vertexBase * 3, primitivePositions.length);
+            int[] primitiveIndices = indexSets.get(p);
+            int primitiveVertices = primitivePositions.length / 3;
+            for (int i = 0; i < primitiveIndices.length; i++) {
+                if (primitiveIndices[i] < 0 || primitiveIndices[i] >= primitiveVertices) {
+                    throw new IllegalArgumentException(name + ": index " + primitiveIndices[i]
+                            + " out of range in mesh " + index);
+                }
+                indices[indexBase + i] = primitiveIndices[i] + vertexBase;
+            }
+            vertexBase += primitivePositions.length / 3;
+            indexBase += primitiveIndices.length;
+        }
+
+        String meshName = (String) mesh.get("name");
+        partNames.add(nodeName != null ? nodeName : meshName != null ? meshName : name + "#" + index);
+        parts.add(new MeshData(positions, normals, indices));
+    }
+
+    private float[] readFloats(int accessorIndex, int components) {
+        Map<String, Object> accessor = accessor(accessorIndex, "VEC" + components);
+        if (integer(accessor, "componentType", 0) != FLOAT) {
+            throw new IllegalArgumentException(name + ": accessor " + accessorIndex + " isn't float, quantized attributes aren't supported");
+        }
+        int count = integer(accessor, "count", 0);
+        int elementBytes = components * Float.BYTES;
+        int stride = integer(bufferView(accessor, accessorIndex), "byteStride", 0);
+        ByteBuffer view = view(accessor, accessorIndex, count, elementBytes, stride);
+        float[] values = new float[count * components];
+
+        if (stride == 0 || stride == elementBytes) {
+            view.slice(0, values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        } else {
+            for (int i = 0; i < count; i++) {
+                for (int c = 0; c < components; c++) {
+                    values[i * components + c] = view.getFloat(i * stride + c * Float.BYTES);
+                }
+            }
+        }
+        return values;
+    }
+
+    private int[] readIndices(int accessorIndex) {
+        Map<String, Object> accessor = accessor(accessorIndex, "SCALAR");
+        int count = integer(accessor, "count", 0);
+        int componentType = integer(accessor, "componentType", 0);
+        int elementBytes = switch (componentType) {
+            case UNSIGNED_INT -> Integer.BYTES;
+            case UNSIGNED_SHORT -> Short.BYTES;
+            case UNSIGNED_BYTE -> Byte.BYTES;
+            default -> throw new IllegalArgumentException(name + ": accessor " + accessorIndex + " has an invalid index type");
+        };
+        ByteBuffer view = view(accessor, accessorIndex, count, elementBytes, 0);
+        int[] indices = new int[count];
+        switch (componentType) {
+            case UNSIGNED_INT -> view.slice(0, count * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(indices);
+            case UNSIGNED_SHORT -> {
+                for (int i = 0; i < count; i++) {
+                    indices[i] = view.getShort(i * Short.BYTES) & 0xFFFF;
+                }
+            }
+            default -> {
+                // UNSIGNED_BYTE, the only type left
+                for (int i = 0; i < count; i++) {
+                    indices[i] = view.get(i) & 0xFF;
+                }
+            }
+        }
+        return indices;
+    }
+
+    private Map<String, Object> accessor(int index, String type) {
+        Map<String, Object> accessor = element("accessors", index, "accessor");
+        if (accessor.containsKey("sparse")) {
+            throw new IllegalArgumentException(name + ": sparse accessors aren't supported");
+        }
+        if (!type.equals(accessor.get("type"))) {
+            throw new IllegalArgumentException(name + ": accessor " + index + " is " + accessor.get("type") + ", expected " + type);
+        }
+        return accessor;
+    }
+
+    private Map<String, Object> bufferView(Map<String, Object> accessor, int accessorIndex) {
+        if (!accessor.containsKey("bufferView")) {
+            throw new IllegalArgumentException(name + ": accessor " + accessorIndex + " has no data");
+        }
+        return element("bufferViews", integer(accessor, "bufferView", 0), "buffer view");
+    }
+
+    /**
+     * The accessor's data from its first element to the end of its buffer view, after checking
+     * that all count elements fit
+     * @param stride Bytes from one element to the next, 0 when tightly packed
+     */
+    private ByteBuffer view(Map<String, Object> accessor, int accessorIndex, int count, int elementBytes, int stride) {
+        Map<String, Object> bufferView = bufferView(accessor, accessorIndex);
+        Map<String, Object> buffer = element("buffers", integer(bufferView, "buffer", 0), "buffer");
+        if (buffer.containsKey("uri") || bin == null) {
+            throw new IllegalArgumentException(name + ": only data embedded in the .glb file is supported");
+        }
+
+        int viewOffset = integer(bufferView, "byteOffset", 0);
+        int viewLength = integer(bufferView, "byteLength", 0);
+        if (viewOffset < 0 || viewLength < 0 || (long) viewOffset + viewLength > bin.limit()) {
+            throw new IllegalArgumentException(name + ": the buffer view of accessor " + accessorIndex + " is outside the binary chunk");
+        }
+        if (count < 0 || (stride != 0 && stride < elementBytes)) {
+            throw new IllegalArgumentException(name + ": accessor " + accessorIndex + " has count " + count
+                    + " and stride " + stride + " for " + elementBytes + " byte elements");
+        }
+        int accessorOffset = integer(accessor, "byteOffset", 0);
+        long accessorBytes = count == 0 ? 0 : (long) (count - 1) * (stride != 0 ? stride : elementBytes) + elementBytes;
+        if (accessorOffset < 0 || accessorOffset + accessorBytes > viewLength) {
+            throw new IllegalArgumentException(name + ": accessor " + accessorIndex + " reads " + accessorBytes
+                    + " bytes at offset " + accessorOffset + " of a " + viewLength + " byte buffer view");
+        }
+        return bin.slice(viewOffset + accessorOffset, viewLength - accessorOffset).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Entry of a top-level array, what names it in the error if the index is out of range
+    private Map<String, Object> element(String key, int index, String what) {
+        List<Object> elements = list(root, key);
+        if (index < 0 || index >= elements.size()) {
+            throw new IllegalArgumentException(name + ": " + what + " " + index + " doesn't exist, there are " + elements.size());
+        }
+        return map(elements.get(index));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> list(Map<String, Object> object, String key) {
+        Object value = object.get(key);
+        return value != null ? (List<Object>) value : List.of();
+    }
+
+    private static int integer(Map<String, Object> object, String key, int fallback) {
+        Object value = object.get(key);
+        return value != null ? ((Number) value).intValue() : fallback;
+    }
+
+    private static float[] floats(Map<String, Object> object, String key) {
+        List<Object> values = list(object, key);
+        float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Number) values.get(i)).floatValue();
+        }
+        return result;
+    }
+}
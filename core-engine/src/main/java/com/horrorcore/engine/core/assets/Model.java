@@ -0,0 +1,59 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.Scene;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.metrics.SceneLoadEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An imported model uploaded to the GPU, one mesh per part. Owns its meshes: objects created
+ * by {@link #instantiate} draw them, and they stay valid until {@link #cleanup}.
+ */
+public class Model {
+    private final String name;
+    private final List<String> partNames;
+    private final List<Mesh> meshes;
+
+    public Model(String name, List<String> partNames, List<Mesh> meshes) {
+        this.name = name;
+        this.partNames = Collections.unmodifiableList(partNames);
+        this.meshes = Collections.unmodifiableList(meshes);
+    }
+
+    /**
+     * Adds one object per part to the scene, each with its own renderer. GL thread only.
+     * @return The new objects, in part order
+     */
+    public List<GameObject> instantiate(Scene scene) {
+        SceneLoadEvent loadEvent = new SceneLoadEvent();
+        loadEvent.begin();
+
+        List<GameObject> objects = new ArrayList<>(meshes.size());
+        for (int i = 0; i < meshes.size(); i++) {
+            GameObject object = new GameObject(partNames.get(i));
+            object.addComponent(new MeshRenderer(meshes.get(i)));
+            scene.addGameObject(object);
+            objects.add(object);
+        }
+
+        loadEvent.source = name;
+        loadEvent.objectCount = objects.size();
+        loadEvent.commit();
+        return objects;
+    }
+
+    public String getName() { return name; }
+    public List<String> getPartNames() { return partNames; }
+    public List<Mesh> getMeshes() { return meshes; }
+
+    public void cleanup() {
+        for (Mesh mesh : meshes) {
+            mesh.cleanup();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.MeshData;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Geometry of an imported model before upload: one mesh per part, e.g. per glTF node.
+ * Built on worker threads and handed to the GL thread as a whole.
+ */
+public class ModelData {
+    private final String name;
+    private final List<String> partNames;
+    private final List<MeshData> parts;
+
+    public ModelData(String name, List<String> partNames, List<MeshData> parts) {
+        if (partNames.size() != parts.size()) {
+            throw new IllegalArgumentException("Model " + name + " has " + parts.size()
+                    + " parts but " + partNames.size() + " names");
+        }
+        this.name = name;
+        this.partNames = Collections.unmodifiableList(partNames);
+        this.parts = Collections.unmodifiableList(parts);
+    }
+
+    public String getName() { return name; }
+    public List<String> getPartNames() { return partNames; }
+    public List<MeshData> getParts() { return parts; }
+
+    public int getTriangleCount() {
+        int triangles = 0;
+        for (MeshData part : parts) {
+            triangles += part.getIndices().length / 3;
+        }
+        return triangles;
+    }
+}
@@ -0,0 +1,150 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.graphics.MeshData;
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads OBJ and binary glTF models without blocking the GL thread. Each file goes through
+ * three stages:
+ * <ol>
+ *     <li>I/O: the file is memory-mapped and its pages faulted in, on a cached pool of I/O
+ *     threads that spend their time blocked on the disk</li>
+ *     <li>Parsing: straight from the mapping, on the common fork/join pool; large OBJ files
+ *     are split further so one file uses every core</li>
+ *     <li>Upload: meshes are created on the GL thread through the given executor, usually
+ *     the window's {@link com.horrorcore.engine.core.MainThreadExecutor}</li>
+ * </ol>
+ * Many files load concurrently, each moving on as soon as its previous stage finishes.
+ */
+public class ModelImporter {
+    private static final AtomicInteger ioThreadCount = new AtomicInteger();
+
+    private final ExecutorService ioPool = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "phantasm-io-" + ioThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Executor glExecutor;
+    private volatile boolean keepSourceData;
+
+    /**
+     * @param glExecutor Runs tasks on the thread that owns the GL context
+     */
+    public ModelImporter(Executor glExecutor) {
+        this.glExecutor = glExecutor;
+    }
+
+    /**
+     * Whether meshes of models loaded from now on keep a CPU copy of their geometry, which
+     * static batching and software occlusion need. Off by default, it doubles the memory a model takes.
+     */
+    public void setKeepSourceData(boolean keepSourceData) {
+        this.keepSourceData = keepSourceData;
+    }
+
+    /**
+     * Starts loading a model, completing on the GL thread once its meshes are uploaded.
+     * Fails with the parse or I/O error if the file can't be imported.
+     */
+    public CompletableFuture<Model> load(Path path) {
+        long start = System.nanoTime();
+        boolean keepSourceData = this.keepSourceData;
+        return CompletableFuture.supplyAsync(() -> map(path), ioPool)
+                .thenApplyAsync(data -> parse(path, data), ForkJoinPool.commonPool())
+                .thenApplyAsync(model -> upload(model, keepSourceData, start), glExecutor);
+    }
+
+    /**
+     * Loads all files concurrently
+     * @return Completes once every model is uploaded, in the order of the paths
+     */
+    public CompletableFuture<List<Model>> loadAll(Collection<Path> paths) {
+        List<CompletableFuture<Model>> loads = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            loads.add(load(path));
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<Model> models = new ArrayList<>(loads.size());
+            for (CompletableFuture<Model> load : loads) {
+                models.add(load.join());
+            }
+            return models;
+        });
+    }
+
+    /**
+     * Reads and parses a model on the calling thread, without uploading it
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the format is unknown or the file malformed
+     */
+    public static ModelData read(Path path) throws IOException {
+        try {
+            return parse(path, map(path));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static MappedByteBuffer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is larger than 2 GB");
+            }
+            // The mapping outlives the channel; loading it here keeps page faults off the parsers
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            data.load();
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ModelData parse(Path path, MappedByteBuffer data) {
+        String fileName = path.getFileName().toString();
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        String name = fileName.substring(0, Math.max(0, fileName.lastIndexOf('.')));
+        return switch (extension) {
+            case "obj" -> new ModelData(name, List.of(name), List.of(ObjParser.parse(data)));
+            case "glb" -> GlbParser.parse(name, data);
+            default -> throw new IllegalArgumentException("Unsupported model format: " + fileName);
+        };
+    }
+
+    private static Model upload(ModelData data, boolean keepSourceData, long start) {
+        List<Mesh> meshes = new ArrayList<>(data.getParts().size());
+        for (MeshData part : data.getParts()) {
+            meshes.add(new Mesh(part.getPositions(), part.getNormals(), part.getIndices(), keepSourceData));
+        }
+        Log.info(LogCategory.ASSETS, "Imported {}: {} meshes, {} triangles in {} ms")
+                .arg(data.getName()).arg(meshes.size()).arg(data.getTriangleCount())
+                .arg((System.nanoTime() - start) / 1_000_000L).log();
+        return new Model(data.getName(), data.getPartNames(), meshes);
+    }
+
+    /**
+     * Stops the I/O threads. Reads in progress are interrupted and later loads are rejected.
+     */
+    public void shutdown() {
+        ioPool.shutdownNow();
+    }
+}
@@ -0,0 +1,384 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.MeshData;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Wavefront OBJ parser that reads straight from a (memory-mapped) byte buffer, without
+ * decoding the file into strings. The file is split into chunks at line boundaries that are
+ * parsed in parallel on the common fork/join pool: a first quick pass counts the vertex lines
+ * of each chunk, so every chunk knows the global index of its first vertex and can resolve
+ * relative face indices and write its vertices in place.
+ * <p>
+ * Reads v, vn and f; texture coordinates, groups and materials are skipped. Polygons are
+ * triangulated as fans. All objects in the file end up in one mesh.
+ */
+final class ObjParser {
+    // Below this a chunk isn't worth a task of its own
+    private static final int MIN_CHUNK_BYTES = 1 << 20;
+    // Index 0 or a relative index before the first vertex, apart from -1 for "no normal"
+    private static final int INVALID_INDEX = Integer.MIN_VALUE;
+
+    private static final class Chunk {
+        final int start;
+        final int end;
+        int positionCount;
+        int normalCount;
+        int positionBase;  // Global index of the chunk's first position
+        int normalBase;
+        int[] corners = new int[1024];  // Position and normal index per triangle corner, normal -1 if none
+        int cornerCount;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        void addCorner(int position, int normal) {
+            if (cornerCount * 2 + 2 > corners.length) {
+                corners = Arrays.copyOf(corners, corners.length * 2);
+            }
+            corners[cornerCount * 2] = position;
+            corners[cornerCount * 2 + 1] = normal;
+            cornerCount++;
+        }
+    }
+
+    private ObjParser() {
+    }
+
+    /**
+     * @param data File contents from position 0 to the limit
+     * @throws IllegalArgumentException if a face references a vertex that doesn't exist
+     */
+    static MeshData parse(ByteBuffer data) {
+        return parse(data, MIN_CHUNK_BYTES);
+    }
+
+    static MeshData parse(ByteBuffer data, int minChunkBytes) {
+        Chunk[] chunks = split(data, minChunkBytes);
+
+        IntStream.range(0, chunks.length).parallel().forEach(i -> count(data, chunks[i]));
+        int positionCount = 0;
+        int normalCount = 0;
+        for (Chunk chunk : chunks) {
+            chunk.positionBase = positionCount;
+            chunk.normalBase = normalCount;
+            positionCount += chunk.positionCount;
+            normalCount += chunk.normalCount;
+        }
+
+        float[] positions = new float[positionCount * 3];
+        float[] normals = new float[normalCount * 3];
+        IntStream.range(0, chunks.length).parallel().forEach(i -> parse(data, chunks[i], positions, normals));
+
+        return buildMesh(chunks, positions, positionCount, normals, normalCount);
+    }
+
+    private static Chunk[] split(ByteBuffer data, int minChunkBytes) {
+        int length = data.limit();
+        int chunkCount = (int) Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4L, length / minChunkBytes));
+        Chunk[] chunks = new Chunk[chunkCount];
+        int start = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            int end = i == chunkCount - 1 ? length : Math.max(start, (int) ((long) length * (i + 1) / chunkCount));
+            // Every chunk ends after a line break
+            while (end < length && end > 0 && data.get(end - 1) != '\n') {
+                end++;
+            }
+            chunks[i] = new Chunk(start, end);
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static void count(ByteBuffer data, Chunk chunk) {
+        int pos = chunk.start;
+        while (pos < chunk.end) {
+            pos = skipBlanks(data, pos, chunk.end);
+            if (pos + 2 < chunk.end && data.get(pos) == 'v') {
+                byte next = data.get(pos + 1);
+                if (isBlank(next)) {
+                    chunk.positionCount++;
+                } else if (next == 'n' && isBlank(data.get(pos + 2))) {
+                    chunk.normalCount++;
+                }
+            }
+            pos = nextLine(data, pos, chunk.end);
+        }
+    }
+
+    private static void parse(ByteBuffer data, Chunk chunk, float[] positions, float[] normals) {
+        Cursor cursor = new Cursor(data, chunk.end);
+        int position = chunk.positionBase;  // Global count of positions read so far
+        int normal = chunk.normalBase;
+        int[] polygon = new int[32];
+
+        int pos = chunk.start;
+        while (pos < chunk.end) {
+            pos = skipBlanks(data, pos, chunk.end);
+            if (pos + 2 < chunk.end) {
+                byte first = data.get(pos);
+                byte second = data.get(pos + 1);
+                if (first == 'v' && isBlank(second)) {
+                    cursor.pos = pos + 2;
+                    positions[position * 3] = cursor.nextFloat();
+                    positions[position * 3 + 1] = cursor.nextFloat();
+                    positions[position * 3 + 2] = cursor.nextFloat();
+                    position++;
+                } else if (first == 'v' && second == 'n' && isBlank(data.get(pos + 2))) {
+                    cursor.pos = pos + 3;
+                    normals[normal * 3] = cursor.nextFloat();
+                    normals[normal * 3 + 1] = cursor.nextFloat();
+                    normals[normal * 3 + 2] = cursor.nextFloat();
+                    normal++;
+                } else if (first == 'f' && isBlank(second)) {
+                    cursor.pos = pos + 2;
+                    int cornerCount = 0;
+                    while (cursor.skipBlanks() && cursor.atNumber()) {
+                        if (cornerCount * 2 + 2 > polygon.length) {
+                            polygon = Arrays.copyOf(polygon, polygon.length * 2);
+                        }
+                        // v, v/vt, v//vn or v/vt/vn
+                        int vertexIndex = resolve(cursor.nextInt(), position);
+                        int normalIndex = -1;
+                        if (cursor.peek() == '/') {
+                            cursor.pos++;
+                            if (cursor.peek() != '/') {
+                                cursor.nextInt();  // Texture coordinate, unused
+                            }
+                            if (cursor.peek() == '/') {
+                                cursor.pos++;
+                                normalIndex = resolve(cursor.nextInt(), normal);
+                            }
+                        }
+                        polygon[cornerCount * 2] = vertexIndex;
+                        polygon[cornerCount * 2 + 1] = normalIndex;
+                        cornerCount++;
+                    }
+                    for (int i = 1; i + 1 < cornerCount; i++) {
+                        chunk.addCorner(polygon[0], polygon[1]);
+                        chunk.addCorner(polygon[i * 2], polygon[i * 2 + 1]);
+                        chunk.addCorner(polygon[i * 2 + 2], polygon[i * 2 + 3]);
+                    }
+                }
+            }
+            pos = nextLine(data, pos, chunk.end);
+        }
+    }
+
+    // OBJ indices start at 1, negative ones count back from the last vertex read
+    private static int resolve(int index, int countSoFar) {
+        if (index > 0) return index - 1;
+        return index < 0 && countSoFar + index >= 0 ? countSoFar + index : INVALID_INDEX;
+    }
+
+    // Gives every distinct position/normal pair its own vertex
+    private static MeshData buildMesh(Chunk[] chunks, float[] positions, int positionCount, float[] normals, int normalCount) {
+        int cornerCount = 0;
+        for (Chunk chunk : chunks) {
+            cornerCount += chunk.cornerCount;
+        }
+        int[] indices = new int[cornerCount];
+
+        if (normalCount == 0) {
+            int corner = 0;
+            for (Chunk chunk : chunks) {
+                for (int i = 0; i < chunk.cornerCount; i++) {
+                    indices[corner++] = checkIndex(chunk.corners[i * 2], positionCount, "position");
+                }
+            }
+            return new MeshData(positions, MeshData.computeNormals(positions, indices), indices);
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, cornerCount * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        int[] vertices = new int[capacity];
+        Arrays.fill(keys, -1L);
+
+        float[] vertexPositions = new float[cornerCount * 3];
+        float[] vertexNormals = new float[cornerCount * 3];
+        boolean missingNormals = false;
+        int vertexCount = 0;
+        int corner = 0;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.cornerCount; i++) {
+                int position = checkIndex(chunk.corners[i * 2], positionCount, "position");
+                int normal = chunk.corners[i * 2 + 1];
+                if (normal != -1) {
+                    checkIndex(normal, normalCount, "normal");
+                }
+                long key = ((long) position << 32) | (normal + 1);
+
+                int slot = (int) (mix(key) & (capacity - 1));
+                while (keys[slot] != -1L && keys[slot] != key) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                if (keys[slot] == -1L) {
+                    keys[slot] = key;
+                    vertices[slot] = vertexCount;
+                    System.arraycopy(positions, position * 3, vertexPositions, vertexCount * 3, 3);
+                    if (normal != -1) {
+                        System.arraycopy(normals, normal * 3, vertexNormals, vertexCount * 3, 3);
+                    } else {
+                        missingNormals = true;
+                    }
+                    vertexCount++;
+                }
+                indices[corner++] = vertices[slot];
+            }
+        }
+
+        vertexPositions = Arrays.copyOf(vertexPositions, vertexCount * 3);
+        vertexNormals = Arrays.copyOf(vertexNormals, vertexCount * 3);
+        if (missingNormals) {
+            // Faces without normals in a file that has some, fill in smooth ones
+            float[] computed = MeshData.computeNormals(vertexPositions, indices);
+            for (int i = 0; i < vertexCount * 3; i += 3) {
+                if (vertexNormals[i] == 0 && vertexNormals[i + 1] == 0 && vertexNormals[i + 2] == 0) {
+                    System.arraycopy(computed, i, vertexNormals, i, 3);
+                }
+            }
+        }
+        return new MeshData(vertexPositions, vertexNormals, indices);
+    }
+
+    private static int checkIndex(int index, int count, String kind) {
+        if (index == INVALID_INDEX) {
+            throw new IllegalArgumentException("OBJ face references " + kind + " 0 or one before the first");
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("OBJ face references " + kind + " " + (index + 1) + " of " + count);
+        }
+        return index;
+    }
+
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private static int skipBlanks(ByteBuffer data, int pos, int end) {
+        while (pos < end && isBlank(data.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int nextLine(ByteBuffer data, int pos, int end) {
+        while (pos < end && data.get(pos) != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+
+    /**
+     * Reads numbers from one line at a time
+     */
+    private static final class Cursor {
+        private static final double[] POWERS_OF_TEN = new double[23];
+
+        static {
+            POWERS_OF_TEN[0] = 1.0;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+            }
+        }
+
+        private final ByteBuffer data;
+        private final int end;
+        int pos;
+
+        Cursor(ByteBuffer data, int end) {
+            this.data = data;
+            this.end = end;
+        }
+
+        int peek() {
+            return pos < end ? data.get(pos) : '\n';
+        }
+
+        boolean atNumber() {
+            int b = peek();
+            return (b >= '0' && b <= '9') || b == '-' || b == '+';
+        }
+
+        /**
+         * Skips spaces, returns false at the end of the line
+         */
+        boolean skipBlanks() {
+            int b;
+            while ((b = peek()) == ' ' || b == '\t') {
+                pos++;
+            }
+            return b != '\n' && b != '\r' && b != '#';
+        }
+
+        int nextInt() {
+            skipBlanks();
+            boolean negative = peek() == '-';
+            if (negative || peek() == '+') pos++;
+            int value = 0;
+            int b;
+            while ((b = peek()) >= '0' && b <= '9') {
+                value = value * 10 + (b - '0');
+                pos++;
+            }
+            return negative ? -value : value;
+        }
+
+        // Keeps 18 significant digits but isn't correctly rounded: the mantissa becomes a double
+        // (exact only up to 2^53) and is scaled by a power of ten, each rounding once. The float
+        // result can be one ulp off Float.parseFloat in rare cases, far below mesh precision.
+        float nextFloat() {
+            if (!skipBlanks()) return 0.0f;
+            boolean negative = peek() == '-';
+            if (negative || peek() == '+') pos++;
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            int b;
+            while ((b = peek()) >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                } else {
+                    exponent++;
+                }
+                pos++;
+            }
+            if (b == '.') {
+                pos++;
+                while ((b = peek()) >= '0' && b <= '9') {
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (mantissa != 0) digits++;
+                        exponent--;
+                    }
+                    pos++;
+                }
+            }
+            if (b == 'e' || b == 'E') {
+                pos++;
+                exponent += nextInt();
+            }
+
+            double value = mantissa;
+            if (exponent < 0) {
+                value = -exponent < POWERS_OF_TEN.length ? value / POWERS_OF_TEN[-exponent] : value * Math.pow(10, exponent);
+            } else if (exponent > 0) {
+                value = exponent < POWERS_OF_TEN.length ? value * POWERS_OF_TEN[exponent] : value * Math.pow(10, exponent);
+            }
+            return (float) (negative ? -value : value);
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.horrorcore.engine.core.components;
 
 import com.horrorcore.engine.core.Component;
+import com.horrorcore.engine.core.Transform;
+import com.horrorcore.engine.core.assets.AssetHandle;
+import com.horrorcore.engine.core.graphics.CameraUniformBuffer;
+import com.horrorcore.engine.core.graphics.LodGroup;
 import com.horrorcore.engine.core.graphics.Mesh;
+import com.horrorcore.engine.core.graphics.MeshData;
 import com.horrorcore.engine.core.graphics.BasicShader;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
@@ -11,20 +16,69 @@ import static org.lwjgl.opengl.GL11.glEnable;
 
 public class MeshRenderer extends Component {
     private Mesh mesh;
+    private AssetHandle<Mesh> meshHandle;  // Released on cleanup, null when the caller owns the mesh
     private BasicShader shader;
+    private AssetHandle<BasicShader> shaderHandle;  // Released on cleanup, null when the caller owns the shader
     private Vector3f color;
+    private boolean staticBatched;  // Drawn as part of a StaticBatcher batch instead of on its own
+    private boolean occluder;       // Rasterized by the software occlusion culler to hide objects behind it
 
-    // Add references to view and projection matrices
-    private Matrix4f viewMatrix;
-    private Matrix4f projectionMatrix;
+    // Level of detail, updated by the render list once per frame
+    private LodGroup lodGroup;
+    private AssetHandle<LodGroup> lodHandle;  // Released on cleanup, null when the caller owns the group
+    private int lodLevel = -1;
+    private int fadingLodLevel = -1;  // Level being faded out, -1 when not cross-fading
+    private long fadeStartNanos;
+    private float lodFade;
 
+    // Model-view-projection cached until either the transform or the camera changes
+    private final Matrix4f mvpMatrix;
+    private int cachedTransformVersion = -1;
+    private int cachedCameraVersion = -1;
+
+    /**
+     * Draws a mesh the caller owns and frees once no renderer uses it
+     */
     public MeshRenderer(Mesh mesh) {
+        this(mesh, new BasicShader());
+    }
+
+    /**
+     * Draws a managed mesh with the default shader of the same manager, shared with every
+     * other renderer drawing that way. Both handles are released when the renderer is
+     * cleaned up.
+     */
+    public MeshRenderer(AssetHandle<Mesh> mesh) {
+        this(mesh, mesh.getManager().shader(0L));
+    }
+
+    public MeshRenderer(AssetHandle<Mesh> mesh, AssetHandle<BasicShader> shader) {
+        this(mesh, shader.get());
+        this.shaderHandle = shader;
+    }
+
+    public MeshRenderer(AssetHandle<Mesh> mesh, BasicShader shader) {
+        this(mesh.get(), shader);
+        this.meshHandle = mesh;
+    }
+
+    public MeshRenderer(Mesh mesh, BasicShader shader) {
         this.mesh = mesh;
-        this.shader = new BasicShader();
+        this.shader = shader;
         this.color = new Vector3f(1.0f);
-        // Initialize matrices
-        this.viewMatrix = new Matrix4f();
-        this.projectionMatrix = new Matrix4f();
+        this.mvpMatrix = new Matrix4f();
+    }
+
+    /**
+     * Draws a LOD group the caller owns and frees once no renderer uses it
+     */
+    public MeshRenderer(LodGroup lodGroup) {
+        this(lodGroup, new BasicShader());
+    }
+
+    public MeshRenderer(LodGroup lodGroup, BasicShader shader) {
+        this(lodGroup.getMesh(0), shader);
+        this.lodGroup = lodGroup;
     }
 
     @Override
@@ -33,28 +87,51 @@ public class MeshRenderer extends Component {
         glEnable(GL_DEPTH_TEST);
     }
 
-    public void setMatrices(Matrix4f view, Matrix4f projection) {
-        this.viewMatrix.set(view);
-        this.projectionMatrix.set(projection);
-    }
-
+    /**
+     * Draws the object with the camera data of the view being rendered, for
+     * {@link com.horrorcore.engine.core.GameObject#render}
+     * @throws IllegalStateException if no view has been set up yet
+     */
     @Override
     public void render() {
-        if (!isEnabled() || mesh == null) return;
+        CameraUniformBuffer camera = CameraUniformBuffer.getCurrent();
+        if (camera == null) {
+            throw new IllegalStateException("MeshRenderer drawn before any camera uniform buffer was updated");
+        }
+        render(camera);
+    }
+
+    /**
+     * Draws the object on its own, at the LOD level last picked by {@link #updateLod}
+     */
+    public void render(CameraUniformBuffer camera) {
+        Mesh drawMesh = lodGroup != null && lodLevel >= 0 ? lodGroup.getMesh(lodLevel) : mesh;
+        if (!isEnabled() || drawMesh == null) return;
 
         // Bind shader and set uniforms
         shader.bind();
 
-        // Set transformation matrices
-        shader.setModelMatrix(getTransform().getModelMatrix());
-        shader.setViewMatrix(viewMatrix);
-        shader.setProjectionMatrix(projectionMatrix);
+        Transform transform = getTransform();
+        if (shader.usesPrecomputedMatrices()) {
+            // Recompute the combined matrix only when the object or the view moved
+            if (transform.getVersion() != cachedTransformVersion || camera.getVersion() != cachedCameraVersion) {
+                camera.getViewProjection().mul(transform.getModelMatrix(), mvpMatrix);
+                cachedTransformVersion = transform.getVersion();
+                cachedCameraVersion = camera.getVersion();
+            }
+            shader.setModelViewProjectionMatrix(mvpMatrix);
+            shader.setNormalMatrix(transform.getNormalMatrix());
+        } else {
+            // View and projection come from the camera uniform buffer
+            shader.setModelMatrix(transform.getModelMatrix());
+        }
 
         // Set the object's color
         shader.setColor(color);
+        shader.setLodFade(0.0f);
 
         // Render the mesh
-        mesh.render();
+        drawMesh.render();
 
         // Unbind shader
         shader.unbind();
@@ -62,10 +139,141 @@ public class MeshRenderer extends Component {
 
     @Override
     public void cleanup() {
-        if (shader != null) {
+        if (shaderHandle != null) {
+            shaderHandle.release();
+            shaderHandle = null;
+        } else if (shader != null) {
             shader.cleanup();
-            shader = null;
         }
+        shader = null;
+        if (meshHandle != null) {
+            meshHandle.release();
+            meshHandle = null;
+        }
+        if (lodHandle != null) {
+            lodHandle.release();
+            lodHandle = null;
+        }
+    }
+
+    /**
+     * The shader drawn with. A managed default shader is shared, so changing its fog changes
+     * it for every renderer using it.
+     */
+    public BasicShader getShader() {
+        return shader;
+    }
+
+    public Mesh getMesh() {
+        return mesh;
+    }
+
+    public boolean isOccluder() {
+        return occluder;
+    }
+
+    /**
+     * Marks the object as one that hides others for software occlusion culling.
+     * Best used for large, simple shapes such as walls. Only meshes that keep their
+     * source data are rasterized, see {@link Mesh#Mesh(float[], float[], int[], boolean)}.
+     */
+    public void setOccluder(boolean occluder) {
+        this.occluder = occluder;
+    }
+
+    /**
+     * Geometry rasterized when this is an occluder: the coarsest LOD level, or the mesh.
+     * Null when the mesh keeps no CPU copy.
+     */
+    public MeshData getOccluderData() {
+        Mesh source = lodGroup != null ? lodGroup.getMesh(lodGroup.getLevelCount() - 1) : mesh;
+        return source != null ? source.getSourceData() : null;
+    }
+
+    public LodGroup getLodGroup() {
+        return lodGroup;
+    }
+
+    /**
+     * Switches to drawing one of the group's levels, or back to the plain mesh with null.
+     * The group's level 0 becomes the renderer's mesh and defines its bounds. The caller
+     * keeps ownership of the group.
+     */
+    public void setLodGroup(LodGroup lodGroup) {
+        if (lodHandle != null) {
+            lodHandle.release();
+            lodHandle = null;
+        }
+        this.lodGroup = lodGroup;
+        if (lodGroup != null) {
+            mesh = lodGroup.getMesh(0);
+        }
+        lodLevel = -1;
+        fadingLodLevel = -1;
+        lodFade = 0.0f;
+    }
+
+    /**
+     * Switches to a managed LOD group, the handle is released when the renderer is cleaned
+     * up or switched to another group
+     */
+    public void setLodGroupHandle(AssetHandle<LodGroup> lodGroup) {
+        setLodGroup(lodGroup.get());
+        this.lodHandle = lodGroup;
+    }
+
+    /**
+     * Picks this frame's LOD level from the object's projected size and advances any
+     * cross-fade. Called once per frame while building render lists.
+     */
+    public void updateLod(float screenSize, long nowNanos) {
+        int level = lodGroup.selectLevel(lodLevel, screenSize);
+        if (level != lodLevel) {
+            // Nothing to fade from on the first frame
+            fadingLodLevel = lodLevel >= 0 && lodGroup.getCrossFadeNanos() > 0 ? lodLevel : -1;
+            fadeStartNanos = nowNanos;
+            lodLevel = level;
+        }
+
+        lodFade = 0.0f;
+        if (fadingLodLevel >= 0) {
+            float progress = (nowNanos - fadeStartNanos) / (float) lodGroup.getCrossFadeNanos();
+            if (progress >= 1.0f) {
+                fadingLodLevel = -1;
+            } else {
+                // Never exactly 0, which would draw both levels in full
+                lodFade = Math.max(progress, 1.0f / 32.0f);
+            }
+        }
+    }
+
+    /**
+     * Current LOD level, getLodGroup().getLevelCount() when too small to draw, -1 before the first update
+     */
+    public int getLodLevel() {
+        return lodLevel;
+    }
+
+    /**
+     * Level being faded out, -1 when not cross-fading
+     */
+    public int getFadingLodLevel() {
+        return fadingLodLevel;
+    }
+
+    /**
+     * Cross-fade progress in (0, 1) of the current level, 0 when not fading
+     */
+    public float getLodFade() {
+        return lodFade;
+    }
+
+    public boolean isStaticBatched() {
+        return staticBatched;
+    }
+
+    public void setStaticBatched(boolean staticBatched) {
+        this.staticBatched = staticBatched;
     }
 
     // Color control methods
@@ -80,4 +288,11 @@ public class MeshRenderer extends Component {
     public Vector3f getColor() {
         return new Vector3f(color);
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies the color into dest without allocating, returns dest
+     */
+    public Vector3f getColor(Vector3f dest) {
+        return dest.set(color);
+    }
+}
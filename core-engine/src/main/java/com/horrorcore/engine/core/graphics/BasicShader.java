@@ -1,5 +1,6 @@
 package com.horrorcore.engine.core.graphics;
 
+import org.joml.Matrix3f;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 import org.lwjgl.system.MemoryStack;
@@ -7,26 +8,21 @@ import java.nio.FloatBuffer;
 
 import static org.lwjgl.opengl.GL20.*;
 
+/**
+ * Lit, flat-colored material drawn by MeshRenderer. All instances share programs built from one
+ * template: the keyword constants select features and a new combination is linked in the
+ * background, drawn meanwhile with the plain variant of the same vertex layout.
+ */
 public class BasicShader {
-    private final int programId;
-    private final int vertexShaderId;
-    private final int fragmentShaderId;
+    // Keywords, bit i of a variant mask enables keyword i
+    /** Vertex shader derives everything per vertex - kept as a reference path for benchmarking */
+    public static final long PER_VERTEX_MATRICES = 1L;
+    /** Skips lighting, the object is drawn in its flat color */
+    public static final long UNLIT = 1L << 1;
+    /** Blends towards the fog color with view distance */
+    public static final long FOG = 1L << 2;
 
-    // Uniform locations
-    private int modelMatrixLocation;
-    private int viewMatrixLocation;
-    private int projectionMatrixLocation;
-    private int colorLocation;
-
-    public BasicShader() {
-        // Create shaders
-        programId = glCreateProgram();
-        vertexShaderId = glCreateShader(GL_VERTEX_SHADER);
-        fragmentShaderId = glCreateShader(GL_FRAGMENT_SHADER);
-
-        // Vertex shader source - transforms vertices and passes normal data
-        String vertexShaderSource = """
-            #version 330 core
+    private static final String VERTEX_TEMPLATE = "#version 330 core\n" + CameraUniformBuffer.GLSL_BLOCK + """
             
             // Input vertex data
             layout (location = 0) in vec3 position;
@@ -34,37 +30,56 @@ public class BasicShader {
             
             // Output data to fragment shader
             out vec3 fragNormal;
-            out vec3 fragPos;
             
-            // Transformation matrices
+            #ifdef PER_VERTEX_MATRICES
+            // Per-object transformation, camera matrices come from the CameraData block
             uniform mat4 model;
-            uniform mat4 view;
-            uniform mat4 projection;
+            #else
+            // Computed per object on the CPU, one mat4 and one mat3 multiply per vertex
+            uniform mat4 modelViewProjection;
+            uniform mat3 normalMatrix;
+            #endif
             
             void main() {
-                // Calculate the position in world space
-                fragPos = vec3(model * vec4(position, 1.0));
-                
+            #ifdef PER_VERTEX_MATRICES
                 // Transform normal to world space (excluding translation)
                 fragNormal = mat3(transpose(inverse(model))) * normal;
-                
-                // Transform vertex to clip space
-                gl_Position = projection * view * model * vec4(position, 1.0);
+                gl_Position = viewProjection * model * vec4(position, 1.0);
+            #else
+                fragNormal = normalMatrix * normal;
+                gl_Position = modelViewProjection * vec4(position, 1.0);
+            #endif
             }
             """;
 
-        // Fragment shader source - calculates basic lighting
-        String fragmentShaderSource = """
+    private static final String FRAGMENT_TEMPLATE = """
             #version 330 core
             
             in vec3 fragNormal;
-            in vec3 fragPos;
             
             uniform vec3 objectColor;
+            uniform float lodFade;  // 0 unless cross-fading between LOD levels
+            #ifdef FOG
+            uniform vec3 fogColor;
+            uniform float fogDensity;
+            #endif
             
             out vec4 fragColor;
             
+            // 4x4 ordered dither thresholds
+            const int DITHER[16] = int[16](0, 8, 2, 10, 12, 4, 14, 6, 3, 11, 1, 9, 15, 7, 13, 5);
+            
             void main() {
+                // The incoming level (positive fade) keeps exactly the pixels the outgoing one drops
+                if (lodFade != 0.0) {
+                    ivec2 cell = ivec2(gl_FragCoord.xy) & 3;
+                    float threshold = (float(DITHER[cell.y * 4 + cell.x]) + 0.5) / 16.0;
+                    if (lodFade > 0.0 ? threshold >= lodFade : threshold < -lodFade) discard;
+                }
+                
+            #ifdef UNLIT
+                vec3 result = objectColor;
+            #else
                 // Basic lighting parameters
                 vec3 lightDir = normalize(vec3(1.0, 1.0, 1.0));
                 vec3 lightColor = vec3(1.0, 1.0, 1.0);
@@ -80,55 +95,136 @@ public class BasicShader {
                 
                 // Combine lighting with object color
                 vec3 result = (ambient + diffuse) * objectColor;
+            #endif
+            
+            #ifdef FOG
+                // Exponential squared fog, 1 / w is the fragment's view depth
+                float distance = 1.0 / gl_FragCoord.w;
+                float visibility = exp(-(fogDensity * distance) * (fogDensity * distance));
+                result = mix(fogColor, result, visibility);
+            #endif
                 fragColor = vec4(result, 1.0);
             }
             """;
 
-        // Compile and link shaders
-        glShaderSource(vertexShaderId, vertexShaderSource);
-        glCompileShader(vertexShaderId);
-        checkShaderCompilation(vertexShaderId);
-
-        glShaderSource(fragmentShaderId, fragmentShaderSource);
-        glCompileShader(fragmentShaderId);
-        checkShaderCompilation(fragmentShaderId);
-
-        glAttachShader(programId, vertexShaderId);
-        glAttachShader(programId, fragmentShaderId);
-        glLinkProgram(programId);
-        checkProgramLinking(programId);
-
-        // Clean up shader objects (they're now part of the program)
-        glDetachShader(programId, vertexShaderId);
-        glDetachShader(programId, fragmentShaderId);
-        glDeleteShader(vertexShaderId);
-        glDeleteShader(fragmentShaderId);
-
-        // Get uniform locations
-        modelMatrixLocation = glGetUniformLocation(programId, "model");
-        viewMatrixLocation = glGetUniformLocation(programId, "view");
-        projectionMatrixLocation = glGetUniformLocation(programId, "projection");
-        colorLocation = glGetUniformLocation(programId, "objectColor");
-    }
-
-    private void checkShaderCompilation(int shaderId) {
-        int success = glGetShaderi(shaderId, GL_COMPILE_STATUS);
-        if (success == GL_FALSE) {
-            String infoLog = glGetShaderInfoLog(shaderId);
-            throw new RuntimeException("Shader compilation failed: " + infoLog);
+    // Layout of the record read by setPackedUniforms
+    public static final int PACKED_NORMAL_OFFSET = 16 * Float.BYTES;
+    public static final int PACKED_COLOR_OFFSET = PACKED_NORMAL_OFFSET + 9 * Float.BYTES;
+    public static final int PACKED_LOD_FADE_OFFSET = PACKED_COLOR_OFFSET + 3 * Float.BYTES;
+    public static final int PACKED_UNIFORM_BYTES = 128;  // 116 bytes used, padded to two cache lines
+
+    // Programs of the current context, shared by every instance
+    private static ShaderVariants variants;
+
+    private final long keywords;
+    private ShaderVariants.Variant variant;  // Drawn with, the fallback until the requested one links (or for good if it can't)
+    private volatile int programId;          // Read by render list workers for sorting
+
+    // True when the model-view-projection and normal matrices are computed on the CPU
+    private final boolean precomputedMatrices;
+
+    private final Vector3f fogColor = new Vector3f(0.05f, 0.05f, 0.06f);
+    private float fogDensity = 0.04f;
+
+    // Uniform locations of the current variant
+    private int modelMatrixLocation;
+    private int mvpMatrixLocation;
+    private int normalMatrixLocation;
+    private int colorLocation;
+    private int lodFadeLocation;
+    private int fogColorLocation;
+    private int fogDensityLocation;
+
+    public BasicShader() {
+        this(0L);
+    }
+
+    /**
+     * @param precomputedMatrices If true, the vertex shader expects the model-view-projection and
+     *                            normal matrices as uniforms instead of deriving them per vertex
+     */
+    public BasicShader(boolean precomputedMatrices) {
+        this(precomputedMatrices ? 0L : PER_VERTEX_MATRICES);
+    }
+
+    /**
+     * @param keywords Features to enable, a combination of the keyword constants
+     */
+    public BasicShader(long keywords) {
+        this.keywords = keywords;
+        this.precomputedMatrices = (keywords & PER_VERTEX_MATRICES) == 0;
+
+        ShaderVariants.Variant requested = variants().poll(keywords);
+        // The fallback must read the same per-object uniforms, so only the matrix keyword carries over
+        use(requested != null ? requested : variants().get(keywords & PER_VERTEX_MATRICES));
+    }
+
+    private static ShaderVariants variants() {
+        if (variants == null) {
+            variants = new ShaderVariants("BasicShader", VERTEX_TEMPLATE, FRAGMENT_TEMPLATE,
+                    CameraUniformBuffer::bindBlock, "PER_VERTEX_MATRICES", "UNLIT", "FOG");
         }
+        return variants;
+    }
+
+    /**
+     * Queues variants for background linking, so materials using them draw correctly from
+     * their first frame
+     */
+    public static void precompileVariants(long... keywordSets) {
+        variants().precompile(keywordSets);
     }
 
-    private void checkProgramLinking(int programId) {
-        int success = glGetProgrami(programId, GL_LINK_STATUS);
-        if (success == GL_FALSE) {
-            String infoLog = glGetProgramInfoLog(programId);
-            throw new RuntimeException("Shader program linking failed: " + infoLog);
+    /**
+     * Deletes the programs of every variant, called when the context goes away
+     */
+    public static void cleanupVariants() {
+        if (variants != null) {
+            variants.cleanup();
+            variants = null;
         }
     }
 
+    private void use(ShaderVariants.Variant variant) {
+        this.variant = variant;
+        int program = variant.getProgramId();
+        modelMatrixLocation = glGetUniformLocation(program, "model");
+        mvpMatrixLocation = glGetUniformLocation(program, "modelViewProjection");
+        normalMatrixLocation = glGetUniformLocation(program, "normalMatrix");
+        colorLocation = glGetUniformLocation(program, "objectColor");
+        lodFadeLocation = glGetUniformLocation(program, "lodFade");
+        fogColorLocation = glGetUniformLocation(program, "fogColor");
+        fogDensityLocation = glGetUniformLocation(program, "fogDensity");
+        programId = program;
+    }
+
     public void bind() {
-        glUseProgram(programId);
+        bind(0);
+    }
+
+    /**
+     * Binds this material after another one. Instances with the same keywords share a program,
+     * so glUseProgram is skipped when it is already bound and only this instance's fog is set.
+     * @param boundProgram Program currently in use, 0 for none
+     * @return The program now in use
+     */
+    int bind(int boundProgram) {
+        // Still on the fallback, see whether the requested variant has linked since
+        if (variant.getMask() != keywords) {
+            ShaderVariants.Variant requested = variants().poll(keywords);
+            if (requested != null) {
+                use(requested);
+            }
+        }
+        if (programId != boundProgram) {
+            glUseProgram(programId);
+            RenderStats.countProgramBind();
+        }
+        if (fogColorLocation >= 0) {
+            glUniform3f(fogColorLocation, fogColor.x, fogColor.y, fogColor.z);
+            glUniform1f(fogDensityLocation, fogDensity);
+        }
+        return programId;
     }
 
     public void unbind() {
@@ -143,28 +239,89 @@ public class BasicShader {
         }
     }
 
-    public void setViewMatrix(Matrix4f matrix) {
+    public void setModelViewProjectionMatrix(Matrix4f matrix) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
             FloatBuffer buffer = stack.mallocFloat(16);
             matrix.get(buffer);
-            glUniformMatrix4fv(viewMatrixLocation, false, buffer);
+            glUniformMatrix4fv(mvpMatrixLocation, false, buffer);
         }
     }
 
-    public void setProjectionMatrix(Matrix4f matrix) {
+    public void setNormalMatrix(Matrix3f matrix) {
         try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer buffer = stack.mallocFloat(16);
+            FloatBuffer buffer = stack.mallocFloat(9);
             matrix.get(buffer);
-            glUniformMatrix4fv(projectionMatrixLocation, false, buffer);
+            glUniformMatrix3fv(normalMatrixLocation, false, buffer);
         }
     }
 
+    /**
+     * Sets all per-object uniforms from one packed record in native memory: a 4x4 matrix
+     * (model-view-projection, or the model matrix without precomputed matrices), a 3x3
+     * normal matrix, an RGB color and the LOD fade, column-major floats, PACKED_UNIFORM_BYTES in total
+     */
+    public void setPackedUniforms(long address) {
+        if (precomputedMatrices) {
+            nglUniformMatrix4fv(mvpMatrixLocation, 1, false, address);
+            nglUniformMatrix3fv(normalMatrixLocation, 1, false, address + PACKED_NORMAL_OFFSET);
+        } else {
+            nglUniformMatrix4fv(modelMatrixLocation, 1, false, address);
+        }
+        nglUniform3fv(colorLocation, 1, address + PACKED_COLOR_OFFSET);
+        nglUniform1fv(lodFadeLocation, 1, address + PACKED_LOD_FADE_OFFSET);
+    }
+
+    // Stable small id for sorting draws by program
+    int getProgramId() {
+        return programId;
+    }
+
+    public boolean usesPrecomputedMatrices() {
+        return precomputedMatrices;
+    }
+
+    public long getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * False while drawing with the fallback variant
+     */
+    public boolean isVariantReady() {
+        return variant.getMask() == keywords;
+    }
+
+    /**
+     * Fog of the FOG variant, applied on the next bind
+     */
+    public void setFog(Vector3f color, float density) {
+        fogColor.set(color);
+        fogDensity = density;
+    }
+
+    public Vector3f getFogColor(Vector3f dest) {
+        return dest.set(fogColor);
+    }
+
+    public float getFogDensity() {
+        return fogDensity;
+    }
+
     public void setColor(Vector3f color) {
         glUniform3f(colorLocation, color.x, color.y, color.z);
     }
 
+    /**
+     * Dithers the object out for a LOD cross-fade: a fade f in (0, 1) draws that fraction of
+     * pixels, -f draws the complementary ones, 0 draws everything
+     */
+    public void setLodFade(float fade) {
+        glUniform1f(lodFadeLocation, fade);
+    }
+
+    /**
+     * Nothing to release, programs are shared and deleted by cleanupVariants
+     */
     public void cleanup() {
-        unbind();
-        glDeleteProgram(programId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,149 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL31.*;
+
+/**
+ * Per-frame camera data shared by every shader program through a std140 uniform block.
+ * The buffer is written once per rendered view and bound to a fixed binding point,
+ * so individual draws no longer upload view or projection matrices themselves.
+ */
+public class CameraUniformBuffer {
+    // Binding point every program's CameraData block is attached to
+    public static final int BINDING_POINT = 0;
+    public static final String BLOCK_NAME = "CameraData";
+
+    // GLSL declaration to paste into shader sources that need camera data
+    public static final String GLSL_BLOCK = """
+            layout (std140) uniform CameraData {
+                mat4 view;
+                mat4 projection;
+                mat4 viewProjection;
+                vec4 cameraPositionTime; // xyz = camera position, w = frame time in seconds
+            };
+            """;
+
+    // std140 layout: three mat4 (64 bytes each) followed by one vec4
+    private static final int VIEW_OFFSET = 0;
+    private static final int PROJECTION_OFFSET = 64;
+    private static final int VIEW_PROJECTION_OFFSET = 128;
+    private static final int POSITION_TIME_OFFSET = 192;
+    private static final int BUFFER_SIZE = 208;
+
+    // Buffer of the view being rendered, for draws that aren't handed one
+    private static CameraUniformBuffer current;
+
+    private final int uboId;
+    private final Matrix4f viewProjection;
+    private final Matrix4f scratch;
+    private int version;  // Incremented whenever view-projection changes so renderers can cache per-view products
+    private float projectionScale;
+    private final Vector3f position = new Vector3f();
+
+    public CameraUniformBuffer() {
+        viewProjection = new Matrix4f();
+        scratch = new Matrix4f();
+
+        uboId = glGenBuffers();
+        glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+        glBufferData(GL_UNIFORM_BUFFER, BUFFER_SIZE, GL_DYNAMIC_DRAW);
+        glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        EngineMetrics.resourceCreated(GlResourceType.BUFFER, BUFFER_SIZE);
+
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING_POINT, uboId);
+    }
+
+    /**
+     * Uploads the camera state for the view about to be rendered
+     * @param view Camera view matrix
+     * @param projection Projection matrix of the view
+     * @param cameraPosition Camera position in world space
+     * @param time Frame time in seconds
+     */
+    public void update(Matrix4f view, Matrix4f projection, Vector3f cameraPosition, float time) {
+        projection.mul(view, scratch);
+        projectionScale = projection.m11();
+        position.set(cameraPosition);
+        if (!scratch.equals(viewProjection)) {
+            viewProjection.set(scratch);
+            version++;
+        }
+
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            ByteBuffer data = stack.malloc(BUFFER_SIZE);
+            view.get(VIEW_OFFSET, data);
+            projection.get(PROJECTION_OFFSET, data);
+            viewProjection.get(VIEW_PROJECTION_OFFSET, data);
+            data.putFloat(POSITION_TIME_OFFSET, cameraPosition.x);
+            data.putFloat(POSITION_TIME_OFFSET + 4, cameraPosition.y);
+            data.putFloat(POSITION_TIME_OFFSET + 8, cameraPosition.z);
+            data.putFloat(POSITION_TIME_OFFSET + 12, time);
+
+            glBindBuffer(GL_UNIFORM_BUFFER, uboId);
+            // Orphan the previous contents so a second view in the same frame doesn't stall on the first
+            glBufferData(GL_UNIFORM_BUFFER, BUFFER_SIZE, GL_DYNAMIC_DRAW);
+            glBufferSubData(GL_UNIFORM_BUFFER, 0, data);
+            glBindBuffer(GL_UNIFORM_BUFFER, 0);
+        }
+
+        // Re-bind in case another uniform buffer took over the binding point
+        glBindBufferBase(GL_UNIFORM_BUFFER, BINDING_POINT, uboId);
+        current = this;
+    }
+
+    /**
+     * The buffer last updated, which holds the view being rendered. Null before any update.
+     */
+    public static CameraUniformBuffer getCurrent() {
+        return current;
+    }
+
+    /**
+     * Attaches a linked program's CameraData block to the shared binding point.
+     * Programs that don't declare the block are left untouched.
+     */
+    public static void bindBlock(int programId) {
+        int blockIndex = glGetUniformBlockIndex(programId, BLOCK_NAME);
+        if (blockIndex != GL_INVALID_INDEX) {
+            glUniformBlockBinding(programId, blockIndex, BINDING_POINT);
+        }
+    }
+
+    public Matrix4f getViewProjection() {
+        return viewProjection;
+    }
+
+    /**
+     * Vertical scale of the projection, 1 / tan(fovY / 2). A sphere of radius r at view depth d
+     * covers r * scale / d of the viewport height.
+     */
+    public float getProjectionScale() {
+        return projectionScale;
+    }
+
+    /**
+     * Copies the camera position of the last update into dest, returns dest
+     */
+    public Vector3f getPosition(Vector3f dest) {
+        return dest.set(position);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void cleanup() {
+        if (current == this) {
+            current = null;
+        }
+        glDeleteBuffers(uboId);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, BUFFER_SIZE);
+    }
+}
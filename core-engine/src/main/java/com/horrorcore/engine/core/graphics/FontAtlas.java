@@ -0,0 +1,244 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.lwjgl.stb.STBTTFontinfo;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.stb.STBTruetype.*;
+
+/**
+ * Single-channel signed-distance-field glyph atlas baked from a TrueType font.
+ * Glyphs are baked once at BAKE_PIXEL_HEIGHT; because the texture stores distances rather
+ * than coverage, the same atlas stays sharp at every text scale.
+ * Metrics are expressed in baked pixels, callers multiply them by their own scale.
+ */
+public class FontAtlas {
+    public static final float BAKE_PIXEL_HEIGHT = 32.0f;
+
+    private static final int FIRST_CHAR = 32;
+    private static final int LAST_CHAR = 126;
+    private static final int ATLAS_SIZE = 512;
+    private static final int SDF_PADDING = 4;
+    private static final byte SDF_ON_EDGE = (byte) 128;
+    private static final float SDF_DISTANCE_SCALE = 128.0f / SDF_PADDING;
+
+    // Fonts tried in order when no explicit font is configured
+    private static final List<String> SYSTEM_FONTS = List.of(
+            "/usr/share/fonts/truetype/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/TTF/DejaVuSans.ttf",
+            "/usr/share/fonts/dejavu/DejaVuSans.ttf",
+            "/usr/share/fonts/truetype/liberation/LiberationSans-Regular.ttf",
+            "C:/Windows/Fonts/segoeui.ttf",
+            "C:/Windows/Fonts/arial.ttf",
+            "/System/Library/Fonts/Supplemental/Arial.ttf",
+            "/Library/Fonts/Arial.ttf"
+    );
+
+    public static class Glyph {
+        public float u0, v0, u1, v1;     // Atlas texture coordinates
+        public float xOffset, yOffset;   // Quad offset from the pen position, y pointing down
+        public float width, height;      // Quad size
+        public float advance;            // Pen advance after this glyph
+    }
+
+    private final int textureId;
+    private final long textureBytes;
+    private final Glyph[] glyphs;
+    private final float lineHeight;
+    private final float ascent;
+
+    private FontAtlas(int textureId, long textureBytes, Glyph[] glyphs, float lineHeight, float ascent) {
+        this.textureId = textureId;
+        this.textureBytes = textureBytes;
+        this.glyphs = glyphs;
+        this.lineHeight = lineHeight;
+        this.ascent = ascent;
+    }
+
+    /**
+     * Loads the font named by the phantasm.font system property, or the first known system font.
+     * Falls back to solid boxes when no font can be found so text layout keeps working.
+     */
+    public static FontAtlas createDefault() {
+        String configured = System.getProperty("phantasm.font");
+        if (configured != null) {
+            try {
+                return load(Paths.get(configured));
+            } catch (IOException e) {
+                Log.warn(LogCategory.TEXT, "Failed to load font {}: {}").arg(configured).arg(e.getMessage()).log();
+            }
+        }
+
+        for (String candidate : SYSTEM_FONTS) {
+            Path path = Paths.get(candidate);
+            if (Files.isReadable(path)) {
+                try {
+                    return load(path);
+                } catch (IOException e) {
+                    Log.warn(LogCategory.TEXT, "Failed to load font {}: {}").arg(candidate).arg(e.getMessage()).log();
+                }
+            }
+        }
+
+        Log.warn(LogCategory.TEXT, "No TrueType font found, text will render as boxes").log();
+        return createFallback();
+    }
+
+    public static FontAtlas load(Path fontPath) throws IOException {
+        byte[] bytes = Files.readAllBytes(fontPath);
+        ByteBuffer fontData = MemoryUtil.memAlloc(bytes.length);
+        ByteBuffer atlas = MemoryUtil.memCalloc(ATLAS_SIZE * ATLAS_SIZE);
+
+        try (STBTTFontinfo info = STBTTFontinfo.malloc()) {
+            fontData.put(bytes).flip();
+            if (!stbtt_InitFont(info, fontData)) {
+                throw new IOException("Not a valid TrueType font: " + fontPath);
+            }
+
+            float scale = stbtt_ScaleForPixelHeight(info, BAKE_PIXEL_HEIGHT);
+            int[] ascent = new int[1];
+            int[] descent = new int[1];
+            int[] lineGap = new int[1];
+            stbtt_GetFontVMetrics(info, ascent, descent, lineGap);
+
+            Glyph[] glyphs = new Glyph[LAST_CHAR - FIRST_CHAR + 1];
+            int[] width = new int[1];
+            int[] height = new int[1];
+            int[] xOff = new int[1];
+            int[] yOff = new int[1];
+            int[] advance = new int[1];
+            int[] bearing = new int[1];
+
+            // Simple shelf packing, glyphs are small and of similar height
+            int penX = 1;
+            int penY = 1;
+            int shelfHeight = 0;
+
+            for (int c = FIRST_CHAR; c <= LAST_CHAR; c++) {
+                Glyph glyph = new Glyph();
+                stbtt_GetCodepointHMetrics(info, c, advance, bearing);
+                glyph.advance = advance[0] * scale;
+
+                ByteBuffer sdf = stbtt_GetCodepointSDF(info, scale, c, SDF_PADDING, SDF_ON_EDGE,
+                        SDF_DISTANCE_SCALE, width, height, xOff, yOff);
+                if (sdf != null) {
+                    if (penX + width[0] + 1 > ATLAS_SIZE) {
+                        penX = 1;
+                        penY += shelfHeight + 1;
+                        shelfHeight = 0;
+                    }
+                    if (penY + height[0] + 1 > ATLAS_SIZE) {
+                        stbtt_FreeSDF(sdf);
+                        throw new IOException("Glyph atlas too small for " + fontPath);
+                    }
+
+                    for (int row = 0; row < height[0]; row++) {
+                        for (int col = 0; col < width[0]; col++) {
+                            atlas.put((penY + row) * ATLAS_SIZE + penX + col, sdf.get(row * width[0] + col));
+                        }
+                    }
+                    stbtt_FreeSDF(sdf);
+
+                    glyph.u0 = (float) penX / ATLAS_SIZE;
+                    glyph.v0 = (float) penY / ATLAS_SIZE;
+                    glyph.u1 = (float) (penX + width[0]) / ATLAS_SIZE;
+                    glyph.v1 = (float) (penY + height[0]) / ATLAS_SIZE;
+                    glyph.xOffset = xOff[0];
+                    glyph.yOffset = yOff[0];
+                    glyph.width = width[0];
+                    glyph.height = height[0];
+
+                    penX += width[0] + 1;
+                    shelfHeight = Math.max(shelfHeight, height[0]);
+                }
+                glyphs[c - FIRST_CHAR] = glyph;
+            }
+
+            int textureId = uploadTexture(atlas, ATLAS_SIZE, ATLAS_SIZE);
+            Log.info(LogCategory.TEXT, "Baked SDF font atlas from {}").arg(fontPath).log();
+            return new FontAtlas(textureId, (long) ATLAS_SIZE * ATLAS_SIZE, glyphs,
+                    (ascent[0] - descent[0] + lineGap[0]) * scale, ascent[0] * scale);
+        } finally {
+            MemoryUtil.memFree(fontData);
+            MemoryUtil.memFree(atlas);
+        }
+    }
+
+    // Every glyph is a solid box sampling a single fully-inside texel
+    private static FontAtlas createFallback() {
+        ByteBuffer texel = MemoryUtil.memAlloc(1);
+        int textureId;
+        try {
+            texel.put(0, (byte) 255);
+            textureId = uploadTexture(texel, 1, 1);
+        } finally {
+            MemoryUtil.memFree(texel);
+        }
+
+        Glyph[] glyphs = new Glyph[LAST_CHAR - FIRST_CHAR + 1];
+        for (int i = 0; i < glyphs.length; i++) {
+            Glyph glyph = new Glyph();
+            glyph.u0 = glyph.v0 = 0.0f;
+            glyph.u1 = glyph.v1 = 1.0f;
+            glyph.width = BAKE_PIXEL_HEIGHT * 0.5f;
+            glyph.height = BAKE_PIXEL_HEIGHT * 0.75f;
+            glyph.yOffset = -glyph.height;
+            glyph.advance = BAKE_PIXEL_HEIGHT * 0.625f;
+            glyphs[i] = glyph;
+        }
+        return new FontAtlas(textureId, 1, glyphs, BAKE_PIXEL_HEIGHT, BAKE_PIXEL_HEIGHT * 0.75f);
+    }
+
+    private static int uploadTexture(ByteBuffer pixels, int width, int height) {
+        int textureId = glGenTextures();
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R8, width, height, 0, GL_RED, GL_UNSIGNED_BYTE, pixels);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        EngineMetrics.resourceCreated(GlResourceType.TEXTURE, (long) width * height);  // One byte per texel
+        return textureId;
+    }
+
+    /**
+     * Returns the glyph for a character, or the glyph for '?' when it isn't in the atlas
+     */
+    public Glyph getGlyph(char c) {
+        if (c < FIRST_CHAR || c > LAST_CHAR) {
+            c = '?';
+        }
+        return glyphs[c - FIRST_CHAR];
+    }
+
+    public int getTextureId() {
+        return textureId;
+    }
+
+    public float getLineHeight() {
+        return lineHeight;
+    }
+
+    public float getAscent() {
+        return ascent;
+    }
+
+    public void cleanup() {
+        glDeleteTextures(textureId);
+        EngineMetrics.resourceDestroyed(GlResourceType.TEXTURE, textureBytes);
+    }
+}
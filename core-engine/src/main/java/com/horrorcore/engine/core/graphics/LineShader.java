@@ -1,19 +1,15 @@
 package com.horrorcore.engine.core.graphics;
 
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+
 import static org.lwjgl.opengl.GL20.*;
 
 public class LineShader {
     private int programId;
-    private int vertexShaderId;
-    private int fragmentShaderId;
 
     public void init() {
-        // Create shader program
-        programId = glCreateProgram();
-
-        // Create and compile vertex shader
-        vertexShaderId = glCreateShader(GL_VERTEX_SHADER);
-        glShaderSource(vertexShaderId, """
+        programId = ShaderCache.link("LineShader", """
             #version 330 core
             layout (location = 0) in vec2 position;
             uniform vec2 viewportSize;
@@ -23,12 +19,7 @@ public class LineShader {
                 vec2 ndc = (position / viewportSize) * 2.0 - 1.0;
                 gl_Position = vec4(ndc, 0.0, 1.0);
             }
-        """);
-        glCompileShader(vertexShaderId);
-
-        // Create and compile fragment shader
-        fragmentShaderId = glCreateShader(GL_FRAGMENT_SHADER);
-        glShaderSource(fragmentShaderId, """
+        """, """
             #version 330 core
             uniform vec3 color;
             out vec4 fragColor;
@@ -37,22 +28,11 @@ public class LineShader {
                 fragColor = vec4(color, 1.0);
             }
         """);
-        glCompileShader(fragmentShaderId);
-
-        // Link shaders into program
-        glAttachShader(programId, vertexShaderId);
-        glAttachShader(programId, fragmentShaderId);
-        glLinkProgram(programId);
-
-        // Clean up shader objects
-        glDetachShader(programId, vertexShaderId);
-        glDetachShader(programId, fragmentShaderId);
-        glDeleteShader(vertexShaderId);
-        glDeleteShader(fragmentShaderId);
     }
 
     public void use() {
         glUseProgram(programId);
+        RenderStats.countProgramBind();
     }
 
     public void setViewportSize(float width, float height) {
@@ -67,5 +47,6 @@ public class LineShader {
 
     public void cleanup() {
         glDeleteProgram(programId);
+        EngineMetrics.resourceDestroyed(GlResourceType.PROGRAM, 0);
     }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Levels of detail of one model, from full detail at level 0 to the coarsest last.
+ * A level is drawn while the object's projected size, the fraction of the viewport height
+ * covered by its bounding sphere, is at least that level's screen size. Below the last
+ * level's screen size the object isn't drawn at all; use 0 to keep it always visible.
+ * <p>
+ * Switching only happens once the size is past a boundary by the hysteresis fraction, so
+ * objects hovering at a boundary don't flicker between levels. With a cross-fade time set,
+ * the outgoing and incoming levels are drawn together with complementary dither patterns
+ * for that long instead of popping.
+ * <p>
+ * The group owns its meshes and can be shared by any number of renderers, none of which
+ * frees it. Load it through {@link com.horrorcore.engine.core.assets.AssetManager#lodGroup}
+ * to have it freed with its last handle, or call {@link #cleanup()} once nothing draws it.
+ */
+public class LodGroup {
+    private final Mesh[] meshes;
+    private final float[] screenSizes;
+    private float hysteresis = 0.1f;
+    private long crossFadeNanos;
+
+    /**
+     * @param meshes      Meshes from finest to coarsest
+     * @param screenSizes Smallest projected size each level is drawn at, descending
+     */
+    public LodGroup(Mesh[] meshes, float[] screenSizes) {
+        if (meshes.length == 0 || meshes.length != screenSizes.length) {
+            throw new IllegalArgumentException("LOD group needs one screen size per mesh, got "
+                    + meshes.length + " meshes and " + screenSizes.length + " sizes");
+        }
+        for (int i = 1; i < screenSizes.length; i++) {
+            if (screenSizes[i] > screenSizes[i - 1]) {
+                throw new IllegalArgumentException("LOD screen sizes must be descending: " + Arrays.toString(screenSizes));
+            }
+        }
+        this.meshes = meshes.clone();
+        this.screenSizes = screenSizes.clone();
+    }
+
+    /**
+     * Builds a LOD chain from one mesh, simplifying each level from the previous one with
+     * {@link MeshSimplifier}. Stops early when a level can't be reduced any further; the
+     * last screen size still applies to the last level generated.
+     * @param screenSizes One per level, level 0 being the source itself
+     * @param reduction   Fraction of triangles each level keeps of the previous one
+     */
+    public static LodGroup generate(MeshData source, float[] screenSizes, float reduction) {
+        if (reduction <= 0 || reduction >= 1) {
+            throw new IllegalArgumentException("LOD reduction must be between 0 and 1, got " + reduction);
+        }
+
+        List<MeshData> levels = new ArrayList<>();
+        levels.add(source);
+        MeshData previous = source;
+        for (int level = 1; level < screenSizes.length; level++) {
+            int previousTriangles = previous.getIndices().length / 3;
+            MeshData simplified = MeshSimplifier.simplify(previous, (int) (previousTriangles * reduction));
+            // Collapses were blocked, another level would cost as much as this one
+            if (simplified.getIndices().length / 3 > previousTriangles * (1 + reduction) / 2) {
+                break;
+            }
+            levels.add(simplified);
+            previous = simplified;
+        }
+
+        // Only the coarsest level keeps a CPU copy, it's the one rasterized as an occluder
+        Mesh[] meshes = new Mesh[levels.size()];
+        for (int i = 0; i < meshes.length; i++) {
+            MeshData level = levels.get(i);
+            meshes[i] = new Mesh(level.getPositions(), level.getNormals(), level.getIndices(), i == meshes.length - 1);
+        }
+
+        float[] sizes = Arrays.copyOf(screenSizes, meshes.length);
+        sizes[sizes.length - 1] = screenSizes[screenSizes.length - 1];
+        Log.debug(LogCategory.ASSETS, "Generated {} LOD levels, {} to {} triangles")
+                .arg(meshes.length).arg(source.getIndices().length / 3)
+                .arg(previous.getIndices().length / 3).log();
+        return new LodGroup(meshes, sizes);
+    }
+
+    /**
+     * Returns the level to draw at the given projected size, or getLevelCount() when the
+     * object is too small to draw
+     * @param current Level drawn last frame, -1 if none yet
+     */
+    public int selectLevel(int current, float screenSize) {
+        if (current >= 0 && current <= meshes.length) {
+            float lower = current < meshes.length ? screenSizes[current] : 0.0f;
+            float upper = current > 0 ? screenSizes[current - 1] : Float.POSITIVE_INFINITY;
+            if (screenSize >= lower * (1 - hysteresis) && screenSize < upper * (1 + hysteresis)) {
+                return current;
+            }
+        }
+
+        for (int level = 0; level < meshes.length; level++) {
+            if (screenSize >= screenSizes[level]) {
+                return level;
+            }
+        }
+        return meshes.length;
+    }
+
+    /**
+     * Projected size of a bounding sphere: its diameter over the viewport height
+     * @param viewDepth        Distance of the sphere's center along the view direction
+     * @param projectionScale  See {@link CameraUniformBuffer#getProjectionScale()}
+     */
+    public static float screenSize(float radius, float viewDepth, float projectionScale) {
+        // Inside or around the sphere, treat as filling the screen
+        if (viewDepth <= radius) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return radius * projectionScale / viewDepth;
+    }
+
+    /**
+     * Mesh of a level, null for getLevelCount() (not drawn)
+     */
+    public Mesh getMesh(int level) {
+        return level < meshes.length ? meshes[level] : null;
+    }
+
+    public int getLevelCount() {
+        return meshes.length;
+    }
+
+    public float getScreenSize(int level) {
+        return screenSizes[level];
+    }
+
+    public float getHysteresis() {
+        return hysteresis;
+    }
+
+    /**
+     * @param hysteresis Fraction past a boundary the size must move before switching level
+     */
+    public void setHysteresis(float hysteresis) {
+        this.hysteresis = hysteresis;
+    }
+
+    public float getCrossFadeSeconds() {
+        return crossFadeNanos / 1_000_000_000.0f;
+    }
+
+    /**
+     * @param seconds How long a level change is dithered over, 0 to switch instantly
+     */
+    public void setCrossFadeSeconds(float seconds) {
+        this.crossFadeNanos = (long) (seconds * 1_000_000_000.0);
+    }
+
+    public long getCrossFadeNanos() {
+        return crossFadeNanos;
+    }
+
+    /**
+     * GPU memory of all levels together
+     */
+    public long getGpuBytes() {
+        long bytes = 0;
+        for (Mesh mesh : meshes) {
+            bytes += mesh.getGpuBytes();
+        }
+        return bytes;
+    }
+
+    public void cleanup() {
+        for (Mesh mesh : meshes) {
+            mesh.cleanup();
+        }
+    }
+}
@@ -1,81 +1,278 @@
 package com.horrorcore.engine.core.graphics;
 
-import org.lwjgl.system.MemoryStack;
-import java.nio.FloatBuffer;
-import java.nio.IntBuffer;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
 import static org.lwjgl.opengl.GL30.*;
 
 public class Mesh {
+    // Meshes with at most this many vertices use 16-bit indices
+    private static final int MAX_SHORT_INDEXED_VERTICES = 65536;
+
     // Vertex Array Object and Vertex Buffer Objects IDs
     private final int vaoId;        // Stores the vertex attribute configuration
-    private final int vertexVboId;  // Stores vertex positions
-    private final int normalVboId;  // Stores vertex normals
+    private final int vboId;        // Stores interleaved vertex attributes
     private final int eboId;        // Stores vertex indices (Element Buffer Object)
 
     // Mesh statistics
+    private final VertexLayout layout;
     private final int vertexCount;  // Number of vertices in the mesh
     private final int indexCount;   // Number of indices in the mesh
+    private final int indexType;    // GL_UNSIGNED_SHORT or GL_UNSIGNED_INT
+    private final long gpuBytes;    // Size of the vertex and index buffers
+    private final long vertexBytes; // Size of the vertex buffer alone
+    private MeshData sourceData;    // CPU copy of the geometry, only when asked to keep it
+    private Vector3f boundsMin;     // Local bounds, null when built from packed data
+    private Vector3f boundsMax;
+    private boolean deleted;
 
     public Mesh(float[] vertices, float[] normals, int[] indices) {
-        vertexCount = vertices.length / 3; // Each vertex has 3 components (x,y,z)
-        indexCount = indices.length;
+        this(vertices, normals, indices, false);
+    }
 
-        // Create and bind a Vertex Array Object
-        vaoId = glGenVertexArrays();
-        glBindVertexArray(vaoId);
+    /**
+     * @param keepSourceData Keeps the arrays as the mesh's {@link #getSourceData() CPU copy}, which
+     *                       static batching and software occlusion read. Costs as much memory again
+     *                       as the GPU buffers, so only meshes used for either should keep it.
+     */
+    public Mesh(float[] vertices, float[] normals, int[] indices, boolean keepSourceData) {
+        // Each vertex has 3 components (x,y,z)
+        this(VertexLayout.POSITION_NORMAL,
+                VertexLayout.POSITION_NORMAL.pack(vertices.length / 3, vertices, normals, null, null, null),
+                vertices.length / 3, indices, true);
+        if (keepSourceData) {
+            this.sourceData = new MeshData(vertices, normals, indices);
+            this.boundsMin = sourceData.getBoundsMin();
+            this.boundsMax = sourceData.getBoundsMax();
+        } else {
+            this.boundsMin = new Vector3f();
+            this.boundsMax = new Vector3f();
+            MeshData.computeBounds(vertices, boundsMin, boundsMax);
+        }
+    }
 
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            // Create and upload vertex position data
-            FloatBuffer vertexBuffer = stack.mallocFloat(vertices.length);
-            vertexBuffer.put(vertices).flip();
+    /**
+     * Creates a mesh from vertex data already interleaved according to the layout.
+     * The data is copied to the GPU, the caller keeps ownership of the buffer.
+     */
+    public Mesh(VertexLayout layout, ByteBuffer vertexData, int vertexCount, int[] indices) {
+        this(layout, vertexData, vertexCount, indices, false);
+    }
+
+    private Mesh(VertexLayout layout, ByteBuffer vertexData, int vertexCount, int[] indices, boolean ownsVertexData) {
+        this(layout, vertexData, vertexCount, packIndices(indices, indexTypeFor(vertexCount)),
+                indexTypeFor(vertexCount), GL_STATIC_DRAW, ownsVertexData, true);
+    }
 
-            vertexVboId = glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, vertexVboId);
-            glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-            glEnableVertexAttribArray(0);
+    /**
+     * Uploads vertex and index data that are already in GPU format, see MeshBuilder
+     * @param indexData GL_UNSIGNED_SHORT or GL_UNSIGNED_INT indices, per indexType
+     * @param usage     GL_STATIC_DRAW, or GL_DYNAMIC_DRAW for meshes updated in place
+     */
+    Mesh(VertexLayout layout, ByteBuffer vertexData, int vertexCount, ByteBuffer indexData, int indexType, int usage) {
+        this(layout, vertexData, vertexCount, indexData, indexType, usage, false, false);
+    }
 
-            // Create and upload vertex normal data
-            FloatBuffer normalBuffer = stack.mallocFloat(normals.length);
-            normalBuffer.put(normals).flip();
+    private Mesh(VertexLayout layout, ByteBuffer vertexData, int vertexCount, ByteBuffer indexData, int indexType,
+                 int usage, boolean ownsVertexData, boolean ownsIndexData) {
+        this.layout = layout;
+        this.vertexCount = vertexCount;
+        this.indexType = indexType;
+        this.indexCount = indexData.remaining() / indexSize(indexType);
 
-            normalVboId = glGenBuffers();
-            glBindBuffer(GL_ARRAY_BUFFER, normalVboId);
-            glBufferData(GL_ARRAY_BUFFER, normalBuffer, GL_STATIC_DRAW);
-            glVertexAttribPointer(1, 3, GL_FLOAT, false, 0, 0);
-            glEnableVertexAttribArray(1);
+        try {
+            // Create and bind a Vertex Array Object
+            vaoId = glGenVertexArrays();
+            glBindVertexArray(vaoId);
 
-            // Create and upload index data
-            IntBuffer indexBuffer = stack.mallocInt(indices.length);
-            indexBuffer.put(indices).flip();
+            // Upload all attributes into one interleaved buffer
+            vboId = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, vboId);
+            glBufferData(GL_ARRAY_BUFFER, vertexData, usage);
+            layout.apply();
 
             eboId = glGenBuffers();
             glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
-            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, usage);
+
+            vertexBytes = vertexData.remaining();
+            gpuBytes = vertexBytes + indexData.remaining();
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, vertexData.remaining());
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, indexData.remaining());
+        } finally {
+            if (ownsIndexData) {
+                MemoryUtil.memFree(indexData);
+            }
+            if (ownsVertexData) {
+                MemoryUtil.memFree(vertexData);
+            }
         }
 
         // Unbind the VAO to prevent accidental modifications
         glBindVertexArray(0);
     }
 
+    // 16-bit indices when the vertex count allows, halving the index buffer
+    static int indexTypeFor(int vertexCount) {
+        return vertexCount <= MAX_SHORT_INDEXED_VERTICES ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+    }
+
+    static int indexSize(int indexType) {
+        return indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES;
+    }
+
+    // Copies indices into a new off-heap buffer of the given type, the caller frees it
+    private static ByteBuffer packIndices(int[] indices, int indexType) {
+        ByteBuffer indexData = MemoryUtil.memAlloc(indices.length * indexSize(indexType));
+        if (indexType == GL_UNSIGNED_SHORT) {
+            ShortBuffer shorts = indexData.asShortBuffer();
+            for (int index : indices) {
+                shorts.put((short) index);
+            }
+        } else {
+            indexData.asIntBuffer().put(indices);
+        }
+        return indexData;
+    }
+
+    /**
+     * Overwrites vertices in place, e.g. for geometry animated on the CPU. Meant for meshes
+     * built with GL_DYNAMIC_DRAW; the CPU copy and bounds, if any, no longer match and are dropped.
+     * @param data Whole vertices in this mesh's layout, from its position to its limit
+     * @throws IllegalArgumentException if the range doesn't fit the mesh
+     */
+    public void updateVertices(int firstVertex, ByteBuffer data) {
+        int stride = layout.getStride();
+        if (firstVertex < 0 || data.remaining() % stride != 0
+                || (long) firstVertex * stride + data.remaining() > vertexBytes) {
+            throw new IllegalArgumentException("Vertex update of " + data.remaining() + " bytes at vertex "
+                    + firstVertex + " doesn't fit a mesh of " + vertexCount + " vertices");
+        }
+        glBindBuffer(GL_ARRAY_BUFFER, vboId);
+        glBufferSubData(GL_ARRAY_BUFFER, (long) firstVertex * stride, data);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+        sourceData = null;
+        boundsMin = null;
+        boundsMax = null;
+    }
+
+    /**
+     * Overwrites indices in place
+     * @throws IllegalArgumentException if the range doesn't fit or an index is past the last vertex
+     */
+    public void updateIndices(int firstIndex, int[] indices) {
+        if (firstIndex < 0 || firstIndex + indices.length > indexCount) {
+            throw new IllegalArgumentException("Index update of " + indices.length + " indices at "
+                    + firstIndex + " doesn't fit a mesh of " + indexCount + " indices");
+        }
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("Index " + index + " out of range for " + vertexCount + " vertices");
+            }
+        }
+
+        ByteBuffer indexData = packIndices(indices, indexType);
+        try {
+            // The element buffer binding belongs to the vertex array
+            glBindVertexArray(vaoId);
+            glBufferSubData(GL_ELEMENT_ARRAY_BUFFER, (long) firstIndex * indexSize(indexType), indexData);
+            glBindVertexArray(0);
+        } finally {
+            MemoryUtil.memFree(indexData);
+        }
+        sourceData = null;
+    }
+
     public void render() {
         // Bind the mesh's VAO
-        glBindVertexArray(vaoId);
+        bind();
 
         // Draw the mesh using indexed rendering
-        glDrawElements(GL_TRIANGLES, indexCount, GL_UNSIGNED_INT, 0);
+        draw();
 
         // Unbind the VAO
         glBindVertexArray(0);
     }
 
+    /**
+     * Binds the mesh's vertex array, lets a run of draws of the same mesh bind it once
+     */
+    public void bind() {
+        glBindVertexArray(vaoId);
+        RenderStats.countVertexArrayBind();
+    }
+
+    /**
+     * Draws the mesh, which must be bound
+     */
+    public void draw() {
+        glDrawElements(GL_TRIANGLES, indexCount, indexType, 0);
+        RenderStats.countDraw(indexCount / 3);
+    }
+
+    public static void unbind() {
+        glBindVertexArray(0);
+    }
+
+    // Stable small id for sorting draws by mesh
+    int getVaoId() {
+        return vaoId;
+    }
+
+    public VertexLayout getLayout() {
+        return layout;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    public int getIndexType() {
+        return indexType;
+    }
+
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    /**
+     * CPU copy of the geometry, null unless the mesh was created to keep it
+     */
+    public MeshData getSourceData() {
+        return sourceData;
+    }
+
+    /**
+     * Local bounding box corner, null when unknown (packed or updated vertices)
+     */
+    public Vector3f getBoundsMin() {
+        return boundsMin;
+    }
+
+    public Vector3f getBoundsMax() {
+        return boundsMax;
+    }
+
     public void cleanup() {
+        if (deleted) return;
+        deleted = true;
+
         // Delete the VBOs
-        glDeleteBuffers(vertexVboId);
-        glDeleteBuffers(normalVboId);
+        glDeleteBuffers(vboId);
         glDeleteBuffers(eboId);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, vertexBytes);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, gpuBytes - vertexBytes);
 
         // Delete the VAO
         glDeleteVertexArrays(vaoId);
     }
-}
\ No newline at end of file
+}
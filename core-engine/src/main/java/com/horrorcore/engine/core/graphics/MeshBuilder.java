@@ -0,0 +1,279 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_DYNAMIC_DRAW;
+import static org.lwjgl.opengl.GL15.GL_STATIC_DRAW;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+/**
+ * Accumulates geometry of any size straight into off-heap buffers, already interleaved in
+ * the target layout, and uploads from them without intermediate Java arrays. The buffers
+ * double as they fill and are freed by {@link #close}; a builder can be cleared and reused
+ * for the next mesh, or to refill a dynamic mesh each frame.
+ * <p>
+ * Vertices are written in two ways: set the attributes with position(), normal() etc. and
+ * call emit(), or use the vertex() shortcut for positions and normals. Attributes the layout
+ * doesn't have are ignored, ones it has but that weren't set are zero.
+ * <pre>
+ * try (MeshBuilder builder = new MeshBuilder()) {
+ *     int a = builder.vertex(0, 0, 0, 0, 1, 0);
+ *     ...
+ *     builder.triangle(a, b, c);
+ *     mesh = builder.build();
+ * }
+ * </pre>
+ * Meshes built this way keep no CPU copy, so they aren't frustum culled or static batched.
+ */
+public class MeshBuilder implements AutoCloseable {
+    // Turns the builder's buffers into a mesh, a GL upload outside of tests
+    interface Uploader<T> {
+        T upload(VertexLayout layout, ByteBuffer vertices, int vertexCount, ByteBuffer indices, int indexType, int usage);
+    }
+
+    private final VertexLayout layout;
+    private final int stride;
+    private ByteBuffer vertices;
+    private ByteBuffer indices;  // 32-bit while building, narrowed to 16 bits on upload when possible
+    private int vertexCount;
+    private int indexCount;
+    private boolean dynamic;
+
+    // Attributes of the next emitted vertex, by semantic
+    private final float[][] attributes = new float[VertexLayout.Semantic.values().length][4];
+
+    public MeshBuilder() {
+        this(VertexLayout.POSITION_NORMAL, 1024, 4096);
+    }
+
+    public MeshBuilder(VertexLayout layout) {
+        this(layout, 1024, 4096);
+    }
+
+    /**
+     * @param expectedVertices Initial capacity, avoids regrowing when the size is known
+     * @param expectedIndices  Initial index capacity
+     */
+    public MeshBuilder(VertexLayout layout, int expectedVertices, int expectedIndices) {
+        this.layout = layout;
+        this.stride = layout.getStride();
+        this.vertices = MemoryUtil.memAlloc(Math.max(1, expectedVertices) * stride);
+        this.indices = MemoryUtil.memAlloc(Math.max(3, expectedIndices) * Integer.BYTES);
+        clearAttributes();
+    }
+
+    public MeshBuilder position(float x, float y, float z) {
+        return set(VertexLayout.Semantic.POSITION, x, y, z, 1.0f);
+    }
+
+    public MeshBuilder normal(float x, float y, float z) {
+        return set(VertexLayout.Semantic.NORMAL, x, y, z, 0.0f);
+    }
+
+    public MeshBuilder uv(float u, float v) {
+        return set(VertexLayout.Semantic.UV, u, v, 0.0f, 0.0f);
+    }
+
+    public MeshBuilder tangent(float x, float y, float z, float w) {
+        return set(VertexLayout.Semantic.TANGENT, x, y, z, w);
+    }
+
+    public MeshBuilder color(float r, float g, float b, float a) {
+        return set(VertexLayout.Semantic.COLOR, r, g, b, a);
+    }
+
+    private MeshBuilder set(VertexLayout.Semantic semantic, float x, float y, float z, float w) {
+        float[] values = attributes[semantic.ordinal()];
+        values[0] = x;
+        values[1] = y;
+        values[2] = z;
+        values[3] = w;
+        return this;
+    }
+
+    /**
+     * Writes a vertex from the attributes set since the last one
+     * @return Its index, for triangle()
+     */
+    public int emit() {
+        ensureVertexCapacity(vertexCount + 1);
+        vertices.clear().position(vertexCount * stride);
+        for (VertexLayout.Element element : layout.getElements()) {
+            float[] values = attributes[element.semantic.ordinal()];
+            element.format.put(vertices, values[0], values[1], values[2], values[3]);
+        }
+        clearAttributes();
+        return vertexCount++;
+    }
+
+    /**
+     * Writes a vertex with a position and a normal
+     * @return Its index, for triangle()
+     */
+    public int vertex(float px, float py, float pz, float nx, float ny, float nz) {
+        position(px, py, pz);
+        normal(nx, ny, nz);
+        return emit();
+    }
+
+    /**
+     * Appends all vertices and triangles of a mesh's CPU data
+     */
+    public MeshBuilder append(MeshData data) {
+        float[] positions = data.getPositions();
+        float[] normals = data.getNormals();
+        int base = vertexCount;
+        ensureVertexCapacity(vertexCount + data.getVertexCount());
+        for (int i = 0; i < positions.length; i += 3) {
+            vertex(positions[i], positions[i + 1], positions[i + 2], normals[i], normals[i + 1], normals[i + 2]);
+        }
+        int[] sourceIndices = data.getIndices();
+        ensureIndexCapacity(indexCount + sourceIndices.length);
+        for (int index : sourceIndices) {
+            indices.putInt(indexCount++ * Integer.BYTES, base + index);
+        }
+        return this;
+    }
+
+    public MeshBuilder triangle(int a, int b, int c) {
+        ensureIndexCapacity(indexCount + 3);
+        int offset = indexCount * Integer.BYTES;
+        indices.putInt(offset, a).putInt(offset + 4, b).putInt(offset + 8, c);
+        indexCount += 3;
+        return this;
+    }
+
+    /**
+     * Two triangles, corners in counter-clockwise order
+     */
+    public MeshBuilder quad(int a, int b, int c, int d) {
+        return triangle(a, b, c).triangle(a, c, d);
+    }
+
+    /**
+     * Builds meshes with GL_DYNAMIC_DRAW, for geometry that's updated in place
+     */
+    public MeshBuilder setDynamic(boolean dynamic) {
+        this.dynamic = dynamic;
+        return this;
+    }
+
+    /**
+     * Uploads the geometry into a new mesh. The builder keeps its contents.
+     * @throws IllegalStateException if there are no triangles or an index is past the last vertex
+     */
+    public Mesh build() {
+        return build(Mesh::new);
+    }
+
+    <T> T build(Uploader<T> uploader) {
+        if (indexCount == 0) {
+            throw new IllegalStateException("Mesh has no triangles");
+        }
+        int indexType = Mesh.indexTypeFor(vertexCount);
+        ByteBuffer indexData = narrowIndices(indexType);
+        try {
+            return uploader.upload(layout, vertices.position(0).limit(vertexCount * stride).slice(), vertexCount,
+                    indexData, indexType, dynamic ? GL_DYNAMIC_DRAW : GL_STATIC_DRAW);
+        } finally {
+            if (indexType == GL_UNSIGNED_SHORT) {
+                widenIndices();
+            }
+            // The upload limited the buffers to this mesh, triangle() and append() write past that
+            vertices.clear();
+            indices.clear();
+        }
+    }
+
+    /**
+     * Writes the builder's vertices into an existing mesh of the same layout, starting at firstVertex
+     */
+    public void updateVertices(Mesh mesh, int firstVertex) {
+        if (mesh.getLayout() != layout) {
+            throw new IllegalArgumentException("Mesh has a different vertex layout");
+        }
+        mesh.updateVertices(firstVertex, vertices.position(0).limit(vertexCount * stride).slice());
+        vertices.clear();
+    }
+
+    // Indices of the requested type, in place: a 16-bit index never overtakes the 32-bit one it's read from
+    private ByteBuffer narrowIndices(int indexType) {
+        for (int i = 0; i < indexCount; i++) {
+            int index = indices.getInt(i * Integer.BYTES);
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalStateException("Index " + index + " out of range for " + vertexCount + " vertices");
+            }
+        }
+        if (indexType == GL_UNSIGNED_SHORT) {
+            for (int i = 0; i < indexCount; i++) {
+                indices.putShort(i * Short.BYTES, (short) indices.getInt(i * Integer.BYTES));
+            }
+        }
+        return indices.position(0).limit(indexCount * Mesh.indexSize(indexType)).slice();
+    }
+
+    // Once uploaded, restores the ints the shorts overwrote so the builder stays usable
+    private void widenIndices() {
+        indices.clear();
+        for (int i = indexCount - 1; i >= 0; i--) {
+            int index = indices.getShort(i * Short.BYTES) & 0xFFFF;
+            indices.putInt(i * Integer.BYTES, index);
+        }
+    }
+
+    private void ensureVertexCapacity(int count) {
+        if ((long) count * stride > vertices.capacity()) {
+            long capacity = Math.max((long) count * stride, vertices.capacity() * 2L);
+            vertices = MemoryUtil.memRealloc(vertices, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+    }
+
+    private void ensureIndexCapacity(int count) {
+        if ((long) count * Integer.BYTES > indices.capacity()) {
+            long capacity = Math.max((long) count * Integer.BYTES, indices.capacity() * 2L);
+            indices = MemoryUtil.memRealloc(indices, (int) Math.min(capacity, Integer.MAX_VALUE - 8));
+        }
+    }
+
+    private void clearAttributes() {
+        for (float[] values : attributes) {
+            values[0] = values[1] = values[2] = 0.0f;
+            values[3] = 0.0f;
+        }
+        // Positions and colors default to w = 1, as in VertexLayout.pack
+        attributes[VertexLayout.Semantic.POSITION.ordinal()][3] = 1.0f;
+        attributes[VertexLayout.Semantic.COLOR.ordinal()][3] = 1.0f;
+    }
+
+    /**
+     * Empties the builder for the next mesh, keeping its buffers
+     */
+    public void clear() {
+        vertexCount = 0;
+        indexCount = 0;
+        clearAttributes();
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    /**
+     * Frees the off-heap buffers, the builder can't be used afterwards
+     */
+    @Override
+    public void close() {
+        if (vertices != null) {
+            MemoryUtil.memFree(vertices);
+            MemoryUtil.memFree(indices);
+            vertices = null;
+            indices = null;
+        }
+    }
+}
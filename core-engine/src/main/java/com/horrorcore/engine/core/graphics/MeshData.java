@@ -0,0 +1,88 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Vector3f;
+
+/**
+ * CPU-side copy of a mesh's geometry, kept for systems that need to read it back
+ * after upload (static batching, software occlusion).
+ */
+public class MeshData {
+    private final float[] positions;  // x,y,z per vertex
+    private final float[] normals;    // x,y,z per vertex
+    private final int[] indices;      // Triangle list
+
+    // Local-space bounding box
+    private final Vector3f boundsMin;
+    private final Vector3f boundsMax;
+
+    public MeshData(float[] positions, float[] normals, int[] indices) {
+        this.positions = positions;
+        this.normals = normals;
+        this.indices = indices;
+        this.boundsMin = new Vector3f();
+        this.boundsMax = new Vector3f();
+        computeBounds(positions, boundsMin, boundsMax);
+    }
+
+    /**
+     * Axis-aligned bounding box of x,y,z positions
+     */
+    public static void computeBounds(float[] positions, Vector3f boundsMin, Vector3f boundsMax) {
+        boundsMin.set(Float.POSITIVE_INFINITY);
+        boundsMax.set(Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < positions.length; i += 3) {
+            boundsMin.set(Math.min(boundsMin.x, positions[i]),
+                    Math.min(boundsMin.y, positions[i + 1]),
+                    Math.min(boundsMin.z, positions[i + 2]));
+            boundsMax.set(Math.max(boundsMax.x, positions[i]),
+                    Math.max(boundsMax.y, positions[i + 1]),
+                    Math.max(boundsMax.z, positions[i + 2]));
+        }
+    }
+
+    /**
+     * Smooth vertex normals for geometry that comes without them: the normals of the triangles
+     * around each vertex, weighted by their area. Vertices used by no triangle point up.
+     */
+    public static float[] computeNormals(float[] positions, int[] indices) {
+        float[] normals = new float[positions.length];
+        for (int i = 0; i + 2 < indices.length; i += 3) {
+            int a = indices[i] * 3;
+            int b = indices[i + 1] * 3;
+            int c = indices[i + 2] * 3;
+            float e1x = positions[b] - positions[a], e1y = positions[b + 1] - positions[a + 1], e1z = positions[b + 2] - positions[a + 2];
+            float e2x = positions[c] - positions[a], e2y = positions[c + 1] - positions[a + 1], e2z = positions[c + 2] - positions[a + 2];
+            // Unnormalized cross product, its length is twice the triangle's area
+            float nx = e1y * e2z - e1z * e2y;
+            float ny = e1z * e2x - e1x * e2z;
+            float nz = e1x * e2y - e1y * e2x;
+            accumulate(normals, a, nx, ny, nz);
+            accumulate(normals, b, nx, ny, nz);
+            accumulate(normals, c, nx, ny, nz);
+        }
+        for (int i = 0; i < normals.length; i += 3) {
+            float length = (float) Math.sqrt(normals[i] * normals[i] + normals[i + 1] * normals[i + 1] + normals[i + 2] * normals[i + 2]);
+            if (length > 0) {
+                normals[i] /= length;
+                normals[i + 1] /= length;
+                normals[i + 2] /= length;
+            } else {
+                normals[i + 1] = 1.0f;
+            }
+        }
+        return normals;
+    }
+
+    private static void accumulate(float[] normals, int offset, float x, float y, float z) {
+        normals[offset] += x;
+        normals[offset + 1] += y;
+        normals[offset + 2] += z;
+    }
+
+    public float[] getPositions() { return positions; }
+    public float[] getNormals() { return normals; }
+    public int[] getIndices() { return indices; }
+    public int getVertexCount() { return positions.length / 3; }
+    public Vector3f getBoundsMin() { return boundsMin; }
+    public Vector3f getBoundsMax() { return boundsMax; }
+}
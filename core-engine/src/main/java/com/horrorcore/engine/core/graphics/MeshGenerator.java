@@ -1,5 +1,6 @@
 package com.horrorcore.engine.core.graphics;
 
+// Primitives are small and the usual static batching candidates, so they keep their CPU copy
 public class MeshGenerator {
     public static Mesh createCube() {
         // Vertices for a unit cube centered at the origin
@@ -52,6 +53,49 @@ public class MeshGenerator {
                 6, 7, 3
         };
 
-        return new Mesh(vertices, normals, indices);
+        return new Mesh(vertices, normals, indices, true);
     }
-}
\ No newline at end of file
+
+    public static Mesh createSphere(int segments, int rings) {
+        // UV sphere of radius 0.5 centered at the origin, (segments + 1) * (rings + 1) vertices
+        int vertexCount = (segments + 1) * (rings + 1);
+        float[] vertices = new float[vertexCount * 3];
+        float[] normals = new float[vertexCount * 3];
+        int[] indices = new int[segments * rings * 6];
+
+        int v = 0;
+        for (int ring = 0; ring <= rings; ring++) {
+            double phi = Math.PI * ring / rings;
+            for (int segment = 0; segment <= segments; segment++) {
+                double theta = 2.0 * Math.PI * segment / segments;
+                float nx = (float) (Math.sin(phi) * Math.cos(theta));
+                float ny = (float) Math.cos(phi);
+                float nz = (float) (Math.sin(phi) * Math.sin(theta));
+
+                normals[v] = nx;
+                vertices[v++] = nx * 0.5f;
+                normals[v] = ny;
+                vertices[v++] = ny * 0.5f;
+                normals[v] = nz;
+                vertices[v++] = nz * 0.5f;
+            }
+        }
+
+        // Two triangles per quad between neighbouring rings
+        int i = 0;
+        for (int ring = 0; ring < rings; ring++) {
+            for (int segment = 0; segment < segments; segment++) {
+                int current = ring * (segments + 1) + segment;
+                int below = current + segments + 1;
+                indices[i++] = current;
+                indices[i++] = current + 1;
+                indices[i++] = below;
+                indices[i++] = below;
+                indices[i++] = current + 1;
+                indices[i++] = below + 1;
+            }
+        }
+
+        return new Mesh(vertices, normals, indices, true);
+    }
+}
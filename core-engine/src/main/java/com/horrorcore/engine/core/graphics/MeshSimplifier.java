@@ -0,0 +1,443 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Reduces a mesh's triangle count by quadric error metric edge collapse (Garland and Heckbert).
+ * Every vertex accumulates the planes of its triangles as a quadric, and the edge whose
+ * collapse adds the least squared distance to those planes is collapsed first, to the
+ * position that minimises it. Open borders get extra planes perpendicular to their faces so
+ * silhouettes hold, and collapses that would flip a triangle are rejected.
+ * <p>
+ * Vertices sharing a position (hard edges, seams, sphere poles) collapse together so the
+ * result has no cracks, while normals that differ across the seam are kept apart.
+ * Meant for import time, not per frame.
+ */
+public final class MeshSimplifier {
+    private static final double BORDER_WEIGHT = 10.0;
+    private static final double MIN_FLIP_COS = 0.2;     // Reject collapses rotating a face by more than ~78 degrees
+    private static final float NORMAL_MERGE_COS = 0.9f; // Seam vertices this close in normal share one vertex after a collapse
+    private static final double SINGULAR_EPSILON = 1e-9;    // Relative to the cube of the quadric's trace
+    private static final double WELD_TOLERANCE = 1e-6;      // Relative to the mesh's largest extent
+
+    // Position snapped to the weld grid, generated seams and poles are only equal up to rounding
+    private record PositionKey(long x, long y, long z) {
+    }
+
+    // A candidate collapse of b into a, stale once either vertex changed since it was queued
+    private record Collapse(int a, int b, int versionA, int versionB, double cost, double x, double y, double z) {
+    }
+
+    private final float[] sourcePositions;
+    private final float[] sourceNormals;
+    private final int[] corners;       // Source vertex per triangle corner
+    private final boolean[] deadTriangle;
+    private int liveTriangles;
+
+    private final int[] redirect;      // Source vertex merged into another source vertex, itself when not
+    private final int[] positionOf;    // Source vertex to welded position
+
+    // Per welded position
+    private final int positionCount;
+    private final double[] positions;
+    private final double[] quadrics;   // Upper triangle of the symmetric 4x4, 10 per position
+    private final int[] version;
+    private final boolean[] removed;
+    private final int[][] triangles;   // Triangles using the position, may include dead ones
+    private final int[] triangleCount;
+    private final int[][] members;     // Source vertices still standing for the position
+    private final int[] memberCount;
+    private final int[] stamp;         // Marks neighbours already visited while requeueing
+    private int stampValue;
+
+    private final PriorityQueue<Collapse> queue = new PriorityQueue<>((l, r) -> Double.compare(l.cost, r.cost));
+
+    private MeshSimplifier(MeshData source) {
+        sourcePositions = source.getPositions();
+        sourceNormals = source.getNormals();
+        corners = source.getIndices().clone();
+        int vertexCount = source.getVertexCount();
+        int triangleTotal = corners.length / 3;
+        deadTriangle = new boolean[triangleTotal];
+        liveTriangles = triangleTotal;
+
+        redirect = new int[vertexCount];
+        positionOf = new int[vertexCount];
+        Map<PositionKey, Integer> welded = new HashMap<>();
+        double[] weldedPositions = new double[vertexCount * 3];
+        Vector3f extent = source.getBoundsMax().sub(source.getBoundsMin(), new Vector3f());
+        double cell = Math.max(extent.x, Math.max(extent.y, extent.z)) * WELD_TOLERANCE;
+        if (cell == 0) {
+            cell = WELD_TOLERANCE;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            redirect[v] = v;
+            PositionKey key = new PositionKey(Math.round(sourcePositions[v * 3] / cell),
+                    Math.round(sourcePositions[v * 3 + 1] / cell), Math.round(sourcePositions[v * 3 + 2] / cell));
+            Integer id = welded.get(key);
+            if (id == null) {
+                id = welded.size();
+                welded.put(key, id);
+                weldedPositions[id * 3] = sourcePositions[v * 3];
+                weldedPositions[id * 3 + 1] = sourcePositions[v * 3 + 1];
+                weldedPositions[id * 3 + 2] = sourcePositions[v * 3 + 2];
+            }
+            positionOf[v] = id;
+        }
+
+        positionCount = welded.size();
+        positions = Arrays.copyOf(weldedPositions, positionCount * 3);
+        quadrics = new double[positionCount * 10];
+        version = new int[positionCount];
+        removed = new boolean[positionCount];
+        triangles = new int[positionCount][];
+        triangleCount = new int[positionCount];
+        members = new int[positionCount][];
+        memberCount = new int[positionCount];
+        stamp = new int[positionCount];
+        for (int p = 0; p < positionCount; p++) {
+            triangles[p] = new int[6];
+            members[p] = new int[2];
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            int p = positionOf[v];
+            members[p] = append(members[p], memberCount[p]++, v);
+        }
+    }
+
+    /**
+     * Returns a copy of the mesh reduced to about the given number of triangles. The result
+     * may keep more when further collapses would fold the surface.
+     */
+    public static MeshData simplify(MeshData source, int targetTriangles) {
+        if (source.getIndices().length / 3 <= targetTriangles) {
+            return source;
+        }
+        MeshSimplifier simplifier = new MeshSimplifier(source);
+        simplifier.initialize();
+        simplifier.collapseUntil(Math.max(1, targetTriangles));
+        return simplifier.build();
+    }
+
+    private void initialize() {
+        Map<Long, Integer> edgeUse = new HashMap<>();
+        for (int t = 0; t < deadTriangle.length; t++) {
+            int p0 = corner(t, 0), p1 = corner(t, 1), p2 = corner(t, 2);
+            double[] plane = plane(p0, p1, p2, new double[4]);
+            if (p0 == p1 || p1 == p2 || p2 == p0 || plane == null) {
+                deadTriangle[t] = true;
+                liveTriangles--;
+                continue;
+            }
+            // Weight by area so large faces resist change more than slivers
+            double area = triangleArea(p0, p1, p2);
+            addPlane(p0, plane, area);
+            addPlane(p1, plane, area);
+            addPlane(p2, plane, area);
+            for (int k = 0; k < 3; k++) {
+                int p = corner(t, k);
+                triangles[p] = append(triangles[p], triangleCount[p]++, t);
+                edgeUse.merge(edgeKey(p, corner(t, (k + 1) % 3)), 1, Integer::sum);
+            }
+        }
+
+        // Border edges belong to one triangle, fence them with a plane perpendicular to it
+        double[] plane = new double[4];
+        double[] border = new double[4];
+        for (int t = 0; t < deadTriangle.length; t++) {
+            if (deadTriangle[t]) continue;
+            plane(corner(t, 0), corner(t, 1), corner(t, 2), plane);
+            for (int k = 0; k < 3; k++) {
+                int a = corner(t, k);
+                int b = corner(t, (k + 1) % 3);
+                if (edgeUse.get(edgeKey(a, b)) != 1) continue;
+
+                double ex = positions[b * 3] - positions[a * 3];
+                double ey = positions[b * 3 + 1] - positions[a * 3 + 1];
+                double ez = positions[b * 3 + 2] - positions[a * 3 + 2];
+                double nx = ey * plane[2] - ez * plane[1];
+                double ny = ez * plane[0] - ex * plane[2];
+                double nz = ex * plane[1] - ey * plane[0];
+                double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if (length == 0) continue;
+                border[0] = nx / length;
+                border[1] = ny / length;
+                border[2] = nz / length;
+                border[3] = -(border[0] * positions[a * 3] + border[1] * positions[a * 3 + 1] + border[2] * positions[a * 3 + 2]);
+                double weight = BORDER_WEIGHT * (ex * ex + ey * ey + ez * ez);
+                addPlane(a, border, weight);
+                addPlane(b, border, weight);
+            }
+        }
+
+        for (long key : edgeUse.keySet()) {
+            queue.add(evaluate((int) (key >>> 32), (int) key));
+        }
+    }
+
+    private void collapseUntil(int targetTriangles) {
+        Collapse collapse;
+        while (liveTriangles > targetTriangles && (collapse = queue.poll()) != null) {
+            int a = collapse.a(), b = collapse.b();
+            if (removed[a] || removed[b] || version[a] != collapse.versionA() || version[b] != collapse.versionB()) {
+                continue;
+            }
+            if (flips(a, b, collapse.x(), collapse.y(), collapse.z())
+                    || flips(b, a, collapse.x(), collapse.y(), collapse.z())) {
+                continue;
+            }
+            collapse(a, b, collapse.x(), collapse.y(), collapse.z());
+        }
+    }
+
+    // Merges position b into a, moved to (x, y, z)
+    private void collapse(int a, int b, double x, double y, double z) {
+        positions[a * 3] = x;
+        positions[a * 3 + 1] = y;
+        positions[a * 3 + 2] = z;
+        for (int i = 0; i < 10; i++) {
+            quadrics[a * 10 + i] += quadrics[b * 10 + i];
+        }
+        removed[b] = true;
+        version[a]++;
+
+        // Triangles on the collapsed edge degenerate
+        for (int i = 0; i < triangleCount[b]; i++) {
+            int t = triangles[b][i];
+            if (!deadTriangle[t] && uses(t, a)) {
+                deadTriangle[t] = true;
+                liveTriangles--;
+            }
+        }
+
+        // Source vertices of b join a, sharing a vertex where the normals agree
+        for (int i = 0; i < memberCount[b]; i++) {
+            int u = members[b][i];
+            int match = -1;
+            float best = NORMAL_MERGE_COS;
+            if (sourceNormals != null) {
+                for (int j = 0; j < memberCount[a]; j++) {
+                    int w = members[a][j];
+                    float dot = sourceNormals[u * 3] * sourceNormals[w * 3]
+                            + sourceNormals[u * 3 + 1] * sourceNormals[w * 3 + 1]
+                            + sourceNormals[u * 3 + 2] * sourceNormals[w * 3 + 2];
+                    if (dot >= best) {
+                        best = dot;
+                        match = w;
+                    }
+                }
+            }
+            positionOf[u] = a;
+            if (match >= 0) {
+                redirect[u] = match;
+            } else {
+                members[a] = append(members[a], memberCount[a]++, u);
+            }
+        }
+
+        // Move b's remaining triangles over and drop dead entries
+        int count = 0;
+        int[] list = triangles[a];
+        for (int i = 0; i < triangleCount[a]; i++) {
+            if (!deadTriangle[list[i]]) {
+                list[count++] = list[i];
+            }
+        }
+        for (int i = 0; i < triangleCount[b]; i++) {
+            int t = triangles[b][i];
+            if (!deadTriangle[t]) {
+                list = append(list, count++, t);
+            }
+        }
+        triangles[a] = list;
+        triangleCount[a] = count;
+        triangles[b] = null;
+        members[b] = null;
+
+        // Requeue the edges around the merged vertex
+        stampValue++;
+        stamp[a] = stampValue;
+        for (int i = 0; i < count; i++) {
+            for (int k = 0; k < 3; k++) {
+                int n = corner(list[i], k);
+                if (stamp[n] != stampValue) {
+                    stamp[n] = stampValue;
+                    queue.add(evaluate(a, n));
+                }
+            }
+        }
+    }
+
+    // True if moving position p to (x, y, z) turns any of its triangles not shared with other over
+    private boolean flips(int p, int other, double x, double y, double z) {
+        for (int i = 0; i < triangleCount[p]; i++) {
+            int t = triangles[p][i];
+            if (deadTriangle[t] || uses(t, other)) continue;
+
+            int k = corner(t, 0) == p ? 0 : corner(t, 1) == p ? 1 : 2;
+            int p1 = corner(t, (k + 1) % 3);
+            int p2 = corner(t, (k + 2) % 3);
+            double[] before = normal(positions[p * 3], positions[p * 3 + 1], positions[p * 3 + 2], p1, p2, new double[3]);
+            double[] after = normal(x, y, z, p1, p2, new double[3]);
+            double beforeLength = Math.sqrt(before[0] * before[0] + before[1] * before[1] + before[2] * before[2]);
+            double afterLength = Math.sqrt(after[0] * after[0] + after[1] * after[1] + after[2] * after[2]);
+            if (afterLength == 0) return true;
+            double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            if (dot < MIN_FLIP_COS * beforeLength * afterLength) return true;
+        }
+        return false;
+    }
+
+    private Collapse evaluate(int a, int b) {
+        double[] q = new double[10];
+        for (int i = 0; i < 10; i++) {
+            q[i] = quadrics[a * 10 + i] + quadrics[b * 10 + i];
+        }
+
+        // Minimise the combined quadric, falling back to the endpoints and midpoint when singular
+        double det = q[0] * (q[4] * q[7] - q[5] * q[5]) - q[1] * (q[1] * q[7] - q[5] * q[2]) + q[2] * (q[1] * q[5] - q[4] * q[2]);
+        double x, y, z;
+        double scale = q[0] + q[4] + q[7];
+        if (Math.abs(det) > SINGULAR_EPSILON * scale * scale * scale) {
+            // Cramer's rule on [q0 q1 q2; q1 q4 q5; q2 q5 q7] v = -[q3 q6 q8]
+            double bx = -q[3], by = -q[6], bz = -q[8];
+            x = (bx * (q[4] * q[7] - q[5] * q[5]) - q[1] * (by * q[7] - q[5] * bz) + q[2] * (by * q[5] - q[4] * bz)) / det;
+            y = (q[0] * (by * q[7] - q[5] * bz) - bx * (q[1] * q[7] - q[5] * q[2]) + q[2] * (q[1] * bz - by * q[2])) / det;
+            z = (q[0] * (q[4] * bz - by * q[5]) - q[1] * (q[1] * bz - by * q[2]) + bx * (q[1] * q[5] - q[4] * q[2])) / det;
+        } else {
+            double mx = (positions[a * 3] + positions[b * 3]) * 0.5;
+            double my = (positions[a * 3 + 1] + positions[b * 3 + 1]) * 0.5;
+            double mz = (positions[a * 3 + 2] + positions[b * 3 + 2]) * 0.5;
+            double errorA = error(q, positions[a * 3], positions[a * 3 + 1], positions[a * 3 + 2]);
+            double errorB = error(q, positions[b * 3], positions[b * 3 + 1], positions[b * 3 + 2]);
+            double errorMid = error(q, mx, my, mz);
+            if (errorA <= errorB && errorA <= errorMid) {
+                x = positions[a * 3]; y = positions[a * 3 + 1]; z = positions[a * 3 + 2];
+            } else if (errorB <= errorMid) {
+                x = positions[b * 3]; y = positions[b * 3 + 1]; z = positions[b * 3 + 2];
+            } else {
+                x = mx; y = my; z = mz;
+            }
+        }
+        return new Collapse(a, b, version[a], version[b], error(q, x, y, z), x, y, z);
+    }
+
+    private MeshData build() {
+        int[] remap = new int[redirect.length];
+        Arrays.fill(remap, -1);
+        int[] indices = new int[liveTriangles * 3];
+        float[] outPositions = new float[Math.min(redirect.length, liveTriangles * 3) * 3];
+        float[] outNormals = sourceNormals != null ? new float[outPositions.length] : null;
+
+        int index = 0;
+        int vertexCount = 0;
+        for (int t = 0; t < deadTriangle.length; t++) {
+            if (deadTriangle[t]) continue;
+            for (int k = 0; k < 3; k++) {
+                int v = resolve(corners[t * 3 + k]);
+                if (remap[v] < 0) {
+                    remap[v] = vertexCount;
+                    int p = positionOf[v];
+                    for (int c = 0; c < 3; c++) {
+                        outPositions[vertexCount * 3 + c] = (float) positions[p * 3 + c];
+                        if (outNormals != null) {
+                            outNormals[vertexCount * 3 + c] = sourceNormals[v * 3 + c];
+                        }
+                    }
+                    vertexCount++;
+                }
+                indices[index++] = remap[v];
+            }
+        }
+
+        return new MeshData(Arrays.copyOf(outPositions, vertexCount * 3),
+                outNormals != null ? Arrays.copyOf(outNormals, vertexCount * 3) : null, indices);
+    }
+
+    private int corner(int triangle, int k) {
+        return positionOf[resolve(corners[triangle * 3 + k])];
+    }
+
+    private boolean uses(int triangle, int position) {
+        return corner(triangle, 0) == position || corner(triangle, 1) == position || corner(triangle, 2) == position;
+    }
+
+    private int resolve(int v) {
+        int root = v;
+        while (redirect[root] != root) {
+            root = redirect[root];
+        }
+        while (redirect[v] != root) {
+            int next = redirect[v];
+            redirect[v] = root;
+            v = next;
+        }
+        return root;
+    }
+
+    // Unit plane of a triangle as (a, b, c, d), null if it has no area
+    private double[] plane(int p0, int p1, int p2, double[] dest) {
+        normal(positions[p0 * 3], positions[p0 * 3 + 1], positions[p0 * 3 + 2], p1, p2, dest);
+        double length = Math.sqrt(dest[0] * dest[0] + dest[1] * dest[1] + dest[2] * dest[2]);
+        if (length == 0) return null;
+        dest[0] /= length;
+        dest[1] /= length;
+        dest[2] /= length;
+        dest[3] = -(dest[0] * positions[p0 * 3] + dest[1] * positions[p0 * 3 + 1] + dest[2] * positions[p0 * 3 + 2]);
+        return dest;
+    }
+
+    private double triangleArea(int p0, int p1, int p2) {
+        double[] n = normal(positions[p0 * 3], positions[p0 * 3 + 1], positions[p0 * 3 + 2], p1, p2, new double[3]);
+        return 0.5 * Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+    }
+
+    // Unnormalised normal of the triangle (x, y, z), p1, p2
+    private double[] normal(double x, double y, double z, int p1, int p2, double[] dest) {
+        double ux = positions[p1 * 3] - x, uy = positions[p1 * 3 + 1] - y, uz = positions[p1 * 3 + 2] - z;
+        double vx = positions[p2 * 3] - x, vy = positions[p2 * 3 + 1] - y, vz = positions[p2 * 3 + 2] - z;
+        dest[0] = uy * vz - uz * vy;
+        dest[1] = uz * vx - ux * vz;
+        dest[2] = ux * vy - uy * vx;
+        return dest;
+    }
+
+    private void addPlane(int p, double[] plane, double weight) {
+        double a = plane[0], b = plane[1], c = plane[2], d = plane[3];
+        int o = p * 10;
+        quadrics[o] += weight * a * a;
+        quadrics[o + 1] += weight * a * b;
+        quadrics[o + 2] += weight * a * c;
+        quadrics[o + 3] += weight * a * d;
+        quadrics[o + 4] += weight * b * b;
+        quadrics[o + 5] += weight * b * c;
+        quadrics[o + 6] += weight * b * d;
+        quadrics[o + 7] += weight * c * c;
+        quadrics[o + 8] += weight * c * d;
+        quadrics[o + 9] += weight * d * d;
+    }
+
+    private static double error(double[] q, double x, double y, double z) {
+        return q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+                + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+                + q[7] * z * z + 2 * q[8] * z
+                + q[9];
+    }
+
+    private static long edgeKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2);
+        }
+        array[index] = value;
+        return array;
+    }
+}
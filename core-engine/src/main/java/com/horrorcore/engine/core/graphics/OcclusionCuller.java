@@ -0,0 +1,415 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Occlusion culling with GL_ANY_SAMPLES_PASSED queries against world bounding boxes.
+ * After the scene is drawn, boxes are rasterized against its depth buffer with color and
+ * depth writes off. Results are read back on later frames only once the GPU reports them
+ * available, so the CPU never waits; objects are skipped by the next render list build if
+ * their last result said hidden (temporal coherence, one frame of latency).
+ * <p>
+ * To keep the query count low, objects hidden last frame are grouped by a coarse world grid
+ * and each cell is tested with one query over the union of its boxes; if any of it shows,
+ * all its members are drawn again and retested on their own. Visible objects are only
+ * retested every VISIBLE_QUERY_INTERVAL frames, staggered across objects.
+ * Objects whose box contains the camera, or that have just entered the view, are always drawn.
+ * <p>
+ * Results arrive a frame late, so after the camera or an object moves the culler needs one more
+ * frame to read them; {@link #hasPendingResults()} tells an on-demand main loop to draw it.
+ * <p>
+ * Everything here runs on the GL thread except {@link #isOccluded}, which render list
+ * workers call while the GL thread waits for them.
+ */
+public class OcclusionCuller implements OcclusionTest {
+    private static final int VISIBLE_QUERY_INTERVAL = 4;
+    private static final int MAX_PENDING_FRAMES = 3;    // Draw objects whose result is this late
+    private static final int FORGET_FRAMES = 300;       // Drop state of objects not seen for this long
+    private static final float GROUP_CELL_SIZE = 8.0f;
+    private static final float BOX_MARGIN = 0.02f;      // World units added around each box
+    private static final int CUBE_VERTEX_BYTES = 8 * 3 * Float.BYTES;
+    private static final int CUBE_INDEX_BYTES = 36;
+
+    private static final String VERTEX_SOURCE = "#version 330 core\n" + CameraUniformBuffer.GLSL_BLOCK + """
+
+            layout (location = 0) in vec3 corner;  // Unit cube corner, 0 or 1 per axis
+
+            uniform vec3 boxMin;
+            uniform vec3 boxSize;
+
+            void main() {
+                gl_Position = viewProjection * vec4(boxMin + corner * boxSize, 1.0);
+            }
+            """;
+
+    private static final String FRAGMENT_SOURCE = """
+            #version 330 core
+
+            out vec4 fragColor;
+
+            void main() {
+                fragColor = vec4(1.0);  // Color writes are masked, only the sample count matters
+            }
+            """;
+
+    private static final class ObjectState {
+        final int stagger;
+        boolean occluded;
+        boolean pending;      // A query including this object is in flight
+        boolean retest;       // Shown by a group query, test on its own next time
+        long lastFrame;       // Last frame the object was inside the frustum
+        final float[] bounds = new float[6];
+
+        ObjectState(int stagger) {
+            this.stagger = stagger;
+        }
+    }
+
+    // A query in flight for one object or one grid cell of hidden objects
+    private static final class Query {
+        final int id;
+        ObjectState[] members = new ObjectState[8];
+        int memberCount;
+        long issuedFrame;
+
+        Query(int id) {
+            this.id = id;
+        }
+    }
+
+    private static final class Group {
+        ObjectState[] members = new ObjectState[8];
+        int memberCount;
+        final float[] bounds = new float[6];
+    }
+
+    private final Map<MeshRenderer, ObjectState> states = new HashMap<>();
+    private final Map<Long, Group> groups = new HashMap<>();
+    private final List<Group> activeGroups = new ArrayList<>();
+    private final List<Query> pending = new ArrayList<>();
+    private final ArrayDeque<Query> freeQueries = new ArrayDeque<>();
+    private final Vector3f cameraPosition = new Vector3f();
+    private final float[] candidateBounds = new float[6];
+
+    private final int programId;
+    private final int boxMinLocation;
+    private final int boxSizeLocation;
+    private final int vaoId;
+    private final int vboId;
+    private final int eboId;
+
+    private boolean enabled = true;
+    private long frame;
+    private int nextStagger;
+    private int queriesIssued;
+    private int seenCameraVersion = -1;
+    private boolean settling;  // Results still to come may change what is drawn
+
+    public OcclusionCuller() {
+        programId = ShaderCache.link("OcclusionCuller", VERTEX_SOURCE, FRAGMENT_SOURCE);
+        CameraUniformBuffer.bindBlock(programId);
+        boxMinLocation = glGetUniformLocation(programId, "boxMin");
+        boxSizeLocation = glGetUniformLocation(programId, "boxSize");
+
+        // Unit cube, corner i has x = bit 0, y = bit 1, z = bit 2
+        FloatBuffer vertices = MemoryUtil.memAllocFloat(8 * 3);
+        ByteBuffer indices = MemoryUtil.memAlloc(CUBE_INDEX_BYTES);
+        try {
+            for (int i = 0; i < 8; i++) {
+                vertices.put(i & 1).put((i >> 1) & 1).put((i >> 2) & 1);
+            }
+            vertices.flip();
+            indices.put(new byte[]{
+                    0, 2, 1, 1, 2, 3,  // -z
+                    4, 5, 6, 5, 7, 6,  // +z
+                    0, 1, 4, 1, 5, 4,  // -y
+                    2, 6, 3, 3, 6, 7,  // +y
+                    0, 4, 2, 2, 4, 6,  // -x
+                    1, 3, 5, 3, 7, 5   // +x
+            }).flip();
+
+            vaoId = glGenVertexArrays();
+            glBindVertexArray(vaoId);
+            vboId = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, vboId);
+            glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+            glEnableVertexAttribArray(0);
+            eboId = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboId);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+            glBindVertexArray(0);
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, CUBE_VERTEX_BYTES);
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, CUBE_INDEX_BYTES);
+        } finally {
+            MemoryUtil.memFree(vertices);
+            MemoryUtil.memFree(indices);
+        }
+    }
+
+    /**
+     * Collects whatever query results have arrived, before this frame's render lists are built
+     */
+    public void beginFrame() {
+        frame++;
+        queriesIssued = 0;
+        settling = false;
+
+        Iterator<Query> it = pending.iterator();
+        while (it.hasNext()) {
+            Query query = it.next();
+            if (glGetQueryObjecti(query.id, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+                settling = true;
+                if (frame - query.issuedFrame > MAX_PENDING_FRAMES) {
+                    // Too late to trust the old answer, draw until it arrives
+                    for (int i = 0; i < query.memberCount; i++) {
+                        query.members[i].occluded = false;
+                    }
+                }
+                continue;
+            }
+
+            boolean visible = glGetQueryObjecti(query.id, GL_QUERY_RESULT) != 0;
+            for (int i = 0; i < query.memberCount; i++) {
+                ObjectState state = query.members[i];
+                // Drawn from this frame on, objects behind it may have been tested against the old depth
+                if (state.occluded && visible) {
+                    settling = true;
+                }
+                state.pending = false;
+                state.occluded = !visible;
+                state.retest = visible && query.memberCount > 1;
+                query.members[i] = null;
+            }
+            query.memberCount = 0;
+            freeQueries.push(query);
+            it.remove();
+        }
+
+        // Objects returning to the view are drawn before they are tested again
+        Iterator<ObjectState> states = this.states.values().iterator();
+        while (states.hasNext()) {
+            ObjectState state = states.next();
+            if (state.lastFrame < frame - 1) {
+                state.occluded = false;
+                if (state.lastFrame < frame - FORGET_FRAMES && !state.pending) {
+                    states.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * True if the renderer was hidden at its last test. Safe to call from render list workers.
+     */
+    @Override
+    public boolean isOccluded(MeshRenderer renderer, Vector3f worldMin, Vector3f worldMax) {
+        if (!enabled) return false;
+        ObjectState state = states.get(renderer);
+        return state != null && state.occluded;
+    }
+
+    /**
+     * Issues this frame's queries for the objects the render lists found inside the frustum.
+     * Call after the lists were submitted, with the scene's depth buffer still bound.
+     */
+    public void issueQueries(RenderListBuilder renderLists, CameraUniformBuffer camera) {
+        if (!enabled) {
+            renderLists.clearCandidates();
+            return;
+        }
+        camera.getPosition(cameraPosition);
+        // Tested against a new view, the results have to be read even if nothing else asks for a frame
+        if (camera.getVersion() != seenCameraVersion) {
+            seenCameraVersion = camera.getVersion();
+            settling = true;
+        }
+
+        glUseProgram(programId);
+        RenderStats.countProgramBind();
+        glBindVertexArray(vaoId);
+        RenderStats.countVertexArrayBind();
+        glColorMask(false, false, false, false);
+        glDepthMask(false);
+        glEnable(GL_DEPTH_TEST);
+
+        activeGroups.clear();
+        for (int l = 0; l < renderLists.getListCount(); l++) {
+            RenderList list = renderLists.getList(l);
+            for (int i = 0; i < list.getCandidateCount(); i++) {
+                MeshRenderer renderer = list.getCandidate(i);
+                ObjectState state = states.get(renderer);
+                if (state == null) {
+                    state = new ObjectState(nextStagger++);
+                    states.put(renderer, state);
+                }
+                state.lastFrame = frame;
+                list.getCandidateBounds(i, candidateBounds);
+                for (int k = 0; k < 3; k++) {
+                    candidateBounds[k] -= BOX_MARGIN;
+                    candidateBounds[k + 3] += BOX_MARGIN;
+                }
+                float[] bounds = state.bounds;
+                if (!Arrays.equals(bounds, candidateBounds)) {
+                    System.arraycopy(candidateBounds, 0, bounds, 0, 6);
+                    settling = true;
+                }
+                if (state.pending) continue;
+
+                // A box around the camera would be clipped by the near plane and read as hidden
+                if (contains(bounds, cameraPosition)) {
+                    state.occluded = false;
+                    continue;
+                }
+
+                if (state.occluded) {
+                    addToGroup(state);
+                } else if (state.retest || (frame + state.stagger) % VISIBLE_QUERY_INTERVAL == 0) {
+                    state.retest = false;
+                    Query query = beginQuery();
+                    addMember(query, state);
+                    drawBox(query, bounds);
+                }
+            }
+        }
+
+        for (Group group : activeGroups) {
+            Query query = beginQuery();
+            for (int i = 0; i < group.memberCount; i++) {
+                addMember(query, group.members[i]);
+                group.members[i] = null;
+            }
+            group.memberCount = 0;
+            drawBox(query, group.bounds);
+        }
+
+        glColorMask(true, true, true, true);
+        glDepthMask(true);
+        glBindVertexArray(0);
+        glUseProgram(0);
+        renderLists.clearCandidates();
+    }
+
+    private void addToGroup(ObjectState state) {
+        float[] bounds = state.bounds;
+        long cellX = (long) Math.floor((bounds[0] + bounds[3]) * 0.5f / GROUP_CELL_SIZE) & 0x1FFFFF;
+        long cellY = (long) Math.floor((bounds[1] + bounds[4]) * 0.5f / GROUP_CELL_SIZE) & 0x1FFFFF;
+        long cellZ = (long) Math.floor((bounds[2] + bounds[5]) * 0.5f / GROUP_CELL_SIZE) & 0x1FFFFF;
+        long key = (cellX << 42) | (cellY << 21) | cellZ;
+
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group();
+            groups.put(key, group);
+        }
+        if (group.memberCount == 0) {
+            activeGroups.add(group);
+            System.arraycopy(bounds, 0, group.bounds, 0, 6);
+        } else {
+            for (int k = 0; k < 3; k++) {
+                group.bounds[k] = Math.min(group.bounds[k], bounds[k]);
+                group.bounds[k + 3] = Math.max(group.bounds[k + 3], bounds[k + 3]);
+            }
+        }
+        if (group.memberCount == group.members.length) {
+            group.members = Arrays.copyOf(group.members, group.members.length * 2);
+        }
+        group.members[group.memberCount++] = state;
+    }
+
+    private Query beginQuery() {
+        Query query = freeQueries.poll();
+        if (query == null) {
+            query = new Query(glGenQueries());
+        }
+        query.issuedFrame = frame;
+        pending.add(query);
+        queriesIssued++;
+        RenderStats.countOcclusionQuery();
+        return query;
+    }
+
+    private static void addMember(Query query, ObjectState state) {
+        if (query.memberCount == query.members.length) {
+            query.members = Arrays.copyOf(query.members, query.members.length * 2);
+        }
+        query.members[query.memberCount++] = state;
+        state.pending = true;
+    }
+
+    private void drawBox(Query query, float[] bounds) {
+        glUniform3f(boxMinLocation, bounds[0], bounds[1], bounds[2]);
+        glUniform3f(boxSizeLocation, bounds[3] - bounds[0], bounds[4] - bounds[1], bounds[5] - bounds[2]);
+        glBeginQuery(GL_ANY_SAMPLES_PASSED, query.id);
+        glDrawElements(GL_TRIANGLES, 36, GL_UNSIGNED_BYTE, 0);
+        glEndQuery(GL_ANY_SAMPLES_PASSED);
+    }
+
+    private static boolean contains(float[] bounds, Vector3f point) {
+        return point.x >= bounds[0] && point.y >= bounds[1] && point.z >= bounds[2]
+                && point.x <= bounds[3] && point.y <= bounds[4] && point.z <= bounds[5];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns occlusion culling on or off; when off every object inside the frustum is drawn
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * True while query results that can change what is drawn are still to be read: the view or
+     * an object moved this frame, an earlier result hasn't arrived or one just showed a hidden
+     * object. Frames drawn until this turns false leave the culled set matching the still view.
+     */
+    public boolean hasPendingResults() {
+        return enabled && settling;
+    }
+
+    /**
+     * Queries issued this frame
+     */
+    public int getQueriesIssued() {
+        return queriesIssued;
+    }
+
+    public void cleanup() {
+        for (Query query : pending) {
+            glDeleteQueries(query.id);
+        }
+        for (Query query : freeQueries) {
+            glDeleteQueries(query.id);
+        }
+        pending.clear();
+        freeQueries.clear();
+        states.clear();
+
+        glDeleteBuffers(vboId);
+        glDeleteBuffers(eboId);
+        glDeleteVertexArrays(vaoId);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, CUBE_VERTEX_BYTES);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, CUBE_INDEX_BYTES);
+        glDeleteProgram(programId);
+        EngineMetrics.resourceDestroyed(GlResourceType.PROGRAM, 0);
+    }
+}
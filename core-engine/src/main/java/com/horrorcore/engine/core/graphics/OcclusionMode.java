@@ -0,0 +1,10 @@
+package com.horrorcore.engine.core.graphics;
+
+/**
+ * How the scene skips objects hidden behind others
+ */
+public enum OcclusionMode {
+    OFF,       // Draw everything inside the frustum
+    HARDWARE,  // GPU occlusion queries, see OcclusionCuller
+    SOFTWARE   // CPU depth rasterizer, see SoftwareOcclusionCuller
+}
@@ -0,0 +1,17 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.components.MeshRenderer;
+import org.joml.Vector3f;
+
+/**
+ * Decides whether an object inside the view frustum is hidden behind others.
+ * Called by render list workers in parallel, so implementations must only read state
+ * prepared on the GL thread before the build.
+ */
+public interface OcclusionTest {
+    /**
+     * @param worldMin Minimum corner of the object's world bounding box
+     * @param worldMax Maximum corner of the object's world bounding box
+     */
+    boolean isOccluded(MeshRenderer renderer, Vector3f worldMin, Vector3f worldMax);
+}
@@ -0,0 +1,268 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.Transform;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draw packets for one slice of the scene, built off the GL thread.
+ * Each visible renderer becomes a sort key plus a fixed-size record of packed uniforms in
+ * native memory. Keys order packets by program, then mesh, so replaying the list binds
+ * each program and vertex array once per run. Lists are reused every frame.
+ * <p>
+ * Renderers with a LOD group get their level picked here; while cross-fading they emit two
+ * packets, one per level, with complementary dither. Objects inside the frustum are also
+ * kept as occlusion candidates with their world bounds, drawn or not.
+ */
+class RenderList {
+    private static final int INDEX_BITS = 24;
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    static final int MAX_PACKETS = 1 << INDEX_BITS;
+
+    private ByteBuffer uniforms = MemoryUtil.memAlloc(64 * BasicShader.PACKED_UNIFORM_BYTES);
+    private long[] keys = new long[64];
+    private MeshRenderer[] renderers = new MeshRenderer[64];
+    private Mesh[] meshes = new Mesh[64];
+    private int packetCount;
+    private int culledCount;
+    private int occludedCount;
+    private int fadingCount;
+
+    // Objects inside the frustum and their world boxes, min then max
+    private MeshRenderer[] candidates = new MeshRenderer[64];
+    private float[] candidateBounds = new float[64 * 6];
+    private int candidateCount;
+
+    // Worker-local scratch
+    private final Matrix4f mvp = new Matrix4f();
+    private final Vector3f color = new Vector3f();
+    private final Vector3f boundsMin = new Vector3f();
+    private final Vector3f boundsMax = new Vector3f();
+
+    /**
+     * Extracts, culls and packs objects [from, to) of the list, then sorts the packets.
+     * Runs on a worker thread; must not touch GL.
+     * @param projectionScale See {@link CameraUniformBuffer#getProjectionScale()}, for LOD selection
+     * @param occlusion       Test for objects hidden behind others, null to draw everything in the frustum
+     */
+    void build(List<GameObject> objects, int from, int to, Matrix4f viewProjection, FrustumIntersection frustum,
+               float projectionScale, long nowNanos, OcclusionTest occlusion) {
+        packetCount = 0;
+        culledCount = 0;
+        occludedCount = 0;
+        fadingCount = 0;
+        candidateCount = 0;
+        ensureCapacity(2 * (to - from));  // Cross-fading objects take two packets
+
+        for (int i = from; i < to; i++) {
+            GameObject gameObject = objects.get(i);
+            if (!gameObject.isActive()) continue;
+            MeshRenderer renderer = gameObject.getComponent(MeshRenderer.class);
+            if (renderer == null || !renderer.isEnabled() || renderer.isStaticBatched()
+                    || renderer.getMesh() == null || renderer.getShader() == null) continue;
+
+            Transform transform = gameObject.getTransform();
+            Matrix4f model = transform.getModelMatrix();
+            Vector3f localMin = renderer.getMesh().getBoundsMin();
+            boolean hasBounds = localMin != null;
+            if (hasBounds) {
+                model.transformAab(localMin, renderer.getMesh().getBoundsMax(), boundsMin, boundsMax);
+                if (!frustum.testAab(boundsMin, boundsMax)) {
+                    culledCount++;
+                    continue;
+                }
+
+                int candidate = candidateCount++;
+                candidates[candidate] = renderer;
+                int at = candidate * 6;
+                candidateBounds[at] = boundsMin.x;
+                candidateBounds[at + 1] = boundsMin.y;
+                candidateBounds[at + 2] = boundsMin.z;
+                candidateBounds[at + 3] = boundsMax.x;
+                candidateBounds[at + 4] = boundsMax.y;
+                candidateBounds[at + 5] = boundsMax.z;
+                if (occlusion != null && occlusion.isOccluded(renderer, boundsMin, boundsMax)) {
+                    occludedCount++;
+                    continue;
+                }
+            }
+
+            Mesh mesh = renderer.getMesh();
+            Mesh fadingMesh = null;
+            LodGroup lodGroup = renderer.getLodGroup();
+            if (lodGroup != null) {
+                // Bounding sphere of the world box, depth is the clip w of its center
+                float radius = hasBounds ? boundsMin.distance(boundsMax) * 0.5f : Float.POSITIVE_INFINITY;
+                float cx = (boundsMin.x + boundsMax.x) * 0.5f;
+                float cy = (boundsMin.y + boundsMax.y) * 0.5f;
+                float cz = (boundsMin.z + boundsMax.z) * 0.5f;
+                float depth = viewProjection.m03() * cx + viewProjection.m13() * cy
+                        + viewProjection.m23() * cz + viewProjection.m33();
+                renderer.updateLod(LodGroup.screenSize(radius, depth, projectionScale), nowNanos);
+
+                mesh = lodGroup.getMesh(renderer.getLodLevel());
+                if (renderer.getFadingLodLevel() >= 0) {
+                    fadingMesh = lodGroup.getMesh(renderer.getFadingLodLevel());
+                    fadingCount++;
+                }
+            }
+
+            float fade = renderer.getLodFade();
+            int packet = -1;
+            if (mesh != null) {
+                packet = addPacket(renderer, mesh, transform, viewProjection, fade);
+            }
+            if (fadingMesh != null) {
+                if (packet >= 0) {
+                    copyPacket(packet, renderer, fadingMesh, -fade);
+                } else {
+                    addPacket(renderer, fadingMesh, transform, viewProjection, -fade);
+                }
+            }
+        }
+
+        Arrays.sort(keys, 0, packetCount);
+    }
+
+    private int addPacket(MeshRenderer renderer, Mesh mesh, Transform transform, Matrix4f viewProjection, float fade) {
+        int packet = packetCount++;
+        int offset = packet * BasicShader.PACKED_UNIFORM_BYTES;
+        BasicShader shader = renderer.getShader();
+        Matrix4f model = transform.getModelMatrix();
+        if (shader.usesPrecomputedMatrices()) {
+            viewProjection.mul(model, mvp).get(offset, uniforms);
+            transform.getNormalMatrix().get(offset + BasicShader.PACKED_NORMAL_OFFSET, uniforms);
+        } else {
+            model.get(offset, uniforms);
+        }
+        renderer.getColor(color).get(offset + BasicShader.PACKED_COLOR_OFFSET, uniforms);
+        uniforms.putFloat(offset + BasicShader.PACKED_LOD_FADE_OFFSET, fade);
+
+        setPacket(packet, renderer, mesh);
+        return packet;
+    }
+
+    // Second packet of a cross-fading object, same uniforms but the other level
+    private void copyPacket(int source, MeshRenderer renderer, Mesh mesh, float fade) {
+        int packet = packetCount++;
+        long base = MemoryUtil.memAddress(uniforms);
+        MemoryUtil.memCopy(base + (long) source * BasicShader.PACKED_UNIFORM_BYTES,
+                base + (long) packet * BasicShader.PACKED_UNIFORM_BYTES, BasicShader.PACKED_UNIFORM_BYTES);
+        uniforms.putFloat(packet * BasicShader.PACKED_UNIFORM_BYTES + BasicShader.PACKED_LOD_FADE_OFFSET, fade);
+        setPacket(packet, renderer, mesh);
+    }
+
+    private void setPacket(int packet, MeshRenderer renderer, Mesh mesh) {
+        renderers[packet] = renderer;
+        meshes[packet] = mesh;
+        keys[packet] = ((long) (renderer.getShader().getProgramId() & 0xFFFF) << 48)
+                | ((long) (mesh.getVaoId() & 0xFFFFFF) << INDEX_BITS)
+                | packet;
+    }
+
+    /**
+     * Replays the packets on the GL thread
+     */
+    void submit() {
+        BasicShader boundShader = null;
+        int boundProgram = 0;
+        Mesh boundMesh = null;
+        long base = MemoryUtil.memAddress(uniforms);
+
+        for (int i = 0; i < packetCount; i++) {
+            int packet = (int) (keys[i] & INDEX_MASK);
+            MeshRenderer renderer = renderers[packet];
+
+            BasicShader shader = renderer.getShader();
+            // Materials of the same variant share a program, switching between them doesn't rebind it
+            if (shader != boundShader) {
+                boundProgram = shader.bind(boundProgram);
+                boundShader = shader;
+            }
+            shader.setPackedUniforms(base + (long) packet * BasicShader.PACKED_UNIFORM_BYTES);
+
+            Mesh mesh = meshes[packet];
+            if (mesh != boundMesh) {
+                mesh.bind();
+                boundMesh = mesh;
+            }
+            mesh.draw();
+        }
+
+        if (boundShader != null) {
+            boundShader.unbind();
+        }
+        if (boundMesh != null) {
+            Mesh.unbind();
+        }
+        // Don't keep renderers of removed objects reachable
+        Arrays.fill(renderers, 0, packetCount, null);
+        Arrays.fill(meshes, 0, packetCount, null);
+    }
+
+    /**
+     * Drops the candidate references once occlusion queries have been issued
+     */
+    void clearCandidates() {
+        Arrays.fill(candidates, 0, candidateCount, null);
+        candidateCount = 0;
+    }
+
+    private void ensureCapacity(int packets) {
+        if (packets > MAX_PACKETS) {
+            throw new IllegalStateException("Render list slice of " + packets + " packets exceeds " + MAX_PACKETS);
+        }
+        if (candidates.length < packets / 2) {
+            candidates = new MeshRenderer[packets / 2];
+            candidateBounds = new float[packets / 2 * 6];
+        }
+        if (keys.length < packets) {
+            int capacity = Math.max(packets, keys.length * 2);
+            keys = new long[capacity];
+            renderers = new MeshRenderer[capacity];
+            meshes = new Mesh[capacity];
+            uniforms = MemoryUtil.memRealloc(uniforms, capacity * BasicShader.PACKED_UNIFORM_BYTES);
+        }
+    }
+
+    int getPacketCount() {
+        return packetCount;
+    }
+
+    int getCulledCount() {
+        return culledCount;
+    }
+
+    int getOccludedCount() {
+        return occludedCount;
+    }
+
+    int getFadingCount() {
+        return fadingCount;
+    }
+
+    int getCandidateCount() {
+        return candidateCount;
+    }
+
+    MeshRenderer getCandidate(int index) {
+        return candidates[index];
+    }
+
+    void getCandidateBounds(int index, float[] dest) {
+        System.arraycopy(candidateBounds, index * 6, dest, 0, 6);
+    }
+
+    void cleanup() {
+        MemoryUtil.memFree(uniforms);
+        uniforms = null;
+    }
+}
@@ -0,0 +1,162 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Renders dynamic objects in two phases.
+ * {@link #build} slices the object list and, on the common fork-join pool, culls each slice
+ * against the frustum, computes its matrices and packs them with the other per-object
+ * uniforms into a {@link RenderList}. {@link #submit()} then replays the lists on the GL
+ * thread, which only binds state and issues draws. The GL thread waits for the build to
+ * finish, so objects are never read while the scene is being changed.
+ * <p>
+ * Objects that an {@link OcclusionTest} finds hidden are skipped.
+ * Small scenes are built on the calling thread, where forking would cost more than it saves.
+ * Profile scopes entered on workers are ignored by the Profiler.
+ */
+public class RenderListBuilder {
+    private static final int MIN_OBJECTS_PER_LIST = 256;
+    private static final ProfileScope BUILD_SCOPE = Profiler.scope("RenderLists.build", false);
+    private static final ProfileScope SUBMIT_SCOPE = Profiler.scope("RenderLists.submit", true);
+
+    private final RenderList[] lists;
+    private final Matrix4f viewProjection = new Matrix4f();  // Private copy read by the workers
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final IntConsumer buildTask = this::buildList;
+
+    // Valid during build only
+    private List<GameObject> objects;
+    private int sliceSize;
+    private float projectionScale;
+    private long nowNanos;
+    private OcclusionTest occlusion;
+
+    private int listCount;
+    private int packetCount;
+    private int culledCount;
+    private int occludedCount;
+    private int fadingCount;
+
+    public RenderListBuilder() {
+        lists = new RenderList[ForkJoinPool.getCommonPoolParallelism() + 1];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new RenderList();
+        }
+    }
+
+    /**
+     * Builds this frame's render lists for the objects that aren't static batched
+     * @param occlusion Test to skip hidden objects by, or null
+     */
+    public void build(List<GameObject> objects, CameraUniformBuffer camera, OcclusionTest occlusion) {
+        BUILD_SCOPE.begin();
+        viewProjection.set(camera.getViewProjection());
+        frustum.set(viewProjection);
+        projectionScale = camera.getProjectionScale();
+        nowNanos = System.nanoTime();
+
+        int count = objects.size();
+        listCount = Math.max(1, Math.min(lists.length, count / MIN_OBJECTS_PER_LIST));
+        sliceSize = Math.max(1, (count + listCount - 1) / listCount);
+        this.objects = objects;
+        this.occlusion = occlusion;
+        if (listCount == 1) {
+            buildList(0);
+        } else {
+            IntStream.range(0, listCount).parallel().forEach(buildTask);
+        }
+        this.objects = null;
+        this.occlusion = null;
+
+        packetCount = 0;
+        culledCount = 0;
+        occludedCount = 0;
+        fadingCount = 0;
+        for (int i = 0; i < listCount; i++) {
+            packetCount += lists[i].getPacketCount();
+            culledCount += lists[i].getCulledCount();
+            occludedCount += lists[i].getOccludedCount();
+            fadingCount += lists[i].getFadingCount();
+        }
+        RenderStats.countOcclusionCulled(occludedCount);
+        BUILD_SCOPE.end();
+    }
+
+    private void buildList(int index) {
+        int from = Math.min(index * sliceSize, objects.size());
+        int to = Math.min(from + sliceSize, objects.size());
+        lists[index].build(objects, from, to, viewProjection, frustum, projectionScale, nowNanos, occlusion);
+    }
+
+    /**
+     * Issues the draws of the last build, must run on the GL thread
+     */
+    public void submit() {
+        SUBMIT_SCOPE.begin();
+        for (int i = 0; i < listCount; i++) {
+            lists[i].submit();
+        }
+        SUBMIT_SCOPE.end();
+    }
+
+    /**
+     * Objects drawn by the last build
+     */
+    public int getPacketCount() {
+        return packetCount;
+    }
+
+    /**
+     * Objects skipped by the last build because they were outside the view frustum
+     */
+    public int getCulledCount() {
+        return culledCount;
+    }
+
+    /**
+     * Objects skipped by the last build because the occlusion test found them hidden
+     */
+    public int getOccludedCount() {
+        return occludedCount;
+    }
+
+    /**
+     * Objects the last build drew mid LOD cross-fade. The fade only advances when a frame is
+     * drawn, so while this is non-zero more frames are needed to finish it.
+     */
+    public int getFadingCount() {
+        return fadingCount;
+    }
+
+    int getListCount() {
+        return listCount;
+    }
+
+    RenderList getList(int index) {
+        return lists[index];
+    }
+
+    /**
+     * Releases the last build's occlusion candidates
+     */
+    void clearCandidates() {
+        for (int i = 0; i < listCount; i++) {
+            lists[i].clearCandidates();
+        }
+    }
+
+    public void cleanup() {
+        for (RenderList list : lists) {
+            list.cleanup();
+        }
+    }
+}
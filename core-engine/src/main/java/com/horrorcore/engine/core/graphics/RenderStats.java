@@ -0,0 +1,83 @@
+package com.horrorcore.engine.core.graphics;
+
+/**
+ * Per-frame counters of draw calls, GL state changes and culling, for benchmarks and the profiler.
+ * Renderers count at the point where they issue the call. State changes are binds of a
+ * program, vertex array, texture or framebuffer object; unbinding to 0 is not counted.
+ * Only touched from the GL thread, so the counters are plain fields.
+ */
+public final class RenderStats {
+    private static int drawCalls;
+    private static int triangles;
+    private static int programBinds;
+    private static int vertexArrayBinds;
+    private static int textureBinds;
+    private static int framebufferBinds;
+    private static int occlusionCulled;
+    private static int occlusionQueries;
+
+    private RenderStats() {
+    }
+
+    /**
+     * Resets the counters, called by the main loop at the start of every rendered frame
+     */
+    public static void beginFrame() {
+        drawCalls = 0;
+        triangles = 0;
+        programBinds = 0;
+        vertexArrayBinds = 0;
+        textureBinds = 0;
+        framebufferBinds = 0;
+        occlusionCulled = 0;
+        occlusionQueries = 0;
+    }
+
+    /**
+     * @param triangleCount Triangles submitted by the draw, 0 for line and point draws
+     */
+    public static void countDraw(int triangleCount) {
+        drawCalls++;
+        triangles += triangleCount;
+    }
+
+    public static void countProgramBind() {
+        programBinds++;
+    }
+
+    public static void countVertexArrayBind() {
+        vertexArrayBinds++;
+    }
+
+    public static void countTextureBind() {
+        textureBinds++;
+    }
+
+    public static void countFramebufferBind() {
+        framebufferBinds++;
+    }
+
+    /**
+     * @param objects Objects inside the frustum skipped because they were found hidden
+     */
+    public static void countOcclusionCulled(int objects) {
+        occlusionCulled += objects;
+    }
+
+    public static void countOcclusionQuery() {
+        occlusionQueries++;
+    }
+
+    public static int getDrawCalls() { return drawCalls; }
+    public static int getTriangles() { return triangles; }
+    public static int getProgramBinds() { return programBinds; }
+    public static int getVertexArrayBinds() { return vertexArrayBinds; }
+    public static int getTextureBinds() { return textureBinds; }
+    public static int getFramebufferBinds() { return framebufferBinds; }
+    public static int getOcclusionCulled() { return occlusionCulled; }
+    public static int getOcclusionQueries() { return occlusionQueries; }
+
+    public static int getStateChanges() {
+        return programBinds + vertexArrayBinds + textureBinds + framebufferBinds;
+    }
+}
@@ -0,0 +1,144 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Framebuffer with a single RGBA8 color texture, used to keep rendered content around
+ * between frames. Storage is only reallocated when the size actually changes.
+ * <p>
+ * One target can stand in for the window's default framebuffer (see {@link #setScreen}),
+ * which is how headless runs render without a visible surface.
+ */
+public class RenderTarget {
+    private static int screenFramebufferId;  // What unbind() returns to, 0 is the window
+
+    private final int framebufferId;
+    private final int textureId;
+    private final int depthBufferId;  // 0 if the target has no depth
+    private int width;
+    private int height;
+
+    public RenderTarget() {
+        this(false);
+    }
+
+    /**
+     * @param depth Also attach a depth/stencil buffer, needed to render 3D content
+     */
+    public RenderTarget(boolean depth) {
+        framebufferId = glGenFramebuffers();
+        textureId = glGenTextures();
+        depthBufferId = depth ? glGenRenderbuffers() : 0;
+        EngineMetrics.resourceCreated(GlResourceType.FRAMEBUFFER, 0);
+        EngineMetrics.resourceCreated(GlResourceType.TEXTURE, 0);
+
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glBindTexture(GL_TEXTURE_2D, 0);
+    }
+
+    /**
+     * Resizes the color texture, returns true if storage was reallocated (contents are lost)
+     */
+    public boolean ensureSize(int width, int height) {
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+        if (width == this.width && height == this.height) {
+            return false;
+        }
+        EngineMetrics.resourceResized(GlResourceType.TEXTURE, storageBytes(), storageBytes(width, height));
+        this.width = width;
+        this.height = height;
+
+        glBindTexture(GL_TEXTURE_2D, textureId);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA8, width, height, 0, GL_RGBA, GL_UNSIGNED_BYTE, 0);
+        glBindTexture(GL_TEXTURE_2D, 0);
+
+        if (depthBufferId != 0) {
+            glBindRenderbuffer(GL_RENDERBUFFER, depthBufferId);
+            glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH24_STENCIL8, width, height);
+            glBindRenderbuffer(GL_RENDERBUFFER, 0);
+        }
+
+        glBindFramebuffer(GL_FRAMEBUFFER, framebufferId);
+        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D, textureId, 0);
+        if (depthBufferId != 0) {
+            glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_RENDERBUFFER, depthBufferId);
+        }
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        glBindFramebuffer(GL_FRAMEBUFFER, screenFramebufferId);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            throw new IllegalStateException("Render target incomplete: 0x" + Integer.toHexString(status));
+        }
+        return true;
+    }
+
+    /**
+     * Binds the framebuffer for drawing and sets the viewport to cover it
+     */
+    public void bind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, framebufferId);
+        RenderStats.countFramebufferBind();
+        glViewport(0, 0, width, height);
+    }
+
+    /**
+     * Returns drawing to the screen, the default framebuffer unless a target replaced it
+     */
+    public static void unbind() {
+        glBindFramebuffer(GL_FRAMEBUFFER, screenFramebufferId);
+        if (screenFramebufferId != 0) {
+            RenderStats.countFramebufferBind();
+        }
+    }
+
+    /**
+     * Makes the given target act as the screen for everything drawn afterwards,
+     * null switches back to the window's default framebuffer
+     */
+    public static void setScreen(RenderTarget target) {
+        screenFramebufferId = target == null ? 0 : target.framebufferId;
+        glBindFramebuffer(GL_FRAMEBUFFER, screenFramebufferId);
+    }
+
+    // Color plus depth/stencil, 4 bytes per pixel each
+    private long storageBytes(int width, int height) {
+        return (long) width * height * (depthBufferId != 0 ? 8 : 4);
+    }
+
+    private long storageBytes() {
+        return storageBytes(width, height);
+    }
+
+    public int getTextureId() {
+        return textureId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void cleanup() {
+        if (screenFramebufferId == framebufferId) {
+            setScreen(null);
+        }
+        glDeleteFramebuffers(framebufferId);
+        glDeleteTextures(textureId);
+        if (depthBufferId != 0) {
+            glDeleteRenderbuffers(depthBufferId);
+        }
+        EngineMetrics.resourceDestroyed(GlResourceType.FRAMEBUFFER, 0);
+        EngineMetrics.resourceDestroyed(GlResourceType.TEXTURE, storageBytes());
+    }
+}
@@ -0,0 +1,286 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import com.horrorcore.engine.core.metrics.ShaderCompileEvent;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.lwjgl.opengl.GL41.*;
+
+/**
+ * Compiles and links every shader program in the engine, reusing program binaries from
+ * earlier runs. A newly linked program's binary is written to the cache directory under a
+ * hash of its sources and of the GL vendor, renderer and version string; later runs load it
+ * with glProgramBinary instead of compiling. A binary the driver rejects, e.g. after an
+ * update that kept the version string, is deleted and the program compiled from source.
+ * <p>
+ * Binaries need GL 4.1 or ARB_get_program_binary and at least one binary format, otherwise
+ * programs are always compiled. The cache lives in ~/.phantasm/shader-cache, or in the
+ * directory named by the phantasm.shader.cache system property; "off" disables it.
+ * <p>
+ * Programs are created on whichever thread calls {@link #link}, which needs a current context.
+ * Callers set up uniforms and block bindings afterwards, as a loaded binary starts with defaults.
+ */
+public final class ShaderCache {
+    private static final int MAGIC = 0x50485342;  // "PHSB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final String EXTENSION = ".bin";
+
+    private static final Path directory = resolveDirectory();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder linkNanos = new LongAdder();
+    private static volatile boolean writeFailed;  // Warn about an unwritable cache once
+
+    private ShaderCache() {
+    }
+
+    private static Path resolveDirectory() {
+        String configured = System.getProperty("phantasm.shader.cache");
+        if ("off".equalsIgnoreCase(configured)) {
+            return null;
+        }
+        return configured != null ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".phantasm", "shader-cache");
+    }
+
+    /**
+     * Returns a linked program built from the given sources, loaded from the cache when possible
+     * @param name Shown in logs, errors and ShaderCompile events
+     * @throws RuntimeException if the sources fail to compile or link
+     */
+    public static int link(String name, String vertexSource, String fragmentSource) {
+        ShaderCompileEvent compileEvent = ShaderCompileEvent.start(name);
+        long start = System.nanoTime();
+
+        String key = directory != null && supportsBinaries() ? key(vertexSource, fragmentSource) : null;
+        int program = glCreateProgram();
+        if (key != null && loadBinary(program, key)) {
+            compileEvent.cached = true;
+            hits.increment();
+        } else {
+            try {
+                compile(program, name, vertexSource, fragmentSource, key != null);
+            } catch (RuntimeException e) {
+                glDeleteProgram(program);
+                compileEvent.finish(false);
+                throw e;
+            }
+            if (key != null) {
+                storeBinary(program, key);
+            }
+            misses.increment();
+        }
+
+        linkNanos.add(System.nanoTime() - start);
+        compileEvent.finish(true);
+        EngineMetrics.resourceCreated(GlResourceType.PROGRAM, 0);
+        return program;
+    }
+
+    private static void compile(int program, String name, String vertexSource, String fragmentSource, boolean retrievable) {
+        int vertexShader = compileShader(GL_VERTEX_SHADER, vertexSource, name);
+        int fragmentShader;
+        try {
+            fragmentShader = compileShader(GL_FRAGMENT_SHADER, fragmentSource, name);
+        } catch (RuntimeException e) {
+            glDeleteShader(vertexShader);
+            throw e;
+        }
+
+        glAttachShader(program, vertexShader);
+        glAttachShader(program, fragmentShader);
+        if (retrievable) {
+            glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+        }
+        glLinkProgram(program);
+
+        // Shader objects are part of the program once linked
+        glDetachShader(program, vertexShader);
+        glDetachShader(program, fragmentShader);
+        glDeleteShader(vertexShader);
+        glDeleteShader(fragmentShader);
+
+        if (glGetProgrami(program, GL_LINK_STATUS) == GL_FALSE) {
+            throw new RuntimeException(name + " program linking failed: " + glGetProgramInfoLog(program));
+        }
+    }
+
+    private static int compileShader(int type, String source, String name) {
+        int shader = glCreateShader(type);
+        glShaderSource(shader, source);
+        glCompileShader(shader);
+        if (glGetShaderi(shader, GL_COMPILE_STATUS) == GL_FALSE) {
+            String infoLog = glGetShaderInfoLog(shader);
+            glDeleteShader(shader);
+            throw new RuntimeException(name + (type == GL_VERTEX_SHADER ? " vertex" : " fragment")
+                    + " shader compilation failed: " + infoLog);
+        }
+        return shader;
+    }
+
+    private static boolean supportsBinaries() {
+        GLCapabilities caps = GL.getCapabilities();
+        return (caps.OpenGL41 || caps.GL_ARB_get_program_binary)
+                && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+    }
+
+    // Hash of the sources and the driver, so a new driver never sees an old binary
+    private static String key(String vertexSource, String fragmentSource) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((glGetString(GL_VENDOR) + '\n' + glGetString(GL_RENDERER) + '\n'
+                    + glGetString(GL_VERSION) + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(vertexSource.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fragmentSource.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    private static boolean loadBinary(int program, String key) {
+        Path file = directory.resolve(key + EXTENSION);
+        if (!Files.isRegularFile(file)) return false;
+
+        ByteBuffer data = null;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected size " + size);
+            }
+            data = MemoryUtil.memAlloc((int) size);
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Read the whole file
+            }
+            data.flip();
+
+            if (data.getInt(0) != MAGIC || data.getInt(4) != FORMAT_VERSION || data.getInt(12) != size - HEADER_BYTES) {
+                throw new IOException("Bad header");
+            }
+            int format = data.getInt(8);
+            data.position(HEADER_BYTES);
+            glProgramBinary(program, format, data);
+            if (glGetProgrami(program, GL_LINK_STATUS) == GL_TRUE) {
+                return true;
+            }
+            Log.debug(LogCategory.RENDER, "Driver rejected cached program {}, recompiling").arg(file).log();
+        } catch (IOException e) {
+            Log.debug(LogCategory.RENDER, "Unreadable cached program {}: {}").arg(file).arg(e.getMessage()).log();
+        } finally {
+            if (data != null) {
+                MemoryUtil.memFree(data);
+            }
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // Overwritten once the program is compiled
+        }
+        return false;
+    }
+
+    private static void storeBinary(int program, String key) {
+        int length = glGetProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if (length <= 0) return;
+
+        ByteBuffer data = MemoryUtil.memAlloc(HEADER_BYTES + length);
+        Path temp = null;
+        try {
+            int[] written = new int[1];
+            int[] format = new int[1];
+            data.position(HEADER_BYTES);
+            glGetProgramBinary(program, written, format, data);
+            data.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, format[0]).putInt(12, written[0]);
+            data.position(0).limit(HEADER_BYTES + written[0]);
+
+            // Write next to the final name and move it in place, so a crash never leaves half a binary
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, key, ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+            Files.move(temp, directory.resolve(key + EXTENSION),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            if (!writeFailed) {
+                writeFailed = true;
+                Log.warn(LogCategory.RENDER, "Can't write shader cache {}: {}").arg(directory).arg(e.getMessage()).log();
+            }
+        } finally {
+            MemoryUtil.memFree(data);
+            // A failed write or move leaves the temporary file behind
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Nothing more to do, it only costs disk space
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes every cached binary, the next link of each program compiles from source
+     */
+    public static void clear() {
+        if (directory == null || !Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            Log.warn(LogCategory.RENDER, "Can't clear shader cache {}: {}").arg(directory).arg(e.getMessage()).log();
+        }
+    }
+
+    public static Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Programs loaded from a cached binary
+     */
+    public static long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Programs compiled from source
+     */
+    public static long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Total time spent in {@link #link}, in milliseconds
+     */
+    public static double getLinkMillis() {
+        return linkNanos.sum() / 1_000_000.0;
+    }
+}
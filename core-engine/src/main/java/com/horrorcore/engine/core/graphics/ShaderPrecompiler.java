@@ -0,0 +1,125 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import org.lwjgl.opengl.GL;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntSupplier;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.glFinish;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Links shader programs on a worker thread, so a program needed by a new material is ready
+ * a few frames later instead of stalling the frame that first draws it. The worker owns a
+ * hidden 1x1 window whose context shares objects with the main one; each program is finished
+ * before it's handed over, which makes it complete and usable on the main context.
+ * <p>
+ * Started and stopped by the main thread, as GLFW creates and destroys windows only there.
+ * When the shared context can't be created, {@link #submit} returns null and callers link
+ * on their own thread as before.
+ */
+public final class ShaderPrecompiler {
+    private record Task(IntSupplier link, CompletableFuture<Integer> result) {
+    }
+
+    private static final Task STOP = new Task(null, null);
+
+    private static final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private static long sharedWindow = NULL;
+    private static Thread worker;
+
+    private ShaderPrecompiler() {
+    }
+
+    /**
+     * Creates the shared context and starts the worker. Uses the window hints the main
+     * window was created with, so call it right after creating that window.
+     * @param mainWindow Window whose context the programs are used on
+     */
+    public static void start(long mainWindow) {
+        if (worker != null) return;
+        if (!Boolean.parseBoolean(System.getProperty("phantasm.shader.precompile", "true"))) return;
+
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        sharedWindow = glfwCreateWindow(1, 1, "Shader precompiler", NULL, mainWindow);
+        if (sharedWindow == NULL) {
+            Log.warn(LogCategory.RENDER, "No shared context for shader precompilation, linking on the main thread").log();
+            return;
+        }
+
+        worker = new Thread(ShaderPrecompiler::run, "phantasm-shader-precompiler");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static void run() {
+        glfwMakeContextCurrent(sharedWindow);
+        GL.createCapabilities();
+        try {
+            while (true) {
+                Task task = queue.take();
+                if (task == STOP) break;
+                try {
+                    int program = task.link.getAsInt();
+                    glFinish();  // Other contexts only see the program complete once this one finished it
+                    task.result.complete(program);
+                } catch (RuntimeException e) {
+                    task.result.completeExceptionally(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            GL.setCapabilities(null);
+            glfwMakeContextCurrent(NULL);
+        }
+    }
+
+    /**
+     * Queues a link on the worker
+     * @param link Creates and sets up the program, run with the shared context current
+     * @return Completes with the program once it can be used on the main context, exceptionally
+     * if linking fails or the precompiler stops first; null if there's no worker
+     */
+    public static CompletableFuture<Integer> submit(IntSupplier link) {
+        if (worker == null) return null;
+
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        queue.add(new Task(link, result));
+        return result;
+    }
+
+    public static boolean isRunning() {
+        return worker != null;
+    }
+
+    /**
+     * Cancels queued links, waits for the one in progress and destroys the shared context
+     */
+    public static void stop() {
+        if (worker == null) return;
+
+        Task task;
+        while ((task = queue.poll()) != null) {
+            if (task != STOP) {
+                task.result.completeExceptionally(new CancellationException("Shader precompiler stopped"));
+            }
+        }
+        queue.add(STOP);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+
+        glfwDestroyWindow(sharedWindow);
+        sharedWindow = NULL;
+    }
+}
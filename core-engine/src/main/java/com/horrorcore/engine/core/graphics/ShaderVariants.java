@@ -0,0 +1,287 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+
+import static org.lwjgl.opengl.GL20.glDeleteProgram;
+
+/**
+ * Programs built from one GLSL template, one per combination of keywords. Each keyword a
+ * variant enables becomes a {@code #define} after the template's #version line, so features
+ * are written once with #ifdef instead of as separate programs. A variant is named by a
+ * bitmask with bit i set for keyword i, in the order the keywords were declared.
+ * <p>
+ * {@link #poll} hands out variants without stalling: a variant that isn't linked yet is queued
+ * on the {@link ShaderPrecompiler} and the caller draws with something else meanwhile.
+ * {@link #precompile} queues variants a scene is likely to need before anything asks for them.
+ * A variant that fails to link is logged once and never retried, poll keeps returning null
+ * for it so callers stay on their fallback.
+ * <p>
+ * Only used from the GL thread; programs are shared by everything that asks for the same mask.
+ */
+public class ShaderVariants {
+    public static final int MAX_KEYWORDS = Long.SIZE;
+
+    /**
+     * One linked, or linking, permutation of the template
+     */
+    public static final class Variant {
+        private final long mask;
+        private CompletableFuture<Integer> pending;
+        private int programId;
+        private String failure;  // Link error, set once and never retried
+
+        private Variant(long mask) {
+            this.mask = mask;
+        }
+
+        public long getMask() {
+            return mask;
+        }
+
+        /**
+         * The linked program, 0 while it's still being linked
+         */
+        public int getProgramId() {
+            return programId;
+        }
+
+        public boolean isReady() {
+            return programId != 0;
+        }
+
+        /**
+         * True once linking has failed, the variant will never become ready
+         */
+        public boolean isFailed() {
+            return failure != null;
+        }
+    }
+
+    private final String name;
+    private final String vertexTemplate;
+    private final String fragmentTemplate;
+    private final String[] keywords;
+    private final long declaredMask;
+    private final IntConsumer setup;
+    private final Map<Long, Variant> variants = new HashMap<>();
+
+    /**
+     * @param vertexTemplate   Vertex source starting with its #version line
+     * @param fragmentTemplate Fragment source starting with its #version line
+     * @param setup            Run on every newly linked program, on the thread that linked it
+     * @param keywords         Names of the macros variants can define, bit 0 first
+     */
+    public ShaderVariants(String name, String vertexTemplate, String fragmentTemplate, IntConsumer setup, String... keywords) {
+        if (keywords.length > MAX_KEYWORDS) {
+            throw new IllegalArgumentException(name + " declares " + keywords.length
+                    + " keywords, at most " + MAX_KEYWORDS + " fit in a variant mask");
+        }
+        if (!vertexTemplate.startsWith("#version") || !fragmentTemplate.startsWith("#version")) {
+            throw new IllegalArgumentException(name + " templates must start with a #version line");
+        }
+        this.name = name;
+        this.vertexTemplate = vertexTemplate;
+        this.fragmentTemplate = fragmentTemplate;
+        this.setup = setup;
+        this.keywords = keywords.clone();
+        this.declaredMask = keywords.length == MAX_KEYWORDS ? -1L : (1L << keywords.length) - 1;
+    }
+
+    /**
+     * Mask enabling the named keywords
+     * @throws IllegalArgumentException for a keyword the template doesn't declare
+     */
+    public long mask(String... names) {
+        long mask = 0;
+        outer:
+        for (String keyword : names) {
+            for (int i = 0; i < keywords.length; i++) {
+                if (keywords[i].equals(keyword)) {
+                    mask |= 1L << i;
+                    continue outer;
+                }
+            }
+            throw new IllegalArgumentException(name + " has no keyword " + keyword);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the linked variant, linking it now if needed. Stalls the caller, meant for
+     * variants that must exist before the first frame.
+     * @throws IllegalStateException if the variant failed to link, now or earlier
+     */
+    public Variant get(long mask) {
+        Variant variant = variant(mask);
+        if (variant.isReady()) return variant;
+        if (variant.failure == null) {
+            if (variant.pending == null) {
+                tryLink(variant);
+            } else {
+                // Already on the worker, waiting is never slower than starting over
+                await(variant);
+            }
+        }
+        if (variant.failure != null) {
+            throw new IllegalStateException(variantName(mask) + " failed to link: " + variant.failure);
+        }
+        return variant;
+    }
+
+    /**
+     * Returns the variant if it's linked, otherwise queues it and returns null. Also null
+     * for good once the variant failed to link.
+     */
+    public Variant poll(long mask) {
+        Variant variant = variant(mask);
+        if (variant.isReady()) return variant;
+        if (variant.failure != null) return null;
+
+        if (variant.pending == null) {
+            queue(variant);
+            // No precompiler, there's nothing to do but link here
+            if (variant.pending == null) {
+                tryLink(variant);
+                return variant.isReady() ? variant : null;
+            }
+        }
+        if (variant.pending.isDone()) {
+            await(variant);
+            return variant.isReady() ? variant : null;
+        }
+        return null;
+    }
+
+    /**
+     * Queues variants to be linked in the background, ahead of their first use
+     */
+    public void precompile(long... masks) {
+        for (long mask : masks) {
+            Variant variant = variant(mask);
+            if (!variant.isReady() && variant.pending == null && variant.failure == null) {
+                queue(variant);
+            }
+        }
+    }
+
+    private Variant variant(long mask) {
+        if ((mask & ~declaredMask) != 0) {
+            throw new IllegalArgumentException(name + " variant mask 0x" + Long.toHexString(mask)
+                    + " uses undeclared keywords");
+        }
+        return variants.computeIfAbsent(mask, Variant::new);
+    }
+
+    private void queue(Variant variant) {
+        long mask = variant.mask;
+        variant.pending = ShaderPrecompiler.submit(() -> link(mask));
+    }
+
+    private void await(Variant variant) {
+        try {
+            variant.programId = variant.pending.join();
+        } catch (CompletionException | CancellationException e) {
+            fail(variant, e.getCause() != null ? e.getCause() : e);
+        } finally {
+            variant.pending = null;
+        }
+    }
+
+    private void tryLink(Variant variant) {
+        try {
+            variant.programId = link(variant.mask);
+        } catch (RuntimeException e) {
+            fail(variant, e);
+        }
+    }
+
+    private void fail(Variant variant, Throwable error) {
+        variant.failure = String.valueOf(error.getMessage());
+        Log.error(LogCategory.RENDER, "{} failed to link, not retrying: {}")
+                .arg(variantName(variant.mask)).arg(variant.failure).log();
+    }
+
+    // Safe to run on the precompiler, touches nothing but GL and the immutable templates
+    private int link(long mask) {
+        int program = ShaderCache.link(variantName(mask), source(vertexTemplate, mask), source(fragmentTemplate, mask));
+        if (setup != null) {
+            setup.accept(program);
+        }
+        return program;
+    }
+
+    /**
+     * Template with the defines of the mask's keywords inserted after the #version line
+     */
+    public String source(String template, long mask) {
+        int lineEnd = template.indexOf('\n') + 1;
+        StringBuilder source = new StringBuilder(template.length() + 32 * Long.bitCount(mask));
+        source.append(template, 0, lineEnd);
+        for (int i = 0; i < keywords.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                source.append("#define ").append(keywords[i]).append('\n');
+            }
+        }
+        return source.append(template, lineEnd, template.length()).toString();
+    }
+
+    /**
+     * Template name and enabled keywords, for logs and ShaderCompile events
+     */
+    public String variantName(long mask) {
+        if (mask == 0) return name;
+        StringBuilder variantName = new StringBuilder(name).append(" [");
+        for (int i = 0; i < keywords.length; i++) {
+            if ((mask & (1L << i)) != 0) {
+                variantName.append(variantName.charAt(variantName.length() - 1) == '[' ? "" : " ").append(keywords[i]);
+            }
+        }
+        return variantName.append(']').toString();
+    }
+
+    /**
+     * Number of variants linked so far
+     */
+    public int getLinkedCount() {
+        int linked = 0;
+        for (Variant variant : variants.values()) {
+            if (variant.isReady() || (variant.pending != null && variant.pending.isDone()
+                    && !variant.pending.isCompletedExceptionally())) {
+                linked++;
+            }
+        }
+        return linked;
+    }
+
+    /**
+     * Deletes every linked variant. Stop the precompiler first, a link still queued would
+     * otherwise finish after this.
+     */
+    public void cleanup() {
+        for (Variant variant : variants.values()) {
+            int programId = variant.programId;
+            if (programId == 0 && variant.pending != null) {
+                try {
+                    programId = variant.pending.join();
+                } catch (CompletionException | CancellationException e) {
+                    continue;  // Never linked
+                }
+            }
+            if (programId != 0) {
+                glDeleteProgram(programId);
+                EngineMetrics.resourceDestroyed(GlResourceType.PROGRAM, 0);
+            }
+        }
+        variants.clear();
+    }
+}
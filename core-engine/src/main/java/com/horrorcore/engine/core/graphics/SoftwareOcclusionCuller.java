@@ -0,0 +1,313 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Occlusion culling against a small depth buffer rasterized on the CPU.
+ * Each frame the meshes of renderers flagged as occluders are transformed and rasterized
+ * into a WIDTH x HEIGHT buffer of NDC depth, one screen tile per task on the common
+ * fork-join pool. Objects are then tested by projecting their world box: an object is
+ * hidden when every pixel its box covers, plus a one pixel margin, holds an occluder depth
+ * nearer than the box's nearest corner. A max-depth per BLOCK_SIZE block skips most pixels.
+ * <p>
+ * Needs no GPU readback, so results are from the current frame and identical under
+ * software GL drivers. Occluders should be simple closed shapes such as walls and large
+ * props; a renderer with a LOD group rasterizes its coarsest level.
+ */
+public class SoftwareOcclusionCuller implements OcclusionTest {
+    public static final int WIDTH = 256;
+    public static final int HEIGHT = 128;
+    private static final int TILE_WIDTH = 64;
+    private static final int TILE_HEIGHT = 32;
+    private static final int TILES_X = WIDTH / TILE_WIDTH;
+    private static final int TILE_COUNT = TILES_X * (HEIGHT / TILE_HEIGHT);
+    private static final int BLOCK_SIZE = 8;
+    private static final int BLOCKS_X = WIDTH / BLOCK_SIZE;
+    private static final float FAR_DEPTH = 1.0f;
+    private static final ProfileScope RASTERIZE_SCOPE = Profiler.scope("SoftwareOcclusion.rasterize", false);
+
+    private final float[] depth = new float[WIDTH * HEIGHT];
+    private final float[] blockMax = new float[BLOCKS_X * (HEIGHT / BLOCK_SIZE)];
+    private final Matrix4f viewProjection = new Matrix4f();  // Read by render list workers while testing
+    private final Matrix4f mvp = new Matrix4f();
+    private final FrustumIntersection frustum = new FrustumIntersection();
+    private final Vector3f boundsMin = new Vector3f();
+    private final Vector3f boundsMax = new Vector3f();
+
+    // Clip-space vertices of the occluder being transformed, x, y, z, w
+    private float[] clip = new float[256 * 4];
+
+    // Screen-space triangles, x, y, depth per corner, and the triangles touching each tile
+    private float[] triangles = new float[256 * 9];
+    private int triangleCount;
+    private final int[][] bins = new int[TILE_COUNT][];
+    private final int[] binCounts = new int[TILE_COUNT];
+
+    private final IntConsumer rasterizeTask = this::rasterizeTile;
+    private boolean hasOccluders;
+    private int occluderCount;
+
+    public SoftwareOcclusionCuller() {
+        for (int i = 0; i < TILE_COUNT; i++) {
+            bins[i] = new int[64];
+        }
+    }
+
+    /**
+     * Rasterizes this frame's occluders, before render lists are built
+     */
+    public void rasterize(List<GameObject> objects, CameraUniformBuffer camera) {
+        RASTERIZE_SCOPE.begin();
+        begin(camera.getViewProjection());
+        for (GameObject gameObject : objects) {
+            if (!gameObject.isActive()) continue;
+            MeshRenderer renderer = gameObject.getComponent(MeshRenderer.class);
+            if (renderer == null || !renderer.isEnabled() || !renderer.isOccluder()) continue;
+            MeshData data = renderer.getOccluderData();
+            if (data == null) continue;
+            addOccluder(data, gameObject.getTransform().getModelMatrix());
+        }
+        finish();
+        RASTERIZE_SCOPE.end();
+    }
+
+    // Starts a frame seen through the given view-projection, dropping the last frame's occluders
+    void begin(Matrix4f cameraViewProjection) {
+        viewProjection.set(cameraViewProjection);
+        frustum.set(viewProjection);
+        triangleCount = 0;
+        occluderCount = 0;
+        Arrays.fill(binCounts, 0);
+    }
+
+    // Bins an occluder's triangles unless it's outside the frustum
+    void addOccluder(MeshData data, Matrix4f model) {
+        model.transformAab(data.getBoundsMin(), data.getBoundsMax(), boundsMin, boundsMax);
+        if (!frustum.testAab(boundsMin, boundsMax)) return;
+
+        viewProjection.mul(model, mvp);
+        binTriangles(data);
+        occluderCount++;
+    }
+
+    // Rasterizes everything added since begin, ready for isOccluded
+    void finish() {
+        hasOccluders = triangleCount > 0;
+        if (hasOccluders) {
+            IntStream.range(0, TILE_COUNT).parallel().forEach(rasterizeTask);
+        }
+    }
+
+    // Transforms an occluder with mvp and bins its triangles into tiles
+    private void binTriangles(MeshData data) {
+        float[] positions = data.getPositions();
+        int vertexCount = data.getVertexCount();
+        if (clip.length < vertexCount * 4) {
+            clip = new float[vertexCount * 4];
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            float x = positions[v * 3], y = positions[v * 3 + 1], z = positions[v * 3 + 2];
+            clip[v * 4] = mvp.m00() * x + mvp.m10() * y + mvp.m20() * z + mvp.m30();
+            clip[v * 4 + 1] = mvp.m01() * x + mvp.m11() * y + mvp.m21() * z + mvp.m31();
+            clip[v * 4 + 2] = mvp.m02() * x + mvp.m12() * y + mvp.m22() * z + mvp.m32();
+            clip[v * 4 + 3] = mvp.m03() * x + mvp.m13() * y + mvp.m23() * z + mvp.m33();
+        }
+
+        int[] indices = data.getIndices();
+        for (int i = 0; i + 2 < indices.length; i += 3) {
+            int a = indices[i] * 4, b = indices[i + 1] * 4, c = indices[i + 2] * 4;
+            // Geometry in front of the near plane isn't drawn and hides nothing; skipping it is conservative
+            if (clip[a + 2] < -clip[a + 3] || clip[b + 2] < -clip[b + 3] || clip[c + 2] < -clip[c + 3]) continue;
+
+            if (triangles.length < (triangleCount + 1) * 9) {
+                triangles = Arrays.copyOf(triangles, triangles.length * 2);
+            }
+            int o = triangleCount * 9;
+            toScreen(a, o);
+            toScreen(b, o + 3);
+            toScreen(c, o + 6);
+
+            float minX = Math.min(triangles[o], Math.min(triangles[o + 3], triangles[o + 6]));
+            float maxX = Math.max(triangles[o], Math.max(triangles[o + 3], triangles[o + 6]));
+            float minY = Math.min(triangles[o + 1], Math.min(triangles[o + 4], triangles[o + 7]));
+            float maxY = Math.max(triangles[o + 1], Math.max(triangles[o + 4], triangles[o + 7]));
+            if (maxX < 0 || maxY < 0 || minX >= WIDTH || minY >= HEIGHT) continue;
+
+            int tileX0 = Math.max(0, (int) minX / TILE_WIDTH);
+            int tileX1 = Math.min(TILES_X - 1, (int) maxX / TILE_WIDTH);
+            int tileY0 = Math.max(0, (int) minY / TILE_HEIGHT);
+            int tileY1 = Math.min(HEIGHT / TILE_HEIGHT - 1, (int) maxY / TILE_HEIGHT);
+            for (int ty = tileY0; ty <= tileY1; ty++) {
+                for (int tx = tileX0; tx <= tileX1; tx++) {
+                    int tile = ty * TILES_X + tx;
+                    if (binCounts[tile] == bins[tile].length) {
+                        bins[tile] = Arrays.copyOf(bins[tile], bins[tile].length * 2);
+                    }
+                    bins[tile][binCounts[tile]++] = triangleCount;
+                }
+            }
+            triangleCount++;
+        }
+    }
+
+    private void toScreen(int vertex, int offset) {
+        float w = clip[vertex + 3];
+        triangles[offset] = (clip[vertex] / w * 0.5f + 0.5f) * WIDTH;
+        triangles[offset + 1] = (clip[vertex + 1] / w * 0.5f + 0.5f) * HEIGHT;
+        triangles[offset + 2] = clip[vertex + 2] / w;
+    }
+
+    // Clears a tile, rasterizes the triangles binned to it and updates its blocks' max depth
+    private void rasterizeTile(int tile) {
+        int tileX = (tile % TILES_X) * TILE_WIDTH;
+        int tileY = (tile / TILES_X) * TILE_HEIGHT;
+        for (int y = tileY; y < tileY + TILE_HEIGHT; y++) {
+            Arrays.fill(depth, y * WIDTH + tileX, y * WIDTH + tileX + TILE_WIDTH, FAR_DEPTH);
+        }
+
+        int[] bin = bins[tile];
+        for (int i = 0; i < binCounts[tile]; i++) {
+            rasterizeTriangle(bin[i] * 9, tileX, tileY);
+        }
+
+        for (int by = tileY; by < tileY + TILE_HEIGHT; by += BLOCK_SIZE) {
+            for (int bx = tileX; bx < tileX + TILE_WIDTH; bx += BLOCK_SIZE) {
+                float max = 0.0f;
+                for (int y = by; y < by + BLOCK_SIZE; y++) {
+                    int row = y * WIDTH;
+                    for (int x = bx; x < bx + BLOCK_SIZE; x++) {
+                        max = Math.max(max, depth[row + x]);
+                    }
+                }
+                blockMax[(by / BLOCK_SIZE) * BLOCKS_X + bx / BLOCK_SIZE] = max;
+            }
+        }
+    }
+
+    // Fills the pixels whose centers the triangle covers, clipped to the tile, keeping the nearest depth
+    private void rasterizeTriangle(int o, int tileX, int tileY) {
+        float ax = triangles[o], ay = triangles[o + 1], az = triangles[o + 2];
+        float bx = triangles[o + 3], by = triangles[o + 4], bz = triangles[o + 5];
+        float cx = triangles[o + 6], cy = triangles[o + 7], cz = triangles[o + 8];
+
+        float area = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+        if (area == 0) return;
+        if (area < 0) {
+            // Occluders hide from both sides, make the winding counter-clockwise
+            float tx = bx, ty = by, tz = bz;
+            bx = cx; by = cy; bz = cz;
+            cx = tx; cy = ty; cz = tz;
+            area = -area;
+        }
+
+        // Depth plane, biased to the farthest value within each pixel so occluders never come out nearer
+        float dzdx = ((bz - az) * (cy - ay) - (cz - az) * (by - ay)) / area;
+        float dzdy = ((cz - az) * (bx - ax) - (bz - az) * (cx - ax)) / area;
+        float bias = 0.5f * (Math.abs(dzdx) + Math.abs(dzdy));
+
+        int minX = Math.max(tileX, (int) Math.floor(Math.min(ax, Math.min(bx, cx))));
+        int maxX = Math.min(tileX + TILE_WIDTH - 1, (int) Math.ceil(Math.max(ax, Math.max(bx, cx))));
+        int minY = Math.max(tileY, (int) Math.floor(Math.min(ay, Math.min(by, cy))));
+        int maxY = Math.min(tileY + TILE_HEIGHT - 1, (int) Math.ceil(Math.max(ay, Math.max(by, cy))));
+        if (minX > maxX || minY > maxY) return;
+
+        // Edge functions step by a constant per pixel, so the inner loop is branch-free adds and compares
+        float stepAB = by - ay, stepBC = cy - by, stepCA = ay - cy;
+        float px = minX + 0.5f;
+        for (int y = minY; y <= maxY; y++) {
+            float py = y + 0.5f;
+            float eAB = (bx - ax) * (py - ay) - stepAB * (px - ax);
+            float eBC = (cx - bx) * (py - by) - stepBC * (px - bx);
+            float eCA = (ax - cx) * (py - cy) - stepCA * (px - cx);
+            float z = az + dzdx * (px - ax) + dzdy * (py - ay) + bias;
+            int row = y * WIDTH;
+            for (int x = minX; x <= maxX; x++) {
+                float current = depth[row + x];
+                boolean covered = eAB >= 0 & eBC >= 0 & eCA >= 0 & z < current;
+                depth[row + x] = covered ? z : current;
+                eAB -= stepAB;
+                eBC -= stepBC;
+                eCA -= stepCA;
+                z += dzdx;
+            }
+        }
+    }
+
+    /**
+     * Tests a world box against the last rasterized occluders. Safe to call from render list workers.
+     */
+    @Override
+    public boolean isOccluded(MeshRenderer renderer, Vector3f worldMin, Vector3f worldMax) {
+        if (!hasOccluders) return false;
+
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        float nearest = Float.POSITIVE_INFINITY;
+        Matrix4f m = viewProjection;
+        for (int corner = 0; corner < 8; corner++) {
+            float x = (corner & 1) != 0 ? worldMax.x : worldMin.x;
+            float y = (corner & 2) != 0 ? worldMax.y : worldMin.y;
+            float z = (corner & 4) != 0 ? worldMax.z : worldMin.z;
+            float cw = m.m03() * x + m.m13() * y + m.m23() * z + m.m33();
+            float cz = m.m02() * x + m.m12() * y + m.m22() * z + m.m32();
+            // Box reaches in front of the near plane
+            if (cz < -cw) return false;
+
+            float sx = ((m.m00() * x + m.m10() * y + m.m20() * z + m.m30()) / cw * 0.5f + 0.5f) * WIDTH;
+            float sy = ((m.m01() * x + m.m11() * y + m.m21() * z + m.m31()) / cw * 0.5f + 0.5f) * HEIGHT;
+            minX = Math.min(minX, sx);
+            maxX = Math.max(maxX, sx);
+            minY = Math.min(minY, sy);
+            maxY = Math.max(maxY, sy);
+            nearest = Math.min(nearest, cz / cw);
+        }
+
+        // One pixel margin, occluder pixels are filled by center coverage
+        int x0 = Math.max(0, (int) Math.floor(minX) - 1);
+        int x1 = Math.min(WIDTH - 1, (int) Math.ceil(maxX) + 1);
+        int y0 = Math.max(0, (int) Math.floor(minY) - 1);
+        int y1 = Math.min(HEIGHT - 1, (int) Math.ceil(maxY) + 1);
+        if (x0 > x1 || y0 > y1) return false;
+
+        for (int blockY = y0 / BLOCK_SIZE; blockY <= y1 / BLOCK_SIZE; blockY++) {
+            for (int blockX = x0 / BLOCK_SIZE; blockX <= x1 / BLOCK_SIZE; blockX++) {
+                if (blockMax[blockY * BLOCKS_X + blockX] < nearest) continue;  // Whole block is nearer
+
+                int fromY = Math.max(y0, blockY * BLOCK_SIZE), toY = Math.min(y1, blockY * BLOCK_SIZE + BLOCK_SIZE - 1);
+                int fromX = Math.max(x0, blockX * BLOCK_SIZE), toX = Math.min(x1, blockX * BLOCK_SIZE + BLOCK_SIZE - 1);
+                for (int y = fromY; y <= toY; y++) {
+                    int row = y * WIDTH;
+                    for (int x = fromX; x <= toX; x++) {
+                        if (depth[row + x] >= nearest) return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Occluders rasterized this frame
+     */
+    public int getOccluderCount() {
+        return occluderCount;
+    }
+
+    /**
+     * Occluder triangles rasterized this frame
+     */
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+}
@@ -0,0 +1,443 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.GameObject;
+import com.horrorcore.engine.core.components.MeshRenderer;
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Merges the geometry of static objects into large shared vertex/index buffers.
+ * Objects are pre-transformed into world space and grouped by material (the MeshRenderer
+ * color plus its shader's keywords and fog), so each group draws with a single program and
+ * uniform set. Every object keeps its index sub-range and world bounds so frustum culling can
+ * still skip invisible parts of a batch. Groups are rebuilt individually when one of their
+ * objects moves, changes material, or stops being static.
+ */
+public class StaticBatcher {
+    private static final int FLOATS_PER_VERTEX = 6;  // Position + normal, POSITION_NORMAL layout
+    private static final int MAX_SHORT_INDEXED_VERTICES = 65536;
+
+    // What a batch looks like: color, shader keywords and fog, the latter only with the FOG keyword
+    private static final class Material {
+        final Vector3f color = new Vector3f();
+        final long keywords;
+        final Vector3f fogColor = new Vector3f();
+        final float fogDensity;
+
+        Material(Vector3f color, BasicShader shader) {
+            this.color.set(color);
+            this.keywords = keywordsOf(shader);
+            if ((keywords & BasicShader.FOG) != 0) {
+                shader.getFogColor(fogColor);
+                fogDensity = shader.getFogDensity();
+            } else {
+                fogDensity = 0.0f;
+            }
+        }
+
+        // Batched geometry is in world space, how the matrices are computed doesn't change the look
+        static long keywordsOf(BasicShader shader) {
+            return shader.getKeywords() & ~BasicShader.PER_VERTEX_MATRICES;
+        }
+
+        // Checked for every static object each frame, so it must not allocate
+        boolean matches(Vector3f color, BasicShader shader, Vector3f scratch) {
+            if (!this.color.equals(color) || keywordsOf(shader) != keywords) return false;
+            return (keywords & BasicShader.FOG) == 0
+                    || (fogColor.equals(shader.getFogColor(scratch)) && fogDensity == shader.getFogDensity());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Material other)) return false;
+            return keywords == other.keywords && color.equals(other.color)
+                    && fogColor.equals(other.fogColor) && Float.compare(fogDensity, other.fogDensity) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(color, keywords, fogColor, fogDensity);
+        }
+    }
+
+    // Snapshot of one static object taken on the GL thread
+    private static class Entry {
+        final GameObject gameObject;
+        final MeshRenderer renderer;
+        final Material material;
+        final int transformVersion;
+        int lastSeenUpdate;
+
+        Entry(GameObject gameObject, MeshRenderer renderer, Material material, int transformVersion) {
+            this.gameObject = gameObject;
+            this.renderer = renderer;
+            this.material = material;
+            this.transformVersion = transformVersion;
+        }
+    }
+
+    // Index range of one object inside a batch, with its world-space bounds
+    private static class SubRange {
+        final int firstIndex;
+        final int indexCount;
+        final Vector3f boundsMin = new Vector3f(Float.POSITIVE_INFINITY);
+        final Vector3f boundsMax = new Vector3f(Float.NEGATIVE_INFINITY);
+
+        SubRange(int firstIndex, int indexCount) {
+            this.firstIndex = firstIndex;
+            this.indexCount = indexCount;
+        }
+    }
+
+    private static class Batch {
+        final Material material;
+        final List<SubRange> ranges = new ArrayList<>();
+        int vaoId;
+        int vboId;
+        int eboId;
+        int indexType;
+        int indexSize;
+        long vertexBytes;
+        long indexBytes;
+
+        Batch(Material material) {
+            this.material = material;
+        }
+
+        void cleanup() {
+            glDeleteBuffers(vboId);
+            glDeleteBuffers(eboId);
+            glDeleteVertexArrays(vaoId);
+            EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, vertexBytes);
+            EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, indexBytes);
+        }
+    }
+
+    private final Map<Material, Batch> batches;
+    private final Map<GameObject, Entry> entries;
+    private final Set<Material> dirtyMaterials;
+    private final List<GameObject> scratchObjects;
+    private final Vector3f scratchColor;
+    private final Vector3f scratchFogColor;
+    private int updateCount;
+
+    private final Map<Long, BasicShader> shaders;  // One per keyword set, sharing its program with every renderer's
+    private final FrustumIntersection frustum;
+    private final Matrix3f identityNormal;
+
+    // Statistics from the last render
+    private int drawCalls;
+    private int culledRanges;
+
+    public StaticBatcher() {
+        batches = new HashMap<>();
+        entries = new HashMap<>();
+        dirtyMaterials = new HashSet<>();
+        scratchObjects = new ArrayList<>();
+        scratchColor = new Vector3f();
+        scratchFogColor = new Vector3f();
+        shaders = new HashMap<>();
+        frustum = new FrustumIntersection();
+        identityNormal = new Matrix3f();
+    }
+
+    /**
+     * Detects static objects that were added, removed or edited since the last call and
+     * rebuilds only the batches they belong to. Cheap when nothing changed: runs every
+     * frame, so it allocates only for objects that changed.
+     */
+    public void update(List<GameObject> roots) {
+        scratchObjects.clear();
+        for (int i = 0; i < roots.size(); i++) {
+            collectStatic(roots.get(i), scratchObjects);
+        }
+
+        // Objects that are new or whose transform/material changed
+        int update = ++updateCount;
+        for (int i = 0; i < scratchObjects.size(); i++) {
+            GameObject gameObject = scratchObjects.get(i);
+            MeshRenderer renderer = gameObject.getComponent(MeshRenderer.class);
+            Vector3f color = renderer.getColor(scratchColor);
+            BasicShader shader = renderer.getShader();
+            int version = gameObject.getTransform().getVersion();
+
+            Entry entry = entries.get(gameObject);
+            if (entry == null || entry.transformVersion != version || !entry.material.matches(color, shader, scratchFogColor)) {
+                if (entry != null) {
+                    dirtyMaterials.add(entry.material);
+                }
+                Material material = new Material(color, shader);
+                dirtyMaterials.add(material);
+                entry = new Entry(gameObject, renderer, material, version);
+                entries.put(gameObject, entry);
+            }
+            entry.lastSeenUpdate = update;
+        }
+
+        // Objects that were removed or are no longer static
+        Iterator<Map.Entry<GameObject, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (entry.lastSeenUpdate != update) {
+                entry.renderer.setStaticBatched(false);
+                dirtyMaterials.add(entry.material);
+                it.remove();
+            }
+        }
+
+        if (!dirtyMaterials.isEmpty()) {
+            rebuild(dirtyMaterials);
+            dirtyMaterials.clear();
+        }
+    }
+
+    /**
+     * Forces every batch to be rebuilt on the next update, e.g. after a scene load
+     */
+    public void invalidateAll() {
+        for (Entry entry : entries.values()) {
+            entry.renderer.setStaticBatched(false);
+        }
+        entries.clear();
+        for (Batch batch : batches.values()) {
+            batch.cleanup();
+        }
+        batches.clear();
+    }
+
+    private void collectStatic(GameObject gameObject, List<GameObject> out) {
+        if (!gameObject.isActive()) return;
+
+        if (gameObject.isStatic()) {
+            MeshRenderer renderer = gameObject.getComponent(MeshRenderer.class);
+            // LOD groups switch meshes as the camera moves, so they stay dynamic
+            if (renderer != null && renderer.isEnabled() && renderer.getMesh() != null && renderer.getShader() != null
+                    && renderer.getMesh().getSourceData() != null && renderer.getLodGroup() == null) {
+                out.add(gameObject);
+            }
+        }
+        for (int i = 0; i < gameObject.getChildCount(); i++) {
+            collectStatic(gameObject.getChild(i), out);
+        }
+    }
+
+    private void rebuild(Set<Material> materials) {
+        for (Material material : materials) {
+            Batch old = batches.remove(material);
+            if (old != null) {
+                old.cleanup();
+            }
+
+            List<Entry> members = new ArrayList<>();
+            for (Entry entry : entries.values()) {
+                if (entry.material.equals(material)) {
+                    members.add(entry);
+                }
+            }
+            if (!members.isEmpty()) {
+                batches.put(material, build(material, members));
+            }
+        }
+    }
+
+    private Batch build(Material material, List<Entry> members) {
+        int count = members.size();
+
+        // Snapshot transforms on this thread, Transform caches its matrices lazily
+        Matrix4f[] models = new Matrix4f[count];
+        Matrix3f[] normalMatrices = new Matrix3f[count];
+        MeshData[] sources = new MeshData[count];
+        int[] vertexBase = new int[count + 1];
+        int[] indexBase = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            Entry entry = members.get(i);
+            models[i] = new Matrix4f(entry.gameObject.getTransform().getModelMatrix());
+            normalMatrices[i] = new Matrix3f(entry.gameObject.getTransform().getNormalMatrix());
+            sources[i] = entry.renderer.getMesh().getSourceData();
+            vertexBase[i + 1] = vertexBase[i] + sources[i].getVertexCount();
+            indexBase[i + 1] = indexBase[i] + sources[i].getIndices().length;
+        }
+
+        int totalVertices = vertexBase[count];
+        int totalIndices = indexBase[count];
+        boolean shortIndices = totalVertices <= MAX_SHORT_INDEXED_VERTICES;
+
+        Batch batch = new Batch(material);
+        batch.indexType = shortIndices ? GL_UNSIGNED_SHORT : GL_UNSIGNED_INT;
+        batch.indexSize = shortIndices ? Short.BYTES : Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            batch.ranges.add(new SubRange(indexBase[i], indexBase[i + 1] - indexBase[i]));
+        }
+
+        ByteBuffer vertexData = MemoryUtil.memAlloc(totalVertices * FLOATS_PER_VERTEX * Float.BYTES);
+        ByteBuffer indexData = MemoryUtil.memAlloc(totalIndices * batch.indexSize);
+        try {
+            FloatBuffer vertices = vertexData.asFloatBuffer();
+            ShortBuffer shorts = indexData.asShortBuffer();
+            IntBuffer ints = indexData.asIntBuffer();
+
+            // Every object writes its own disjoint slice, so this runs in parallel
+            IntStream.range(0, count).parallel().forEach(i -> {
+                MeshData source = sources[i];
+                SubRange range = batch.ranges.get(i);
+                Vector3f point = new Vector3f();
+                float[] positions = source.getPositions();
+                float[] normals = source.getNormals();
+
+                int out = vertexBase[i] * FLOATS_PER_VERTEX;
+                for (int v = 0; v < positions.length; v += 3) {
+                    models[i].transformPosition(positions[v], positions[v + 1], positions[v + 2], point);
+                    range.boundsMin.min(point);
+                    range.boundsMax.max(point);
+                    vertices.put(out++, point.x);
+                    vertices.put(out++, point.y);
+                    vertices.put(out++, point.z);
+
+                    normalMatrices[i].transform(normals[v], normals[v + 1], normals[v + 2], point).normalize();
+                    vertices.put(out++, point.x);
+                    vertices.put(out++, point.y);
+                    vertices.put(out++, point.z);
+                }
+
+                int[] indices = source.getIndices();
+                int outIndex = indexBase[i];
+                for (int index : indices) {
+                    int merged = index + vertexBase[i];
+                    if (shortIndices) {
+                        shorts.put(outIndex++, (short) merged);
+                    } else {
+                        ints.put(outIndex++, merged);
+                    }
+                }
+            });
+
+            // Upload has to happen on the GL thread
+            batch.vaoId = glGenVertexArrays();
+            glBindVertexArray(batch.vaoId);
+
+            batch.vboId = glGenBuffers();
+            glBindBuffer(GL_ARRAY_BUFFER, batch.vboId);
+            glBufferData(GL_ARRAY_BUFFER, vertexData, GL_STATIC_DRAW);
+            VertexLayout.POSITION_NORMAL.apply();
+
+            batch.eboId = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, batch.eboId);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexData, GL_STATIC_DRAW);
+
+            glBindVertexArray(0);
+            batch.vertexBytes = vertexData.capacity();
+            batch.indexBytes = indexData.capacity();
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, batch.vertexBytes);
+            EngineMetrics.resourceCreated(GlResourceType.BUFFER, batch.indexBytes);
+        } finally {
+            MemoryUtil.memFree(vertexData);
+            MemoryUtil.memFree(indexData);
+        }
+
+        for (Entry entry : members) {
+            entry.renderer.setStaticBatched(true);
+        }
+
+        Log.debug(LogCategory.RENDER, "Built static batch ({}, {}, {}), keywords {}: {} objects, {} vertices, {} triangles")
+                .arg(material.color.x).arg(material.color.y).arg(material.color.z).arg(material.keywords)
+                .arg(count).arg(totalVertices).arg(totalIndices / 3).log();
+        return batch;
+    }
+
+    /**
+     * Draws all batches, skipping sub-ranges outside the camera frustum and merging
+     * adjacent visible ranges into one draw call.
+     */
+    public void render(CameraUniformBuffer camera) {
+        drawCalls = 0;
+        culledRanges = 0;
+        if (batches.isEmpty()) return;
+
+        frustum.set(camera.getViewProjection());
+
+        BasicShader shader = null;
+        int boundProgram = 0;
+        for (Batch batch : batches.values()) {
+            Material material = batch.material;
+            shader = shaders.computeIfAbsent(material.keywords, BasicShader::new);
+            if ((material.keywords & BasicShader.FOG) != 0) {
+                shader.setFog(material.fogColor, material.fogDensity);
+            }
+            int program = shader.bind(boundProgram);
+            if (program != boundProgram) {
+                // Geometry is already in world space, so MVP is just the view-projection
+                shader.setModelViewProjectionMatrix(camera.getViewProjection());
+                shader.setNormalMatrix(identityNormal);
+                boundProgram = program;
+            }
+            shader.setColor(material.color);
+            shader.setLodFade(0.0f);
+            glBindVertexArray(batch.vaoId);
+            RenderStats.countVertexArrayBind();
+
+            int runStart = -1;
+            int runEnd = -1;
+            for (SubRange range : batch.ranges) {
+                if (!frustum.testAab(range.boundsMin, range.boundsMax)) {
+                    culledRanges++;
+                    continue;
+                }
+                if (range.firstIndex == runEnd) {
+                    runEnd += range.indexCount;
+                } else {
+                    drawRun(batch, runStart, runEnd);
+                    runStart = range.firstIndex;
+                    runEnd = range.firstIndex + range.indexCount;
+                }
+            }
+            drawRun(batch, runStart, runEnd);
+        }
+
+        glBindVertexArray(0);
+        shader.unbind();
+    }
+
+    private void drawRun(Batch batch, int start, int end) {
+        if (start < 0 || end <= start) return;
+        glDrawElements(GL_TRIANGLES, end - start, batch.indexType, (long) start * batch.indexSize);
+        drawCalls++;
+        RenderStats.countDraw((end - start) / 3);
+    }
+
+    public int getBatchCount() {
+        return batches.size();
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getCulledRanges() {
+        return culledRanges;
+    }
+
+    public void cleanup() {
+        invalidateAll();
+        for (BasicShader shader : shaders.values()) {
+            shader.cleanup();
+        }
+        shaders.clear();
+    }
+}
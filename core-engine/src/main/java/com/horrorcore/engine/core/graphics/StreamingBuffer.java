@@ -0,0 +1,147 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL32.*;
+
+/**
+ * Ring buffer for geometry that changes every frame.
+ * The buffer is split into regions that are filled front to back. Writes map only the
+ * bytes they need with GL_MAP_UNSYNCHRONIZED_BIT and flush explicitly, so the driver never
+ * reallocates storage or waits on earlier draws. When the writer leaves a region it drops a
+ * fence behind, and a region is only reused once the GPU has passed that fence.
+ */
+public class StreamingBuffer {
+    private static final int REGION_COUNT = 3;
+    private static final long FENCE_TIMEOUT_NANOS = 1_000_000_000L;
+
+    private final int target;
+    private final int bufferId;
+    private final int regionSize;
+    private final long[] fences;
+
+    private int region;        // Region currently being written
+    private int regionOffset;  // Next free byte inside the current region
+    private int mappedOffset;  // Absolute offset of the range returned by the last map()
+    private int mappedLength;
+
+    /**
+     * @param target Buffer binding target, e.g. GL_ARRAY_BUFFER
+     * @param sizeBytes Total size, split evenly into REGION_COUNT regions
+     */
+    public StreamingBuffer(int target, int sizeBytes) {
+        this.target = target;
+        this.regionSize = sizeBytes / REGION_COUNT;
+        this.fences = new long[REGION_COUNT];
+
+        bufferId = glGenBuffers();
+        glBindBuffer(target, bufferId);
+        glBufferData(target, (long) regionSize * REGION_COUNT, GL_STREAM_DRAW);
+        glBindBuffer(target, 0);
+        EngineMetrics.resourceCreated(GlResourceType.BUFFER, (long) regionSize * REGION_COUNT);
+    }
+
+    /**
+     * Reserves and maps space for the next write. The returned buffer must be filled and
+     * released with {@link #unmap()} before drawing from it.
+     * @param bytes Number of bytes to reserve
+     * @param alignment Start offset alignment, use the vertex stride so draws can address
+     *                  the data by vertex index
+     */
+    public ByteBuffer map(int bytes, int alignment) {
+        // Leave room for alignment padding at the start of a fresh region
+        if (bytes + alignment > regionSize) {
+            throw new IllegalArgumentException("Streaming write of " + bytes +
+                    " bytes exceeds region size of " + regionSize);
+        }
+
+        int regionStart = region * regionSize;
+        int offset = align(regionStart + regionOffset, alignment);
+        if (offset + bytes > regionStart + regionSize) {
+            advanceRegion();
+            regionStart = region * regionSize;
+            offset = align(regionStart, alignment);
+        }
+
+        regionOffset = offset + bytes - regionStart;
+        mappedOffset = offset;
+        mappedLength = bytes;
+
+        glBindBuffer(target, bufferId);
+        ByteBuffer mapped = glMapBufferRange(target, offset, bytes,
+                GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT | GL_MAP_FLUSH_EXPLICIT_BIT);
+        if (mapped == null) {
+            throw new IllegalStateException("Failed to map streaming buffer range");
+        }
+        return mapped;
+    }
+
+    /**
+     * Flushes and unmaps the range returned by the last {@link #map(int, int)}
+     */
+    public void unmap() {
+        glBindBuffer(target, bufferId);
+        glFlushMappedBufferRange(target, 0, mappedLength);
+        glUnmapBuffer(target);
+        glBindBuffer(target, 0);
+    }
+
+    /**
+     * Copies the remaining floats of data into the ring and returns their byte offset
+     */
+    public int write(FloatBuffer data, int alignment) {
+        ByteBuffer mapped = map(data.remaining() * Float.BYTES, alignment);
+        mapped.asFloatBuffer().put(data);
+        unmap();
+        return mappedOffset;
+    }
+
+    // Fences the region we're leaving and waits until the GPU is done with the next one
+    private void advanceRegion() {
+        fences[region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+        region = (region + 1) % REGION_COUNT;
+        regionOffset = 0;
+
+        long fence = fences[region];
+        if (fence != 0) {
+            int result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT_NANOS);
+            while (result == GL_TIMEOUT_EXPIRED) {
+                result = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT_NANOS);
+            }
+            glDeleteSync(fence);
+            fences[region] = 0;
+        }
+    }
+
+    private static int align(int offset, int alignment) {
+        return ((offset + alignment - 1) / alignment) * alignment;
+    }
+
+    public int getMappedOffset() {
+        return mappedOffset;
+    }
+
+    public int getRegionSize() {
+        return regionSize;
+    }
+
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    public void cleanup() {
+        for (int i = 0; i < REGION_COUNT; i++) {
+            if (fences[i] != 0) {
+                glDeleteSync(fences[i]);
+                fences[i] = 0;
+            }
+        }
+        glDeleteBuffers(bufferId);
+        EngineMetrics.resourceDestroyed(GlResourceType.BUFFER, (long) regionSize * REGION_COUNT);
+    }
+}
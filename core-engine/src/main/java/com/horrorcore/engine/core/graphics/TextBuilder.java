@@ -0,0 +1,141 @@
+package com.horrorcore.engine.core.graphics;
+
+import java.util.Arrays;
+
+/**
+ * Reusable character buffer for text that changes every frame.
+ * Numbers are written digit by digit into the backing array, so building a label like
+ * "Position: 1.00, 2.50, 0.00" allocates nothing once the buffer has grown to size.
+ * Pass the builder straight to {@link TextRenderer#renderText(CharSequence, float, float, float, float[])}.
+ */
+public class TextBuilder implements CharSequence {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+    // Beyond this the fixed-point conversion below would overflow a long
+    private static final float MAX_FIXED_POINT = 1.0e12f;
+
+    private char[] chars;
+    private int length;
+
+    public TextBuilder() {
+        this(64);
+    }
+
+    public TextBuilder(int initialCapacity) {
+        chars = new char[initialCapacity];
+    }
+
+    public TextBuilder clear() {
+        length = 0;
+        return this;
+    }
+
+    public TextBuilder append(char c) {
+        ensureCapacity(length + 1);
+        chars[length++] = c;
+        return this;
+    }
+
+    public TextBuilder append(CharSequence text) {
+        int count = text.length();
+        ensureCapacity(length + count);
+        for (int i = 0; i < count; i++) {
+            chars[length++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    public TextBuilder append(boolean value) {
+        return append(value ? "true" : "false");
+    }
+
+    public TextBuilder append(long value) {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                return append("9223372036854775808");
+            }
+            value = -value;
+        }
+        return appendDigits(value, 1);
+    }
+
+    /**
+     * Appends a float in fixed-point notation, like String.format("%.Nf") without allocating
+     * @param decimals Digits after the decimal point, 0 to 6
+     */
+    public TextBuilder append(float value, int decimals) {
+        if (Float.isNaN(value)) {
+            return append("NaN");
+        }
+        if (Float.isInfinite(value)) {
+            return append(value > 0 ? "Infinity" : "-Infinity");
+        }
+        if (Math.abs(value) >= MAX_FIXED_POINT) {
+            // Rare enough that falling back to the allocating path is fine
+            return append(Float.toString(value));
+        }
+
+        decimals = Math.max(0, Math.min(decimals, POWERS_OF_TEN.length - 1));
+        long scale = POWERS_OF_TEN[decimals];
+        long scaled = Math.round(Math.abs((double) value) * scale);
+
+        // Don't print "-0.00" for values that round to zero
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+        appendDigits(scaled / scale, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(scaled % scale, decimals);
+        }
+        return this;
+    }
+
+    // Writes a non-negative number, zero padded to at least minDigits
+    private TextBuilder appendDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+
+        ensureCapacity(length + digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            chars[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
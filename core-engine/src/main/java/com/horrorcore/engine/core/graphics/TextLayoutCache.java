@@ -0,0 +1,142 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of laid-out strings, stored as ready-to-draw glyph vertices.
+ * Entries are keyed by content, font, scale, color and screen origin, so a hit is a single
+ * memory copy into the frame's text batch. Labels that move (e.g. after a resize) simply
+ * miss once and the stale entry ages out.
+ */
+public class TextLayoutCache {
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+
+    /**
+     * Glyph vertices of one string in UiBatcher's vertex format
+     */
+    public static class TextLayout {
+        private final ByteBuffer vertices;  // Off-heap, freed on eviction
+        private final int vertexCount;
+
+        TextLayout(ByteBuffer vertices, int vertexCount) {
+            this.vertices = vertices;
+            this.vertexCount = vertexCount;
+        }
+
+        public ByteBuffer getVertices() { return vertices; }
+        public int getVertexCount() { return vertexCount; }
+    }
+
+    private static final class Key {
+        String text;
+        FontAtlas font;
+        float scale;
+        int color;
+        float x, y;
+
+        Key set(String text, FontAtlas font, float scale, int color, float x, float y) {
+            this.text = text;
+            this.font = font;
+            this.scale = scale;
+            this.color = color;
+            this.x = x;
+            this.y = y;
+            return this;
+        }
+
+        Key copy() {
+            return new Key().set(text, font, scale, color, x, y);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return font == other.font && color == other.color
+                    && Float.compare(scale, other.scale) == 0
+                    && Float.compare(x, other.x) == 0 && Float.compare(y, other.y) == 0
+                    && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + System.identityHashCode(font);
+            result = 31 * result + Float.floatToIntBits(scale);
+            result = 31 * result + color;
+            result = 31 * result + Float.floatToIntBits(x);
+            result = 31 * result + Float.floatToIntBits(y);
+            return result;
+        }
+    }
+
+    private final LinkedHashMap<Key, TextLayout> entries;
+    private final Key probe;  // Reused for lookups so a hit allocates nothing
+
+    private int hits;
+    private int misses;
+
+    public TextLayoutCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public TextLayoutCache(int maxEntries) {
+        this.probe = new Key();
+        this.entries = new LinkedHashMap<>(maxEntries, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, TextLayout> eldest) {
+                if (size() > maxEntries) {
+                    MemoryUtil.memFree(eldest.getValue().vertices);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public TextLayout get(String text, FontAtlas font, float scale, int color, float x, float y) {
+        TextLayout layout = entries.get(probe.set(text, font, scale, color, x, y));
+        if (layout != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return layout;
+    }
+
+    /**
+     * Stores a copy of byteCount bytes of source, starting at byteOffset, under the given key
+     */
+    public void put(String text, FontAtlas font, float scale, int color, float x, float y,
+                    ByteBuffer source, int byteOffset, int byteCount, int vertexCount) {
+        ByteBuffer copy = MemoryUtil.memAlloc(byteCount);
+        MemoryUtil.memCopy(MemoryUtil.memAddress(source, byteOffset), MemoryUtil.memAddress(copy), byteCount);
+
+        TextLayout previous = entries.put(probe.set(text, font, scale, color, x, y).copy(),
+                new TextLayout(copy, vertexCount));
+        if (previous != null) {
+            MemoryUtil.memFree(previous.vertices);
+        }
+    }
+
+    public int getHits() { return hits; }
+    public int getMisses() { return misses; }
+    public int size() { return entries.size(); }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+
+    public void clear() {
+        for (TextLayout layout : entries.values()) {
+            MemoryUtil.memFree(layout.vertices);
+        }
+        entries.clear();
+        probe.text = null;
+    }
+}
@@ -1,159 +1,120 @@
 package com.horrorcore.engine.core.graphics;
 
-import org.lwjgl.system.MemoryStack;
-import java.nio.FloatBuffer;
-
-import static com.horrorcore.engine.core.ui.Panel.windowHeight;
-import static com.horrorcore.engine.core.ui.Panel.windowWidth;
-import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
-
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Lays out text with a signed-distance-field glyph atlas and submits the glyph quads to a
+ * {@link UiBatcher}, so text is drawn together with the rest of the editor chrome.
+ * Text positions are panel-local: x from the panel's left edge, y from its bottom edge
+ * to the text baseline.
+ */
 public class TextRenderer {
-    private int shaderProgram;
-    private int vao;
-    private int vbo;
-    private static final float CHAR_WIDTH = 10.0f;  // Width of each character
-    private static final float CHAR_HEIGHT = 16.0f; // Height of each character
-    private float panelX, panelY;
-
-    public void init() {
-        // Create shader program
-        shaderProgram = createShaderProgram();
-
-        // Create VAO and VBO for character quads
-        vao = glGenVertexArrays();
-        vbo = glGenBuffers();
+    private static final float TEXT_PIXEL_HEIGHT = 16.0f; // Line height in pixels at scale 1.0
 
-        glBindVertexArray(vao);
-        glBindBuffer(GL_ARRAY_BUFFER, vbo);
+    private final UiBatcher batcher;
+    private FontAtlas atlas;
+    private final TextLayoutCache layoutCache = new TextLayoutCache();
 
-        // Position attribute
-        glVertexAttribPointer(0, 2, GL_FLOAT, false, 4 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
+    private float panelX, panelY, panelHeight;
 
-        // Color attribute
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 4 * Float.BYTES, 2 * Float.BYTES);
-        glEnableVertexAttribArray(1);
+    public TextRenderer(UiBatcher batcher) {
+        this.batcher = batcher;
     }
 
-    private int createShaderProgram() {
-        // Vertex shader
-        int vertexShader = glCreateShader(GL_VERTEX_SHADER);
-        glShaderSource(vertexShader, """
-            #version 330 core
-            layout (location = 0) in vec2 aPos;
-            layout (location = 1) in vec2 aTexCoord;
-            uniform vec2 screenSize;
-            
-            void main() {
-                // Convert from panel-local to screen coordinates
-                vec2 screenPos = aPos / screenSize;
-                gl_Position = vec4(screenPos.x * 2.0 - 1.0, -(screenPos.y * 2.0 - 1.0), 0.0, 1.0);
-            }
-        """);
-        glCompileShader(vertexShader);
-
-        // Fragment shader
-        int fragmentShader = glCreateShader(GL_FRAGMENT_SHADER);
-        glShaderSource(fragmentShader, """
-            #version 330 core
-            uniform vec4 textColor;
-            out vec4 FragColor;
-            
-            void main() {
-                FragColor = textColor;
-            }
-        """);
-        glCompileShader(fragmentShader);
-
-        // Link shaders
-        int shaderProgram = glCreateProgram();
-        glAttachShader(shaderProgram, vertexShader);
-        glAttachShader(shaderProgram, fragmentShader);
-        glLinkProgram(shaderProgram);
-
-        // Clean up
-        glDeleteShader(vertexShader);
-        glDeleteShader(fragmentShader);
-
-        return shaderProgram;
+    public void init() {
+        atlas = FontAtlas.createDefault();
     }
 
-    public void setPanelPosition(float x, float y) {
+    /**
+     * Sets the screen rectangle (top-left origin) that following renderText calls are relative to
+     */
+    public void setPanelBounds(float x, float y, float width, float height) {
         this.panelX = x;
         this.panelY = y;
+        this.panelHeight = height;
     }
 
+    /**
+     * Queues a string for drawing with the next UI flush. Layouts of strings are cached, so labels
+     * that don't change from frame to frame are copied into the batch without re-layout.
+     */
     public void renderText(String text, float x, float y, float scale, float[] color) {
-        System.out.println("Rendering text: " + text + " at " + x + ", " + y);
-        System.out.println("Window dimensions: " + windowWidth + "x" + windowHeight);
-        glUseProgram(shaderProgram);
-        glBindVertexArray(vao);
-
-        // Enable blending for text
-        boolean blendEnabled = glIsEnabled(GL_BLEND);
-        if (!blendEnabled) {
-            glEnable(GL_BLEND);
-            glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        if (Log.TRACE_COMPILED) {
+            Log.trace(LogCategory.TEXT, "Rendering text: {} at {}, {}").arg(text).arg(x).arg(y).log();
+        }
+        if (text.isEmpty()) return;
+
+        int packedColor = VertexPacking.packUnorm8x4(color[0], color[1], color[2], color[3]);
+        float originX = panelX + x;
+        float baseline = panelY + panelHeight - y;
+
+        TextLayoutCache.TextLayout cached = layoutCache.get(text, atlas, scale, packedColor, originX, baseline);
+        if (cached != null) {
+            int vertexCount = cached.getVertexCount();
+            ByteBuffer vertices = batcher.reserve(atlas.getTextureId(), vertexCount);
+            int bytes = vertexCount * UiBatcher.VERTEX_STRIDE;
+            MemoryUtil.memCopy(MemoryUtil.memAddress(cached.getVertices()), MemoryUtil.memAddress(vertices), bytes);
+            vertices.position(vertices.position() + bytes);
+            batcher.commit(vertexCount);
+            return;
         }
 
-        int screenSizeLoc = glGetUniformLocation(shaderProgram, "screenSize");
-        glUniform2f(screenSizeLoc, windowWidth, windowHeight);
-
-        // Set text color
-        glUniform4f(glGetUniformLocation(shaderProgram, "textColor"),
-                color[0], color[1], color[2], color[3]);
-
-        try (MemoryStack stack = MemoryStack.stackPush()) {
-            FloatBuffer verticesBuffer = stack.mallocFloat(6 * 4); // 6 vertices per char, 4 components per vertex
-
-            float xpos = x + panelX;
-            float ypos = y + panelY; // Add panel's y offset
-            for (char c : text.toCharArray()) {
-                // Calculate character quad
-                float x1 = xpos;
-                float x2 = xpos + CHAR_WIDTH * scale;
-                float y1 = ypos;
-                float y2 = ypos + CHAR_HEIGHT * scale;
-
-                // Two triangles to form a quad
-                float[] vertices = {
-                        // positions    // texture coords
-                        x1, y1,        0.0f, 0.0f,  // bottom left
-                        x2, y1,        1.0f, 0.0f,  // bottom right
-                        x2, y2,        1.0f, 1.0f,  // top right
-                        x1, y1,        0.0f, 0.0f,  // bottom left
-                        x2, y2,        1.0f, 1.0f,  // top right
-                        x1, y2,        0.0f, 1.0f   // top left
-                };
-
-                verticesBuffer.clear();
-                verticesBuffer.put(vertices);
-                verticesBuffer.flip();
-
-                glBindBuffer(GL_ARRAY_BUFFER, vbo);
-                glBufferData(GL_ARRAY_BUFFER, verticesBuffer, GL_DYNAMIC_DRAW);
-
-                glDrawArrays(GL_TRIANGLES, 0, 6);
-
-                xpos += CHAR_WIDTH * scale; // Advance cursor
+        ByteBuffer vertices = batcher.reserve(atlas.getTextureId(), text.length() * UiBatcher.VERTICES_PER_QUAD);
+        int startByte = vertices.position();
+        int vertexCount = layoutText(vertices, text, originX, baseline, scale, packedColor);
+        layoutCache.put(text, atlas, scale, packedColor, originX, baseline,
+                vertices, startByte, vertices.position() - startByte, vertexCount);
+        batcher.commit(vertexCount);
+    }
+
+    /**
+     * Queues frequently changing text, e.g. a {@link TextBuilder} holding formatted numbers.
+     * Laid out directly into the batch without touching the cache and without allocating.
+     */
+    public void renderText(CharSequence text, float x, float y, float scale, float[] color) {
+        int packedColor = VertexPacking.packUnorm8x4(color[0], color[1], color[2], color[3]);
+        ByteBuffer vertices = batcher.reserve(atlas.getTextureId(), text.length() * UiBatcher.VERTICES_PER_QUAD);
+        batcher.commit(layoutText(vertices, text, panelX + x, panelY + panelHeight - y, scale, packedColor));
+    }
+
+    // Writes glyph quads for text with its pen starting at (originX, baseline) in screen pixels,
+    // returns the number of vertices written
+    private int layoutText(ByteBuffer vertices, CharSequence text, float originX, float baseline,
+                           float scale, int packedColor) {
+        float glyphScale = scale * TEXT_PIXEL_HEIGHT / FontAtlas.BAKE_PIXEL_HEIGHT;
+        int vertexCount = 0;
+
+        float penX = originX;
+        for (int i = 0; i < text.length(); i++) {
+            FontAtlas.Glyph glyph = atlas.getGlyph(text.charAt(i));
+            if (glyph.width > 0) {
+                float x1 = penX + glyph.xOffset * glyphScale;
+                float y1 = baseline + glyph.yOffset * glyphScale;
+                UiBatcher.putQuad(vertices, x1, y1, x1 + glyph.width * glyphScale, y1 + glyph.height * glyphScale,
+                        glyph.u0, glyph.v0, glyph.u1, glyph.v1, packedColor, UiBatcher.Fill.DISTANCE_FIELD);
+                vertexCount += UiBatcher.VERTICES_PER_QUAD;
             }
+            penX += glyph.advance * glyphScale; // Advance cursor
         }
+        return vertexCount;
+    }
 
-        // Restore blend state
-        if (!blendEnabled) {
-            glDisable(GL_BLEND);
-        }
+    public FontAtlas getAtlas() {
+        return atlas;
+    }
 
-        glBindVertexArray(0);
-        glUseProgram(0);
+    public TextLayoutCache getLayoutCache() {
+        return layoutCache;
     }
 
     public void cleanup() {
-        glDeleteProgram(shaderProgram);
-        glDeleteBuffers(vbo);
-        glDeleteVertexArrays(vao);
+        if (atlas != null) {
+            atlas.cleanup();
+        }
+        layoutCache.clear();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,450 @@
+package com.horrorcore.engine.core.graphics;
+
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Immediate-mode renderer for the editor chrome.
+ * Panels submit solid rectangles, distance-field glyphs and textured quads in window pixels
+ * (top-left origin). Everything goes through one shader program and one streaming buffer;
+ * consecutive quads that share a texture and clip rectangle collapse into a single draw, so
+ * the whole UI costs a few draw calls no matter how many panels there are.
+ * Quads are sorted into layers so background chrome can be drawn before panel content
+ * (like the 3D scene) and overlays after it.
+ */
+public class UiBatcher {
+    public static final int VERTEX_STRIDE = 4 * Float.BYTES + 4 + 4; // x, y, u, v + RGBA8 color + fill mode
+    public static final int VERTICES_PER_QUAD = 6;
+
+    private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+    private static final int INITIAL_LAYER_BYTES = 64 * 1024;
+
+    public enum Layer {
+        BACKGROUND,  // Panel backgrounds, drawn before panel content
+        OVERLAY      // Text and widgets, drawn on top of everything
+    }
+
+    /**
+     * How the fragment shader turns a quad's texture into color
+     */
+    public enum Fill {
+        SOLID,           // Vertex color only, no texture
+        DISTANCE_FIELD,  // Single-channel SDF, e.g. glyphs from a FontAtlas
+        TEXTURE,         // RGBA texture modulated by the vertex color
+        PREMULTIPLIED    // Premultiplied RGBA texture, e.g. a panel cached by an earlier batch
+    }
+
+    // A run of vertices drawn with the same texture and clip rectangle
+    private static final class Command {
+        int firstVertex;
+        int vertexCount;
+        int textureId;  // 0 while the run only holds solid quads
+        int clipX, clipY, clipWidth, clipHeight;
+    }
+
+    private static final class LayerBatch {
+        ByteBuffer vertices;
+        int vertexCount;
+        final List<Command> commands = new ArrayList<>();
+        int commandCount;  // Commands in use this frame, the list is reused across frames
+    }
+
+    private int shaderProgram;
+    private int screenOriginLocation;
+    private int screenSizeLocation;
+    private int vao;
+    private StreamingBuffer vertexStream;
+    private final LayerBatch[] layers = new LayerBatch[Layer.values().length];
+    private LayerBatch current;
+
+    // Clip rectangle stack, stored as x, y, width, height quadruples
+    private int[] clipStack = new int[16];
+    private int clipDepth;
+
+    private float originX, originY;  // Window position mapped to the target's top-left corner
+    private float screenWidth, screenHeight;
+    private int reservedTexture;
+    private int drawCalls;  // Draw calls issued by flushes since the last begin
+
+    public void init() {
+        shaderProgram = createShaderProgram();
+        screenOriginLocation = glGetUniformLocation(shaderProgram, "screenOrigin");
+        screenSizeLocation = glGetUniformLocation(shaderProgram, "screenSize");
+        glUseProgram(shaderProgram);
+        glUniform1i(glGetUniformLocation(shaderProgram, "uiTexture"), 0);
+        glUseProgram(0);
+
+        vao = glGenVertexArrays();
+        vertexStream = new StreamingBuffer(GL_ARRAY_BUFFER, STREAM_BUFFER_SIZE);
+
+        glBindVertexArray(vao);
+        glBindBuffer(GL_ARRAY_BUFFER, vertexStream.getBufferId());
+
+        // Position attribute
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, VERTEX_STRIDE, 0);
+        glEnableVertexAttribArray(0);
+
+        // Texture coordinate attribute
+        glVertexAttribPointer(1, 2, GL_FLOAT, false, VERTEX_STRIDE, 2 * Float.BYTES);
+        glEnableVertexAttribArray(1);
+
+        // Color attribute
+        glVertexAttribPointer(2, 4, GL_UNSIGNED_BYTE, true, VERTEX_STRIDE, 4 * Float.BYTES);
+        glEnableVertexAttribArray(2);
+
+        // Fill mode attribute
+        glVertexAttribPointer(3, 1, GL_UNSIGNED_BYTE, false, VERTEX_STRIDE, 4 * Float.BYTES + 4);
+        glEnableVertexAttribArray(3);
+
+        glBindVertexArray(0);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        for (int i = 0; i < layers.length; i++) {
+            layers[i] = new LayerBatch();
+            layers[i].vertices = MemoryUtil.memAlloc(INITIAL_LAYER_BYTES);
+        }
+        current = layers[Layer.OVERLAY.ordinal()];
+    }
+
+    private int createShaderProgram() {
+        return ShaderCache.link("UiBatcher", """
+            #version 330 core
+            layout (location = 0) in vec2 aPos;
+            layout (location = 1) in vec2 aTexCoord;
+            layout (location = 2) in vec4 aColor;
+            layout (location = 3) in float aFill;
+            uniform vec2 screenOrigin;
+            uniform vec2 screenSize;
+            out vec2 texCoord;
+            out vec4 color;
+            flat out float fill;
+
+            void main() {
+                // Convert from top-left origin pixels to normalized device coordinates
+                vec2 screenPos = (aPos - screenOrigin) / screenSize;
+                gl_Position = vec4(screenPos.x * 2.0 - 1.0, -(screenPos.y * 2.0 - 1.0), 0.0, 1.0);
+                texCoord = aTexCoord;
+                color = aColor;
+                fill = aFill;
+            }
+        """, """
+            #version 330 core
+            in vec2 texCoord;
+            in vec4 color;
+            flat in float fill;
+            uniform sampler2D uiTexture;
+            out vec4 FragColor;
+
+            void main() {
+                // Sample and take derivatives outside the branches, they need uniform control flow
+                vec4 texel = texture(uiTexture, texCoord);
+                float width = max(fwidth(texel.r), 0.0001);
+
+                // Output is premultiplied, so cached panels composite without applying alpha twice
+                if (fill < 0.5) {
+                    FragColor = vec4(color.rgb * color.a, color.a);
+                } else if (fill < 1.5) {
+                    float alpha = color.a * smoothstep(0.5 - width, 0.5 + width, texel.r);
+                    FragColor = vec4(color.rgb * alpha, alpha);
+                } else if (fill < 2.5) {
+                    vec4 straight = texel * color;
+                    FragColor = vec4(straight.rgb * straight.a, straight.a);
+                } else {
+                    FragColor = texel * vec4(color.rgb * color.a, color.a);
+                }
+            }
+        """);
+    }
+
+    /**
+     * Starts a new frame. Anything not flushed from the previous frame is discarded.
+     */
+    public void begin(float screenWidth, float screenHeight) {
+        begin(0, 0, screenWidth, screenHeight);
+    }
+
+    /**
+     * Starts a batch drawn into a target that shows the window rectangle at (originX, originY)
+     * of the given size, e.g. an offscreen texture holding a single panel. Submissions keep
+     * using window coordinates.
+     */
+    public void begin(float originX, float originY, float screenWidth, float screenHeight) {
+        this.originX = originX;
+        this.originY = originY;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        for (LayerBatch layer : layers) {
+            reset(layer);
+        }
+        clipDepth = 0;
+        drawCalls = 0;
+        setLayer(Layer.OVERLAY);
+    }
+
+    public void setLayer(Layer layer) {
+        current = layers[layer.ordinal()];
+    }
+
+    /**
+     * Restricts following quads to a window rectangle, intersected with the enclosing clip
+     */
+    public void pushClip(float x, float y, float width, float height) {
+        int left = (int) x;
+        int top = (int) y;
+        int right = (int) (x + width);
+        int bottom = (int) (y + height);
+        if (clipDepth > 0) {
+            int i = (clipDepth - 1) * 4;
+            left = Math.max(left, clipStack[i]);
+            top = Math.max(top, clipStack[i + 1]);
+            right = Math.min(right, clipStack[i] + clipStack[i + 2]);
+            bottom = Math.min(bottom, clipStack[i + 1] + clipStack[i + 3]);
+        }
+
+        if ((clipDepth + 1) * 4 > clipStack.length) {
+            clipStack = Arrays.copyOf(clipStack, clipStack.length * 2);
+        }
+        int i = clipDepth * 4;
+        clipStack[i] = left;
+        clipStack[i + 1] = top;
+        clipStack[i + 2] = Math.max(0, right - left);
+        clipStack[i + 3] = Math.max(0, bottom - top);
+        clipDepth++;
+    }
+
+    public void popClip() {
+        if (clipDepth == 0) {
+            throw new IllegalStateException("popClip without matching pushClip");
+        }
+        clipDepth--;
+    }
+
+    public void drawRect(float x, float y, float width, float height, int packedColor) {
+        ByteBuffer buffer = reserve(0, VERTICES_PER_QUAD);
+        putQuad(buffer, x, y, x + width, y + height, 0, 0, 0, 0, packedColor, Fill.SOLID);
+        commit(VERTICES_PER_QUAD);
+    }
+
+    public void drawRect(float x, float y, float width, float height, float r, float g, float b, float a) {
+        drawRect(x, y, width, height, VertexPacking.packUnorm8x4(r, g, b, a));
+    }
+
+    /**
+     * Draws an RGBA texture stretched over the rectangle, v0 at the top edge
+     */
+    public void drawImage(int textureId, float x, float y, float width, float height,
+                          float u0, float v0, float u1, float v1, int packedColor) {
+        ByteBuffer buffer = reserve(textureId, VERTICES_PER_QUAD);
+        putQuad(buffer, x, y, x + width, y + height, u0, v0, u1, v1, packedColor, Fill.TEXTURE);
+        commit(VERTICES_PER_QUAD);
+    }
+
+    /**
+     * Draws a texture whose colors are premultiplied by alpha, such as an offscreen target
+     * this batcher rendered into, v0 at the top edge
+     */
+    public void drawPremultipliedImage(int textureId, float x, float y, float width, float height,
+                                       float u0, float v0, float u1, float v1, int packedColor) {
+        ByteBuffer buffer = reserve(textureId, VERTICES_PER_QUAD);
+        putQuad(buffer, x, y, x + width, y + height, u0, v0, u1, v1, packedColor, Fill.PREMULTIPLIED);
+        commit(VERTICES_PER_QUAD);
+    }
+
+    /**
+     * Makes room for up to maxVertices vertices sampling textureId (0 for untextured) in the
+     * current layer and clip. The caller writes vertices at the returned buffer's position in
+     * this class's vertex format, then calls {@link #commit(int)} with the number written.
+     */
+    public ByteBuffer reserve(int textureId, int maxVertices) {
+        LayerBatch layer = current;
+        int required = maxVertices * VERTEX_STRIDE;
+        if (layer.vertices.remaining() < required) {
+            int capacity = Math.max(layer.vertices.capacity() * 2, layer.vertices.position() + required);
+            layer.vertices = MemoryUtil.memRealloc(layer.vertices, capacity);
+        }
+        reservedTexture = textureId;
+        return layer.vertices;
+    }
+
+    public void commit(int vertexCount) {
+        if (vertexCount == 0) return;
+        LayerBatch layer = current;
+
+        int clipX = 0, clipY = 0, clipWidth = -1, clipHeight = -1;  // -1 means unclipped
+        if (clipDepth > 0) {
+            int i = (clipDepth - 1) * 4;
+            clipX = clipStack[i];
+            clipY = clipStack[i + 1];
+            clipWidth = clipStack[i + 2];
+            clipHeight = clipStack[i + 3];
+        }
+
+        // Extend the last run when texture and clip allow it, solid quads fit any texture
+        Command last = layer.commandCount > 0 ? layer.commands.get(layer.commandCount - 1) : null;
+        if (last != null && last.clipX == clipX && last.clipY == clipY
+                && last.clipWidth == clipWidth && last.clipHeight == clipHeight
+                && (reservedTexture == 0 || last.textureId == 0 || last.textureId == reservedTexture)) {
+            if (reservedTexture != 0) {
+                last.textureId = reservedTexture;
+            }
+            last.vertexCount += vertexCount;
+        } else {
+            if (layer.commandCount == layer.commands.size()) {
+                layer.commands.add(new Command());
+            }
+            Command command = layer.commands.get(layer.commandCount++);
+            command.firstVertex = layer.vertexCount;
+            command.vertexCount = vertexCount;
+            command.textureId = reservedTexture;
+            command.clipX = clipX;
+            command.clipY = clipY;
+            command.clipWidth = clipWidth;
+            command.clipHeight = clipHeight;
+        }
+        layer.vertexCount += vertexCount;
+    }
+
+    public static void putVertex(ByteBuffer buffer, float x, float y, float u, float v, int packedColor, Fill fill) {
+        buffer.putFloat(x).putFloat(y).putFloat(u).putFloat(v).putInt(packedColor)
+                .put((byte) fill.ordinal()).put((byte) 0).put((byte) 0).put((byte) 0);
+    }
+
+    /**
+     * Writes two triangles covering (x1, y1) top-left to (x2, y2) bottom-right
+     */
+    public static void putQuad(ByteBuffer buffer, float x1, float y1, float x2, float y2,
+                               float u0, float v0, float u1, float v1, int packedColor, Fill fill) {
+        putVertex(buffer, x1, y1, u0, v0, packedColor, fill);  // top left
+        putVertex(buffer, x2, y1, u1, v0, packedColor, fill);  // top right
+        putVertex(buffer, x2, y2, u1, v1, packedColor, fill);  // bottom right
+        putVertex(buffer, x1, y1, u0, v0, packedColor, fill);  // top left
+        putVertex(buffer, x2, y2, u1, v1, packedColor, fill);  // bottom right
+        putVertex(buffer, x1, y2, u0, v1, packedColor, fill);  // bottom left
+    }
+
+    /**
+     * Draws and empties one layer. Vertices are copied into the ring buffer in as few
+     * uploads as fit, then each run is drawn with its own texture and scissor.
+     */
+    public void flush(Layer which) {
+        LayerBatch layer = layers[which.ordinal()];
+        if (layer.vertexCount == 0) return;
+
+        glViewport(0, 0, (int) screenWidth, (int) screenHeight);
+        glDisable(GL_DEPTH_TEST);
+        glEnable(GL_BLEND);
+        // Premultiplied "over": targets end up premultiplied with coverage in alpha, and are
+        // composited again with Fill.PREMULTIPLIED under the same blend function
+        glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
+
+        glUseProgram(shaderProgram);
+        RenderStats.countProgramBind();
+        glUniform2f(screenOriginLocation, originX, originY);
+        glUniform2f(screenSizeLocation, screenWidth, screenHeight);
+        glActiveTexture(GL_TEXTURE0);
+        glBindVertexArray(vao);
+        RenderStats.countVertexArrayBind();
+
+        int maxVertices = (vertexStream.getRegionSize() - VERTEX_STRIDE) / VERTEX_STRIDE
+                / VERTICES_PER_QUAD * VERTICES_PER_QUAD;
+        long source = MemoryUtil.memAddress(layer.vertices, 0);
+        int boundTexture = -1;
+        boolean scissorEnabled = false;
+        int commandIndex = 0;
+
+        int uploaded = 0;
+        while (uploaded < layer.vertexCount) {
+            int count = Math.min(maxVertices, layer.vertexCount - uploaded);
+            ByteBuffer mapped = vertexStream.map(count * VERTEX_STRIDE, VERTEX_STRIDE);
+            MemoryUtil.memCopy(source + (long) uploaded * VERTEX_STRIDE, MemoryUtil.memAddress(mapped), (long) count * VERTEX_STRIDE);
+            vertexStream.unmap();
+            int base = vertexStream.getMappedOffset() / VERTEX_STRIDE - uploaded;
+            int chunkEnd = uploaded + count;
+
+            // Draw the part of every run that falls into this upload
+            while (commandIndex < layer.commandCount) {
+                Command command = layer.commands.get(commandIndex);
+                int first = Math.max(command.firstVertex, uploaded);
+                int end = Math.min(command.firstVertex + command.vertexCount, chunkEnd);
+                if (first >= end) break;
+
+                if (command.textureId != boundTexture) {
+                    glBindTexture(GL_TEXTURE_2D, command.textureId);
+                    RenderStats.countTextureBind();
+                    boundTexture = command.textureId;
+                }
+                if (command.clipWidth < 0) {
+                    if (scissorEnabled) {
+                        glDisable(GL_SCISSOR_TEST);
+                        scissorEnabled = false;
+                    }
+                } else {
+                    if (!scissorEnabled) {
+                        glEnable(GL_SCISSOR_TEST);
+                        scissorEnabled = true;
+                    }
+                    // Scissor boxes use a bottom-left origin in target pixels
+                    glScissor(command.clipX - (int) originX,
+                            (int) (originY + screenHeight) - command.clipY - command.clipHeight,
+                            command.clipWidth, command.clipHeight);
+                }
+
+                glDrawArrays(GL_TRIANGLES, base + first, end - first);
+                drawCalls++;
+                RenderStats.countDraw((end - first) / 3);
+
+                if (end < command.firstVertex + command.vertexCount) break;  // Continues in the next upload
+                commandIndex++;
+            }
+            uploaded = chunkEnd;
+        }
+
+        glDisable(GL_SCISSOR_TEST);
+        glBindVertexArray(0);
+        glBindTexture(GL_TEXTURE_2D, 0);
+        glUseProgram(0);
+        glDisable(GL_BLEND);
+
+        reset(layer);
+    }
+
+    private static void reset(LayerBatch layer) {
+        layer.vertices.clear();
+        layer.vertexCount = 0;
+        layer.commandCount = 0;
+    }
+
+    /**
+     * Draw calls issued since the last {@link #begin(float, float)}
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public void cleanup() {
+        glDeleteProgram(shaderProgram);
+        EngineMetrics.resourceDestroyed(GlResourceType.PROGRAM, 0);
+        glDeleteVertexArrays(vao);
+        if (vertexStream != null) {
+            vertexStream.cleanup();
+        }
+        for (LayerBatch layer : layers) {
+            if (layer != null && layer.vertices != null) {
+                MemoryUtil.memFree(layer.vertices);
+                layer.vertices = null;
+            }
+        }
+    }
+}
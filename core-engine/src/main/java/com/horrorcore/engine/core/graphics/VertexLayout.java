@@ -0,0 +1,223 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Describes how vertex attributes are interleaved in a single vertex buffer.
+ * Attributes are bound to fixed shader locations by semantic, so a shader written against
+ * float positions and normals also works with half-float or packed variants.
+ */
+public class VertexLayout {
+    // Shader attribute locations are fixed per semantic
+    public enum Semantic {
+        POSITION(0, 3),
+        NORMAL(1, 3),
+        UV(2, 2),
+        TANGENT(3, 4),
+        COLOR(4, 4);
+
+        public final int location;
+        public final int sourceComponents;  // Floats per vertex in the unpacked source arrays
+
+        Semantic(int location, int sourceComponents) {
+            this.location = location;
+            this.sourceComponents = sourceComponents;
+        }
+    }
+
+    public enum Format {
+        FLOAT2(2, GL_FLOAT, false, 8),
+        FLOAT3(3, GL_FLOAT, false, 12),
+        FLOAT4(4, GL_FLOAT, false, 16),
+        HALF2(2, GL_HALF_FLOAT, false, 4),
+        HALF4(4, GL_HALF_FLOAT, false, 8),             // Half positions padded to 8 bytes, w = 1
+        SNORM_10_10_10_2(4, GL_INT_2_10_10_10_REV, true, 4),
+        OCTAHEDRAL_SNORM16(2, GL_SHORT, true, 4),      // Needs OCTAHEDRAL_DECODE_GLSL in the shader
+        UNORM8x4(4, GL_UNSIGNED_BYTE, true, 4);
+
+        public final int components;
+        public final int glType;
+        public final boolean normalized;
+        public final int bytes;
+
+        Format(int components, int glType, boolean normalized, int bytes) {
+            this.components = components;
+            this.glType = glType;
+            this.normalized = normalized;
+            this.bytes = bytes;
+        }
+
+        // Writes one attribute value at the buffer's position and advances it
+        void put(ByteBuffer buffer, float x, float y, float z, float w) {
+            switch (this) {
+                case FLOAT2 -> buffer.putFloat(x).putFloat(y);
+                case FLOAT3 -> buffer.putFloat(x).putFloat(y).putFloat(z);
+                case FLOAT4 -> buffer.putFloat(x).putFloat(y).putFloat(z).putFloat(w);
+                case HALF2 -> buffer.putShort(VertexPacking.floatToHalf(x))
+                        .putShort(VertexPacking.floatToHalf(y));
+                case HALF4 -> buffer.putShort(VertexPacking.floatToHalf(x))
+                        .putShort(VertexPacking.floatToHalf(y))
+                        .putShort(VertexPacking.floatToHalf(z))
+                        .putShort(VertexPacking.floatToHalf(w));
+                case SNORM_10_10_10_2 -> buffer.putInt(VertexPacking.packSnorm1010102(x, y, z, w));
+                case OCTAHEDRAL_SNORM16 -> buffer.putInt(VertexPacking.encodeOctahedral(x, y, z));
+                case UNORM8x4 -> buffer.putInt(VertexPacking.packUnorm8x4(x, y, z, w));
+            }
+        }
+    }
+
+    public static final class Element {
+        public final Semantic semantic;
+        public final Format format;
+        public final int offset;
+
+        Element(Semantic semantic, Format format, int offset) {
+            this.semantic = semantic;
+            this.format = format;
+            this.offset = offset;
+        }
+    }
+
+    // GLSL function turning an OCTAHEDRAL_SNORM16 attribute back into a unit vector
+    public static final String OCTAHEDRAL_DECODE_GLSL = """
+            vec3 decodeOctahedral(vec2 e) {
+                vec3 n = vec3(e.xy, 1.0 - abs(e.x) - abs(e.y));
+                float t = max(-n.z, 0.0);
+                n.xy += vec2(n.x >= 0.0 ? -t : t, n.y >= 0.0 ? -t : t);
+                return normalize(n);
+            }
+            """;
+
+    // 24 bytes per vertex, matches the original separate position/normal buffers
+    public static final VertexLayout POSITION_NORMAL = builder()
+            .add(Semantic.POSITION, Format.FLOAT3)
+            .add(Semantic.NORMAL, Format.FLOAT3)
+            .build();
+
+    // 12 bytes per vertex, readable by any shader written against POSITION_NORMAL
+    public static final VertexLayout POSITION_NORMAL_COMPACT = builder()
+            .add(Semantic.POSITION, Format.HALF4)
+            .add(Semantic.NORMAL, Format.SNORM_10_10_10_2)
+            .build();
+
+    // 16 bytes per vertex for texture-mapped meshes
+    public static final VertexLayout POSITION_NORMAL_UV_COMPACT = builder()
+            .add(Semantic.POSITION, Format.HALF4)
+            .add(Semantic.NORMAL, Format.SNORM_10_10_10_2)
+            .add(Semantic.UV, Format.HALF2)
+            .build();
+
+    private final List<Element> elements;
+    private final int stride;
+
+    private VertexLayout(List<Element> elements, int stride) {
+        this.elements = Collections.unmodifiableList(elements);
+        this.stride = stride;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Configures attribute pointers for the currently bound VAO and GL_ARRAY_BUFFER
+     */
+    public void apply() {
+        apply(0);
+    }
+
+    /**
+     * Same as {@link #apply()} with every attribute shifted by baseOffset bytes into the buffer
+     */
+    public void apply(long baseOffset) {
+        for (Element element : elements) {
+            glVertexAttribPointer(element.semantic.location, element.format.components, element.format.glType,
+                    element.format.normalized, stride, baseOffset + element.offset);
+            glEnableVertexAttribArray(element.semantic.location);
+        }
+    }
+
+    /**
+     * Interleaves unpacked float arrays into a newly allocated off-heap buffer using this layout.
+     * Arrays for semantics the layout doesn't contain are ignored; missing arrays for semantics it
+     * does contain are written as zeros (positions and colors get w = 1).
+     * The caller owns the returned buffer and must release it with MemoryUtil.memFree.
+     */
+    public ByteBuffer pack(int vertexCount, float[] positions, float[] normals, float[] uvs,
+                           float[] tangents, float[] colors) {
+        ByteBuffer buffer = MemoryUtil.memAlloc(vertexCount * stride);
+        for (int v = 0; v < vertexCount; v++) {
+            for (Element element : elements) {
+                float[] source = switch (element.semantic) {
+                    case POSITION -> positions;
+                    case NORMAL -> normals;
+                    case UV -> uvs;
+                    case TANGENT -> tangents;
+                    case COLOR -> colors;
+                };
+                int components = element.semantic.sourceComponents;
+                int base = v * components;
+                float w = element.semantic == Semantic.POSITION || element.semantic == Semantic.COLOR ? 1.0f : 0.0f;
+                float x = source != null ? source[base] : 0.0f;
+                float y = source != null ? source[base + 1] : 0.0f;
+                float z = source != null && components > 2 ? source[base + 2] : 0.0f;
+                if (source != null && components > 3) {
+                    w = source[base + 3];
+                }
+                element.format.put(buffer, x, y, z, w);
+            }
+        }
+        return buffer.flip();
+    }
+
+    public boolean has(Semantic semantic) {
+        return find(semantic) != null;
+    }
+
+    public Element find(Semantic semantic) {
+        for (Element element : elements) {
+            if (element.semantic == semantic) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    public List<Element> getElements() {
+        return elements;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    public static class Builder {
+        private final List<Element> elements = new ArrayList<>();
+        private int offset;
+
+        public Builder add(Semantic semantic, Format format) {
+            for (Element element : elements) {
+                if (element.semantic == semantic) {
+                    throw new IllegalArgumentException("Vertex layout already contains " + semantic);
+                }
+            }
+            elements.add(new Element(semantic, format, offset));
+            offset += format.bytes;
+            return this;
+        }
+
+        public VertexLayout build() {
+            if (elements.isEmpty()) {
+                throw new IllegalStateException("Vertex layout needs at least one attribute");
+            }
+            return new VertexLayout(new ArrayList<>(elements), offset);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Vector3f;
+
+/**
+ * Conversions from 32-bit floats to the compact encodings used by {@link VertexLayout}.
+ */
+public final class VertexPacking {
+    private VertexPacking() {}
+
+    /**
+     * Converts a float to IEEE 754 half precision (round to nearest, overflow to infinity)
+     */
+    public static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = ((bits >>> 23) & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x007FFFFF;
+
+        if (exponent <= 0) {
+            // Subnormal half or zero
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa = (mantissa | 0x00800000) >> (1 - exponent);
+            return (short) (sign | ((mantissa + 0x00001000) >> 13));
+        }
+        if (exponent >= 0x1F) {
+            // Overflow, infinity or NaN
+            boolean isNaN = ((bits >>> 23) & 0xFF) == 0xFF && mantissa != 0;
+            return (short) (sign | 0x7C00 | (isNaN ? 0x0200 : 0));
+        }
+
+        // Round the mantissa, carrying into the exponent if needed
+        int half = sign | (exponent << 10) | (mantissa >> 13);
+        if ((mantissa & 0x00001000) != 0) {
+            half++;
+        }
+        return (short) half;
+    }
+
+    /**
+     * Packs a vector with components in [-1, 1] into GL_INT_2_10_10_10_REV layout
+     * @param w Fourth component, only -1, 0 and 1 are representable (tangent handedness)
+     */
+    public static int packSnorm1010102(float x, float y, float z, float w) {
+        int px = Math.round(clamp(x) * 511.0f) & 0x3FF;
+        int py = Math.round(clamp(y) * 511.0f) & 0x3FF;
+        int pz = Math.round(clamp(z) * 511.0f) & 0x3FF;
+        int pw = Math.round(clamp(w)) & 0x3;
+        return px | (py << 10) | (pz << 20) | (pw << 30);
+    }
+
+    /**
+     * Encodes a unit vector with the octahedral mapping into two snorm16 values.
+     * The low 16 bits hold u, the high 16 bits hold v.
+     */
+    public static int encodeOctahedral(float x, float y, float z) {
+        float invL1 = 1.0f / (Math.abs(x) + Math.abs(y) + Math.abs(z));
+        float u = x * invL1;
+        float v = y * invL1;
+
+        // Fold the lower hemisphere over the diagonals
+        if (z < 0.0f) {
+            // signum() would zero the fold for vectors on an axis, sending them to the upper hemisphere
+            float foldedU = (1.0f - Math.abs(v)) * signNotZero(u);
+            float foldedV = (1.0f - Math.abs(u)) * signNotZero(v);
+            u = foldedU;
+            v = foldedV;
+        }
+
+        int pu = Math.round(clamp(u) * 32767.0f) & 0xFFFF;
+        int pv = Math.round(clamp(v) * 32767.0f) & 0xFFFF;
+        return pu | (pv << 16);
+    }
+
+    /**
+     * Decodes {@link #encodeOctahedral} output into a unit vector, as OCTAHEDRAL_DECODE_GLSL
+     * does on the GPU. Returns dest.
+     */
+    public static Vector3f decodeOctahedral(int packed, Vector3f dest) {
+        // snorm16 to float the way GL normalizes it
+        float x = Math.max((short) packed / 32767.0f, -1.0f);
+        float y = Math.max((short) (packed >>> 16) / 32767.0f, -1.0f);
+        float z = 1.0f - Math.abs(x) - Math.abs(y);
+        float t = Math.max(-z, 0.0f);
+        x += x >= 0.0f ? -t : t;
+        y += y >= 0.0f ? -t : t;
+        return dest.set(x, y, z).normalize();
+    }
+
+    /**
+     * Packs four [0, 1] values into RGBA8, red in the lowest byte
+     */
+    public static int packUnorm8x4(float r, float g, float b, float a) {
+        int pr = Math.round(clamp01(r) * 255.0f);
+        int pg = Math.round(clamp01(g) * 255.0f);
+        int pb = Math.round(clamp01(b) * 255.0f);
+        int pa = Math.round(clamp01(a) * 255.0f);
+        return pr | (pg << 8) | (pb << 16) | (pa << 24);
+    }
+
+    private static float signNotZero(float value) {
+        return value >= 0.0f ? 1.0f : -1.0f;
+    }
+
+    private static float clamp(float value) {
+        return Math.max(-1.0f, Math.min(1.0f, value));
+    }
+
+    private static float clamp01(float value) {
+        return Math.max(0.0f, Math.min(1.0f, value));
+    }
+}
@@ -1,10 +1,20 @@
 package com.horrorcore.engine.core.graphics;
 
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
 import com.horrorcore.engine.core.GameObject;
 import com.horrorcore.engine.core.Scene;
+import com.horrorcore.engine.core.graphics.framegraph.FrameGraph;
+import com.horrorcore.engine.core.graphics.framegraph.PassBuilder;
+import com.horrorcore.engine.core.graphics.framegraph.PassContext;
+import com.horrorcore.engine.core.graphics.framegraph.PassExecutor;
+import com.horrorcore.engine.core.graphics.framegraph.TextureFormat;
+import com.horrorcore.engine.core.graphics.framegraph.TextureHandle;
 import com.horrorcore.engine.core.ui.*;
 import org.joml.Vector4f;
 
+import static org.lwjgl.opengl.GL11.*;
+
 public class ViewportManager {
     private static final float SCENE_WIDTH_PERCENT = 0.7f;
     private static final float SIDE_PANEL_WIDTH_PERCENT = 0.15f;
@@ -15,6 +25,16 @@ public class ViewportManager {
     private Scene scene;
     private Camera camera;
     private LayoutManager layout;
+    private UiBatcher uiBatcher;        // One batch for the chrome of every panel
+    private TextRenderer textRenderer;  // Lays out text into uiBatcher
+
+    // Passes of every frame, rebuilt each frame from the executors below
+    private final FrameGraph frameGraph = new FrameGraph();
+    private final PassExecutor scenePass = this::renderScenePass;
+    private final PassExecutor uiPass = this::renderUiPass;
+    private TextureHandle sceneColor;  // Current frame's handle, read by the UI pass
+    private int screenWidth = 1280;
+    private int screenHeight = 720;
 
     public ViewportManager(Scene scene, Camera camera) {
         this.scene = scene;
@@ -41,6 +61,16 @@ public class ViewportManager {
         scenePanel.init();
         inspectorPanel.init();
 
+        // All panels queue backgrounds and text into the same batch
+        uiBatcher = new UiBatcher();
+        uiBatcher.init();
+        textRenderer = new TextRenderer(uiBatcher);
+        textRenderer.init();
+        for (Panel panel : new Panel[] {hierarchyPanel, scenePanel, inspectorPanel}) {
+            panel.setUiBatcher(uiBatcher);
+            panel.setTextRenderer(textRenderer);
+        }
+
         // Add panels to layout
         layout.addPanel("hierarchy", hierarchyPanel);
         layout.addPanel("scene", scenePanel);
@@ -52,10 +82,12 @@ public class ViewportManager {
 
 
     public void updateViewports(int windowWidth, int windowHeight) {
-        System.out.println("Updating viewports to: " + windowWidth + "x" + windowHeight);
+        Log.debug(LogCategory.UI, "Updating viewports to: {}x{}").arg(windowWidth).arg(windowHeight).log();
 
         // Update window dimensions in Panel class
         Panel.setWindowDimensions(windowWidth, windowHeight);
+        screenWidth = windowWidth;
+        screenHeight = windowHeight;
 
         // Update layout with new window dimensions
         layout.setSize(windowWidth, windowHeight);
@@ -67,8 +99,51 @@ public class ViewportManager {
         }
     }
 
+    /**
+     * Declares this frame's passes and runs them: the scene is rendered offscreen at the
+     * size of its panel, then the UI pass composes the panels and the scene image on screen
+     */
     public void renderViewports() {
-        layout.render();
+        // Mirror the scene's selection in the inspector, which redraws only when it changes
+        if (inspectorPanel.getSelectedObject() != scene.getSelectedObject()) {
+            inspectorPanel.setSelectedObject(scene.getSelectedObject());
+        }
+
+        frameGraph.beginFrame();
+        TextureHandle backbuffer = frameGraph.importBackbuffer(screenWidth, screenHeight);
+
+        int sceneWidth = Math.round(scenePanel.getWidth());
+        int sceneHeight = Math.round(scenePanel.getHeight());
+        PassBuilder sceneBuilder = frameGraph.addPass("Scene");
+        sceneColor = sceneBuilder.create("SceneColor", TextureFormat.RGBA8, sceneWidth, sceneHeight);
+        TextureHandle sceneDepth = sceneBuilder.create("SceneDepth", TextureFormat.DEPTH24_STENCIL8, sceneWidth, sceneHeight);
+        sceneBuilder.write(sceneColor, true)
+                .writeDepth(sceneDepth, true)
+                .setClearColor(0.15f, 0.15f, 0.15f, 1.0f)
+                .execute(scenePass);
+
+        frameGraph.addPass("UI")
+                .read(sceneColor)
+                .write(backbuffer, true)
+                .setClearColor(0.1f, 0.1f, 0.1f, 1.0f)
+                .execute(uiPass);
+
+        frameGraph.execute();
+    }
+
+    private void renderScenePass(PassContext context) {
+        glEnable(GL_DEPTH_TEST);
+        scene.render(camera);
+        glDisable(GL_DEPTH_TEST);
+    }
+
+    private void renderUiPass(PassContext context) {
+        scenePanel.setSceneTexture(context.getTexture(sceneColor));
+        layout.render(uiBatcher);
+    }
+
+    public void toggleProfilerOverlay() {
+        scenePanel.setProfilerOverlayVisible(!scenePanel.isProfilerOverlayVisible());
     }
 
     public void setSelectedObject(GameObject object) {
@@ -76,7 +151,18 @@ public class ViewportManager {
     }
 
     public void cleanup() {
+        frameGraph.cleanup();
         layout.cleanup();
+        textRenderer.cleanup();
+        uiBatcher.cleanup();
+    }
+
+    public FrameGraph getFrameGraph() {
+        return frameGraph;
+    }
+
+    public UiBatcher getUiBatcher() {
+        return uiBatcher;
     }
 
     public Vector4f getSceneViewportDimensions() {
@@ -0,0 +1,513 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+import com.horrorcore.engine.core.graphics.RenderStats;
+import com.horrorcore.engine.core.graphics.RenderTarget;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Declarative description of a frame's render passes.
+ * Every frame the renderer declares its passes and the textures they read and write, then
+ * calls {@link #execute()}. The graph drops passes whose outputs nobody uses, works out
+ * when each transient texture is first and last needed, and backs transient textures with
+ * pooled storage so textures whose lifetimes don't overlap share memory. Framebuffers for
+ * each combination of attachments are created once and reused.
+ * <p>
+ * Passes run in declaration order, so declare producers before consumers. The only
+ * non-transient resource is the imported backbuffer, i.e. whatever {@link RenderTarget#unbind()}
+ * draws to.
+ */
+public class FrameGraph {
+    private static final int MAX_COLOR_ATTACHMENTS = 4;
+    private static final int[] DRAW_BUFFERS = {
+            GL_COLOR_ATTACHMENT0, GL_COLOR_ATTACHMENT1, GL_COLOR_ATTACHMENT2, GL_COLOR_ATTACHMENT3
+    };
+    private static final int[] ZERO_UINT = new int[4];
+
+    private static final class Resource {
+        String name;
+        TextureFormat format;
+        int width;
+        int height;
+        boolean imported;
+        boolean written;   // Some pass declared so far writes it
+        boolean needed;    // Culling state
+        int firstUse;
+        int lastUse;
+        int textureId;
+    }
+
+    private final class Pass implements PassBuilder, PassContext {
+        String name;
+        PassExecutor executor;
+        int[] reads = new int[4];
+        int readCount;
+        final int[] colors = new int[MAX_COLOR_ATTACHMENTS];
+        final boolean[] colorClears = new boolean[MAX_COLOR_ATTACHMENTS];
+        int colorCount;
+        int depth;
+        boolean depthClear;
+        boolean writesBackbuffer;
+        final float[] clearColor = new float[4];
+        boolean sideEffect;
+        boolean live;
+        int width;
+        int height;
+
+        void reset(String name) {
+            this.name = name;
+            executor = null;
+            readCount = 0;
+            colorCount = 0;
+            depth = -1;
+            depthClear = false;
+            writesBackbuffer = false;
+            Arrays.fill(clearColor, 0.0f);
+            clearColor[3] = 1.0f;
+            sideEffect = false;
+            live = false;
+        }
+
+        @Override
+        public TextureHandle create(String name, TextureFormat format, int width, int height) {
+            addResource(name, format, width, height, false);
+            return new TextureHandle(resourceCount - 1, frame);
+        }
+
+        @Override
+        public PassBuilder read(TextureHandle texture) {
+            Resource resource = resolve(texture);
+            if (!resource.written) {
+                throw new IllegalStateException("Pass " + name + " reads " + resource.name + " before any pass writes it");
+            }
+            if (readCount == reads.length) {
+                reads = Arrays.copyOf(reads, readCount * 2);
+            }
+            reads[readCount++] = texture.index;
+            return this;
+        }
+
+        @Override
+        public PassBuilder write(TextureHandle texture, boolean clear) {
+            Resource resource = resolve(texture);
+            if (resource.format.isDepth()) {
+                throw new IllegalArgumentException(resource.name + " is a depth texture, use writeDepth");
+            }
+            if (resource.imported) {
+                writesBackbuffer = true;
+            } else if (colorCount == MAX_COLOR_ATTACHMENTS) {
+                throw new IllegalStateException("Pass " + name + " has more than " + MAX_COLOR_ATTACHMENTS + " color attachments");
+            }
+            if (writesBackbuffer && (colorCount > 0 || depth >= 0 || !resource.imported)) {
+                throw new IllegalStateException("Pass " + name + " mixes the backbuffer with other attachments");
+            }
+            colors[colorCount] = texture.index;
+            colorClears[colorCount] = clear;
+            colorCount++;
+            resource.written = true;
+            return this;
+        }
+
+        @Override
+        public PassBuilder writeDepth(TextureHandle texture, boolean clear) {
+            Resource resource = resolve(texture);
+            if (!resource.format.isDepth()) {
+                throw new IllegalArgumentException(resource.name + " is not a depth texture");
+            }
+            if (writesBackbuffer) {
+                throw new IllegalStateException("Pass " + name + " mixes the backbuffer with other attachments");
+            }
+            depth = texture.index;
+            depthClear = clear;
+            resource.written = true;
+            return this;
+        }
+
+        @Override
+        public PassBuilder setClearColor(float r, float g, float b, float a) {
+            clearColor[0] = r;
+            clearColor[1] = g;
+            clearColor[2] = b;
+            clearColor[3] = a;
+            return this;
+        }
+
+        @Override
+        public PassBuilder sideEffect() {
+            sideEffect = true;
+            return this;
+        }
+
+        @Override
+        public void execute(PassExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public int getTexture(TextureHandle handle) {
+            return resolve(handle).textureId;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        boolean writes(int resource) {
+            for (int i = 0; i < colorCount; i++) {
+                if (colors[i] == resource) return true;
+            }
+            return depth == resource;
+        }
+    }
+
+    private static final class Framebuffer {
+        int id;
+        final int[] colors = new int[MAX_COLOR_ATTACHMENTS];
+        int colorCount;
+        int depth;
+
+        boolean uses(int textureId) {
+            for (int i = 0; i < colorCount; i++) {
+                if (colors[i] == textureId) return true;
+            }
+            return depth == textureId;
+        }
+    }
+
+    // Reused from frame to frame, only the first passCount / resourceCount entries are current
+    private final List<Pass> passes = new ArrayList<>();
+    private final List<Resource> resources = new ArrayList<>();
+    private int passCount;
+    private int resourceCount;
+    private long frame;
+
+    private final TransientTexturePool pool;
+    private final List<Framebuffer> framebuffers = new ArrayList<>();
+    private final Map<String, ProfileScope> scopes = new HashMap<>();
+    private int culledPasses;
+
+    public FrameGraph() {
+        this(TransientTexturePool.GL_STORAGE);
+    }
+
+    FrameGraph(TransientTexturePool.Storage textureStorage) {
+        pool = new TransientTexturePool(textureStorage, this::deleteFramebuffersUsing);
+    }
+
+    /**
+     * Starts declaring a new frame, handles from earlier frames become invalid
+     */
+    public void beginFrame() {
+        frame++;
+        passCount = 0;
+        resourceCount = 0;
+    }
+
+    /**
+     * Imports the screen as a resource; passes writing it are never culled
+     */
+    public TextureHandle importBackbuffer(int width, int height) {
+        Resource resource = addResource("Backbuffer", TextureFormat.RGBA8, width, height, true);
+        resource.written = true;  // Holds last frame's image until someone clears it
+        return new TextureHandle(resourceCount - 1, frame);
+    }
+
+    public PassBuilder addPass(String name) {
+        if (passCount == passes.size()) {
+            passes.add(new Pass());
+        }
+        Pass pass = passes.get(passCount++);
+        pass.reset(name);
+        return pass;
+    }
+
+    private Resource addResource(String name, TextureFormat format, int width, int height, boolean imported) {
+        if (resourceCount == resources.size()) {
+            resources.add(new Resource());
+        }
+        Resource resource = resources.get(resourceCount++);
+        resource.name = name;
+        resource.format = format;
+        resource.width = Math.max(width, 1);
+        resource.height = Math.max(height, 1);
+        resource.imported = imported;
+        resource.written = false;
+        resource.textureId = 0;
+        return resource;
+    }
+
+    private Resource resolve(TextureHandle handle) {
+        if (handle.frame != frame || handle.index >= resourceCount) {
+            throw new IllegalStateException("Texture handle from an earlier frame");
+        }
+        return resources.get(handle.index);
+    }
+
+    /**
+     * Culls, schedules and runs the declared passes
+     */
+    public void execute() {
+        compile();
+
+        for (int i = 0; i < passCount; i++) {
+            Pass pass = passes.get(i);
+            if (!pass.live) continue;
+
+            ProfileScope scope = scopes.get(pass.name);
+            if (scope == null) {
+                scope = Profiler.scope("Pass." + pass.name, true);
+                scopes.put(pass.name, scope);
+            }
+            scope.begin();
+            bindAttachments(pass);
+            clearAttachments(pass);
+            pass.executor.execute(pass);
+            scope.end();
+        }
+        RenderTarget.unbind();
+    }
+
+    // Decides which passes run and which texture backs each transient resource, no GL calls
+    void compile() {
+        cull();
+        allocate();
+    }
+
+    /**
+     * Whether the pass survived culling in the last compile, false if it doesn't exist
+     */
+    boolean isLive(String passName) {
+        for (int i = 0; i < passCount; i++) {
+            Pass pass = passes.get(i);
+            if (pass.name.equals(passName)) {
+                return pass.live;
+            }
+        }
+        return false;
+    }
+
+    // Texture assigned to a resource by the last compile, 0 if no live pass uses it
+    int getTextureId(TextureHandle handle) {
+        return resolve(handle).textureId;
+    }
+
+    // Walks the passes backwards keeping only those that contribute to the backbuffer or have side effects
+    private void cull() {
+        for (int r = 0; r < resourceCount; r++) {
+            Resource resource = resources.get(r);
+            resource.needed = resource.imported;
+        }
+
+        culledPasses = 0;
+        for (int i = passCount - 1; i >= 0; i--) {
+            Pass pass = passes.get(i);
+            if (pass.executor == null) {
+                throw new IllegalStateException("Pass " + pass.name + " was declared without an executor");
+            }
+
+            boolean live = pass.sideEffect;
+            for (int c = 0; c < pass.colorCount && !live; c++) {
+                live = resources.get(pass.colors[c]).needed;
+            }
+            if (!live && pass.depth >= 0) {
+                live = resources.get(pass.depth).needed;
+            }
+            pass.live = live;
+            if (!live) {
+                culledPasses++;
+                continue;
+            }
+
+            // A cleared output doesn't depend on earlier writers, a loaded one does
+            for (int c = 0; c < pass.colorCount; c++) {
+                if (pass.colorClears[c]) {
+                    resources.get(pass.colors[c]).needed = false;
+                }
+            }
+            if (pass.depth >= 0 && pass.depthClear) {
+                resources.get(pass.depth).needed = false;
+            }
+            for (int r = 0; r < pass.readCount; r++) {
+                resources.get(pass.reads[r]).needed = true;
+            }
+        }
+    }
+
+    // Assigns pooled textures to transient resources, releasing each one after its last use
+    private void allocate() {
+        for (int r = 0; r < resourceCount; r++) {
+            Resource resource = resources.get(r);
+            resource.firstUse = -1;
+            resource.lastUse = -1;
+        }
+        for (int i = 0; i < passCount; i++) {
+            Pass pass = passes.get(i);
+            if (!pass.live) continue;
+            for (int r = 0; r < pass.readCount; r++) {
+                markUse(pass.reads[r], i);
+            }
+            for (int c = 0; c < pass.colorCount; c++) {
+                markUse(pass.colors[c], i);
+            }
+            if (pass.depth >= 0) {
+                markUse(pass.depth, i);
+            }
+        }
+
+        pool.beginFrame(frame);
+        for (int i = 0; i < passCount; i++) {
+            for (int r = 0; r < resourceCount; r++) {
+                Resource resource = resources.get(r);
+                if (!resource.imported && resource.firstUse == i) {
+                    resource.textureId = pool.acquire(resource.format, resource.width, resource.height);
+                }
+            }
+            for (int r = 0; r < resourceCount; r++) {
+                Resource resource = resources.get(r);
+                if (!resource.imported && resource.lastUse == i) {
+                    pool.release(resource.textureId);
+                }
+            }
+        }
+    }
+
+    private void markUse(int resourceIndex, int passIndex) {
+        Resource resource = resources.get(resourceIndex);
+        if (resource.firstUse < 0) {
+            resource.firstUse = passIndex;
+        }
+        resource.lastUse = passIndex;
+    }
+
+    private void bindAttachments(Pass pass) {
+        if (pass.writesBackbuffer) {
+            Resource backbuffer = resources.get(pass.colors[0]);
+            RenderTarget.unbind();
+            pass.width = backbuffer.width;
+            pass.height = backbuffer.height;
+        } else if (pass.colorCount > 0 || pass.depth >= 0) {
+            Framebuffer framebuffer = getFramebuffer(pass);
+            glBindFramebuffer(GL_FRAMEBUFFER, framebuffer.id);
+            RenderStats.countFramebufferBind();
+            Resource first = resources.get(pass.colorCount > 0 ? pass.colors[0] : pass.depth);
+            pass.width = first.width;
+            pass.height = first.height;
+        } else {
+            // Pure side-effect pass, e.g. a compute-style readback
+            RenderTarget.unbind();
+            pass.width = 0;
+            pass.height = 0;
+            return;
+        }
+        glViewport(0, 0, pass.width, pass.height);
+    }
+
+    private void clearAttachments(Pass pass) {
+        boolean anyClear = pass.depth >= 0 && pass.depthClear;
+        for (int c = 0; c < pass.colorCount; c++) {
+            anyClear |= pass.colorClears[c];
+        }
+        if (!anyClear) return;
+
+        // Clears are affected by the scissor and write masks
+        glDisable(GL_SCISSOR_TEST);
+        glColorMask(true, true, true, true);
+        for (int c = 0; c < pass.colorCount; c++) {
+            if (!pass.colorClears[c]) continue;
+            if (resources.get(pass.colors[c]).format == TextureFormat.R32UI) {
+                glClearBufferuiv(GL_COLOR, c, ZERO_UINT);
+            } else {
+                glClearBufferfv(GL_COLOR, c, pass.clearColor);
+            }
+        }
+        if (pass.depth >= 0 && pass.depthClear) {
+            glDepthMask(true);
+            glClearBufferfi(GL_DEPTH_STENCIL, 0, 1.0f, 0);
+        }
+    }
+
+    private Framebuffer getFramebuffer(Pass pass) {
+        int depthTexture = pass.depth >= 0 ? resources.get(pass.depth).textureId : 0;
+        for (Framebuffer framebuffer : framebuffers) {
+            if (framebuffer.colorCount != pass.colorCount || framebuffer.depth != depthTexture) continue;
+            boolean match = true;
+            for (int c = 0; c < pass.colorCount && match; c++) {
+                match = framebuffer.colors[c] == resources.get(pass.colors[c]).textureId;
+            }
+            if (match) return framebuffer;
+        }
+
+        Framebuffer framebuffer = new Framebuffer();
+        framebuffer.id = glGenFramebuffers();
+        framebuffer.colorCount = pass.colorCount;
+        framebuffer.depth = depthTexture;
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer.id);
+        for (int c = 0; c < pass.colorCount; c++) {
+            framebuffer.colors[c] = resources.get(pass.colors[c]).textureId;
+            glFramebufferTexture2D(GL_FRAMEBUFFER, DRAW_BUFFERS[c], GL_TEXTURE_2D, framebuffer.colors[c], 0);
+        }
+        if (depthTexture != 0) {
+            glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_STENCIL_ATTACHMENT, GL_TEXTURE_2D, depthTexture, 0);
+        }
+        if (pass.colorCount == 0) {
+            glDrawBuffer(GL_NONE);
+        } else {
+            glDrawBuffers(Arrays.copyOf(DRAW_BUFFERS, pass.colorCount));
+        }
+
+        int status = glCheckFramebufferStatus(GL_FRAMEBUFFER);
+        if (status != GL_FRAMEBUFFER_COMPLETE) {
+            glDeleteFramebuffers(framebuffer.id);
+            RenderTarget.unbind();
+            throw new IllegalStateException("Framebuffer for pass " + pass.name + " incomplete: 0x" + Integer.toHexString(status));
+        }
+        framebuffers.add(framebuffer);
+        return framebuffer;
+    }
+
+    private void deleteFramebuffersUsing(int textureId) {
+        for (int i = framebuffers.size() - 1; i >= 0; i--) {
+            if (framebuffers.get(i).uses(textureId)) {
+                glDeleteFramebuffers(framebuffers.get(i).id);
+                framebuffers.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Passes dropped by the last {@link #execute()} because nothing used their output
+     */
+    public int getCulledPassCount() {
+        return culledPasses;
+    }
+
+    public int getTransientTextureCount() {
+        return pool.getTextureCount();
+    }
+
+    public long getTransientTextureBytes() {
+        return pool.getBytes();
+    }
+
+    public void cleanup() {
+        pool.cleanup();
+        for (Framebuffer framebuffer : framebuffers) {
+            glDeleteFramebuffers(framebuffer.id);
+        }
+        framebuffers.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+/**
+ * Declares what a pass reads and writes. Obtained from {@link FrameGraph#addPass(String)};
+ * finish the declaration with {@link #execute(PassExecutor)}.
+ */
+public interface PassBuilder {
+    /**
+     * Declares a transient texture produced by this pass. Its storage comes from the graph's
+     * pool and may be shared with other transient textures whose lifetimes don't overlap,
+     * so a pass must write it before anything reads it.
+     */
+    TextureHandle create(String name, TextureFormat format, int width, int height);
+
+    /**
+     * Samples the texture, making this pass depend on the passes that wrote it
+     */
+    PassBuilder read(TextureHandle texture);
+
+    /**
+     * Renders into the texture as the next color attachment
+     * @param clear Clear it first; without a clear, earlier contents are kept and the passes
+     *              that produced them stay alive
+     */
+    PassBuilder write(TextureHandle texture, boolean clear);
+
+    /**
+     * Uses the texture as the depth/stencil attachment, cleared to depth 1 and stencil 0
+     * when requested
+     */
+    PassBuilder writeDepth(TextureHandle texture, boolean clear);
+
+    PassBuilder setClearColor(float r, float g, float b, float a);
+
+    /**
+     * Keeps the pass even if none of its outputs are used, e.g. for readbacks
+     */
+    PassBuilder sideEffect();
+
+    void execute(PassExecutor executor);
+}
@@ -0,0 +1,15 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+/**
+ * What a pass can see while it executes
+ */
+public interface PassContext {
+    /**
+     * GL texture currently backing the handle, 0 for the imported backbuffer
+     */
+    int getTexture(TextureHandle handle);
+
+    int getWidth();
+
+    int getHeight();
+}
@@ -0,0 +1,10 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+/**
+ * Records a pass's GL commands. Called with the pass's attachments bound, the viewport set
+ * to cover them and requested clears already done.
+ */
+@FunctionalInterface
+public interface PassExecutor {
+    void execute(PassContext context);
+}
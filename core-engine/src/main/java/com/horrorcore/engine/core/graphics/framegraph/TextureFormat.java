@@ -0,0 +1,29 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * Storage formats for frame graph textures
+ */
+public enum TextureFormat {
+    RGBA8(GL_RGBA8, GL_RGBA, GL_UNSIGNED_BYTE, 4),
+    RGBA16F(GL_RGBA16F, GL_RGBA, GL_HALF_FLOAT, 8),
+    R32UI(GL_R32UI, GL_RED_INTEGER, GL_UNSIGNED_INT, 4),  // Object ids for picking
+    DEPTH24_STENCIL8(GL_DEPTH24_STENCIL8, GL_DEPTH_STENCIL, GL_UNSIGNED_INT_24_8, 4);
+
+    final int internalFormat;
+    final int format;
+    final int type;
+    final int bytesPerPixel;
+
+    TextureFormat(int internalFormat, int format, int type, int bytesPerPixel) {
+        this.internalFormat = internalFormat;
+        this.format = format;
+        this.type = type;
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    public boolean isDepth() {
+        return this == DEPTH24_STENCIL8;
+    }
+}
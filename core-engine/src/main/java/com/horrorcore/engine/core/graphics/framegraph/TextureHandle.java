@@ -0,0 +1,16 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+/**
+ * Refers to a texture declared in the current frame's graph. Handles are only valid for
+ * the frame they were created in; the GL texture behind them is resolved at execution
+ * through {@link PassContext#getTexture(TextureHandle)}.
+ */
+public final class TextureHandle {
+    final int index;
+    final long frame;
+
+    TextureHandle(int index, long frame) {
+        this.index = index;
+        this.frame = frame;
+    }
+}
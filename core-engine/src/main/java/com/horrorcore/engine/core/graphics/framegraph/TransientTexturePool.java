@@ -0,0 +1,141 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+import com.horrorcore.engine.core.metrics.EngineMetrics;
+import com.horrorcore.engine.core.metrics.GlResourceType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+
+/**
+ * Textures handed out to transient frame graph resources.
+ * A texture is free again as soon as the last pass using it has been scheduled, so
+ * resources with disjoint lifetimes in the same frame share storage. Textures that go
+ * unused for EVICT_AFTER_FRAMES frames (e.g. after a resize) are deleted.
+ */
+class TransientTexturePool {
+    private static final int EVICT_AFTER_FRAMES = 60;
+
+    // Creates and deletes the textures behind the pool, swapped out where there's no GL context
+    interface Storage {
+        int create(TextureFormat format, int width, int height);
+
+        void delete(int textureId);
+    }
+
+    static final Storage GL_STORAGE = new Storage() {
+        @Override
+        public int create(TextureFormat format, int width, int height) {
+            int textureId = glGenTextures();
+            glBindTexture(GL_TEXTURE_2D, textureId);
+            glTexImage2D(GL_TEXTURE_2D, 0, format.internalFormat, width, height, 0, format.format, format.type, 0);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+            glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+            glBindTexture(GL_TEXTURE_2D, 0);
+            return textureId;
+        }
+
+        @Override
+        public void delete(int textureId) {
+            glDeleteTextures(textureId);
+        }
+    };
+
+    private static final class Entry {
+        int textureId;
+        TextureFormat format;
+        int width;
+        int height;
+        boolean inUse;
+        long lastUsedFrame;
+
+        long bytes() {
+            return (long) width * height * format.bytesPerPixel;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Storage storage;
+    private final IntConsumer onDelete;  // Lets the graph drop framebuffers using a texture
+    private long frame;
+    private long bytes;
+
+    TransientTexturePool(Storage storage, IntConsumer onDelete) {
+        this.storage = storage;
+        this.onDelete = onDelete;
+    }
+
+    /**
+     * Makes every texture available again and evicts the ones that have been idle too long
+     */
+    void beginFrame(long frame) {
+        this.frame = frame;
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            Entry entry = entries.get(i);
+            entry.inUse = false;
+            if (frame - entry.lastUsedFrame > EVICT_AFTER_FRAMES) {
+                delete(entry);
+                entries.remove(i);
+            }
+        }
+    }
+
+    int acquire(TextureFormat format, int width, int height) {
+        for (Entry entry : entries) {
+            if (!entry.inUse && entry.format == format && entry.width == width && entry.height == height) {
+                entry.inUse = true;
+                entry.lastUsedFrame = frame;
+                return entry.textureId;
+            }
+        }
+
+        Entry entry = new Entry();
+        entry.format = format;
+        entry.width = width;
+        entry.height = height;
+        entry.inUse = true;
+        entry.lastUsedFrame = frame;
+        entry.textureId = storage.create(format, width, height);
+
+        entries.add(entry);
+        bytes += entry.bytes();
+        EngineMetrics.resourceCreated(GlResourceType.TEXTURE, entry.bytes());
+        return entry.textureId;
+    }
+
+    void release(int textureId) {
+        for (Entry entry : entries) {
+            if (entry.textureId == textureId) {
+                entry.inUse = false;
+                return;
+            }
+        }
+    }
+
+    private void delete(Entry entry) {
+        onDelete.accept(entry.textureId);
+        storage.delete(entry.textureId);
+        bytes -= entry.bytes();
+        EngineMetrics.resourceDestroyed(GlResourceType.TEXTURE, entry.bytes());
+    }
+
+    int getTextureCount() {
+        return entries.size();
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    void cleanup() {
+        for (Entry entry : entries) {
+            delete(entry);
+        }
+        entries.clear();
+    }
+}
@@ -0,0 +1,233 @@
+package com.horrorcore.engine.core.log;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer ring buffer drained by a single daemon thread.
+ * Producers claim a slot with a CAS on the tail, copy the event in and publish the slot with a
+ * volatile write; formatting and I/O happen only on the logging thread. When the ring is full
+ * events are dropped rather than blocking the caller, and the loss is reported in the output.
+ */
+class AsyncLogSink {
+    private static final int CAPACITY = 8192;  // Power of two
+    private static final long IDLE_PARK_NANOS = 5_000_000L;
+
+    private static final class Slot {
+        volatile long sequence = -1;  // Index of the event this slot holds once published
+        LogLevel level;
+        LogCategory category;
+        String message;
+        long timestamp;
+        int argCount;
+        final byte[] kinds = new byte[LogEvent.MAX_ARGS];
+        final long[] values = new long[LogEvent.MAX_ARGS];
+        final Object[] objects = new Object[LogEvent.MAX_ARGS];
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();  // Next event index to claim
+    private volatile long head;                        // Next event index to consume
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;  // Logging thread only
+    private final long startTime = System.nanoTime();
+    private final StringBuilder line = new StringBuilder(256);  // Logging thread only
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    AsyncLogSink() {
+        this(CAPACITY, System.out, System.err, true);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "phantasm-log-shutdown"));
+    }
+
+    /**
+     * @param capacity   Events the ring holds, a power of two
+     * @param out        Receives events below WARN
+     * @param err        Receives WARN and ERROR events and the dropped message reports
+     * @param background Whether a daemon thread drains the ring, otherwise only flush() does
+     */
+    AsyncLogSink(int capacity, PrintStream out, PrintStream err, boolean background) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Log ring capacity " + capacity + " is not a power of two");
+        }
+        slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+        }
+        mask = capacity - 1;
+        this.out = out;
+        this.err = err;
+        if (background) {
+            worker = new Thread(this::run, "phantasm-log");
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            worker = null;
+        }
+    }
+
+    /**
+     * Copies the event into the ring
+     * @return False if the ring was full and the event was dropped
+     */
+    boolean publish(LogEvent event) {
+        long index = claim();
+        if (index < 0) {
+            return false;
+        }
+        fill(index, event);
+        return true;
+    }
+
+    /**
+     * Reserves the next slot, the consumer stops there until it is filled
+     * @return Index of the event to fill, -1 if the ring is full and the event was dropped
+     */
+    long claim() {
+        long index;
+        do {
+            index = tail.get();
+            if (index - head >= slots.length) {
+                dropped.incrementAndGet();
+                return -1;
+            }
+        } while (!tail.compareAndSet(index, index + 1));
+        return index;
+    }
+
+    /**
+     * Copies the event into a claimed slot and publishes it
+     */
+    void fill(long index, LogEvent event) {
+        Slot slot = slots[(int) (index & mask)];
+        slot.level = event.level;
+        slot.category = event.category;
+        slot.message = event.message;
+        slot.timestamp = event.timestamp;
+        slot.argCount = event.argCount;
+        for (int i = 0; i < event.argCount; i++) {
+            slot.kinds[i] = event.kinds[i];
+            slot.values[i] = event.values[i];
+            slot.objects[i] = event.objects[i];
+        }
+        slot.sequence = index;  // Publish
+    }
+
+    private void run() {
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    // Writes out every published event, returns false if there was nothing to do
+    private synchronized boolean drain() {
+        boolean didWork = false;
+        long index = head;
+        while (true) {
+            Slot slot = slots[(int) (index & mask)];
+            if (slot.sequence != index) break;
+
+            write(slot);
+            for (int i = 0; i < slot.argCount; i++) {
+                slot.objects[i] = null;
+            }
+            index++;
+            head = index;  // Releases the slot to producers
+            didWork = true;
+        }
+
+        long totalDropped = dropped.get();
+        if (totalDropped > reportedDropped) {
+            err.println("[log] " + (totalDropped - reportedDropped) + " messages dropped, log buffer full");
+            reportedDropped = totalDropped;
+        }
+        return didWork;
+    }
+
+    private void write(Slot slot) {
+        line.setLength(0);
+        long millis = (slot.timestamp - startTime) / 1_000_000L;
+        line.append('[').append(millis / 1000).append('.');
+        long fraction = millis % 1000;
+        if (fraction < 100) line.append('0');
+        if (fraction < 10) line.append('0');
+        line.append(fraction).append("] ");
+        line.append(slot.level.name());
+        for (int i = slot.level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(' ').append(slot.category.name()).append(": ");
+
+        // Substitute {} placeholders in order, extra arguments are appended at the end
+        String message = slot.message;
+        int arg = 0;
+        int start = 0;
+        int placeholder;
+        while ((placeholder = message.indexOf("{}", start)) >= 0) {
+            line.append(message, start, placeholder);
+            if (arg < slot.argCount) {
+                appendArg(slot, arg++);
+            } else {
+                line.append("{}");
+            }
+            start = placeholder + 2;
+        }
+        line.append(message, start, message.length());
+        while (arg < slot.argCount) {
+            line.append(' ');
+            appendArg(slot, arg++);
+        }
+
+        PrintStream stream = slot.level.ordinal() >= LogLevel.WARN.ordinal() ? err : out;
+        stream.println(line);
+    }
+
+    private void appendArg(Slot slot, int i) {
+        long value = slot.values[i];
+        switch (slot.kinds[i]) {
+            case LogEvent.KIND_LONG -> line.append(value);
+            case LogEvent.KIND_FLOAT -> line.append(Float.intBitsToFloat((int) value));
+            case LogEvent.KIND_DOUBLE -> line.append(Double.longBitsToDouble(value));
+            case LogEvent.KIND_BOOLEAN -> line.append(value != 0);
+            default -> line.append(slot.objects[i]);
+        }
+    }
+
+    /**
+     * Blocks until everything published so far has been written
+     */
+    void flush() {
+        long target = tail.get();
+        while (head < target) {
+            // A claimed slot may still be being filled, give its producer a moment
+            if (!drain()) {
+                Thread.onSpinWait();
+            }
+        }
+        out.flush();
+        err.flush();
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Stops the background thread and writes out what is left, run by the shutdown hook
+     */
+    void shutdown() {
+        running = false;
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+        drain();
+        out.flush();
+        err.flush();
+    }
+}
@@ -0,0 +1,88 @@
+package com.horrorcore.engine.core.log;
+
+/**
+ * Engine logging facade.
+ * <pre>
+ * if (Log.TRACE_COMPILED) {
+ *     Log.trace(LogCategory.UI, "Panel bounds {}, {}").arg(x).arg(y).log();
+ * }
+ * Log.info(LogCategory.RENDER, "Loaded {} meshes").arg(count).log();
+ * </pre>
+ * The *_COMPILED flags are compile-time constants, so guarded trace and debug calls in hot
+ * paths vanish from the bytecode when switched off. Past that, each category has a runtime
+ * threshold; a disabled call only costs that check, and arguments are recorded raw without
+ * boxing or string building. Enabled events go to an asynchronous ring buffer, so logging
+ * never blocks the render thread on I/O.
+ */
+public final class Log {
+    // Compile-time switches for the chatty levels, rebuild to change
+    public static final boolean TRACE_COMPILED = false;
+    public static final boolean DEBUG_COMPILED = true;
+
+    private static final AsyncLogSink SINK = new AsyncLogSink();
+    private static final ThreadLocal<LogEvent> EVENTS = ThreadLocal.withInitial(() -> new LogEvent(SINK));
+
+    private Log() {
+    }
+
+    public static LogEvent trace(LogCategory category, String message) {
+        return TRACE_COMPILED ? at(LogLevel.TRACE, category, message) : LogEvent.DISABLED;
+    }
+
+    public static LogEvent debug(LogCategory category, String message) {
+        return DEBUG_COMPILED ? at(LogLevel.DEBUG, category, message) : LogEvent.DISABLED;
+    }
+
+    public static LogEvent info(LogCategory category, String message) {
+        return at(LogLevel.INFO, category, message);
+    }
+
+    public static LogEvent warn(LogCategory category, String message) {
+        return at(LogLevel.WARN, category, message);
+    }
+
+    public static LogEvent error(LogCategory category, String message) {
+        return at(LogLevel.ERROR, category, message);
+    }
+
+    /**
+     * Starts an event, or returns a no-op event when the level is disabled for the category
+     */
+    public static LogEvent at(LogLevel level, LogCategory category, String message) {
+        if (!category.isEnabled(level)) {
+            return LogEvent.DISABLED;
+        }
+        return EVENTS.get().start(level, category, message);
+    }
+
+    public static boolean isEnabled(LogLevel level, LogCategory category) {
+        return category.isEnabled(level);
+    }
+
+    public static void setThreshold(LogCategory category, LogLevel threshold) {
+        category.setThreshold(threshold);
+    }
+
+    /**
+     * Sets the threshold of every category
+     */
+    public static void setThreshold(LogLevel threshold) {
+        for (LogCategory category : LogCategory.values()) {
+            category.setThreshold(threshold);
+        }
+    }
+
+    /**
+     * Blocks until all events logged so far have been written, e.g. before exiting
+     */
+    public static void flush() {
+        SINK.flush();
+    }
+
+    /**
+     * Events lost because the ring buffer was full
+     */
+    public static long getDroppedCount() {
+        return SINK.getDroppedCount();
+    }
+}
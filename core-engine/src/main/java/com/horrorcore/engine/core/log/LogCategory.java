@@ -0,0 +1,34 @@
+package com.horrorcore.engine.core.log;
+
+/**
+ * Engine subsystems that can be enabled for logging independently.
+ * The initial threshold comes from the phantasm.log.&lt;category&gt; system property,
+ * e.g. -Dphantasm.log.ui=trace, falling back to phantasm.log.level and then INFO.
+ */
+public enum LogCategory {
+    CORE,    // Window, main loop, GLFW
+    RENDER,  // Shaders, buffers, batching
+    TEXT,    // Fonts and text layout
+    UI,      // Panels and layout
+    SCENE,   // Scene graph, selection, picking
+    ASSETS;  // Loading and resource lifetime
+
+    private volatile LogLevel threshold;
+
+    LogCategory() {
+        LogLevel global = LogLevel.parse(System.getProperty("phantasm.log.level"), LogLevel.INFO);
+        threshold = LogLevel.parse(System.getProperty("phantasm.log." + name().toLowerCase()), global);
+    }
+
+    public LogLevel getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(LogLevel threshold) {
+        this.threshold = threshold;
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold.ordinal();
+    }
+}
@@ -0,0 +1,96 @@
+package com.horrorcore.engine.core.log;
+
+/**
+ * A log message being assembled on the calling thread.
+ * Arguments fill the {} placeholders of the message in order. Primitives are stored raw and
+ * everything is formatted later on the logging thread, so building and submitting an event
+ * allocates nothing. Object arguments are converted with String.valueOf on the logging
+ * thread too; pass immutable values (or copies) for data that keeps changing.
+ * <p>
+ * Instances are reused per thread: finish each event with {@link #log()} before starting the next.
+ */
+public class LogEvent {
+    public static final int MAX_ARGS = 8;
+
+    static final byte KIND_LONG = 0;
+    static final byte KIND_FLOAT = 1;
+    static final byte KIND_DOUBLE = 2;
+    static final byte KIND_BOOLEAN = 3;
+    static final byte KIND_OBJECT = 4;
+
+    // Returned while a level or category is disabled, drops everything
+    static final LogEvent DISABLED = new LogEvent(null) {
+        @Override public LogEvent arg(long value) { return this; }
+        @Override public LogEvent arg(float value) { return this; }
+        @Override public LogEvent arg(double value) { return this; }
+        @Override public LogEvent arg(boolean value) { return this; }
+        @Override public LogEvent arg(Object value) { return this; }
+        @Override public void log() { }
+    };
+
+    private final AsyncLogSink sink;
+
+    LogLevel level;
+    LogCategory category;
+    String message;
+    long timestamp;
+    int argCount;
+    final byte[] kinds = new byte[MAX_ARGS];
+    final long[] values = new long[MAX_ARGS];
+    final Object[] objects = new Object[MAX_ARGS];
+
+    LogEvent(AsyncLogSink sink) {
+        this.sink = sink;
+    }
+
+    LogEvent start(LogLevel level, LogCategory category, String message) {
+        this.level = level;
+        this.category = category;
+        this.message = message;
+        this.timestamp = System.nanoTime();
+        this.argCount = 0;
+        return this;
+    }
+
+    public LogEvent arg(long value) {
+        return put(KIND_LONG, value, null);
+    }
+
+    public LogEvent arg(float value) {
+        return put(KIND_FLOAT, Float.floatToRawIntBits(value), null);
+    }
+
+    public LogEvent arg(double value) {
+        return put(KIND_DOUBLE, Double.doubleToRawLongBits(value), null);
+    }
+
+    public LogEvent arg(boolean value) {
+        return put(KIND_BOOLEAN, value ? 1 : 0, null);
+    }
+
+    public LogEvent arg(Object value) {
+        return put(KIND_OBJECT, 0, value);
+    }
+
+    private LogEvent put(byte kind, long value, Object object) {
+        if (argCount < MAX_ARGS) {
+            kinds[argCount] = kind;
+            values[argCount] = value;
+            objects[argCount] = object;
+            argCount++;
+        }
+        return this;
+    }
+
+    /**
+     * Hands the event to the asynchronous sink. Never blocks; if the sink is full the
+     * event is dropped and counted.
+     */
+    public void log() {
+        sink.publish(this);
+        // Don't keep argument objects alive until the next event on this thread
+        for (int i = 0; i < argCount; i++) {
+            objects[i] = null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.horrorcore.engine.core.log;
+
+/**
+ * Severity of a log message, ordered from most to least verbose
+ */
+public enum LogLevel {
+    TRACE,  // Per-frame detail, compiled out unless Log.TRACE_COMPILED is set
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;    // Threshold only, disables a category completely
+
+    /**
+     * Parses a level name case-insensitively, returning fallback for unknown names
+     */
+    public static LogLevel parse(String name, LogLevel fallback) {
+        if (name == null) return fallback;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
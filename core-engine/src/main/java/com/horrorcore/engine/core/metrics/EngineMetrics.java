@@ -0,0 +1,178 @@
+package com.horrorcore.engine.core.metrics;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Engine-wide runtime counters for soak tests and standard JVM tooling.
+ * Counters that change from anywhere are LongAdders, which stripe contended updates across
+ * cells and are only summed when JMX reads them. Per-frame values are written once per frame
+ * by the main loop. Nothing here blocks or allocates, so the bookkeeping costs next to nothing
+ * while no JMX client or flight recording is attached.
+ */
+public final class EngineMetrics implements EngineMetricsMBean {
+    private static final String OBJECT_NAME = "com.horrorcore.engine:type=EngineMetrics";
+    private static final EngineMetrics INSTANCE = new EngineMetrics();
+
+    private static final LongAdder gameObjects = new LongAdder();
+    private static final LongAdder components = new LongAdder();
+    private static final LongAdder shaderCompiles = new LongAdder();
+    private static final LongAdder gpuBufferBytes = new LongAdder();
+    private static final LongAdder gpuTextureBytes = new LongAdder();
+    private static final LongAdder[] liveResources = new LongAdder[GlResourceType.values().length];
+
+    // Written by the main loop only
+    private static volatile long framesRendered;
+    private static volatile int drawCalls;
+    private static volatile int triangles;
+    private static volatile int stateChanges;
+    private static volatile long allocatedBytesPerFrame;
+    private static long lastAllocatedBytes = -1;
+
+    private static final com.sun.management.ThreadMXBean threads = allocationCounter();
+    private static boolean registered;
+
+    static {
+        for (int i = 0; i < liveResources.length; i++) {
+            liveResources[i] = new LongAdder();
+        }
+    }
+
+    private EngineMetrics() {
+    }
+
+    /**
+     * Registers the MBean with the platform MBean server. Safe to call more than once;
+     * -Dphantasm.metrics.jmx=false skips registration.
+     */
+    public static synchronized void register() {
+        if (registered || !Boolean.parseBoolean(System.getProperty("phantasm.metrics.jmx", "true"))) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            Log.warn(LogCategory.CORE, "Could not register engine metrics MBean: {}").arg(e.getMessage()).log();
+        }
+    }
+
+    public static void gameObjectCreated() {
+        gameObjects.increment();
+    }
+
+    public static void gameObjectDestroyed() {
+        gameObjects.decrement();
+    }
+
+    public static void componentsAdded(int count) {
+        components.add(count);
+    }
+
+    public static void componentsRemoved(int count) {
+        components.add(-count);
+    }
+
+    static void shaderCompiled() {
+        shaderCompiles.increment();
+    }
+
+    /**
+     * Records a new GL object
+     * @param bytes Storage size for buffers and textures, 0 otherwise
+     */
+    public static void resourceCreated(GlResourceType type, long bytes) {
+        updateResources(type, bytes, true);
+    }
+
+    public static void resourceDestroyed(GlResourceType type, long bytes) {
+        updateResources(type, bytes, false);
+    }
+
+    /**
+     * Storage of an existing buffer or texture was reallocated
+     */
+    public static void resourceResized(GlResourceType type, long oldBytes, long newBytes) {
+        bytesFor(type, newBytes - oldBytes);
+    }
+
+    private static void updateResources(GlResourceType type, long bytes, boolean created) {
+        liveResources[type.ordinal()].add(created ? 1 : -1);
+        bytesFor(type, created ? bytes : -bytes);
+
+        GlResourceEvent event = new GlResourceEvent();
+        if (event.isEnabled()) {
+            event.type = type.name();
+            event.created = created;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    private static void bytesFor(GlResourceType type, long delta) {
+        if (type == GlResourceType.BUFFER) {
+            gpuBufferBytes.add(delta);
+        } else if (type == GlResourceType.TEXTURE) {
+            gpuTextureBytes.add(delta);
+        }
+    }
+
+    /**
+     * Publishes the counters of a finished frame, called by the main loop on its own thread
+     * @return Heap bytes the calling thread allocated since the previous frame, -1 if the
+     *         JVM can't tell
+     */
+    public static long endFrame(int frameDrawCalls, int frameTriangles, int frameStateChanges) {
+        long allocated = -1;
+        if (threads != null) {
+            long total = threads.getCurrentThreadAllocatedBytes();
+            if (lastAllocatedBytes >= 0) {
+                allocated = total - lastAllocatedBytes;
+            }
+            lastAllocatedBytes = total;
+        }
+
+        drawCalls = frameDrawCalls;
+        triangles = frameTriangles;
+        stateChanges = frameStateChanges;
+        allocatedBytesPerFrame = allocated;
+        framesRendered = framesRendered + 1;  // Single writer
+        return allocated;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean
+                && sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+            return sunBean;
+        }
+        return null;
+    }
+
+    public static long getFrameCount() {
+        return framesRendered;
+    }
+
+    // MBean attributes
+
+    @Override public long getGameObjects() { return gameObjects.sum(); }
+    @Override public long getComponents() { return components.sum(); }
+    @Override public long getFramesRendered() { return framesRendered; }
+    @Override public int getDrawCalls() { return drawCalls; }
+    @Override public int getTriangles() { return triangles; }
+    @Override public int getStateChanges() { return stateChanges; }
+    @Override public long getAllocatedBytesPerFrame() { return allocatedBytesPerFrame; }
+    @Override public long getGpuBufferBytes() { return gpuBufferBytes.sum(); }
+    @Override public long getGpuTextureBytes() { return gpuTextureBytes.sum(); }
+    @Override public long getLiveBuffers() { return liveResources[GlResourceType.BUFFER.ordinal()].sum(); }
+    @Override public long getLiveTextures() { return liveResources[GlResourceType.TEXTURE.ordinal()].sum(); }
+    @Override public long getLiveFramebuffers() { return liveResources[GlResourceType.FRAMEBUFFER.ordinal()].sum(); }
+    @Override public long getLivePrograms() { return liveResources[GlResourceType.PROGRAM.ordinal()].sum(); }
+    @Override public long getShaderCompiles() { return shaderCompiles.sum(); }
+}
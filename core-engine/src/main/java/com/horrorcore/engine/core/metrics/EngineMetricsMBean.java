@@ -0,0 +1,22 @@
+package com.horrorcore.engine.core.metrics;
+
+/**
+ * Live engine counters exposed over JMX as com.horrorcore.engine:type=EngineMetrics.
+ * Per-frame values describe the last rendered frame.
+ */
+public interface EngineMetricsMBean {
+    long getGameObjects();
+    long getComponents();
+    long getFramesRendered();
+    int getDrawCalls();
+    int getTriangles();
+    int getStateChanges();
+    long getAllocatedBytesPerFrame();
+    long getGpuBufferBytes();
+    long getGpuTextureBytes();
+    long getLiveBuffers();
+    long getLiveTextures();
+    long getLiveFramebuffers();
+    long getLivePrograms();
+    long getShaderCompiles();
+}
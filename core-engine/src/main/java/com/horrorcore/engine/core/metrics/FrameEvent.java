@@ -0,0 +1,40 @@
+package com.horrorcore.engine.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One rendered frame of the main loop, from event polling to presentation
+ */
+@Name("com.horrorcore.engine.Frame")
+@Label("Frame")
+@Category({"Phantasm", "Frame"})
+@Description("A frame rendered by the main loop")
+@StackTrace(false)
+public class FrameEvent extends Event {
+    @Label("Frame Number")
+    public long frameNumber;
+
+    @Label("Draw Calls")
+    public int drawCalls;
+
+    @Label("Triangles")
+    public int triangles;
+
+    @Label("State Changes")
+    public int stateChanges;
+
+    @Label("Occlusion Culled")
+    @Description("Objects inside the view skipped because they were hidden behind others")
+    public int occlusionCulled;
+
+    @Label("Allocated")
+    @Description("Heap allocated by the main thread since the previous frame")
+    @DataAmount
+    public long allocatedBytes;
+}
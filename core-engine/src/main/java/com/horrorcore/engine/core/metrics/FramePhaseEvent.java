@@ -0,0 +1,35 @@
+package com.horrorcore.engine.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of a frame: scene update, rendering or presentation
+ */
+@Name("com.horrorcore.engine.FramePhase")
+@Label("Frame Phase")
+@Category({"Phantasm", "Frame"})
+@Description("A phase of a rendered frame")
+@StackTrace(false)
+public class FramePhaseEvent extends Event {
+    public static final String UPDATE = "Update";
+    public static final String RENDER = "Render";
+    public static final String PRESENT = "Present";
+
+    @Label("Phase")
+    public String phase;
+
+    /**
+     * Creates and begins an event for the phase, commit it when the phase ends
+     */
+    public static FramePhaseEvent start(String phase) {
+        FramePhaseEvent event = new FramePhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,28 @@
+package com.horrorcore.engine.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Creation or destruction of a GL object, emitted through {@link EngineMetrics}
+ */
+@Name("com.horrorcore.engine.GlResource")
+@Label("GL Resource")
+@Category({"Phantasm", "Rendering"})
+@Description("A GL buffer, texture, framebuffer or program was created or destroyed")
+public class GlResourceEvent extends Event {
+    @Label("Type")
+    public String type;
+
+    @Label("Created")
+    @Description("True for creation, false for destruction")
+    public boolean created;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+}
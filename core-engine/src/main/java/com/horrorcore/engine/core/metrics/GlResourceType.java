@@ -0,0 +1,11 @@
+package com.horrorcore.engine.core.metrics;
+
+/**
+ * Kinds of GL objects whose creation and destruction are tracked
+ */
+public enum GlResourceType {
+    BUFFER,
+    TEXTURE,
+    FRAMEBUFFER,
+    PROGRAM
+}
@@ -0,0 +1,22 @@
+package com.horrorcore.engine.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Populating a scene with its initial objects and uploading their resources
+ */
+@Name("com.horrorcore.engine.SceneLoad")
+@Label("Scene Load")
+@Category({"Phantasm", "Scene"})
+@Description("Setting up a scene and its resources")
+public class SceneLoadEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Objects")
+    public int objectCount;
+}
@@ -0,0 +1,42 @@
+package com.horrorcore.engine.core.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Compiling and linking one shader program, or loading it from the shader cache
+ */
+@Name("com.horrorcore.engine.ShaderCompile")
+@Label("Shader Compile")
+@Category({"Phantasm", "Rendering"})
+@Description("Compiling and linking a shader program")
+public class ShaderCompileEvent extends Event {
+    @Label("Shader")
+    public String shader;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    @Label("From Cache")
+    @Description("Loaded from a cached program binary instead of compiled")
+    public boolean cached;
+
+    /**
+     * Creates and begins an event, call {@link #finish(boolean)} once the program is linked
+     */
+    public static ShaderCompileEvent start(String shader) {
+        ShaderCompileEvent event = new ShaderCompileEvent();
+        event.shader = shader;
+        event.begin();
+        return event;
+    }
+
+    public void finish(boolean succeeded) {
+        this.succeeded = succeeded;
+        commit();
+        EngineMetrics.shaderCompiled();
+    }
+}
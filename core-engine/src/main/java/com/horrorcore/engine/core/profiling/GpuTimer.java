@@ -0,0 +1,101 @@
+package com.horrorcore.engine.core.profiling;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * GPU timestamps for profile scopes.
+ * Each scope writes a glQueryCounter timestamp at its start and end. Queries are pooled per
+ * frame and read back FRAMES_IN_FLIGHT frames later, and only once the GPU reports them
+ * available, so the CPU never waits on the GPU. A frame whose results are still pending when
+ * its pool comes round again is dropped.
+ */
+class GpuTimer {
+    static final int FRAMES_IN_FLIGHT = 4;
+    private static final int MAX_PAIRS = 128;
+
+    private static final class FrameQueries {
+        final int[] queries = new int[MAX_PAIRS * 2];
+        final int[] eventIndex = new int[MAX_PAIRS];
+        int pairCount;
+        int lastQuery;  // Issued last, available only once all others are
+        long frameNumber;
+        boolean pending;
+    }
+
+    private final FrameQueries[] frames = new FrameQueries[FRAMES_IN_FLIGHT];
+    private FrameQueries current;
+    private long droppedFrames;
+
+    GpuTimer() {
+        for (int i = 0; i < FRAMES_IN_FLIGHT; i++) {
+            frames[i] = new FrameQueries();
+            glGenQueries(frames[i].queries);
+        }
+    }
+
+    void beginFrame(long frameNumber) {
+        FrameQueries frame = frames[(int) (frameNumber % FRAMES_IN_FLIGHT)];
+        if (frame.pending && !resolve(frame)) {
+            droppedFrames++;
+        }
+        frame.pending = false;
+        frame.pairCount = 0;
+        frame.frameNumber = frameNumber;
+        current = frame;
+    }
+
+    /**
+     * Issues the start timestamp for an event, returns its pair index or -1 if the pool is full
+     */
+    int begin(int eventIndex) {
+        if (current == null || current.pairCount == MAX_PAIRS) return -1;
+        int pair = current.pairCount++;
+        current.eventIndex[pair] = eventIndex;
+        current.lastQuery = current.queries[pair * 2];
+        glQueryCounter(current.lastQuery, GL_TIMESTAMP);
+        return pair;
+    }
+
+    void end(int pair) {
+        current.lastQuery = current.queries[pair * 2 + 1];
+        glQueryCounter(current.lastQuery, GL_TIMESTAMP);
+    }
+
+    void endFrame() {
+        if (current == null) return;
+        current.pending = current.pairCount > 0;
+        current = null;
+
+        // Collect whatever earlier frames the GPU has finished by now
+        for (FrameQueries frame : frames) {
+            if (frame.pending) {
+                resolve(frame);
+            }
+        }
+    }
+
+    // Reads back a frame's timestamps if they are ready, without blocking
+    private boolean resolve(FrameQueries frame) {
+        if (glGetQueryObjecti(frame.lastQuery, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE) {
+            return false;
+        }
+        for (int pair = 0; pair < frame.pairCount; pair++) {
+            long start = glGetQueryObjectui64(frame.queries[pair * 2], GL_QUERY_RESULT);
+            long end = glGetQueryObjectui64(frame.queries[pair * 2 + 1], GL_QUERY_RESULT);
+            Profiler.recordGpu(frame.frameNumber, frame.eventIndex[pair], start, end);
+        }
+        frame.pending = false;
+        return true;
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    void cleanup() {
+        for (FrameQueries frame : frames) {
+            glDeleteQueries(frame.queries);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.horrorcore.engine.core.profiling;
+
+/**
+ * A named section of the frame, created once and then entered every frame:
+ * <pre>
+ * private static final ProfileScope RENDER = Profiler.scope("Scene.render", true);
+ * ...
+ * RENDER.begin();
+ * try { ... } finally { RENDER.end(); }
+ * </pre>
+ * Scopes nest; the nesting at runtime is what the trace export shows. GPU scopes also place
+ * timestamp queries in the GL command stream and must only be used on the GL thread.
+ */
+public class ProfileScope {
+    private static final int HISTOGRAM_WINDOW = 240;
+
+    private final String name;
+    private final int id;
+    private final boolean gpu;
+    final RollingHistogram cpuMillis = new RollingHistogram(HISTOGRAM_WINDOW);
+    final RollingHistogram gpuMillis = new RollingHistogram(HISTOGRAM_WINDOW);
+
+    ProfileScope(String name, int id, boolean gpu) {
+        this.name = name;
+        this.id = id;
+        this.gpu = gpu;
+    }
+
+    public void begin() {
+        Profiler.begin(this);
+    }
+
+    public void end() {
+        Profiler.end(this);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    public boolean isGpu() {
+        return gpu;
+    }
+
+    /**
+     * Rolling CPU time of this scope in milliseconds
+     */
+    public RollingHistogram getCpuMillis() {
+        return cpuMillis;
+    }
+
+    /**
+     * Rolling GPU time of this scope in milliseconds, empty for CPU-only scopes
+     */
+    public RollingHistogram getGpuMillis() {
+        return gpuMillis;
+    }
+}
@@ -0,0 +1,251 @@
+package com.horrorcore.engine.core.profiling;
+
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.lwjgl.opengl.GL32.glGetInteger64;
+import static org.lwjgl.opengl.GL33.GL_TIMESTAMP;
+
+/**
+ * Hierarchical frame profiler.
+ * The main loop brackets each frame with {@link #beginFrame()} / {@link #endFrame()}, and code
+ * inside marks sections with {@link ProfileScope}s. CPU times go straight into each scope's
+ * rolling histogram; GPU times arrive a few frames later from timestamp queries. The last
+ * TRACE_FRAMES frames are kept event by event for {@link #exportChromeTrace(Path)}.
+ * <p>
+ * Profiling is tied to the thread that runs the frame loop (the GL thread); scopes entered
+ * on other threads are ignored.
+ */
+public final class Profiler {
+    private static final int TRACE_FRAMES = 120;
+    private static final int MAX_EVENTS = 512;  // Per frame
+    private static final int MAX_DEPTH = 32;
+
+    // Events of one frame, kept in a ring for trace export
+    private static final class TraceFrame {
+        long frameNumber = -1;
+        int eventCount;
+        final int[] scope = new int[MAX_EVENTS];
+        final int[] depth = new int[MAX_EVENTS];
+        final int[] gpuPair = new int[MAX_EVENTS];
+        final long[] cpuStart = new long[MAX_EVENTS];
+        final long[] cpuEnd = new long[MAX_EVENTS];
+        final long[] gpuStart = new long[MAX_EVENTS];  // GPU clock, 0 until resolved
+        final long[] gpuEnd = new long[MAX_EVENTS];
+    }
+
+    private static final List<ProfileScope> scopes = new CopyOnWriteArrayList<>();
+    private static final TraceFrame[] frames = new TraceFrame[TRACE_FRAMES];
+    private static final int[] stack = new int[MAX_DEPTH];
+    private static final long startNanos = System.nanoTime();
+    private static final ProfileScope FRAME = scope("Frame", true);
+
+    private static volatile boolean enabledRequested = true;
+    private static boolean enabled;
+    private static Thread owner;
+    private static GpuTimer gpuTimer;
+    private static long gpuClockOffset;  // Add to a GPU timestamp to get System.nanoTime
+    private static long frameNumber;
+    private static TraceFrame current;
+    private static int depth;
+    private static int skippedDepth;  // Scopes entered beyond MAX_DEPTH, ignored until they end
+
+    static {
+        for (int i = 0; i < TRACE_FRAMES; i++) {
+            frames[i] = new TraceFrame();
+        }
+    }
+
+    private Profiler() {
+    }
+
+    /**
+     * Returns the scope with the given name, creating it on first use
+     * @param gpu Also measure GPU time, only for scopes entered on the GL thread
+     */
+    public static synchronized ProfileScope scope(String name, boolean gpu) {
+        for (ProfileScope scope : scopes) {
+            if (scope.getName().equals(name)) {
+                return scope;
+            }
+        }
+        ProfileScope scope = new ProfileScope(name, scopes.size(), gpu);
+        scopes.add(scope);
+        return scope;
+    }
+
+    public static List<ProfileScope> getScopes() {
+        return Collections.unmodifiableList(scopes);
+    }
+
+    /**
+     * Turns profiling on or off, effective from the next frame
+     */
+    public static void setEnabled(boolean enabled) {
+        enabledRequested = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabledRequested;
+    }
+
+    /**
+     * Starts a frame and its root scope. Must be called on the GL thread.
+     */
+    public static void beginFrame() {
+        enabled = enabledRequested;
+        if (!enabled) {
+            current = null;
+            return;
+        }
+
+        if (owner == null) {
+            owner = Thread.currentThread();
+            gpuTimer = new GpuTimer();
+            calibrateGpuClock();
+        }
+
+        frameNumber++;
+        current = frames[(int) (frameNumber % TRACE_FRAMES)];
+        current.frameNumber = frameNumber;
+        current.eventCount = 0;
+        depth = 0;
+        skippedDepth = 0;
+        gpuTimer.beginFrame(frameNumber);
+        begin(FRAME);
+    }
+
+    /**
+     * Closes the frame, ending any scopes left open, and collects finished GPU timings
+     */
+    public static void endFrame() {
+        if (current == null) return;
+        skippedDepth = 0;
+        while (depth > 0) {
+            endEvent(stack[depth - 1]);
+        }
+        gpuTimer.endFrame();
+        current = null;
+    }
+
+    static void begin(ProfileScope scope) {
+        if (current == null || Thread.currentThread() != owner) return;
+        if (depth == MAX_DEPTH || current.eventCount == MAX_EVENTS) {
+            skippedDepth++;
+            return;
+        }
+
+        int event = current.eventCount++;
+        current.scope[event] = scope.getId();
+        current.depth[event] = depth;
+        current.gpuStart[event] = 0;
+        current.gpuEnd[event] = 0;
+        current.gpuPair[event] = scope.isGpu() ? gpuTimer.begin(event) : -1;
+        current.cpuStart[event] = System.nanoTime();
+        stack[depth++] = event;
+    }
+
+    static void end(ProfileScope scope) {
+        if (current == null || Thread.currentThread() != owner) return;
+        if (skippedDepth > 0) {
+            skippedDepth--;
+            return;
+        }
+        if (depth == 0) return;
+
+        int event = stack[depth - 1];
+        if (current.scope[event] != scope.getId()) {
+            Log.warn(LogCategory.CORE, "Profile scope {} ended while {} is open")
+                    .arg(scope.getName()).arg(scopes.get(current.scope[event]).getName()).log();
+        }
+        endEvent(event);
+    }
+
+    private static void endEvent(int event) {
+        current.cpuEnd[event] = System.nanoTime();
+        if (current.gpuPair[event] >= 0) {
+            gpuTimer.end(current.gpuPair[event]);
+        }
+        depth--;
+        scopes.get(current.scope[event]).cpuMillis.add((current.cpuEnd[event] - current.cpuStart[event]) / 1_000_000.0f);
+    }
+
+    // Called by the GpuTimer once a frame's timestamps are available
+    static void recordGpu(long frame, int event, long start, long end) {
+        TraceFrame traceFrame = frames[(int) (frame % TRACE_FRAMES)];
+        if (traceFrame.frameNumber != frame) return;  // Already recycled
+
+        traceFrame.gpuStart[event] = start;
+        traceFrame.gpuEnd[event] = end;
+        scopes.get(traceFrame.scope[event]).gpuMillis.add((end - start) / 1_000_000.0f);
+    }
+
+    // Relates the GPU clock to System.nanoTime so GPU events line up in the trace
+    private static void calibrateGpuClock() {
+        gpuClockOffset = System.nanoTime() - glGetInteger64(GL_TIMESTAMP);
+    }
+
+    /**
+     * Frames whose GPU timings were discarded because the GPU fell too far behind
+     */
+    public static long getDroppedGpuFrames() {
+        return gpuTimer == null ? 0 : gpuTimer.getDroppedFrames();
+    }
+
+    /**
+     * Writes the retained frames in the Chrome trace event format, viewable in
+     * chrome://tracing or Perfetto. CPU scopes appear on one track and GPU scopes on another.
+     */
+    public static void exportChromeTrace(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("{\"traceEvents\":[\n");
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":1,\"args\":{\"name\":\"CPU\"}},\n");
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":2,\"args\":{\"name\":\"GPU\"}}");
+
+            // Oldest retained frame first; skip the frame still being recorded
+            for (int i = 1; i <= TRACE_FRAMES; i++) {
+                TraceFrame frame = frames[(int) ((frameNumber + i) % TRACE_FRAMES)];
+                if (frame.frameNumber < 0 || frame == current) continue;
+
+                for (int event = 0; event < frame.eventCount; event++) {
+                    String name = scopes.get(frame.scope[event]).getName();
+                    writeEvent(out, name, 1, frame.cpuStart[event], frame.cpuEnd[event]);
+                    if (frame.gpuEnd[event] != 0) {
+                        writeEvent(out, name, 2, frame.gpuStart[event] + gpuClockOffset,
+                                frame.gpuEnd[event] + gpuClockOffset);
+                    }
+                }
+            }
+            out.write("\n]}\n");
+        }
+        Log.info(LogCategory.CORE, "Wrote profiler trace to {}").arg(path).log();
+    }
+
+    private static void writeEvent(BufferedWriter out, String name, int track, long start, long end) throws IOException {
+        out.write(",\n{\"name\":\"");
+        out.write(name.replace("\\", "\\\\").replace("\"", "\\\""));
+        out.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+        out.write(Integer.toString(track));
+        out.write(",\"ts\":");
+        out.write(Double.toString((start - startNanos) / 1000.0));
+        out.write(",\"dur\":");
+        out.write(Double.toString((end - start) / 1000.0));
+        out.write("}");
+    }
+
+    public static void cleanup() {
+        if (gpuTimer != null) {
+            gpuTimer.cleanup();
+            gpuTimer = null;
+        }
+        owner = null;
+    }
+}
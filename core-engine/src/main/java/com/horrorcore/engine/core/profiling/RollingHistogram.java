@@ -0,0 +1,59 @@
+package com.horrorcore.engine.core.profiling;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent samples of a timing in a fixed window and answers percentile queries.
+ * Adding a sample is O(1) and allocation-free; percentiles sort a scratch copy, so query them
+ * at display rate rather than per sample.
+ */
+public class RollingHistogram {
+    private final float[] samples;
+    private final float[] sorted;
+    private int next;
+    private int count;
+    private boolean sortedValid;
+
+    public RollingHistogram(int window) {
+        samples = new float[window];
+        sorted = new float[window];
+    }
+
+    public void add(float value) {
+        samples[next] = value;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        sortedValid = false;
+    }
+
+    /**
+     * Value below which the given fraction of recent samples fall, e.g. 0.95 for p95.
+     * Returns 0 while there are no samples.
+     */
+    public float percentile(float fraction) {
+        if (count == 0) return 0.0f;
+        if (!sortedValid) {
+            System.arraycopy(samples, 0, sorted, 0, count);
+            Arrays.sort(sorted, 0, count);
+            sortedValid = true;
+        }
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public float getLatest() {
+        return count == 0 ? 0.0f : samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void clear() {
+        next = 0;
+        count = 0;
+        sortedValid = false;
+    }
+}
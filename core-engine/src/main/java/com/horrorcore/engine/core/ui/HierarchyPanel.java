@@ -1,20 +1,27 @@
 package com.horrorcore.engine.core.ui;
 
 import com.horrorcore.engine.core.Scene;
-import com.horrorcore.engine.core.graphics.TextRenderer;
 
 
 public class HierarchyPanel extends Panel {
-    private TextRenderer textRenderer;
     private Scene scene;
+    private int seenSceneVersion = -1;
 
     public HierarchyPanel(float x, float y, float width, float height, Scene scene) {
         super(x, y, width, height);
         this.scene = scene;
-        this.textRenderer = new TextRenderer();
         setBackgroundColor(0.1f, 0.15f, 0.3f, 1.0f);
     }
 
+    @Override
+    protected boolean pollChanges() {
+        if (scene.getVersion() != seenSceneVersion) {
+            seenSceneVersion = scene.getVersion();
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public void render() {
         beginRender();
@@ -2,23 +2,48 @@ package com.horrorcore.engine.core.ui;
 
 import com.horrorcore.engine.core.GameObject;
 import com.horrorcore.engine.core.Transform;
-import com.horrorcore.engine.core.graphics.TextRenderer;
+import com.horrorcore.engine.core.graphics.TextBuilder;
 import org.joml.Vector3f;
 
 public class InspectorPanel extends Panel {
-    private TextRenderer textRenderer;
     private GameObject selectedObject;
 
+    // Labels are rebuilt in place: name and id when the name changes, position on every redraw
+    private final TextBuilder nameText = new TextBuilder();
+    private final TextBuilder idText = new TextBuilder();
+    private final TextBuilder positionText = new TextBuilder();
+    private final Vector3f position = new Vector3f();
+
+    // What the cached texture currently shows
+    private int seenTransformVersion = -1;
+    private boolean seenActive;
+    private String seenName;
+
     public InspectorPanel(float x, float y, float width, float height) {
         super(x, y, width, height);
-        this.textRenderer = new TextRenderer();
         setBackgroundColor(0.2f, 0.1f, 0.3f, 1.0f);
     }
 
     @Override
-    public void init() {
-        super.init();
-        textRenderer.init();
+    protected boolean pollChanges() {
+        if (selectedObject == null) return false;
+
+        boolean changed = false;
+        // setName replaces the string, so comparing references is enough and allocates nothing
+        String name = selectedObject.getName();
+        if (name != seenName) {
+            updateLabels();
+            changed = true;
+        }
+
+        int transformVersion = selectedObject.getTransform().getVersion();
+        boolean active = selectedObject.isActive();
+        if (transformVersion != seenTransformVersion || active != seenActive) {
+            seenTransformVersion = transformVersion;
+            seenActive = active;
+            changed = true;
+        }
+        return changed;
     }
 
     @Override
@@ -27,7 +52,6 @@ public class InspectorPanel extends Panel {
 
         float yPos = height - 30;
         float[] textColor = {1.0f, 1.0f, 1.0f, 1.0f};
-        textRenderer.setPanelPosition(x, y);
 
         textRenderer.renderText("Test Text", 10, yPos, 1.2f, textColor);
 
@@ -40,13 +64,14 @@ public class InspectorPanel extends Panel {
             textRenderer.renderText("Object Properties:", 10, yPos, 1.1f, textColor);
             yPos -= 25;
 
-            textRenderer.renderText("Name: " + selectedObject.getName(), 20, yPos, 1.0f, textColor);
+            textRenderer.renderText(nameText, 20, yPos, 1.0f, textColor);
             yPos -= 20;
 
-            textRenderer.renderText("ID: " + selectedObject.getId(), 20, yPos, 1.0f, textColor);
+            textRenderer.renderText(idText, 20, yPos, 1.0f, textColor);
             yPos -= 20;
 
-            textRenderer.renderText("Active: " + selectedObject.isActive(), 20, yPos, 1.0f, textColor);
+            textRenderer.renderText(selectedObject.isActive() ? "Active: true" : "Active: false",
+                    20, yPos, 1.0f, textColor);
             yPos -= 30;
 
             // Transform component
@@ -54,9 +79,12 @@ public class InspectorPanel extends Panel {
             yPos -= 25;
 
             Transform transform = selectedObject.getTransform();
-            Vector3f position = transform.getPosition();
-            textRenderer.renderText(String.format("Position: %.2f, %.2f, %.2f",
-                    position.x, position.y, position.z), 20, yPos, 1.0f, textColor);
+            transform.getPosition(position);
+            positionText.clear().append("Position: ")
+                    .append(position.x, 2).append(", ")
+                    .append(position.y, 2).append(", ")
+                    .append(position.z, 2);
+            textRenderer.renderText(positionText, 20, yPos, 1.0f, textColor);
 
         } else {
             textRenderer.renderText("No object selected", 10, yPos, 1.0f, textColor);
@@ -67,13 +95,20 @@ public class InspectorPanel extends Panel {
 
     public void setSelectedObject(GameObject object) {
         this.selectedObject = object;
+        invalidate();
+        seenTransformVersion = -1;
+        if (object != null) {
+            updateLabels();
+        }
     }
 
-    @Override
-    public void cleanup() {
-        super.cleanup();
-        if (textRenderer != null) {
-            textRenderer.cleanup();
-        }
+    private void updateLabels() {
+        seenName = selectedObject.getName();
+        nameText.clear().append("Name: ").append(String.valueOf(seenName));
+        idText.clear().append("ID: ").append(selectedObject.getId());
+    }
+
+    public GameObject getSelectedObject() {
+        return selectedObject;
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,21 @@
 package com.horrorcore.engine.core.ui;
 
+import com.horrorcore.engine.core.log.Log;
+import com.horrorcore.engine.core.log.LogCategory;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import com.horrorcore.engine.core.graphics.RenderTarget;
+import com.horrorcore.engine.core.graphics.UiBatcher;
 import org.joml.Vector4f;
 import java.util.*;
 
+import static org.lwjgl.opengl.GL11.*;
+
 public class LayoutManager {
+    private static final ProfileScope CACHE_SCOPE = Profiler.scope("UI.panelCaches", true);
+    private static final ProfileScope BACKGROUND_SCOPE = Profiler.scope("UI.background", true);
+    private static final ProfileScope OVERLAY_SCOPE = Profiler.scope("UI.overlay", true);
+
     public static class LayoutArea {
         public float x, y, width, height;
         public float xPercent, yPercent, widthPercent, heightPercent;
@@ -31,9 +43,8 @@ public class LayoutManager {
             width = widthPercent * totalWidth;
             height = heightPercent * totalHeight;
 
-            // Debug output
-            System.out.println(area + " area dimensions: x=" + x + ", y=" + y +
-                    ", width=" + width + ", height=" + height);
+            Log.debug(LogCategory.UI, "{} area dimensions: x={}, y={}, width={}, height={}")
+                    .arg(area).arg(x).arg(y).arg(width).arg(height).log();
         }
     }
 
@@ -41,16 +52,19 @@ public class LayoutManager {
     private float totalHeight;
     private final Map<String, LayoutArea> areas;
     private final List<Panel> panels;
+    private final Map<Panel, RenderTarget> panelCaches;  // Offscreen textures of cached panels
+    private int redrawnPanels;  // Cached panels re-rendered during the last frame
 
     public LayoutManager() {
         this.areas = new HashMap<>();
         this.panels = new ArrayList<>();
+        this.panelCaches = new HashMap<>();
         this.totalWidth = 0;
         this.totalHeight = 0;
     }
 
     public void setSize(float width, float height) {
-        System.out.println("Setting layout size: " + width + "x" + height);
+        Log.debug(LogCategory.UI, "Setting layout size: {}x{}").arg(width).arg(height).log();
         this.totalWidth = width;
         this.totalHeight = height;
         updateLayout();
@@ -58,9 +72,8 @@ public class LayoutManager {
 
     public void defineArea(String name, float xPercent, float yPercent,
                            float widthPercent, float heightPercent) {
-        System.out.println("Defining area '" + name + "': x=" + xPercent +
-                ", y=" + yPercent + ", width=" + widthPercent +
-                ", height=" + heightPercent);
+        Log.debug(LogCategory.UI, "Defining area '{}': x={}, y={}, width={}, height={}")
+                .arg(name).arg(xPercent).arg(yPercent).arg(widthPercent).arg(heightPercent).log();
 
         LayoutArea area = new LayoutArea(name, xPercent, yPercent, widthPercent, heightPercent);
         areas.put(name, area);
@@ -74,7 +87,7 @@ public class LayoutManager {
     public void addPanel(String areaName, Panel panel) {
         LayoutArea area = areas.get(areaName);
         if (area != null) {
-            System.out.println("Adding panel to area '" + areaName + "'");
+            Log.debug(LogCategory.UI, "Adding panel to area '{}'").arg(areaName).log();
             area.panel = panel;
             panels.add(panel);
 
@@ -84,34 +97,108 @@ public class LayoutManager {
                 panel.setDimensions(area.x, area.y, area.width, area.height);
             }
         } else {
-            System.out.println("Warning: No area found with name '" + areaName + "'");
+            Log.warn(LogCategory.UI, "No area found with name '{}'").arg(areaName).log();
         }
     }
 
     private void updateLayout() {
         if (totalWidth <= 0 || totalHeight <= 0) {
-            System.out.println("Warning: Invalid dimensions - width: " + totalWidth +
-                    ", height: " + totalHeight);
+            Log.warn(LogCategory.UI, "Invalid dimensions - width: {}, height: {}")
+                    .arg(totalWidth).arg(totalHeight).log();
             return;
         }
 
-        System.out.println("Updating layout with dimensions: " + totalWidth + "x" + totalHeight);
+        Log.debug(LogCategory.UI, "Updating layout with dimensions: {}x{}").arg(totalWidth).arg(totalHeight).log();
 
         // Update all area dimensions
         for (LayoutArea area : areas.values()) {
             area.updateDimensions(totalWidth, totalHeight);
             if (area.panel != null) {
-                System.out.println("Updating panel in area '" + area.area +
-                        "' to: x=" + area.x + ", y=" + area.y +
-                        ", width=" + area.width + ", height=" + area.height);
+                Log.debug(LogCategory.UI, "Updating panel in area '{}' to: x={}, y={}, width={}, height={}")
+                        .arg(area.area).arg(area.x).arg(area.y).arg(area.width).arg(area.height).log();
                 area.panel.setDimensions(area.x, area.y, area.width, area.height);
             }
         }
     }
 
-    public void render() {
+    /**
+     * Draws all panels. Cached panels are only re-rendered into their textures when
+     * invalidated, then the frame is composed from those textures plus the live panels,
+     * with the batcher flushed around the panels' own content.
+     */
+    public void render(UiBatcher uiBatcher) {
+        CACHE_SCOPE.begin();
+        updatePanelCaches(uiBatcher);
+        CACHE_SCOPE.end();
+
+        uiBatcher.begin(totalWidth, totalHeight);
+        for (Panel panel : panels) {
+            RenderTarget cache = panelCaches.get(panel);
+            if (cache != null) {
+                // FBO textures are stored bottom-up, so flip v; the cache holds premultiplied colors
+                uiBatcher.setLayer(UiBatcher.Layer.BACKGROUND);
+                uiBatcher.drawPremultipliedImage(cache.getTextureId(), panel.x, panel.y, panel.width, panel.height,
+                        0, 1, 1, 0, 0xFFFFFFFF);
+                uiBatcher.setLayer(UiBatcher.Layer.OVERLAY);
+            } else {
+                renderPanel(panel);
+            }
+        }
+
+        BACKGROUND_SCOPE.begin();
+        uiBatcher.flush(UiBatcher.Layer.BACKGROUND);
+        BACKGROUND_SCOPE.end();
+
+        for (Panel panel : panels) {
+            if (!panel.isCached()) {
+                panel.renderContent();
+            }
+        }
+
+        OVERLAY_SCOPE.begin();
+        uiBatcher.flush(UiBatcher.Layer.OVERLAY);
+        OVERLAY_SCOPE.end();
+    }
+
+    private void renderPanel(Panel panel) {
+        panel.renderScope.begin();
+        panel.render();
+        panel.renderScope.end();
+    }
+
+    // Re-renders stale cached panels into their offscreen textures
+    private void updatePanelCaches(UiBatcher uiBatcher) {
+        redrawnPanels = 0;
         for (Panel panel : panels) {
-            panel.render();
+            if (!panel.isCached()) continue;
+
+            RenderTarget cache = panelCaches.computeIfAbsent(panel, p -> new RenderTarget());
+            boolean resized = cache.ensureSize(Math.round(panel.width), Math.round(panel.height));
+            if (!panel.takeDirty() && !resized) continue;
+
+            cache.bind();
+            glClearColor(0.0f, 0.0f, 0.0f, 0.0f);
+            glClear(GL_COLOR_BUFFER_BIT);
+
+            uiBatcher.begin(panel.x, panel.y, cache.getWidth(), cache.getHeight());
+            renderPanel(panel);
+            uiBatcher.flush(UiBatcher.Layer.BACKGROUND);
+            uiBatcher.flush(UiBatcher.Layer.OVERLAY);
+            RenderTarget.unbind();
+            redrawnPanels++;
+        }
+    }
+
+    public int getRedrawnPanels() {
+        return redrawnPanels;
+    }
+
+    /**
+     * Forces every cached panel to be re-rendered next frame
+     */
+    public void invalidateAll() {
+        for (Panel panel : panels) {
+            panel.invalidate();
         }
     }
 
@@ -119,6 +206,10 @@ public class LayoutManager {
         for (Panel panel : panels) {
             panel.cleanup();
         }
+        for (RenderTarget cache : panelCaches.values()) {
+            cache.cleanup();
+        }
+        panelCaches.clear();
     }
 
     public Vector4f getAreaDimensions(String areaName) {
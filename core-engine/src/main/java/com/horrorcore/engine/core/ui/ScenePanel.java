@@ -2,36 +2,45 @@ package com.horrorcore.engine.core.ui;
 
 import com.horrorcore.engine.core.Scene;
 import com.horrorcore.engine.core.graphics.Camera;
-import com.horrorcore.engine.core.graphics.TextRenderer;
+import com.horrorcore.engine.core.graphics.TextBuilder;
+import com.horrorcore.engine.core.graphics.UiBatcher;
+import com.horrorcore.engine.core.profiling.ProfileScope;
+import com.horrorcore.engine.core.profiling.Profiler;
+import com.horrorcore.engine.core.profiling.RollingHistogram;
 
-import static org.lwjgl.opengl.GL11.*;
+import java.util.List;
 
 public class ScenePanel extends Panel {
+    private static final long OVERLAY_REFRESH_NANOS = 500_000_000L;
+    private static final float OVERLAY_LINE_HEIGHT = 15.0f;
+
     private Scene scene;
     private Camera camera;
-    private TextRenderer textRenderer;
+    private int sceneTexture;  // This frame's scene image, rendered by the frame graph
+
+    // Profiler overlay, text is rebuilt at OVERLAY_REFRESH_NANOS rather than every frame
+    private boolean profilerOverlayVisible;
+    private TextBuilder[] overlayLines = new TextBuilder[0];
+    private int overlayLineCount;
+    private long overlayRefreshTime;
 
     public ScenePanel(float x, float y, float width, float height, Scene scene, Camera camera) {
         super(x, y, width, height);
         this.scene = scene;
         this.camera = camera;
-        this.textRenderer = new TextRenderer();
         setBackgroundColor(0.15f, 0.15f, 0.15f, 1.0f);
     }
 
-    @Override
-    public void init() {
-        super.init();
-        textRenderer.init();
-    }
-
     @Override
     public void render() {
         beginRender();
-        // Render the 3D scene
-        glEnable(GL_DEPTH_TEST);
-        scene.render(camera);
-        glDisable(GL_DEPTH_TEST);
+        if (sceneTexture != 0) {
+            // Render targets are stored bottom-up, so flip v
+            uiBatcher.setLayer(UiBatcher.Layer.BACKGROUND);
+            uiBatcher.drawImage(sceneTexture, x, y, width, height, 0, 1, 1, 0, 0xFFFFFFFF);
+            uiBatcher.setLayer(UiBatcher.Layer.OVERLAY);
+        }
+
         // Render scene overlay text
         float[] textColor = {1.0f, 1.0f, 1.0f, 0.8f};
         textRenderer.renderText("Scene View", 10, height - 30, 1.2f, textColor);
@@ -44,14 +53,83 @@ public class ScenePanel extends Panel {
         textRenderer.renderText("WASD: Move Camera", 20, yPos, 0.9f, textColor);
         yPos -= 20;
         textRenderer.renderText("Space/Shift: Up/Down", 20, yPos, 0.9f, textColor);
+
+        if (profilerOverlayVisible) {
+            renderProfilerOverlay();
+        }
         endRender();
     }
 
-    @Override
-    public void cleanup() {
-        super.cleanup();
-        if (textRenderer != null) {
-            textRenderer.cleanup();
+    private void renderProfilerOverlay() {
+        long now = System.nanoTime();
+        if (now - overlayRefreshTime >= OVERLAY_REFRESH_NANOS) {
+            overlayRefreshTime = now;
+            buildOverlayLines();
+        }
+
+        float top = height - 50;
+        float boxHeight = (overlayLineCount + 1) * OVERLAY_LINE_HEIGHT + 10;
+        uiBatcher.drawRect(x + 5, y + (height - top) - OVERLAY_LINE_HEIGHT, width - 10, boxHeight,
+                0.0f, 0.0f, 0.0f, 0.6f);
+
+        float[] headerColor = {1.0f, 0.8f, 0.3f, 1.0f};
+        float[] lineColor = {0.9f, 0.9f, 0.9f, 1.0f};
+        textRenderer.renderText("Profiler  cpu / gpu  p50 p95 p99 (ms)   F4: export trace", 10, top, 0.8f, headerColor);
+        for (int i = 0; i < overlayLineCount; i++) {
+            textRenderer.renderText(overlayLines[i], 10, top - (i + 1) * OVERLAY_LINE_HEIGHT, 0.8f, lineColor);
+        }
+    }
+
+    private void buildOverlayLines() {
+        List<ProfileScope> scopes = Profiler.getScopes();
+        if (overlayLines.length < scopes.size()) {
+            TextBuilder[] grown = new TextBuilder[scopes.size()];
+            System.arraycopy(overlayLines, 0, grown, 0, overlayLines.length);
+            for (int i = overlayLines.length; i < grown.length; i++) {
+                grown[i] = new TextBuilder();
+            }
+            overlayLines = grown;
+        }
+
+        overlayLineCount = 0;
+        for (int i = 0; i < scopes.size(); i++) {
+            ProfileScope scope = scopes.get(i);
+            if (scope.getCpuMillis().getCount() == 0) continue;
+
+            TextBuilder line = overlayLines[overlayLineCount++].clear();
+            line.append(scope.getName()).append("  ");
+            appendPercentiles(line, scope.getCpuMillis());
+            if (scope.getGpuMillis().getCount() > 0) {
+                line.append("  |  ");
+                appendPercentiles(line, scope.getGpuMillis());
+            }
         }
     }
+
+    private static void appendPercentiles(TextBuilder line, RollingHistogram histogram) {
+        line.append(histogram.percentile(0.50f), 2).append(' ')
+                .append(histogram.percentile(0.95f), 2).append(' ')
+                .append(histogram.percentile(0.99f), 2);
+    }
+
+    public boolean isProfilerOverlayVisible() {
+        return profilerOverlayVisible;
+    }
+
+    public void setProfilerOverlayVisible(boolean visible) {
+        this.profilerOverlayVisible = visible;
+        overlayRefreshTime = 0;
+    }
+
+    @Override
+    public boolean isCached() {
+        return false;  // The 3D view changes every frame
+    }
+
+    /**
+     * Sets the texture holding this frame's render of the scene, drawn as the panel's content
+     */
+    public void setSceneTexture(int textureId) {
+        this.sceneTexture = textureId;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,186 @@
+package com.horrorcore.engine.core.assets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssetManagerTest {
+    // Stands in for a GPU resource of the given size
+    private static final class Blob {
+        final String name;
+        final long bytes;
+
+        Blob(String name, long bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+    }
+
+    private AssetManager assets;
+    private List<String> loaded;
+    private List<String> destroyed;
+
+    @BeforeEach
+    void setUp() {
+        assets = new AssetManager();
+        assets.setBudgetBytes(1000);
+        loaded = new ArrayList<>();
+        destroyed = new ArrayList<>();
+    }
+
+    @Test
+    void sharesOneLoadPerKey() {
+        AssetHandle<Blob> first = acquire("a", 100);
+        AssetHandle<Blob> second = acquire("a", 100);
+        assertSame(first.get(), second.get());
+        assertEquals(List.of("a"), loaded);
+        assertEquals(1, assets.getHitCount());
+        assertEquals(Map.of("a", 2), assets.getReferencedAssets());
+    }
+
+    @Test
+    void keepsReleasedAssetsLoadedWithinBudget() {
+        AssetHandle<Blob> handle = acquire("a", 100);
+        Blob blob = handle.get();
+        handle.release();
+        assertTrue(destroyed.isEmpty());
+        assertTrue(assets.getReferencedAssets().isEmpty());
+
+        AssetHandle<Blob> again = acquire("a", 100);
+        assertSame(blob, again.get());
+        assertEquals(List.of("a"), loaded, "reacquired without loading");
+    }
+
+    @Test
+    void retainedHandleKeepsAssetAfterOriginalIsReleased() {
+        AssetHandle<Blob> handle = acquire("a", 100);
+        AssetHandle<Blob> copy = handle.retain();
+        handle.release();
+        assets.trim();
+
+        assertTrue(destroyed.isEmpty());
+        assertEquals(Map.of("a", 1), assets.getReferencedAssets());
+        assertEquals("a", copy.get().name);
+        assertThrows(IllegalStateException.class, handle::get);
+        assertThrows(IllegalStateException.class, handle::retain);
+
+        copy.release();
+        assets.trim();
+        assertEquals(List.of("a"), destroyed);
+    }
+
+    @Test
+    void evictsLeastRecentlyReleasedFirst() {
+        AssetHandle<Blob> a = acquire("a", 400);
+        AssetHandle<Blob> b = acquire("b", 400);
+        AssetHandle<Blob> c = acquire("c", 100);
+        b.release();
+        a.release();
+        c.release();
+        assertTrue(destroyed.isEmpty());
+
+        // 900 bytes loaded, going down to 450 evicts b then a, c was released last
+        assets.setBudgetBytes(450);
+        assertEquals(List.of("b", "a"), destroyed);
+        assertEquals(100, assets.getGpuBytes());
+        assertEquals(2, assets.getEvictionCount());
+
+        // Loading past the budget evicts the oldest unreferenced asset to make room
+        AssetHandle<Blob> d = acquire("d", 450);
+        assertEquals(List.of("b", "a", "c"), destroyed);
+        assertEquals(450, assets.getGpuBytes());
+        d.release();
+    }
+
+    @Test
+    void reacquiringMovesAssetToTheBackOfTheEvictionOrder() {
+        acquire("a", 300).release();
+        acquire("b", 300).release();
+        acquire("a", 300).release();
+
+        assets.setBudgetBytes(300);
+        assertEquals(List.of("b"), destroyed);
+    }
+
+    @Test
+    void neverEvictsReferencedAssets() {
+        AssetHandle<Blob> big = acquire("big", 800);
+        AssetHandle<Blob> other = acquire("other", 800);
+        assets.setBudgetBytes(0);
+        assets.trim();
+
+        assertTrue(destroyed.isEmpty());
+        assertEquals(1600, assets.getGpuBytes());
+        assertEquals("big", big.get().name);
+
+        // Over budget, so the first one released goes right away
+        other.release();
+        assertEquals(List.of("other"), destroyed);
+        big.release();
+        assertEquals(List.of("other", "big"), destroyed);
+        assertEquals(0, assets.getAssetCount());
+    }
+
+    @Test
+    void rejectsDoubleRelease() {
+        AssetHandle<Blob> handle = acquire("a", 100);
+        AssetHandle<Blob> other = acquire("a", 100);
+        handle.release();
+        assertThrows(IllegalStateException.class, handle::release);
+        // The failed release didn't drop the other handle's reference
+        assertEquals(Map.of("a", 1), assets.getReferencedAssets());
+        assertFalse(other.isReleased());
+    }
+
+    @Test
+    void releaseAfterCleanupIsHarmless() {
+        AssetHandle<Blob> leaked = acquire("leaked", 100);
+        acquire("idle", 100).release();
+        assets.cleanup();
+
+        assertEquals(2, destroyed.size());
+        assertTrue(destroyed.containsAll(List.of("leaked", "idle")));
+        assertEquals(0, assets.getAssetCount());
+        assertEquals(0, assets.getGpuBytes());
+
+        leaked.release();
+        assertEquals(2, destroyed.size(), "not destroyed a second time");
+        assertTrue(leaked.isReleased());
+
+        // The manager can be used again, loading from scratch
+        acquire("leaked", 100).release();
+        assertEquals(List.of("leaked", "idle", "leaked"), loaded);
+    }
+
+    @Test
+    void rejectsKeyHoldingAnotherType() {
+        AssetHandle<Blob> blob = acquire("a", 100);
+        assertThrows(IllegalArgumentException.class,
+                () -> assets.acquire("a", String.class, () -> "text", s -> 0L, s -> {}));
+        blob.release();
+    }
+
+    @Test
+    void failedLoadLeavesNothingBehind() {
+        assertThrows(IllegalStateException.class, () -> assets.acquire("broken", Blob.class,
+                () -> { throw new IllegalStateException("no such file"); }, blob -> blob.bytes, blob -> {}));
+        assertEquals(0, assets.getAssetCount());
+        assertEquals("a", acquire("a", 100).get().name);
+    }
+
+    private AssetHandle<Blob> acquire(String key, long bytes) {
+        return assets.acquire(key, Blob.class, () -> {
+            loaded.add(key);
+            return new Blob(key, bytes);
+        }, blob -> blob.bytes, blob -> destroyed.add(blob.name));
+    }
+}
@@ -0,0 +1,184 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.MeshData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlbParserTest {
+    // One triangle in the XY plane, positions then 16-bit indices
+    private static final String PACKED = """
+            {"asset": {"version": "2.0"},
+             "buffers": [{"byteLength": 44}],
+             "bufferViews": [{"buffer": 0, "byteOffset": 0, "byteLength": 36},
+                             {"buffer": 0, "byteOffset": 36, "byteLength": 6}],
+             "accessors": [{"bufferView": 0, "componentType": 5126, "count": 3, "type": "VEC3"},
+                           {"bufferView": 1, "componentType": 5123, "count": 3, "type": "SCALAR"}],
+             "meshes": [{"name": "Triangle", "primitives": [{"attributes": {"POSITION": 0}, "indices": 1}]}]}
+            """;
+    private static final float[] TRIANGLE = {0, 0, 0, 1, 0, 0, 0, 1, 0};
+
+    // The same triangle with interleaved positions and normals, placed by a translated node
+    private static final String INTERLEAVED = """
+            {"asset": {"version": "2.0"},
+             "scene": 0,
+             "scenes": [{"nodes": [0]}],
+             "nodes": [{"name": "Moved", "mesh": 0, "translation": [1, 2, 3]}],
+             "buffers": [{"byteLength": 76}],
+             "bufferViews": [{"buffer": 0, "byteOffset": 0, "byteLength": 72, "byteStride": 24},
+                             {"buffer": 0, "byteOffset": 72, "byteLength": 3}],
+             "accessors": [{"bufferView": 0, "byteOffset": 0, "componentType": 5126, "count": 3, "type": "VEC3"},
+                           {"bufferView": 0, "byteOffset": 12, "componentType": 5126, "count": 3, "type": "VEC3"},
+                           {"bufferView": 1, "componentType": 5121, "count": 3, "type": "SCALAR"}],
+             "meshes": [{"primitives": [{"attributes": {"POSITION": 0, "NORMAL": 1}, "indices": 2}]}]}
+            """;
+
+    // Positions padded to 16 bytes each, the view ends right after the last one
+    private static final String PADDED = """
+            {"asset": {"version": "2.0"},
+             "buffers": [{"byteLength": 44}],
+             "bufferViews": [{"buffer": 0, "byteOffset": 0, "byteLength": 44, "byteStride": 16}],
+             "accessors": [{"bufferView": 0, "componentType": 5126, "count": 3, "type": "VEC3"}],
+             "meshes": [{"primitives": [{"attributes": {"POSITION": 0}}]}]}
+            """;
+
+    @Test
+    void readsPackedAccessors() {
+        ModelData model = parse(PACKED, packedBin());
+        assertEquals(1, model.getParts().size());
+        assertEquals("Triangle", model.getPartNames().get(0));
+
+        MeshData part = model.getParts().get(0);
+        assertArrayEquals(TRIANGLE, part.getPositions());
+        assertArrayEquals(new int[]{0, 1, 2}, part.getIndices());
+        assertArrayEquals(new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1}, part.getNormals(), 1e-6f);
+    }
+
+    @Test
+    void readsInterleavedAccessorsAndBakesNodeTransforms() {
+        ByteBuffer bin = bin(76);
+        float[] normal = {0.0f, 0.6f, 0.8f};
+        for (int v = 0; v < 3; v++) {
+            bin.position(v * 24);
+            putFloats(bin, TRIANGLE[v * 3], TRIANGLE[v * 3 + 1], TRIANGLE[v * 3 + 2]);
+            putFloats(bin, normal);
+        }
+        bin.put(72, (byte) 2).put(73, (byte) 1).put(74, (byte) 0);
+
+        ModelData model = parse(INTERLEAVED, bin);
+        assertEquals("Moved", model.getPartNames().get(0));
+        MeshData part = model.getParts().get(0);
+        assertArrayEquals(new float[]{1, 2, 3, 2, 2, 3, 1, 3, 3}, part.getPositions());
+        assertArrayEquals(new float[]{0, 0.6f, 0.8f, 0, 0.6f, 0.8f, 0, 0.6f, 0.8f}, part.getNormals(), 1e-6f);
+        assertArrayEquals(new int[]{2, 1, 0}, part.getIndices());
+    }
+
+    @Test
+    void readsStridedAccessorEndingAtItsView() {
+        ByteBuffer bin = bin(44);
+        for (int v = 0; v < 3; v++) {
+            bin.position(v * 16);
+            putFloats(bin, TRIANGLE[v * 3], TRIANGLE[v * 3 + 1], TRIANGLE[v * 3 + 2]);
+        }
+        MeshData part = parse(PADDED, bin).getParts().get(0);
+        assertArrayEquals(TRIANGLE, part.getPositions());
+        assertArrayEquals(new int[]{0, 1, 2}, part.getIndices());
+    }
+
+    @Test
+    void rejectsAccessorsReadingPastTheirView() {
+        assertRejected(PACKED.replace("\"count\": 3, \"type\": \"VEC3\"", "\"count\": 4, \"type\": \"VEC3\""),
+                packedBin(), "accessor 0");
+        assertRejected(PACKED.replace("\"count\": 3, \"type\": \"SCALAR\"", "\"count\": 3, \"byteOffset\": 2, \"type\": \"SCALAR\""),
+                packedBin(), "accessor 1");
+        assertRejected(PACKED.replace("\"bufferView\": 0,", "\"bufferView\": 0, \"byteOffset\": -4,"),
+                packedBin(), "accessor 0");
+        // The last padded element needs 44 bytes
+        assertRejected(PADDED.replace("\"byteLength\": 44, \"byteStride\"", "\"byteLength\": 40, \"byteStride\""),
+                bin(44), "accessor 0");
+        // Elements overlapping each other
+        assertRejected(PADDED.replace("\"byteStride\": 16", "\"byteStride\": 8"), bin(44), "accessor 0");
+        // A view past the end of the binary chunk
+        assertRejected(PACKED.replace("\"byteOffset\": 36, \"byteLength\": 6", "\"byteOffset\": 40, \"byteLength\": 6"),
+                packedBin(), "accessor 1");
+    }
+
+    @Test
+    void rejectsMissingObjects() {
+        assertRejected(INTERLEAVED.replace("\"nodes\": [0]", "\"nodes\": [3]"), bin(76), "node 3");
+        assertRejected(INTERLEAVED.replace("\"mesh\": 0", "\"mesh\": 1"), bin(76), "mesh 1");
+        assertRejected(INTERLEAVED.replace("\"NORMAL\": 1", "\"NORMAL\": 7"), bin(76), "accessor 7");
+        assertRejected(INTERLEAVED.replace("\"scene\": 0", "\"scene\": 2"), bin(76), "scene 2");
+        assertRejected(PACKED.replace("{\"bufferView\": 1,", "{\"bufferView\": 5,"), packedBin(), "buffer view 5");
+    }
+
+    @Test
+    void rejectsMismatchedAttributes() {
+        // Two normals for three positions
+        String fewerNormals = INTERLEAVED.replace(
+                "\"byteOffset\": 12, \"componentType\": 5126, \"count\": 3", "\"byteOffset\": 12, \"componentType\": 5126, \"count\": 2");
+        assertRejected(fewerNormals, bin(76), "accessor 1");
+        assertRejected(PACKED.replace("\"type\": \"VEC3\"", "\"type\": \"VEC2\""), packedBin(), "accessor 0");
+        assertRejected(PACKED.replace("\"componentType\": 5123", "\"componentType\": 5126"), packedBin(), "accessor 1");
+    }
+
+    @Test
+    void rejectsBrokenContainers() {
+        ByteBuffer notGlb = ByteBuffer.wrap("solid cube\nendsolid\n".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(IllegalArgumentException.class, () -> GlbParser.parse("cube.stl", notGlb));
+
+        ByteBuffer truncated = glb(PACKED, packedBin());
+        truncated.putInt(12, 1 << 20);  // JSON chunk claims more than the file holds
+        assertThrows(IllegalArgumentException.class, () -> GlbParser.parse("test.glb", truncated));
+    }
+
+    private static ByteBuffer packedBin() {
+        ByteBuffer bin = bin(44);
+        putFloats(bin, TRIANGLE);
+        bin.putShort((short) 0).putShort((short) 1).putShort((short) 2);
+        return bin;
+    }
+
+    private static ByteBuffer bin(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putFloats(ByteBuffer buffer, float... values) {
+        for (float value : values) {
+            buffer.putFloat(value);
+        }
+    }
+
+    private static ModelData parse(String json, ByteBuffer bin) {
+        return GlbParser.parse("test.glb", glb(json, bin));
+    }
+
+    private static void assertRejected(String json, ByteBuffer bin, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(json, bin));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    // Header, JSON chunk padded with spaces and BIN chunk padded with zeros, as the spec lays them out
+    private static ByteBuffer glb(String json, ByteBuffer bin) {
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        int jsonLength = (jsonBytes.length + 3) & ~3;
+        int binLength = (bin.capacity() + 3) & ~3;
+        int length = 12 + 8 + jsonLength + 8 + binLength;
+
+        ByteBuffer glb = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        glb.putInt(0x46546C67).putInt(2).putInt(length);
+        glb.putInt(jsonLength).putInt(0x4E4F534A).put(jsonBytes);
+        while (glb.position() < 20 + jsonLength) {
+            glb.put((byte) ' ');
+        }
+        glb.putInt(binLength).putInt(0x004E4942).put(bin.duplicate().clear());
+        return glb.clear();
+    }
+}
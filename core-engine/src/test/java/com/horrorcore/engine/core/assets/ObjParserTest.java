@@ -0,0 +1,143 @@
+package com.horrorcore.engine.core.assets;
+
+import com.horrorcore.engine.core.graphics.MeshData;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjParserTest {
+    private static final String QUAD = """
+            # Unit quad facing +z
+            v 0 0 0
+            v 1 0 0
+            v 1 1 0
+            v 0 1 0
+            vn 0 0 1
+            f 1//1 2//1 3//1 4//1
+            """;
+
+    @Test
+    void triangulatesFacesAsFans() {
+        MeshData quad = parse(QUAD);
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3}, quad.getIndices());
+        assertArrayEquals(new float[]{0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0}, quad.getPositions());
+        assertArrayEquals(new float[]{0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1}, quad.getNormals());
+
+        MeshData pentagon = parse("v 0 0 0\nv 2 0 0\nv 3 1 0\nv 1 2 0\nv -1 1 0\nf 1 2 3 4 5\n");
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 3, 0, 3, 4}, pentagon.getIndices());
+    }
+
+    @Test
+    void resolvesRelativeIndicesLikeAbsoluteOnes() {
+        MeshData relative = parse("""
+                v 0 0 0
+                v 1 0 0
+                v 1 1 0
+                v 0 1 0
+                vn 0 0 1
+                f -4//-1 -3//-1 -2//-1 -1//-1
+                """);
+        MeshData absolute = parse(QUAD);
+        assertArrayEquals(absolute.getIndices(), relative.getIndices());
+        assertArrayEquals(absolute.getPositions(), relative.getPositions());
+        assertArrayEquals(absolute.getNormals(), relative.getNormals());
+    }
+
+    @Test
+    void readsTextureCoordinateFormsAndSkipsOtherLines() {
+        MeshData mesh = parse("""
+                o Triangle\r
+                v 0 0 0\r
+                v 1 0 0\r
+                v 0 1 0\r
+                vt 0 0\r
+                vt 1 0\r
+                vn 0 0 1\r
+                g group\r
+                usemtl stone\r
+                f 1/1/1 2/2/1 3/1/1 # trailing comment\r
+                f 1/1 2/2 3/2""");
+        assertEquals(6, mesh.getIndices().length);
+        assertEquals(3 * 3 * 2, mesh.getPositions().length, "corners with and without normals are different vertices");
+        float[] normals = mesh.getNormals();
+        for (int i = 0; i < normals.length; i += 3) {
+            assertArrayEquals(new float[]{0, 0, 1}, new float[]{normals[i], normals[i + 1], normals[i + 2]},
+                    "missing normals are filled in from the faces");
+        }
+    }
+
+    @Test
+    void computesNormalsWhenFileHasNone() {
+        MeshData mesh = parse("v 0 0 0\nv 0 0 1\nv 1 0 0\nf 1 2 3\n");
+        assertArrayEquals(new float[]{0, 1, 0, 0, 1, 0, 0, 1, 0}, mesh.getNormals(), 1e-6f);
+    }
+
+    @Test
+    void parsesNumberFormats() {
+        String[] numbers = {"0", "-0.25", "+3", "1.5e2", "2E-3", "0.000123456789", "123456.789",
+                "3.14159265358979323846", "-1.17549435E-38", "6.02214076e23", ".5", "7."};
+        StringBuilder obj = new StringBuilder();
+        for (int i = 0; i + 2 < numbers.length; i += 3) {
+            obj.append("v ").append(numbers[i]).append(' ').append(numbers[i + 1]).append(' ').append(numbers[i + 2]).append('\n');
+        }
+        float[] positions = parse(obj.toString()).getPositions();
+        for (int i = 0; i < numbers.length; i++) {
+            float expected = Float.parseFloat(numbers[i]);
+            assertEquals(expected, positions[i], Math.ulp(expected), numbers[i]);
+        }
+    }
+
+    @Test
+    void splittingIntoChunksDoesNotChangeTheMesh() {
+        // A strip of quads, each written right after its vertices with relative indices,
+        // so many faces reach back across chunk boundaries
+        StringBuilder obj = new StringBuilder("v 0 0 0\nv 0 1 0\n");
+        for (int i = 1; i <= 500; i++) {
+            obj.append("v ").append(i).append(" 0 0\n");
+            obj.append("v ").append(i).append(" 1 0\n");
+            obj.append("vn 0 0 1\n");
+            obj.append(i % 2 == 0 ? "f -4//-1 -2//-1 -1//-1 -3//-1\n"
+                    : "f " + (2 * i - 1) + "//" + i + ' ' + (2 * i + 1) + "//" + i + ' '
+                    + (2 * i + 2) + "//" + i + ' ' + (2 * i) + "//" + i + '\n');
+        }
+        ByteBuffer data = buffer(obj.toString());
+
+        MeshData whole = ObjParser.parse(data);
+        MeshData chunked = ObjParser.parse(data, 64);
+        assertEquals(1000, whole.getIndices().length / 3);
+        assertArrayEquals(whole.getIndices(), chunked.getIndices());
+        assertArrayEquals(whole.getPositions(), chunked.getPositions());
+        assertArrayEquals(whole.getNormals(), chunked.getNormals());
+    }
+
+    @Test
+    void rejectsIndicesOutsideTheFile() {
+        String triangle = "v 0 0 0\nv 1 0 0\nv 0 1 0\nvn 0 0 1\n";
+        assertRejected(triangle + "f 1 2 4\n", "position 4 of 3");
+        assertRejected(triangle + "f 0 1 2\n", "position 0");
+        assertRejected(triangle + "f -4 -2 -1\n", "position 0");
+        assertRejected(triangle + "f 1//1 2//2 3//1\n", "normal 2 of 1");
+        assertRejected(triangle + "f 1//-2 2//1 3//1\n", "normal 0");
+        // Relative indices only see vertices above the face
+        assertRejected("v 0 0 0\nf -1 -2 -3\nv 1 0 0\nv 0 1 0\n", "position 0");
+    }
+
+    private static void assertRejected(String obj, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> parse(obj));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static MeshData parse(String obj) {
+        return ObjParser.parse(buffer(obj));
+    }
+
+    private static ByteBuffer buffer(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+}
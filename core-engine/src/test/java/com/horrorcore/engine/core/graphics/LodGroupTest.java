@@ -0,0 +1,88 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LodGroupTest {
+    private LodGroup group;
+
+    @BeforeEach
+    void setUp() {
+        // Level selection only looks at the screen sizes, the meshes are never touched
+        group = new LodGroup(new Mesh[3], new float[]{0.5f, 0.2f, 0.05f});
+    }
+
+    @Test
+    void picksFirstLevelWhoseScreenSizeFits() {
+        assertEquals(0, group.selectLevel(-1, 2.0f));
+        assertEquals(0, group.selectLevel(-1, 0.5f));
+        assertEquals(1, group.selectLevel(-1, 0.49f));
+        assertEquals(1, group.selectLevel(-1, 0.2f));
+        assertEquals(2, group.selectLevel(-1, 0.1f));
+        assertEquals(2, group.selectLevel(-1, 0.05f));
+    }
+
+    @Test
+    void returnsLevelCountWhenTooSmallToDraw() {
+        assertEquals(3, group.selectLevel(-1, 0.04f));
+        assertEquals(3, group.selectLevel(2, 0.01f));
+        assertEquals(3, group.selectLevel(-1, 0.0f));
+    }
+
+    @Test
+    void holdsCurrentLevelWithinHysteresis() {
+        // Level 1 covers [0.2, 0.5), widened by 10% each way while it's the current level
+        assertEquals(1, group.selectLevel(1, 0.54f));
+        assertEquals(0, group.selectLevel(1, 0.56f));
+        assertEquals(1, group.selectLevel(1, 0.185f));
+        assertEquals(2, group.selectLevel(1, 0.175f));
+
+        // Coming back from level 0 the switch happens 10% below the boundary
+        assertEquals(0, group.selectLevel(0, 0.46f));
+        assertEquals(1, group.selectLevel(0, 0.44f));
+
+        // Not drawn stays not drawn until clearly above the last size
+        assertEquals(3, group.selectLevel(3, 0.054f));
+        assertEquals(2, group.selectLevel(3, 0.06f));
+    }
+
+    @Test
+    void switchesAtExactBoundariesWithoutHysteresis() {
+        group.setHysteresis(0.0f);
+        assertEquals(0, group.selectLevel(1, 0.5f));
+        assertEquals(1, group.selectLevel(0, 0.49f));
+        assertEquals(3, group.selectLevel(2, 0.049f));
+    }
+
+    @Test
+    void lastLevelOfZeroIsAlwaysDrawn() {
+        LodGroup always = new LodGroup(new Mesh[2], new float[]{0.3f, 0.0f});
+        assertEquals(1, always.selectLevel(-1, 0.0f));
+        assertEquals(1, always.selectLevel(1, 1e-6f));
+    }
+
+    @Test
+    void computesProjectedSize() {
+        assertEquals(0.25f, LodGroup.screenSize(1.0f, 8.0f, 2.0f), 1e-6f);
+        assertEquals(0.5f, LodGroup.screenSize(1.0f, 4.0f, 2.0f), 1e-6f);
+        assertEquals(Float.POSITIVE_INFINITY, LodGroup.screenSize(1.0f, 0.5f, 2.0f));
+        assertEquals(Float.POSITIVE_INFINITY, LodGroup.screenSize(1.0f, -3.0f, 2.0f));
+    }
+
+    @Test
+    void rejectsMismatchedOrAscendingSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new LodGroup(new Mesh[0], new float[0]));
+        assertThrows(IllegalArgumentException.class, () -> new LodGroup(new Mesh[2], new float[]{0.5f}));
+        assertThrows(IllegalArgumentException.class, () -> new LodGroup(new Mesh[2], new float[]{0.1f, 0.5f}));
+    }
+
+    @Test
+    void rejectsReductionOutsideUnitRange() {
+        MeshData triangle = new MeshData(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, null, new int[]{0, 1, 2});
+        assertThrows(IllegalArgumentException.class, () -> LodGroup.generate(triangle, new float[]{0.5f, 0.1f}, 0.0f));
+        assertThrows(IllegalArgumentException.class, () -> LodGroup.generate(triangle, new float[]{0.5f, 0.1f}, 1.0f));
+    }
+}
@@ -0,0 +1,153 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+
+class MeshBuilderTest {
+    // What an upload received, copied out before the builder reuses its buffers
+    private static final class Upload {
+        int vertexCount;
+        int vertexBytes;
+        int indexType;
+        int[] indices;
+    }
+
+    private static final MeshBuilder.Uploader<Upload> CAPTURE = (layout, vertices, vertexCount, indices, indexType, usage) -> {
+        Upload upload = new Upload();
+        upload.vertexCount = vertexCount;
+        upload.vertexBytes = vertices.remaining();
+        upload.indexType = indexType;
+        ByteBuffer data = indices.duplicate().order(ByteOrder.nativeOrder());
+        upload.indices = new int[data.remaining() / (indexType == GL_UNSIGNED_SHORT ? Short.BYTES : Integer.BYTES)];
+        for (int i = 0; i < upload.indices.length; i++) {
+            upload.indices[i] = indexType == GL_UNSIGNED_SHORT ? data.getShort(i * Short.BYTES) & 0xFFFF : data.getInt(i * Integer.BYTES);
+        }
+        return upload;
+    };
+
+    private MeshBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        // Small initial buffers so the tests also cover growing them
+        builder = new MeshBuilder(VertexLayout.POSITION_NORMAL, 16, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        builder.close();
+    }
+
+    @Test
+    void rebuildsAbove16BitRangeAfterClear() {
+        Upload first = buildStrip(70_000);
+        assertEquals(GL_UNSIGNED_INT, first.indexType);
+        assertArrayEquals(stripIndices(70_000), first.indices);
+
+        // More triangles than the first mesh, written past where the upload left the buffer's limit
+        builder.clear();
+        Upload second = buildStrip(80_000);
+        assertEquals(GL_UNSIGNED_INT, second.indexType);
+        assertEquals(80_000, second.vertexCount);
+        assertEquals(80_000 * VertexLayout.POSITION_NORMAL.getStride(), second.vertexBytes);
+        assertArrayEquals(stripIndices(80_000), second.indices);
+    }
+
+    @Test
+    void keepsContentsAfterBuildForFurtherTriangles() {
+        strip(70_000);
+        builder.build(CAPTURE);
+
+        int a = builder.vertex(0, 0, 1, 0, 0, 1);
+        int b = builder.vertex(1, 0, 1, 0, 0, 1);
+        int c = builder.vertex(0, 1, 1, 0, 0, 1);
+        builder.triangle(a, b, c);
+        Upload grown = builder.build(CAPTURE);
+
+        int[] expected = Arrays.copyOf(stripIndices(70_000), builder.getIndexCount());
+        expected[expected.length - 3] = 70_000;
+        expected[expected.length - 2] = 70_001;
+        expected[expected.length - 1] = 70_002;
+        assertArrayEquals(expected, grown.indices);
+    }
+
+    @Test
+    void restores32BitIndicesAfter16BitUpload() {
+        Upload small = buildStrip(100);
+        assertEquals(GL_UNSIGNED_SHORT, small.indexType);
+        assertArrayEquals(stripIndices(100), small.indices);
+
+        // Grows past 16 bits without clearing, so the narrowed indices must have been widened back
+        for (int i = 100; i < 70_000; i++) {
+            builder.vertex(i, 0, 0, 0, 1, 0);
+        }
+        for (int i = 98; i + 2 < 70_000; i++) {
+            builder.triangle(i, i + 1, i + 2);
+        }
+        Upload large = builder.build(CAPTURE);
+        assertEquals(GL_UNSIGNED_INT, large.indexType);
+        assertArrayEquals(stripIndices(70_000), large.indices);
+    }
+
+    @Test
+    void appendsMeshDataAfterBuild() {
+        buildStrip(70_000);
+        MeshData triangle = new MeshData(new float[]{0, 0, 0, 1, 0, 0, 0, 1, 0}, new float[9], new int[]{0, 1, 2});
+        builder.append(triangle);
+        Upload upload = builder.build(CAPTURE);
+        int[] indices = upload.indices;
+        assertArrayEquals(new int[]{70_000, 70_001, 70_002},
+                new int[]{indices[indices.length - 3], indices[indices.length - 2], indices[indices.length - 1]});
+    }
+
+    @Test
+    void rejectsIndicesPastTheLastVertex() {
+        builder.vertex(0, 0, 0, 0, 1, 0);
+        builder.vertex(1, 0, 0, 0, 1, 0);
+        builder.triangle(0, 1, 2);
+        assertThrows(IllegalStateException.class, () -> builder.build(CAPTURE));
+
+        // Nothing was narrowed, adding the missing vertex makes the mesh valid
+        builder.vertex(0, 1, 0, 0, 1, 0);
+        assertArrayEquals(new int[]{0, 1, 2}, builder.build(CAPTURE).indices);
+
+        builder.clear();
+        assertThrows(IllegalStateException.class, () -> builder.build(CAPTURE));
+    }
+
+    private Upload buildStrip(int vertexCount) {
+        strip(vertexCount);
+        return builder.build(CAPTURE);
+    }
+
+    // Triangle strip along x written as a list, every triangle sharing an edge with the next
+    private void strip(int vertexCount) {
+        for (int i = 0; i < vertexCount; i++) {
+            builder.vertex(i, i % 2, 0, 0, 0, 1);
+        }
+        for (int i = 0; i + 2 < vertexCount; i++) {
+            builder.triangle(i, i + 1, i + 2);
+        }
+    }
+
+    private static int[] stripIndices(int vertexCount) {
+        int[] indices = new int[(vertexCount - 2) * 3];
+        for (int i = 0; i + 2 < vertexCount; i++) {
+            indices[i * 3] = i;
+            indices[i * 3 + 1] = i + 1;
+            indices[i * 3 + 2] = i + 2;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,197 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeshSimplifierTest {
+    @Test
+    void returnsSourceWhenAlreadySmallEnough() {
+        MeshData grid = grid(4, new float[5 * 5]);
+        assertSame(grid, MeshSimplifier.simplify(grid, 32));
+        assertSame(grid, MeshSimplifier.simplify(grid, 100));
+    }
+
+    @Test
+    void collapsesFlatGridWithoutMovingItOrItsBorder() {
+        MeshData grid = grid(16, new float[17 * 17]);
+        MeshData simplified = MeshSimplifier.simplify(grid, 32);
+
+        int triangles = simplified.getIndices().length / 3;
+        assertTrue(triangles <= 32, "reduced to " + triangles + " triangles");
+        float[] positions = simplified.getPositions();
+        for (int v = 1; v < positions.length; v += 3) {
+            assertEquals(0.0f, positions[v], 1e-5f, "vertices stay in the plane");
+        }
+        assertEquals(new Vector3f(0, 0, 0), simplified.getBoundsMin());
+        assertEquals(new Vector3f(1, 0, 1), simplified.getBoundsMax());
+        // No holes or folds: the upward faces still cover the square exactly once
+        assertEquals(1.0, upwardArea(simplified), 1e-4);
+    }
+
+    @Test
+    void keepsClosedSurfaceWatertightAndFacingOutward() {
+        MeshData sphere = sphere(32, 16);
+        int sourceTriangles = sphere.getIndices().length / 3;
+        MeshData simplified = MeshSimplifier.simplify(sphere, sourceTriangles / 4);
+
+        int triangles = simplified.getIndices().length / 3;
+        assertTrue(triangles <= sourceTriangles / 4 + 2, "reduced to " + triangles + " triangles");
+        assertWatertight(simplified);
+
+        float[] p = simplified.getPositions();
+        for (int v = 0; v < p.length; v += 3) {
+            float radius = (float) Math.sqrt(p[v] * p[v] + p[v + 1] * p[v + 1] + p[v + 2] * p[v + 2]);
+            assertEquals(1.0f, radius, 0.05f, "vertices stay near the surface");
+        }
+        int[] indices = simplified.getIndices();
+        for (int t = 0; t < indices.length; t += 3) {
+            double[] n = normal(p, indices[t], indices[t + 1], indices[t + 2]);
+            double cx = p[indices[t] * 3] + p[indices[t + 1] * 3] + p[indices[t + 2] * 3];
+            double cy = p[indices[t] * 3 + 1] + p[indices[t + 1] * 3 + 1] + p[indices[t + 2] * 3 + 1];
+            double cz = p[indices[t] * 3 + 2] + p[indices[t + 1] * 3 + 2] + p[indices[t + 2] * 3 + 2];
+            assertTrue(n[0] * cx + n[1] * cy + n[2] * cz > 0, "triangle " + t / 3 + " faces inward");
+        }
+    }
+
+    @Test
+    void rejectsCollapsesThatFlipTriangles() {
+        // A bumpy heightfield, every collapse lands somewhere the quadrics can't keep flat
+        Random random = new Random(7);
+        float[] heights = new float[25 * 25];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = random.nextFloat() * 0.02f;
+        }
+        MeshData terrain = grid(24, heights);
+
+        for (int target : new int[]{400, 100, 20, 2}) {
+            MeshData simplified = MeshSimplifier.simplify(terrain, target);
+            float[] p = simplified.getPositions();
+            int[] indices = simplified.getIndices();
+            for (int t = 0; t < indices.length; t += 3) {
+                double[] n = normal(p, indices[t], indices[t + 1], indices[t + 2]);
+                assertTrue(n[1] > 0, "triangle " + t / 3 + " flipped at target " + target);
+            }
+        }
+    }
+
+    @Test
+    void copiesNormalsFromSourceVertices() {
+        MeshData sphere = sphere(16, 8);
+        MeshData simplified = MeshSimplifier.simplify(sphere, 64);
+        float[] normals = simplified.getNormals();
+        assertEquals(simplified.getPositions().length, normals.length);
+        for (int v = 0; v < normals.length; v += 3) {
+            float length = normals[v] * normals[v] + normals[v + 1] * normals[v + 1] + normals[v + 2] * normals[v + 2];
+            assertEquals(1.0f, length, 1e-4f, "normals are copied from source vertices");
+        }
+    }
+
+    // Unit square in the XZ plane split into n x n quads, facing up, heights per grid point
+    private static MeshData grid(int n, float[] heights) {
+        int side = n + 1;
+        float[] positions = new float[side * side * 3];
+        float[] normals = new float[side * side * 3];
+        for (int z = 0; z < side; z++) {
+            for (int x = 0; x < side; x++) {
+                int v = z * side + x;
+                positions[v * 3] = x / (float) n;
+                positions[v * 3 + 1] = heights[v];
+                positions[v * 3 + 2] = z / (float) n;
+                normals[v * 3 + 1] = 1.0f;
+            }
+        }
+        int[] indices = new int[n * n * 6];
+        int i = 0;
+        for (int z = 0; z < n; z++) {
+            for (int x = 0; x < n; x++) {
+                int v = z * side + x;
+                indices[i++] = v;
+                indices[i++] = v + side;
+                indices[i++] = v + 1;
+                indices[i++] = v + 1;
+                indices[i++] = v + side;
+                indices[i++] = v + side + 1;
+            }
+        }
+        return new MeshData(positions, normals, indices);
+    }
+
+    // Unit UV sphere laid out like MeshGenerator's, with duplicated seam and pole vertices
+    private static MeshData sphere(int segments, int rings) {
+        int vertexCount = (rings + 1) * (segments + 1);
+        float[] positions = new float[vertexCount * 3];
+        for (int ring = 0; ring <= rings; ring++) {
+            double phi = Math.PI * ring / rings;
+            for (int segment = 0; segment <= segments; segment++) {
+                double theta = 2 * Math.PI * segment / segments;
+                int v = ring * (segments + 1) + segment;
+                positions[v * 3] = (float) (Math.sin(phi) * Math.cos(theta));
+                positions[v * 3 + 1] = (float) Math.cos(phi);
+                positions[v * 3 + 2] = (float) (Math.sin(phi) * Math.sin(theta));
+            }
+        }
+        int[] indices = new int[rings * segments * 6];
+        int i = 0;
+        for (int ring = 0; ring < rings; ring++) {
+            for (int segment = 0; segment < segments; segment++) {
+                int a = ring * (segments + 1) + segment;
+                int b = a + segments + 1;
+                indices[i++] = a;
+                indices[i++] = a + 1;
+                indices[i++] = b;
+                indices[i++] = a + 1;
+                indices[i++] = b + 1;
+                indices[i++] = b;
+            }
+        }
+        return new MeshData(positions, positions.clone(), indices);
+    }
+
+    private static double upwardArea(MeshData mesh) {
+        float[] p = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        double area = 0;
+        for (int t = 0; t < indices.length; t += 3) {
+            area += 0.5 * normal(p, indices[t], indices[t + 1], indices[t + 2])[1];
+        }
+        return area;
+    }
+
+    // Every edge between distinct positions is shared by exactly two triangles in opposite directions
+    private static void assertWatertight(MeshData mesh) {
+        float[] p = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        Map<String, Integer> edges = new HashMap<>();
+        for (int t = 0; t < indices.length; t += 3) {
+            for (int k = 0; k < 3; k++) {
+                String from = key(p, indices[t + k]);
+                String to = key(p, indices[t + (k + 1) % 3]);
+                if (from.equals(to)) continue;
+                edges.merge(from + ">" + to, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<String, Integer> edge : edges.entrySet()) {
+            assertEquals(1, edge.getValue(), "edge used twice in one direction: " + edge.getKey());
+            String[] ends = edge.getKey().split(">");
+            assertTrue(edges.containsKey(ends[1] + ">" + ends[0]), "open edge " + edge.getKey());
+        }
+    }
+
+    private static String key(float[] p, int v) {
+        return (p[v * 3] + 0.0f) + "," + (p[v * 3 + 1] + 0.0f) + "," + (p[v * 3 + 2] + 0.0f);
+    }
+
+    private static double[] normal(float[] p, int a, int b, int c) {
+        double ux = p[b * 3] - p[a * 3], uy = p[b * 3 + 1] - p[a * 3 + 1], uz = p[b * 3 + 2] - p[a * 3 + 2];
+        double vx = p[c * 3] - p[a * 3], vy = p[c * 3 + 1] - p[a * 3 + 1], vz = p[c * 3 + 2] - p[a * 3 + 2];
+        return new double[]{uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx};
+    }
+}
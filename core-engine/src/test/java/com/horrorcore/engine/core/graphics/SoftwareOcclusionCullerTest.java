@@ -0,0 +1,116 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoftwareOcclusionCullerTest {
+    // Unit cube centered at the origin
+    private static final MeshData CUBE = new MeshData(
+            new float[]{
+                    -0.5f, -0.5f, -0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, -0.5f,
+                    -0.5f, -0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f, 0.5f, 0.5f, -0.5f, 0.5f, 0.5f},
+            null,
+            new int[]{
+                    0, 2, 1, 0, 3, 2,  // Back
+                    4, 5, 6, 4, 6, 7,  // Front
+                    0, 4, 7, 0, 7, 3,  // Left
+                    1, 2, 6, 1, 6, 5,  // Right
+                    0, 1, 5, 0, 5, 4,  // Bottom
+                    3, 7, 6, 3, 6, 2}); // Top
+
+    private SoftwareOcclusionCuller culler;
+    private Matrix4f viewProjection;
+
+    @BeforeEach
+    void setUp() {
+        culler = new SoftwareOcclusionCuller();
+        // Camera at the origin looking down -z, aspect matching the depth buffer
+        viewProjection = new Matrix4f().setPerspective((float) Math.toRadians(60.0),
+                (float) SoftwareOcclusionCuller.WIDTH / SoftwareOcclusionCuller.HEIGHT, 0.1f, 100.0f);
+    }
+
+    @Test
+    void wallHidesBoxFullyBehindIt() {
+        addWall();
+        assertTrue(isOccluded(-0.5f, -0.5f, -11.0f, 0.5f, 0.5f, -10.0f));
+        // Bigger but still inside the wall's silhouette at that distance
+        assertTrue(isOccluded(-3.0f, -3.0f, -16.0f, 3.0f, 3.0f, -15.0f));
+    }
+
+    @Test
+    void boxPeekingPastTheWallStaysVisible() {
+        addWall();
+        assertFalse(isOccluded(3.0f, -0.5f, -11.0f, 6.0f, 0.5f, -10.0f));
+        assertFalse(isOccluded(-0.5f, 3.0f, -11.0f, 0.5f, 6.0f, -10.0f));
+    }
+
+    @Test
+    void boxInFrontOfTheWallStaysVisible() {
+        addWall();
+        assertFalse(isOccluded(-0.5f, -0.5f, -3.0f, 0.5f, 0.5f, -2.0f));
+        // Intersecting the wall counts as in front of it
+        assertFalse(isOccluded(-0.5f, -0.5f, -6.0f, 0.5f, 0.5f, -4.0f));
+    }
+
+    @Test
+    void boxStraddlingNearPlaneStaysVisible() {
+        addWall();
+        assertFalse(isOccluded(-0.5f, -0.5f, -1.0f, 0.5f, 0.5f, 1.0f));
+        assertFalse(isOccluded(-0.5f, -0.5f, -10.0f, 0.5f, 0.5f, 0.05f));
+    }
+
+    @Test
+    void skipsOccluderTrianglesCrossingNearPlane() {
+        // A slope from behind the camera out to the distance, every triangle has a corner behind the near plane
+        MeshData slope = new MeshData(
+                new float[]{-3, -3, 1, 3, -3, 1, 3, 3, -9, -3, 3, -9},
+                null,
+                new int[]{0, 1, 2, 0, 2, 3});
+        culler.begin(viewProjection);
+        culler.addOccluder(slope, new Matrix4f());
+        culler.finish();
+
+        assertEquals(1, culler.getOccluderCount());
+        assertEquals(0, culler.getTriangleCount());
+        assertFalse(isOccluded(-0.5f, -0.5f, -20.0f, 0.5f, 0.5f, -19.0f));
+    }
+
+    @Test
+    void ignoresOccludersOutsideTheFrustum() {
+        culler.begin(viewProjection);
+        culler.addOccluder(CUBE, new Matrix4f().translate(0.0f, 0.0f, 5.0f).scale(4.0f, 4.0f, 0.2f));
+        culler.finish();
+
+        assertEquals(0, culler.getOccluderCount());
+        assertFalse(isOccluded(-0.5f, -0.5f, -11.0f, 0.5f, 0.5f, -10.0f));
+    }
+
+    @Test
+    void forgetsLastFramesOccluders() {
+        addWall();
+        assertTrue(isOccluded(-0.5f, -0.5f, -11.0f, 0.5f, 0.5f, -10.0f));
+
+        culler.begin(viewProjection);
+        culler.finish();
+        assertFalse(isOccluded(-0.5f, -0.5f, -11.0f, 0.5f, 0.5f, -10.0f));
+    }
+
+    // A 4 x 4 wall, 0.2 thick, centered 5 units ahead
+    private void addWall() {
+        culler.begin(viewProjection);
+        culler.addOccluder(CUBE, new Matrix4f().translate(0.0f, 0.0f, -5.0f).scale(4.0f, 4.0f, 0.2f));
+        culler.finish();
+        assertEquals(1, culler.getOccluderCount());
+        assertEquals(12, culler.getTriangleCount());
+    }
+
+    private boolean isOccluded(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return culler.isOccluded(null, new Vector3f(minX, minY, minZ), new Vector3f(maxX, maxY, maxZ));
+    }
+}
@@ -0,0 +1,76 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TextBuilderTest {
+    @Test
+    void appendsLongs() {
+        TextBuilder text = new TextBuilder();
+        assertEquals("0", text.clear().append(0L).toString());
+        assertEquals("1234567890", text.clear().append(1234567890L).toString());
+        assertEquals("-42", text.clear().append(-42L).toString());
+        assertEquals("-9223372036854775808", text.clear().append(Long.MIN_VALUE).toString());
+        assertEquals("9223372036854775807", text.clear().append(Long.MAX_VALUE).toString());
+    }
+
+    @Test
+    void appendsFloatsLikeStringFormat() {
+        float[] values = {0.0f, 1.0f, 2.5f, -2.5f, 0.125f, 123.456f, -0.004f, 99.995f, 1.0e9f};
+        TextBuilder text = new TextBuilder();
+        for (float value : values) {
+            for (int decimals = 0; decimals <= 3; decimals++) {
+                String expected = String.format(Locale.ROOT, "%." + decimals + "f", (double) value);
+                if (expected.matches("-0[.0]*")) {
+                    expected = expected.substring(1);
+                }
+                assertEquals(expected, text.clear().append(value, decimals).toString(),
+                        value + " with " + decimals + " decimals");
+            }
+        }
+    }
+
+    @Test
+    void doesNotPrintNegativeZero() {
+        assertEquals("0.00", new TextBuilder().append(-0.001f, 2).toString());
+        assertEquals("0", new TextBuilder().append(-0.4f, 0).toString());
+    }
+
+    @Test
+    void appendsSpecialFloats() {
+        assertEquals("NaN", new TextBuilder().append(Float.NaN, 2).toString());
+        assertEquals("Infinity", new TextBuilder().append(Float.POSITIVE_INFINITY, 2).toString());
+        assertEquals("-Infinity", new TextBuilder().append(Float.NEGATIVE_INFINITY, 2).toString());
+        assertEquals(Float.toString(3.0e20f), new TextBuilder().append(3.0e20f, 2).toString());
+    }
+
+    @Test
+    void clampsDecimals() {
+        assertEquals("1.500000", new TextBuilder().append(1.5f, 20).toString());
+        assertEquals("2", new TextBuilder().append(1.5f, -3).toString());
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        TextBuilder text = new TextBuilder(2);
+        text.append("Position: ").append(1.0f, 2).append(", ").append(true).append('!');
+        assertEquals("Position: 1.00, true!", text.toString());
+        assertEquals(21, text.length());
+    }
+
+    @Test
+    void behavesAsCharSequence() {
+        TextBuilder text = new TextBuilder().append("abcdef");
+        assertEquals('c', text.charAt(2));
+        assertEquals("bcd", text.subSequence(1, 4).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> text.charAt(6));
+
+        text.clear().append("xy");
+        assertEquals(2, text.length());
+        assertThrows(IndexOutOfBoundsException.class, () -> text.charAt(2));
+    }
+}
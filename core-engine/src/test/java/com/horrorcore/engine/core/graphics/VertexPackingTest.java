@@ -0,0 +1,59 @@
+package com.horrorcore.engine.core.graphics;
+
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VertexPackingTest {
+    // snorm16 octahedral normals are accurate to well under a hundredth of a degree
+    private static final float MIN_DOT = 0.99999f;
+
+    @Test
+    void octahedralRoundTripsAxisNormals() {
+        float[][] axes = {
+                {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}
+        };
+        for (float[] axis : axes) {
+            assertRoundTrip(new Vector3f(axis[0], axis[1], axis[2]));
+        }
+    }
+
+    @Test
+    void octahedralRoundTripsLowerHemisphereOnAxisPlanes() {
+        // One component zero and z negative, folded with signum() these came back mirrored
+        assertRoundTrip(new Vector3f(0.0f, 0.6f, -0.8f));
+        assertRoundTrip(new Vector3f(0.6f, 0.0f, -0.8f));
+        assertRoundTrip(new Vector3f(0.0f, -0.6f, -0.8f));
+        assertRoundTrip(new Vector3f(-0.6f, 0.0f, -0.8f));
+    }
+
+    @Test
+    void octahedralRoundTripsSampledSphere() {
+        // Fibonacci sphere, evenly spread over both hemispheres
+        int samples = 4096;
+        float goldenAngle = (float) (Math.PI * (3.0 - Math.sqrt(5.0)));
+        for (int i = 0; i < samples; i++) {
+            float z = 1.0f - 2.0f * (i + 0.5f) / samples;
+            float radius = (float) Math.sqrt(1.0f - z * z);
+            float angle = goldenAngle * i;
+            assertRoundTrip(new Vector3f(radius * (float) Math.cos(angle), radius * (float) Math.sin(angle), z));
+        }
+    }
+
+    @Test
+    void halfFloatConvertsExactValues() {
+        assertEquals((short) 0x3C00, VertexPacking.floatToHalf(1.0f));
+        assertEquals((short) 0xC000, VertexPacking.floatToHalf(-2.0f));
+        assertEquals((short) 0x0000, VertexPacking.floatToHalf(0.0f));
+        assertEquals((short) 0x7C00, VertexPacking.floatToHalf(1.0e6f));
+    }
+
+    private static void assertRoundTrip(Vector3f normal) {
+        normal.normalize();
+        Vector3f decoded = VertexPacking.decodeOctahedral(
+                VertexPacking.encodeOctahedral(normal.x, normal.y, normal.z), new Vector3f());
+        assertTrue(decoded.dot(normal) > MIN_DOT, () -> normal + " decoded as " + decoded);
+    }
+}
@@ -0,0 +1,226 @@
+package com.horrorcore.engine.core.graphics.framegraph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameGraphTest {
+    private static final PassExecutor NOTHING = context -> {};
+
+    // Hands out increasing ids instead of GL textures
+    private static final class FakeStorage implements TransientTexturePool.Storage {
+        int created;
+        final List<Integer> deleted = new ArrayList<>();
+
+        @Override
+        public int create(TextureFormat format, int width, int height) {
+            return ++created;
+        }
+
+        @Override
+        public void delete(int textureId) {
+            deleted.add(textureId);
+        }
+    }
+
+    private FakeStorage storage;
+    private FrameGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        storage = new FakeStorage();
+        graph = new FrameGraph(storage);
+    }
+
+    @Test
+    void cullsPassWhoseOutputIsNeverRead() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(640, 480);
+
+        PassBuilder scene = graph.addPass("Scene");
+        TextureHandle color = scene.create("Color", TextureFormat.RGBA8, 640, 480);
+        scene.write(color, true).execute(NOTHING);
+
+        PassBuilder debug = graph.addPass("Debug");
+        TextureHandle debugView = debug.create("DebugView", TextureFormat.RGBA8, 640, 480);
+        debug.read(color).write(debugView, true).execute(NOTHING);
+
+        graph.addPass("Composite").read(color).write(backbuffer, false).execute(NOTHING);
+        graph.compile();
+
+        assertEquals(1, graph.getCulledPassCount());
+        assertFalse(graph.isLive("Debug"));
+        assertTrue(graph.isLive("Scene"));
+        assertTrue(graph.isLive("Composite"));
+        assertEquals(0, graph.getTextureId(debugView), "culled output gets no storage");
+        assertNotEquals(0, graph.getTextureId(color));
+    }
+
+    @Test
+    void keepsSideEffectPassesAndTheirInputs() {
+        graph.beginFrame();
+        graph.importBackbuffer(64, 64);
+
+        PassBuilder ids = graph.addPass("Ids");
+        TextureHandle idTexture = ids.create("Ids", TextureFormat.R32UI, 64, 64);
+        ids.write(idTexture, true).execute(NOTHING);
+        graph.addPass("Readback").read(idTexture).sideEffect().execute(NOTHING);
+        graph.compile();
+
+        assertEquals(0, graph.getCulledPassCount());
+        assertTrue(graph.isLive("Ids"));
+    }
+
+    @Test
+    void keepsEarlierWriterOfAnOutputThatIsNotCleared() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(64, 64);
+
+        PassBuilder opaque = graph.addPass("Opaque");
+        TextureHandle color = opaque.create("Color", TextureFormat.RGBA8, 64, 64);
+        opaque.write(color, true).execute(NOTHING);
+        graph.addPass("Transparent").write(color, false).execute(NOTHING);
+        graph.addPass("Overdraw").write(color, true).execute(NOTHING);
+        graph.addPass("Present").read(color).write(backbuffer, false).execute(NOTHING);
+        graph.compile();
+
+        // Overdraw clears the color, so nothing before it contributes
+        assertFalse(graph.isLive("Opaque"));
+        assertFalse(graph.isLive("Transparent"));
+        assertTrue(graph.isLive("Overdraw"));
+        assertEquals(2, graph.getCulledPassCount());
+    }
+
+    @Test
+    void aliasesTransientsWithDisjointLifetimes() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(256, 256);
+
+        // A lives in passes 0-1, B in 1-2, C in 2-3: A and C never overlap
+        PassBuilder first = graph.addPass("First");
+        TextureHandle a = first.create("A", TextureFormat.RGBA16F, 256, 256);
+        first.write(a, true).execute(NOTHING);
+
+        PassBuilder second = graph.addPass("Second");
+        TextureHandle b = second.create("B", TextureFormat.RGBA16F, 256, 256);
+        second.read(a).write(b, true).execute(NOTHING);
+
+        PassBuilder third = graph.addPass("Third");
+        TextureHandle c = third.create("C", TextureFormat.RGBA16F, 256, 256);
+        third.read(b).write(c, true).execute(NOTHING);
+
+        graph.addPass("Present").read(c).write(backbuffer, false).execute(NOTHING);
+        graph.compile();
+
+        assertEquals(graph.getTextureId(a), graph.getTextureId(c));
+        assertNotEquals(graph.getTextureId(a), graph.getTextureId(b), "A and B are both used by Second");
+        assertEquals(2, graph.getTransientTextureCount());
+    }
+
+    @Test
+    void doesNotAliasOverlappingTransients() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(128, 128);
+
+        PassBuilder gbuffer = graph.addPass("GBuffer");
+        TextureHandle albedo = gbuffer.create("Albedo", TextureFormat.RGBA8, 128, 128);
+        TextureHandle normals = gbuffer.create("Normals", TextureFormat.RGBA8, 128, 128);
+        gbuffer.write(albedo, true).write(normals, true).execute(NOTHING);
+
+        PassBuilder lighting = graph.addPass("Lighting");
+        TextureHandle lit = lighting.create("Lit", TextureFormat.RGBA8, 128, 128);
+        lighting.read(albedo).read(normals).write(lit, true).execute(NOTHING);
+
+        graph.addPass("Present").read(lit).read(albedo).write(backbuffer, false).execute(NOTHING);
+        graph.compile();
+
+        int albedoId = graph.getTextureId(albedo);
+        int normalsId = graph.getTextureId(normals);
+        int litId = graph.getTextureId(lit);
+        assertNotEquals(albedoId, normalsId);
+        assertNotEquals(albedoId, litId);
+        assertNotEquals(normalsId, litId, "Normals is released only after Lighting, which creates Lit");
+        assertEquals(3, graph.getTransientTextureCount());
+    }
+
+    @Test
+    void doesNotAliasDifferentFormatsOrSizes() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(128, 128);
+
+        PassBuilder first = graph.addPass("First");
+        TextureHandle a = first.create("A", TextureFormat.RGBA8, 128, 128);
+        first.write(a, true).execute(NOTHING);
+
+        PassBuilder second = graph.addPass("Second");
+        TextureHandle half = second.create("Half", TextureFormat.RGBA8, 64, 64);
+        second.read(a).write(half, true).execute(NOTHING);
+
+        PassBuilder third = graph.addPass("Third");
+        TextureHandle hdr = third.create("Hdr", TextureFormat.RGBA16F, 128, 128);
+        third.read(half).write(hdr, true).execute(NOTHING);
+
+        graph.addPass("Present").read(hdr).write(backbuffer, false).execute(NOTHING);
+        graph.compile();
+
+        assertNotEquals(graph.getTextureId(a), graph.getTextureId(hdr));
+        assertEquals(3, graph.getTransientTextureCount());
+    }
+
+    @Test
+    void reusesPooledTexturesAcrossFramesAndEvictsIdleOnes() {
+        for (int frame = 0; frame < 3; frame++) {
+            declareSimpleFrame(256);
+            graph.compile();
+        }
+        assertEquals(1, storage.created);
+
+        // After a resize the old size goes unused and is eventually deleted
+        for (int frame = 0; frame < 62; frame++) {
+            declareSimpleFrame(512);
+            graph.compile();
+        }
+        assertEquals(2, storage.created);
+        assertEquals(List.of(1), storage.deleted);
+        assertEquals(1, graph.getTransientTextureCount());
+        assertEquals(512L * 512 * 4, graph.getTransientTextureBytes());
+    }
+
+    @Test
+    void rejectsReadsBeforeWritesAndStaleHandles() {
+        graph.beginFrame();
+        PassBuilder producer = graph.addPass("Producer");
+        TextureHandle color = producer.create("Color", TextureFormat.RGBA8, 32, 32);
+        PassBuilder consumer = graph.addPass("Consumer");
+        assertThrows(IllegalStateException.class, () -> consumer.read(color));
+
+        graph.beginFrame();
+        PassBuilder next = graph.addPass("Next");
+        assertThrows(IllegalStateException.class, () -> next.write(color, true));
+    }
+
+    @Test
+    void rejectsPassesWithoutExecutor() {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(32, 32);
+        graph.addPass("Forgotten").write(backbuffer, true);
+        assertThrows(IllegalStateException.class, graph::compile);
+    }
+
+    private void declareSimpleFrame(int size) {
+        graph.beginFrame();
+        TextureHandle backbuffer = graph.importBackbuffer(size, size);
+        PassBuilder scene = graph.addPass("Scene");
+        TextureHandle color = scene.create("Color", TextureFormat.RGBA8, size, size);
+        scene.write(color, true).execute(NOTHING);
+        graph.addPass("Present").read(color).write(backbuffer, false).execute(NOTHING);
+    }
+}
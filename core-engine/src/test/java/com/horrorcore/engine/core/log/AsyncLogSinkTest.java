@@ -0,0 +1,246 @@
+package com.horrorcore.engine.core.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogSinkTest {
+    // Collects printed lines, the sink only writes through println
+    private static final class Lines extends PrintStream {
+        private final List<String> lines = new ArrayList<>();
+
+        Lines() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        public synchronized void println(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public synchronized void println(Object line) {
+            lines.add(String.valueOf(line));
+        }
+
+        synchronized List<String> snapshot() {
+            return new ArrayList<>(lines);
+        }
+
+        // Lines from index from on
+        synchronized List<String> since(int from) {
+            return new ArrayList<>(lines.subList(from, lines.size()));
+        }
+    }
+
+    private final Lines out = new Lines();
+    private final Lines err = new Lines();
+    private AsyncLogSink sink;
+
+    @AfterEach
+    void tearDown() {
+        if (sink != null) {
+            sink.shutdown();
+        }
+    }
+
+    @Test
+    void deliversEveryEventOnceFromConcurrentProducers() throws InterruptedException {
+        int producers = 8;
+        int eventsPerProducer = 5000;
+        // Much smaller than the event count, so the ring wraps many times under contention
+        sink = new AsyncLogSink(64, out, err, true);
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            int producer = t;
+            threads[t] = new Thread(() -> {
+                LogEvent event = new LogEvent(sink);
+                awaitQuietly(start);
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    publishUntilAccepted(event(event, producer, i));
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.flush();
+
+        // One consumer in claim order, so each producer's events arrive in the order it sent them
+        int[] next = new int[producers];
+        for (String line : out.snapshot()) {
+            int[] event = parse(line);
+            assertEquals(next[event[0]], event[1], "producer " + event[0] + " lost or repeated an event");
+            next[event[0]]++;
+        }
+        int[] expected = new int[producers];
+        Arrays.fill(expected, eventsPerProducer);
+        assertArrayEquals(expected, next);
+    }
+
+    @Test
+    void wrapsAroundPastCapacity() {
+        sink = new AsyncLogSink(8, out, err, false);
+        LogEvent event = new LogEvent(sink);
+
+        // A partial lap first, so the full laps after it start in the middle of the ring
+        int sent = 0;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sink.publish(event(event, 0, sent++)));
+        }
+        sink.flush();
+        for (int lap = 0; lap < 4; lap++) {
+            for (int i = 0; i < 8; i++) {
+                assertTrue(sink.publish(event(event, 0, sent++)));
+            }
+            sink.flush();
+        }
+
+        List<String> lines = out.snapshot();
+        assertEquals(sent, lines.size());
+        for (int i = 0; i < sent; i++) {
+            assertEquals(i, parse(lines.get(i))[1]);
+        }
+        assertEquals(0, sink.getDroppedCount());
+        assertTrue(err.snapshot().isEmpty());
+    }
+
+    @Test
+    void dropsAndReportsEventsWhileFull() {
+        sink = new AsyncLogSink(8, out, err, false);
+        LogEvent event = new LogEvent(sink);
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(sink.publish(event(event, 0, i)));
+        }
+        for (int i = 8; i < 11; i++) {
+            assertFalse(sink.publish(event(event, 0, i)), "event " + i + " fit into a full ring");
+        }
+        assertEquals(3, sink.getDroppedCount());
+
+        sink.flush();
+        assertEquals(8, out.snapshot().size());
+        assertEquals(List.of("[log] 3 messages dropped, log buffer full"), err.snapshot());
+
+        // Draining made room again, and the loss isn't reported twice
+        assertTrue(sink.publish(event(event, 0, 11)));
+        sink.flush();
+        assertEquals(11, parse(out.snapshot().get(8))[1]);
+        assertEquals(3, sink.getDroppedCount());
+        assertEquals(1, err.snapshot().size());
+    }
+
+    @Test
+    void flushWaitsForClaimedSlotsToBeFilled() throws InterruptedException {
+        sink = new AsyncLogSink(8, out, err, false);
+        LogEvent event = new LogEvent(sink);
+        assertTrue(sink.publish(event(event, 0, 0)));
+        long claimed = sink.claim();
+        // Published after a slot that is still being filled
+        assertTrue(sink.publish(event(event, 0, 2)));
+
+        Thread flusher = new Thread(sink::flush);
+        flusher.start();
+        flusher.join(200);
+        assertTrue(flusher.isAlive(), "flush returned before the claimed slot was filled");
+        assertEquals(1, out.snapshot().size());
+
+        sink.fill(claimed, event(event, 0, 1));
+        flusher.join();
+        List<String> lines = out.snapshot();
+        assertEquals(3, lines.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, parse(lines.get(i))[1]);
+        }
+    }
+
+    @Test
+    void flushWritesEverythingPublishedBeforeIt() throws InterruptedException {
+        int producers = 4;
+        int eventsPerProducer = 20_000;
+        sink = new AsyncLogSink(64, out, err, true);
+        AtomicIntegerArray published = new AtomicIntegerArray(producers);
+        Thread[] threads = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            int producer = t;
+            threads[t] = new Thread(() -> {
+                LogEvent event = new LogEvent(sink);
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    publishUntilAccepted(event(event, producer, i));
+                    published.set(producer, i + 1);
+                }
+            });
+            threads[t].start();
+        }
+
+        // Producers keep claiming slots while flushing, so some claimed slots are still being filled
+        int[] written = new int[producers];
+        int seenLines = 0;
+        boolean producing = true;
+        while (producing) {
+            producing = false;
+            for (Thread thread : threads) {
+                producing |= thread.isAlive();
+            }
+            int[] before = new int[producers];
+            for (int t = 0; t < producers; t++) {
+                before[t] = published.get(t);
+            }
+            sink.flush();
+
+            for (String line : out.since(seenLines)) {
+                written[parse(line)[0]]++;
+                seenLines++;
+            }
+            for (int t = 0; t < producers; t++) {
+                assertTrue(written[t] >= before[t],
+                        "flush returned with " + written[t] + " of " + before[t] + " events of producer " + t + " written");
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(producers * eventsPerProducer, seenLines);
+    }
+
+    private void publishUntilAccepted(LogEvent event) {
+        while (!sink.publish(event)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static LogEvent event(LogEvent event, int producer, int index) {
+        return event.start(LogLevel.INFO, LogCategory.CORE, "event {} {}").arg(producer).arg(index);
+    }
+
+    // Producer and index of a written "event {} {}" line
+    private static int[] parse(String line) {
+        String[] words = line.substring(line.indexOf(": ") + 2).split(" ");
+        assertEquals("event", words[0], line);
+        return new int[]{Integer.parseInt(words[1]), Integer.parseInt(words[2])};
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}